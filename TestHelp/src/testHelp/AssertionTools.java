@@ -40,17 +40,17 @@ class AssertionTools {
 		OutputInfo.sync(); // always do this, otherwise have to deal with null info
 		if (ConsoleTester.getVerboseLevel() > 0)
 		{
-			OutputInfo.info.printTestClassNameIfNotAlreadyPrinted(System.out);
+			OutputInfo.info().printTestClassNameIfNotAlreadyPrinted(System.out);
 		}	
 		if (ConsoleTester.getVerboseLevel() > 1)
 		{
-			OutputInfo.info.printTestNameIfNotAlreadyPrinted(System.out);
+			OutputInfo.info().printTestNameIfNotAlreadyPrinted(System.out);
 		}	
 		
 	}
 	
 	/**
-	 * Like org.junit.Assert.fail, but OutputInfo-aware.  Calls OutputInfo.info.printInfoIfNotAlreadyPrinted, then
+	 * Like org.junit.Assert.fail, but OutputInfo-aware.  Calls OutputInfo.info().printInfoIfNotAlreadyPrinted, then
 	 * prints its own message, then calls org.junit.Assert.fail with message.  Called internally within assertion classes.  Can also
 	 * be called directly through {@link verify#fail}.
 	 * 
@@ -63,8 +63,8 @@ class AssertionTools {
 		if (ConsoleTester.getVerboseLevel() > 0)
 		{
 			syncInfo();
-			OutputInfo.info.printTestNameIfNotAlreadyPrinted(System.out); // won't be printed by syncInfo with verboseLevel 1
-			OutputInfo.info.printInfoIfNotAlreadyPrinted(System.out);
+			OutputInfo.info().printTestNameIfNotAlreadyPrinted(System.out); // won't be printed by syncInfo with verboseLevel 1
+			OutputInfo.info().printInfoIfNotAlreadyPrinted(System.out);
 			
 			OutputInfo.printFailMessage(System.out,message);
 			
@@ -96,7 +96,7 @@ class AssertionTools {
 		if (ConsoleTester.getVerboseLevel() > 0)
 		{
 			syncInfo();
-			OutputInfo.info.printInfoIfNotAlreadyPrinted(System.out);
+			OutputInfo.info().printInfoIfNotAlreadyPrinted(System.out);
 			
 			System.out.println("EXCEPTION:\n");
 			ConsoleTester.printChunkedStackTrace(ex);
@@ -133,7 +133,7 @@ class AssertionTools {
 	}
 	
 	/**
-	 * Calls OutputInfo.info.printInfoIfNotAlreadyPrinted, then prints its own message in form:
+	 * Calls OutputInfo.info().printInfoIfNotAlreadyPrinted, then prints its own message in form:
 	 * <p>
 	 * {@code ASSERTION WARNING (<testName>-<fileNameAndLineNumber>): <message>}.
 	 * <p>
@@ -145,7 +145,7 @@ class AssertionTools {
 		if (ConsoleTester.getVerboseLevel() > 0)
 		{
 			syncInfo();
-			OutputInfo.info.printInfoIfNotAlreadyPrinted(System.out);
+			OutputInfo.info().printInfoIfNotAlreadyPrinted(System.out);
 		
 			OutputInfo.printWarningMessage(System.out,message);
 		}
@@ -163,7 +163,7 @@ class AssertionTools {
 	}
 
 	/**
-	 * Calls OutputInfo.info.printInfoIfNotAlreadyPrinted, then prints its own message in form:
+	 * Calls OutputInfo.info().printInfoIfNotAlreadyPrinted, then prints its own message in form:
 	 * <p>
 	 * {@code ASSERTION INFO (<testName>-<fileNameAndLineNumber>): <message>}.
 	 * <p>
@@ -176,7 +176,7 @@ class AssertionTools {
 		if (ConsoleTester.getVerboseLevel() > 0)
 		{
 			syncInfo();
-			OutputInfo.info.printInfoIfNotAlreadyPrinted(System.out);
+			OutputInfo.info().printInfoIfNotAlreadyPrinted(System.out);
 		
 			OutputInfo.printInfoMessage(System.out,message);
 		}
@@ -0,0 +1,61 @@
+package testHelp;
+
+/**
+ * One case of a batch run by {@link ConsoleTester#getOutputsFromVFunction(VFunctionsAndVUnboundMethods.VFunction, java.util.List, boolean, String)} -
+ * an argument for the function being run and the text to feed to System.in.
+ *
+ * @param <A> the type of the argument
+ *
+ * @author John Armstrong
+ */
+public final class BatchCase<A>
+{
+	private final A arg;
+	private final String input;
+
+	private BatchCase(A arg, String input)
+	{
+		this.arg = arg;
+		this.input = (input == null) ? "" : input;
+	}
+
+	/**
+	 * Make a case.
+	 *
+	 * @param <A> the type of the argument
+	 * @param arg the argument to pass to the function being run
+	 * @param input text to feed to System.in, or null for none
+	 * @return the case
+	 */
+	public static <A> BatchCase<A> of(A arg, String input)
+	{
+		return new BatchCase<>(arg,input);
+	}
+
+	/**
+	 * Get the argument to pass to the function being run.
+	 *
+	 * @return the argument
+	 */
+	public A getArg()
+	{
+		return arg;
+	}
+
+	/**
+	 * Get the text to feed to System.in.
+	 *
+	 * @return the input, "" for none
+	 */
+	public String getInput()
+	{
+		return input;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BatchCase(" + arg + ", '" + input + "')";
+	}
+
+}
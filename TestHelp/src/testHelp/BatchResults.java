@@ -0,0 +1,139 @@
+package testHelp;
+
+/**
+ * The results of a batch run by {@link ConsoleTester#getOutputsFromVFunction(VFunctionsAndVUnboundMethods.VFunction, java.util.List, boolean, String)} -
+ * a table with a row per case, in the order of the cases, holding the output, the value returned, the exception thrown and the time
+ * taken.  Held in parallel arrays rather than an object per case, so tables of 100,000 cases stay compact.
+ *
+ * @param <R> the type of the values returned by the function run
+ *
+ * @author John Armstrong
+ */
+public final class BatchResults<R>
+{
+	private final String desc;
+	private final String [] outputs;
+	private final Object [] values;
+	private final Throwable [] exceptions;
+	private final long [] nanos;
+
+	/**
+	 * Make an empty table for a number of cases - filled in by ConsoleTester.
+	 */
+	BatchResults(String desc, int size)
+	{
+		this.desc = desc;
+		this.outputs = new String[size];
+		this.values = new Object[size];
+		this.exceptions = new Throwable[size];
+		this.nanos = new long[size];
+	}
+
+	/**
+	 * Fill in the row of a case.
+	 */
+	void set(int index, String output, Object value, Throwable exception, long caseNanos)
+	{
+		outputs[index] = output;
+		values[index] = value;
+		exceptions[index] = exception;
+		nanos[index] = caseNanos;
+	}
+
+	/**
+	 * Get the number of cases.
+	 *
+	 * @return the number of cases
+	 */
+	public int size()
+	{
+		return outputs.length;
+	}
+
+	/**
+	 * Get the output of a case - text output to System.out, trimmed as by getOutput methods.  Unlike getOutput methods, the output
+	 * of a case that throws is the output before the exception - see {@link #getException(int)}.
+	 *
+	 * @param index the index of the case
+	 * @return the output
+	 */
+	public String getOutput(int index)
+	{
+		return outputs[index];
+	}
+
+	/**
+	 * Get the value returned in a case.
+	 *
+	 * @param index the index of the case
+	 * @return the value - {@link VFunctionsAndVUnboundMethods#voidR} for functions made from a Runnable or Consumer, null if the case
+	 * 	threw an exception
+	 */
+	@SuppressWarnings("unchecked")
+	public R getValue(int index)
+	{
+		return (R)values[index];
+	}
+
+	/**
+	 * Get the exception thrown in a case.
+	 *
+	 * @param index the index of the case
+	 * @return the exception, or null if the case returned normally
+	 */
+	public Throwable getException(int index)
+	{
+		return exceptions[index];
+	}
+
+	/**
+	 * Get the time taken by the function in a case, not counting resetting the capture buffers or decoding the output.
+	 *
+	 * @param index the index of the case
+	 * @return elapsed nanoseconds
+	 */
+	public long getNanos(int index)
+	{
+		return nanos[index];
+	}
+
+	/**
+	 * Get the number of cases that threw an exception.
+	 *
+	 * @return the number of cases
+	 */
+	public int getExceptionCount()
+	{
+		int count = 0;
+		for (Throwable exception : exceptions)
+		{
+			if (exception != null)
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get the total time taken by the function over all cases.
+	 *
+	 * @return elapsed nanoseconds summed over the cases - more than the elapsed time of a parallel batch
+	 */
+	public long getTotalNanos()
+	{
+		long total = 0;
+		for (long caseNanos : nanos)
+		{
+			total += caseNanos;
+		}
+		return total;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("BatchResults for %s: %d cases, %d exceptions, %.3f ms in all",desc,size(),getExceptionCount(),getTotalNanos() / 1e6);
+	}
+
+}
@@ -0,0 +1,311 @@
+package testHelp;
+
+import static testHelp.AssertionTools.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Represents an assertion about a ByteBuffer, in particular the binary output returned by ConsoleTester.getOutputFinishAsBytes and
+ * ConsoleTester.getOutputBytesFromVFunction.
+ * <p>
+ * Assertions look at the bytes from the position to the limit of the buffer, with absolute gets, so the position of the subject is
+ * never changed, and a buffer over a memory-mapped file is never copied.  Byte arrays and ByteBuffers are compared with
+ * {@link #mismatch}, which compares eight bytes at a time.  Failure messages give the offset of the first byte that differs and the
+ * bytes around it in hex.
+ *
+ * @author John Armstrong
+ */
+public class ByteBufferAssertion extends GenericObjectAssertionBase<ByteBuffer,ByteBufferAssertion>
+{
+
+	static final String _DFT_DESC = "bytes";
+
+	/**
+	 * Number of bytes either side of a difference shown in failure messages.
+	 */
+	static final int CONTEXT_BYTES_IN_MESSAGE = 8;
+
+	@Override
+	String getDftDesc() {
+		return _DFT_DESC;
+	}
+
+	/**
+	 * Construct a ByteBufferAssertion object
+	 * @param subject the ByteBuffer to be examined
+	 * @param subjectDescArg and optional description of the subject ByteBuffer
+	 */
+	ByteBufferAssertion(ByteBuffer subject, String ... subjectDescArg)
+	{
+		super(subject,getDescAsDescArg(subjectDescArg,_DFT_DESC));
+		this.subject = subject;
+	}
+
+	/**
+	 * Verifies that a ByteBuffer holds the same bytes as another ByteBuffer or a byte array.  An override of
+	 * {@link GenericObjectAssertionBase#isEqualTo}, which compares other objects with equals.
+	 *
+	 * @param other a ByteBuffer or byte [] to compare the remaining bytes of the subject to, or another object compared with equals
+	 * @param otherDescArg an optional description of the other object
+	 * @return this if the bytes are the same
+	 * @throws java.lang.AssertionError if the bytes differ
+	 */
+	@Override
+	public ByteBufferAssertion isEqualTo(Object other, String ... otherDescArg)
+	{
+		ByteBuffer otherBytes = asByteBuffer(other);
+		if (subject == null || otherBytes == null)
+			return super.isEqualTo(other,otherDescArg);
+
+		String otherDesc = getDesc(otherDescArg,"other " + _DFT_DESC);
+		int offset = mismatch(subject,otherBytes);
+		if (offset >= 0)
+			failF("Expected %s (%d bytes) to be equal to %s (%d bytes) but they differ at offset %d: %s in %s, %s in %s",subjectDesc,subject.remaining(),
+					otherDesc,otherBytes.remaining(),offset,hexAround(subject,offset),subjectDesc,hexAround(otherBytes,offset),otherDesc);
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a ByteBuffer differs from another ByteBuffer or a byte array first at a particular offset - for tests of output
+	 * expected to be corrupted or patched at a known place.
+	 *
+	 * @param other a ByteBuffer or byte [] to compare the remaining bytes of the subject to
+	 * @param offset the offset of the first byte expected to differ, or the length of the shorter if one is expected to be a prefix
+	 * 	of the other
+	 * @param otherDescArg an optional description of the other bytes
+	 * @return this if the bytes differ first at the offset
+	 * @throws java.lang.AssertionError if the subject is null, or the bytes are the same or differ first at another offset
+	 */
+	public ByteBufferAssertion differsFirstAt(Object other, int offset, String ... otherDescArg)
+	{
+		ByteBuffer otherBytes = asByteBuffer(other);
+		if (otherBytes == null)
+			throw new TestHelpError("ByteBufferAssertion.differsFirstAt called with " + ((other == null) ? "null" : other.getClass().getName()) + " rather than ByteBuffer or byte []");
+
+		String otherDesc = getDesc(otherDescArg,"other " + _DFT_DESC);
+		int actual = (subject == null) ? -2 : mismatch(subject,otherBytes);
+		if (actual != offset)
+			failF("Expected %s to differ from %s first at offset %d but %s",subjectDesc,otherDesc,offset,
+					(actual == -2) ? "it is null" : (actual == -1) ? "they are the same" : "they differ first at offset " + actual);
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a ByteBuffer starts with particular bytes.
+	 *
+	 * @param prefix the expected first bytes
+	 * @param prefixDescArg an optional description of the prefix
+	 * @return this if the subject starts with the prefix
+	 * @throws java.lang.AssertionError if the subject is null or does not start with the prefix
+	 */
+	public ByteBufferAssertion startsWith(byte [] prefix, String ... prefixDescArg)
+	{
+		String prefixDesc = getDesc(prefixDescArg,"prefix");
+		ByteBuffer expected = ByteBuffer.wrap(prefix);
+		if (subject == null || subject.remaining() < prefix.length)
+			failF("Expected %s to start with %s (%d bytes) but %s",subjectDesc,prefixDesc,prefix.length,lengthDesc(subject));
+
+		int offset = mismatch(window(subject,0,prefix.length),expected);
+		if (offset >= 0)
+			failF("Expected %s to start with %s but they differ at offset %d: %s in %s, %s in %s",subjectDesc,prefixDesc,offset,
+					hexAround(subject,offset),subjectDesc,hexAround(expected,offset),prefixDesc);
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a ByteBuffer ends with particular bytes.
+	 *
+	 * @param suffix the expected last bytes
+	 * @param suffixDescArg an optional description of the suffix
+	 * @return this if the subject ends with the suffix
+	 * @throws java.lang.AssertionError if the subject is null or does not end with the suffix
+	 */
+	public ByteBufferAssertion endsWith(byte [] suffix, String ... suffixDescArg)
+	{
+		String suffixDesc = getDesc(suffixDescArg,"suffix");
+		ByteBuffer expected = ByteBuffer.wrap(suffix);
+		if (subject == null || subject.remaining() < suffix.length)
+			failF("Expected %s to end with %s (%d bytes) but %s",subjectDesc,suffixDesc,suffix.length,lengthDesc(subject));
+
+		int start = subject.remaining() - suffix.length;
+		int offset = mismatch(window(subject,start,suffix.length),expected);
+		if (offset >= 0)
+			failF("Expected %s to end with %s but they differ at offset %d of the subject: %s in %s, %s in %s",subjectDesc,suffixDesc,start + offset,
+					hexAround(subject,start + offset),subjectDesc,hexAround(expected,offset),suffixDesc);
+
+		return this;
+	}
+
+	/**
+	 * Verifies that the digest of a ByteBuffer, as computed by a MessageDigest, has a particular value - for large outputs whose
+	 * expected bytes are not worth keeping in the test.
+	 *
+	 * @param algorithm the name of the digest algorithm, e.g. "SHA-256" or "MD5"
+	 * @param expectedHex the expected digest in hex, upper or lower case
+	 * @return this if the digest is the expected one
+	 * @throws java.lang.AssertionError if the subject is null or its digest is another
+	 * @throws TestHelpError if the algorithm is not supported
+	 */
+	public ByteBufferAssertion hasDigest(String algorithm, String expectedHex)
+	{
+		if (subject == null)
+			failF("Expected %s to have %s digest %s but it is null",subjectDesc,algorithm,expectedHex);
+
+		String actualHex = digestHex(subject,algorithm);
+		if (!actualHex.equalsIgnoreCase(expectedHex))
+			failF("Expected %s (%d bytes) to have %s digest %s but it has %s",subjectDesc,subject.remaining(),algorithm,expectedHex,actualHex);
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a ByteBuffer has a particular number of bytes remaining.
+	 *
+	 * @param length the expected number of bytes
+	 * @return this if the ByteBuffer has the length
+	 * @throws java.lang.AssertionError if the ByteBuffer is null or has a different length
+	 */
+	public ByteBufferAssertion hasLength(int length)
+	{
+		if (subject == null || subject.remaining() != length)
+			failF("Expected %s to have length %d but %s",subjectDesc,length,lengthDesc(subject));
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a ByteBuffer is non-null but has no bytes remaining.
+	 * @return this if the ByteBuffer is empty
+	 * @throws java.lang.AssertionError if the ByteBuffer is null or not empty
+	 */
+	public ByteBufferAssertion isEmpty()
+	{
+		return hasLength(0);
+	}
+
+	/**
+	 * Get the offset, relative to the positions of the buffers, of the first byte that differs between the remaining bytes of two
+	 * ByteBuffers, as Arrays.mismatch does for arrays (Java 9 and later).  Compares eight bytes at a time with absolute getLong, which
+	 * the JIT compiles to single loads, and finds the byte that differs from the leading zeros of the exclusive or.  The positions of
+	 * the buffers are not changed.
+	 *
+	 * @param a a buffer
+	 * @param b another buffer
+	 * @return the offset of the first byte that differs, the length of the shorter if it is a prefix of the longer, or -1 if the
+	 * 	buffers have the same remaining bytes
+	 */
+	static int mismatch(ByteBuffer a, ByteBuffer b)
+	{
+		ByteBuffer x = a.duplicate().order(ByteOrder.BIG_ENDIAN); // so the first byte is the most significant
+		ByteBuffer y = b.duplicate().order(ByteOrder.BIG_ENDIAN);
+		int xStart = x.position();
+		int yStart = y.position();
+		int length = Math.min(x.remaining(),y.remaining());
+		int i = 0;
+		for (; i <= length - 8; i += 8)
+		{
+			long difference = x.getLong(xStart + i) ^ y.getLong(yStart + i);
+			if (difference != 0)
+			{
+				return i + Long.numberOfLeadingZeros(difference) / 8;
+			}
+		}
+		for (; i < length; i++)
+		{
+			if (x.get(xStart + i) != y.get(yStart + i))
+			{
+				return i;
+			}
+		}
+		return (x.remaining() == y.remaining()) ? -1 : length;
+	}
+
+	/**
+	 * Get the digest of the remaining bytes of a buffer, in lower case hex, without changing its position.
+	 */
+	static String digestHex(ByteBuffer bytes, String algorithm)
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance(algorithm);
+		}
+		catch (NoSuchAlgorithmException ex)
+		{
+			throw new TestHelpError("Digest algorithm " + algorithm + " is not supported",ex);
+		}
+		digest.update(bytes.duplicate());
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest())
+		{
+			hex.append(String.format("%02x",b & 0xff));
+		}
+		return hex.toString();
+	}
+
+	private static ByteBuffer asByteBuffer(Object other)
+	{
+		if (other instanceof ByteBuffer)
+		{
+			return (ByteBuffer)other;
+		}
+		if (other instanceof byte [])
+		{
+			return ByteBuffer.wrap((byte [])other);
+		}
+		return null;
+	}
+
+	/**
+	 * Get a buffer over some of the remaining bytes of another, offsets relative to its position.
+	 */
+	private static ByteBuffer window(ByteBuffer bytes, int offset, int length)
+	{
+		ByteBuffer window = bytes.duplicate();
+		window.position(bytes.position() + offset);
+		window.limit(bytes.position() + offset + length);
+		return window;
+	}
+
+	private static String lengthDesc(ByteBuffer bytes)
+	{
+		return (bytes == null) ? "it is null" : "it has length " + bytes.remaining();
+	}
+
+	/**
+	 * Get up to {@link #CONTEXT_BYTES_IN_MESSAGE} bytes either side of an offset in hex, with the byte at the offset in square
+	 * brackets, for a failure message.
+	 */
+	static String hexAround(ByteBuffer bytes, int offset)
+	{
+		int remaining = bytes.remaining();
+		if (offset >= remaining)
+		{
+			return "[end after " + remaining + " bytes]";
+		}
+		int from = Math.max(0,offset - CONTEXT_BYTES_IN_MESSAGE);
+		int to = Math.min(remaining,offset + CONTEXT_BYTES_IN_MESSAGE + 1);
+		StringBuilder hex = new StringBuilder((from > 0) ? "... " : "");
+		for (int i = from; i < to; i++)
+		{
+			int b = bytes.get(bytes.position() + i) & 0xff;
+			hex.append(String.format((i == offset) ? "[%02x]" : "%02x",b));
+			if (i < to - 1)
+			{
+				hex.append(' ');
+			}
+		}
+		if (to < remaining)
+		{
+			hex.append(" ...");
+		}
+		return hex.toString();
+	}
+
+}
@@ -0,0 +1,79 @@
+package testHelp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An internal (package-private) CharSequence view of a region of a ByteBuffer in which each byte represents one character, as in
+ * ISO-8859-1 (Latin-1) or, for text that contains no non-ASCII characters, in US-ASCII, UTF-8 and other ASCII-compatible encodings.
+ * <p>
+ * Used by {@link CaptureOutputStream} to present captured output held in a memory-mapped file or in its heap buffer as text without
+ * copying it into a String.  Subsequences share the ByteBuffer; only {@link #toString()} copies, once.
+ *
+ * @author John Armstrong
+ */
+class ByteCharSequence implements CharSequence
+{
+	private final ByteBuffer bytes;
+	private final int start;
+	private final int length;
+
+	/**
+	 * Create a view of all bytes in a ByteBuffer from index 0 to its limit.
+	 *
+	 * @param bytes the ByteBuffer - should not be changed while the view is in use
+	 */
+	ByteCharSequence(ByteBuffer bytes)
+	{
+		this(bytes,0,bytes.limit());
+	}
+
+	private ByteCharSequence(ByteBuffer bytes, int start, int length)
+	{
+		this.bytes = bytes;
+		this.start = start;
+		this.length = length;
+	}
+
+	@Override
+	public int length()
+	{
+		return length;
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		if (index < 0 || index >= length)
+		{
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		}
+		return (char)(bytes.get(start + index) & 0xff);
+	}
+
+	@Override
+	public CharSequence subSequence(int from, int to)
+	{
+		if (from < 0 || to > length || from > to)
+		{
+			throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + length);
+		}
+		return new ByteCharSequence(bytes,start + from,to - from);
+	}
+
+	@Override
+	public String toString()
+	{
+		if (bytes.hasArray())
+		{
+			return new String(bytes.array(),bytes.arrayOffset() + start,length,StandardCharsets.ISO_8859_1); // one copy
+		}
+		char [] chars = new char[length];
+		for (int i = 0; i < length; i++)
+		{
+			chars[i] = (char)(bytes.get(start + i) & 0xff);
+		}
+		return new String(chars);
+	}
+
+}
@@ -0,0 +1,92 @@
+package testHelp;
+
+import java.io.PrintStream;
+
+/**
+ * Internal (package-private) set of streams for capturing one getOutput run at a time - an input stream, and capture buffers for
+ * System.out and System.err with PrintStreams over them - reset and reused from run to run.  Used by {@link CaptureSession}, by
+ * ConsoleTester batch runs, which keep one set per worker thread, and, for System.err only, by getOutput runs outside a session,
+ * which keep one set per thread.
+ * <p>
+ * Buffers are not reused if the output limit settings have changed, if a buffer has grown beyond {@link #MAX_POOLED_BUFFER_BYTES},
+ * if a write to it threw (for example when output exceeded a limit with policy abort), or if its PrintStream has been closed.
+ *
+ * @author John Armstrong
+ */
+class CaptureBuffers
+{
+	/**
+	 * Largest capture buffer kept for reuse - a buffer that has grown beyond this capturing a large output is dropped so it is not
+	 * held on to.
+	 */
+	static final int MAX_POOLED_BUFFER_BYTES = 1 << 20;
+
+	DelegatingInputStream.ByteArrayInput inputBytes;
+	CaptureOutputStream outputBytes;
+	PrintStream outputStream;
+	CaptureOutputStream errorBytes;
+	PrintStream errorStream;
+
+	/**
+	 * Get the input stream for a run, reading from an array of bytes.
+	 *
+	 * @param bytes the input bytes
+	 * @return the pooled input stream, reset to read the bytes
+	 */
+	DelegatingInputStream.ByteArrayInput takeInputBytes(byte [] bytes)
+	{
+		if (inputBytes == null)
+		{
+			inputBytes = new DelegatingInputStream.ByteArrayInput(bytes);
+		}
+		else
+		{
+			inputBytes.setBytes(bytes);
+		}
+		return inputBytes;
+	}
+
+	/**
+	 * Make the capture buffers and PrintStreams ready for a run, reusing those of the previous run where possible.
+	 *
+	 * @param maxOutputBytes limit on output to System.out
+	 * @param maxErrorBytes limit on output to System.err
+	 * @param policy what to do when a limit is exceeded
+	 * @param spillThreshold spill threshold for output to System.out
+	 */
+	void prepare(long maxOutputBytes, long maxErrorBytes, OutputLimitPolicy policy, long spillThreshold)
+	{
+		if (outputBytes != null && outputBytes.canBeReused(maxOutputBytes,policy,spillThreshold,MAX_POOLED_BUFFER_BYTES) && !outputStream.checkError())
+		{
+			outputBytes.reset();
+		}
+		else
+		{
+			outputBytes = new CaptureOutputStream(maxOutputBytes,policy,"System.out",spillThreshold);
+			outputStream = ConsoleTester.makePrintStreamFromOutputBytes(outputBytes);
+		}
+
+		prepareErrors(maxErrorBytes,policy);
+	}
+
+	/**
+	 * Make the capture buffer and PrintStream for System.err ready for a run, reusing those of the previous run where possible.  Used
+	 * alone by getOutput runs outside a CaptureSession, which always capture System.err.
+	 *
+	 * @param maxErrorBytes limit on output to System.err
+	 * @param policy what to do when the limit is exceeded
+	 */
+	void prepareErrors(long maxErrorBytes, OutputLimitPolicy policy)
+	{
+		if (errorBytes != null && errorBytes.canBeReused(maxErrorBytes,policy,0,MAX_POOLED_BUFFER_BYTES) && !errorStream.checkError())
+		{
+			errorBytes.reset();
+		}
+		else
+		{
+			errorBytes = new CaptureOutputStream(maxErrorBytes,policy,"System.err",0);
+			errorStream = ConsoleTester.makePrintStreamFromOutputBytes(errorBytes);
+		}
+	}
+
+}
@@ -0,0 +1,792 @@
+package testHelp;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An internal (package-private) ByteArrayOutputStream used by ConsoleTester getOutput methods to capture output to System.out
+ * and System.err, with an optional limit on the number of bytes kept.
+ * <p>
+ * What happens to output beyond the limit depends on an {@link OutputLimitPolicy}:
+ *
+ * <ul>
+ * 	<li>truncate - bytes beyond the limit are discarded</li>
+ * 	<li>headAndTail - the first half of the limit is kept as written and the second half is kept in a ring buffer holding the most
+ * 	recently written bytes - the captured output is the head, a line giving the number of bytes discarded, and the tail</li>
+ * 	<li>abort - bytes beyond the limit are discarded and the write that exceeds the limit throws {@link OutputLimitExceededError},
+ * 	as do later writes, until {@link #endRun()} is called</li>
+ * </ul>
+ *
+ * With no limit the stream behaves exactly like ByteArrayOutputStream.
+ * <p>
+ * Optionally, bytes written are also written to a tee stream (see {@link #setTee}), and compared line by line with an {@link OutputExpectation} as they are written - the write that
+ * completes the first line which differs throws {@link OutputMismatchError}, as do later writes, until {@link #endRun()} is called.
+ * <p>
+ * Optionally, once the bytes kept exceed a spill threshold, they are moved from the heap to a temporary file and later bytes are
+ * appended to the file.  When the output is read the file is memory-mapped, and {@link #getCharSequence(String)} presents it as a
+ * CharSequence view over the mapped region (see {@link ByteCharSequence}) rather than a String, so very large outputs use little heap.
+ * Reading spilled output ends capture - bytes written afterwards are discarded.  The temporary file is deleted once mapped.  Where
+ * the platform does not allow a mapped file to be deleted (Windows) it is remembered and deleted once its mapping has been released,
+ * by {@link #deleteUndeletedSpillFiles}, which is called at the end of every getOutput call and whenever output is spilled, so files
+ * are left behind only by mappings still in use when the JVM ends.  Spilled output given as a String,
+ * or written to another stream, is decoded or copied straight from the mapped file, without a copy of all of it in a byte array.
+ *
+ * @author John Armstrong
+ */
+class CaptureOutputStream extends ByteArrayOutputStream
+{
+	// Largest limit honoured - kept bytes are held in arrays
+	private static final long MAX_LIMIT = Integer.MAX_VALUE - 8;
+
+	private final long limit; // <= 0 for no limit
+	private final OutputLimitPolicy policy;
+	private final String streamName; // for messages - "System.out" or "System.err"
+
+	private final int headLimit; // headAndTail only
+	private byte [] tail; // headAndTail only - ring buffer, allocated when head is full
+	private int tailStart;
+	private int tailCount;
+
+	private long total; // bytes written, kept or not
+	private boolean runEnded;
+
+	private final long spillThreshold; // <= 0 for never
+	private File spillFile;
+	private OutputStream spillOut; // null once spilled bytes have been mapped
+	private long spillCount; // bytes kept in spillFile
+	private boolean spillNonAscii; // true if any byte kept in spillFile is not ASCII
+	private ByteBuffer spillMapped;
+
+	private static final int SPILL_BUFFER_SIZE = 1 << 16;
+
+	// spill files that could not be deleted because they were mapped - see deleteUndeletedSpillFiles
+	private static final Set<File> undeletedSpillFiles = ConcurrentHashMap.newKeySet();
+
+	private OutputExpectation.Comparer comparer; // null for no streaming comparison
+	private OutputStream tee; // null for none
+
+	private boolean writeThrew; // true if a write has thrown since the last reset
+
+	private boolean heapNonAscii; // true if any byte kept on the heap is not ASCII - tracked as bytes are written
+	private boolean viewTaken; // true if getTrimmedText or getBytes has returned a view of the heap buffer since the last reset
+
+	/**
+	 * Create a CaptureOutputStream with no limit.
+	 */
+	CaptureOutputStream()
+	{
+		this(0,OutputLimitPolicy.truncate,"output",0);
+	}
+
+	/**
+	 * Create a CaptureOutputStream with a limit.
+	 *
+	 * @param limit maximum number of bytes to keep, 0 or less for no limit
+	 * @param policy what to do with bytes beyond the limit
+	 * @param streamName name of the captured stream for messages, e.g. "System.out"
+	 * @param spillThreshold number of bytes kept on the heap before moving them to a temporary file, 0 or less for never
+	 */
+	CaptureOutputStream(long limit, OutputLimitPolicy policy, String streamName, long spillThreshold)
+	{
+		this.limit = (limit <= 0) ? 0 : Math.min(limit,MAX_LIMIT);
+		this.policy = policy;
+		this.streamName = streamName;
+		this.headLimit = (int)(this.limit / 2);
+		this.spillThreshold = spillThreshold;
+	}
+
+	@Override
+	public synchronized void write(int b)
+	{
+		write(new byte[] {(byte)b},0,1);
+	}
+
+	@Override
+	public synchronized void write(byte b[], int off, int len)
+	{
+		try
+		{
+			writeWithinLimit(b,off,len);
+			if (tee != null)
+			{
+				try
+				{
+					tee.write(b,off,len);
+				}
+				catch (IOException ex)
+				{
+					throw new TestHelpError("Write to tee of captured " + streamName + " threw IOException",ex);
+				}
+			}
+			if (comparer != null && !runEnded)
+			{
+				comparer.write(b,off,len);
+			}
+		}
+		catch (Error ex)
+		{
+			writeThrew = true;
+			throw ex;
+		}
+	}
+
+	/**
+	 * Keep, discard or reject bytes written according to the limit and policy.
+	 */
+	private void writeWithinLimit(byte b[], int off, int len)
+	{
+		if (limit == 0)
+		{
+			keep(b,off,len);
+			total += len;
+			return;
+		}
+
+		if (policy == OutputLimitPolicy.headAndTail)
+		{
+			int toHead = (int)Math.min(len,Math.max(0,headLimit - getKeptCount()));
+			keep(b,off,toHead);
+			writeTail(b,off + toHead,len - toHead);
+			total += len;
+			return;
+		}
+
+		int fits = (int)Math.min(len,limit - getKeptCount());
+		keep(b,off,fits);
+		total += len;
+
+		if (fits < len && policy == OutputLimitPolicy.abort && !runEnded)
+		{
+			throw new OutputLimitExceededError(String.format("Output to %s exceeded limit of %d bytes",streamName,limit));
+		}
+	}
+
+	/**
+	 * Keep bytes within the limit (or the head, for headAndTail) - on the heap, or in the spill file once the spill threshold is passed.
+	 */
+	private void keep(byte b[], int off, int len)
+	{
+		if (len <= 0)
+		{
+			return;
+		}
+		if (spillFile == null && spillThreshold > 0 && count + len > spillThreshold)
+		{
+			spill();
+		}
+		if (spillFile == null)
+		{
+			super.write(b,off,len);
+			heapNonAscii = heapNonAscii || !isAscii(b,off,len);
+			return;
+		}
+		if (spillOut == null)
+		{
+			return; // already mapped - capture has ended, byte is counted as discarded
+		}
+		try
+		{
+			spillOut.write(b,off,len);
+		}
+		catch (IOException ex)
+		{
+			throw new TestHelpError("Write to capture spill file " + spillFile + " threw IOException",ex);
+		}
+		spillCount += len;
+		spillNonAscii = spillNonAscii || !isAscii(b,off,len);
+	}
+
+	/**
+	 * Move the bytes kept on the heap to a new temporary file to which later bytes will be appended.
+	 */
+	private void spill()
+	{
+		deleteUndeletedSpillFiles();
+		try
+		{
+			spillFile = File.createTempFile("testHelp-capture-",".out");
+			spillOut = new BufferedOutputStream(new FileOutputStream(spillFile),SPILL_BUFFER_SIZE);
+			spillOut.write(buf,0,count);
+		}
+		catch (IOException ex)
+		{
+			throw new TestHelpError("Could not create capture spill file",ex);
+		}
+		spillCount = count;
+		spillNonAscii = !isAscii(buf,0,count);
+		buf = new byte[32];
+		count = 0;
+		heapNonAscii = false;
+	}
+
+	private static boolean isAscii(byte b[], int off, int len)
+	{
+		for (int i = off; i < off + len; i++)
+		{
+			if (b[i] < 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the number of bytes kept within the limit (or the head, for headAndTail), on the heap or in the spill file.
+	 */
+	private long getKeptCount()
+	{
+		return (spillFile == null) ? count : spillCount;
+	}
+
+	/**
+	 * Get whether kept bytes have been moved to a temporary file.
+	 *
+	 * @return true if the spill threshold has been passed
+	 */
+	synchronized boolean isSpilled()
+	{
+		return spillFile != null;
+	}
+
+	/**
+	 * Get the bytes kept in the spill file as a read-only memory-mapped ByteBuffer, closing and deleting the file the first time.
+	 */
+	private ByteBuffer getSpillMapped()
+	{
+		if (spillMapped == null)
+		{
+			if (spillCount > Integer.MAX_VALUE)
+			{
+				throw new TestHelpError(String.format("Captured output of %d bytes is too large to map",spillCount));
+			}
+			try
+			{
+				spillOut.close();
+				spillOut = null;
+				try (RandomAccessFile raf = new RandomAccessFile(spillFile,"r"))
+				{
+					spillMapped = raf.getChannel().map(FileChannel.MapMode.READ_ONLY,0,spillCount).asReadOnlyBuffer();
+				}
+			}
+			catch (IOException ex)
+			{
+				throw new TestHelpError("Could not map capture spill file " + spillFile,ex);
+			}
+			deleteSpillFile(spillFile); // mapping remains valid
+		}
+		return spillMapped.duplicate();
+	}
+
+	/**
+	 * Delete a spill file, or if that fails, as it does on Windows while the file is mapped, remember it for
+	 * {@link #deleteUndeletedSpillFiles}.
+	 */
+	private static void deleteSpillFile(File file)
+	{
+		if (!file.delete() && file.exists())
+		{
+			undeletedSpillFiles.add(file);
+		}
+	}
+
+	/**
+	 * Try again to delete spill files that could not be deleted when they were mapped, forgetting those deleted - each is deleted
+	 * once the last view of its mapping has been garbage collected.
+	 */
+	static void deleteUndeletedSpillFiles()
+	{
+		if (!undeletedSpillFiles.isEmpty())
+		{
+			undeletedSpillFiles.removeIf(file -> file.delete() || !file.exists());
+		}
+	}
+
+	/**
+	 * Get the number of spill files not yet deleted because they were mapped when deletion was tried.
+	 */
+	static int getUndeletedSpillFileCount()
+	{
+		return undeletedSpillFiles.size();
+	}
+
+	/**
+	 * Get the kept bytes (without the tail, for headAndTail) as a read-only ByteBuffer - a view of the heap buffer or of the mapped
+	 * spill file.
+	 */
+	private ByteBuffer getKeptBytes()
+	{
+		return (spillFile == null) ? ByteBuffer.wrap(buf,0,count).slice().asReadOnlyBuffer() : getSpillMapped();
+	}
+
+	/**
+	 * Get the captured output as text.  If the output has been spilled to a temporary file and each byte represents one character
+	 * in the passed encoding (ISO-8859-1 or, for output with no non-ASCII bytes, any ASCII-compatible encoding), the result is a
+	 * view of the memory-mapped file and no copy is made; if it has been spilled but must be decoded, it is decoded from the mapped file
+	 * into a CharBuffer; otherwise it is a String, as returned by {@link #toString(String)}.
+	 *
+	 * @param charsetName the name of the encoding of the captured output
+	 * @return a CharSequence with the captured text
+	 * @throws UnsupportedEncodingException if the encoding is not supported
+	 */
+	synchronized CharSequence getCharSequence(String charsetName) throws UnsupportedEncodingException
+	{
+		if (spillFile == null && tailCount == 0)
+		{
+			return super.toString(charsetName);
+		}
+		if (tailCount != 0)
+		{
+			return new String(toByteArray(),charsetName); // no longer than the limit
+		}
+
+		Charset charset;
+		try
+		{
+			charset = Charset.forName(charsetName);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			throw new UnsupportedEncodingException(charsetName);
+		}
+
+		if (charset.equals(StandardCharsets.ISO_8859_1) || (!spillNonAscii && isAsciiCompatible(charset)))
+		{
+			return new ByteCharSequence(getSpillMapped());
+		}
+		CharBuffer chars = charset.decode(getSpillMapped());
+		return chars;
+	}
+
+	/**
+	 * Get the captured output as text, trimmed as String.trim would trim it, without building a String - the caller can call toString
+	 * on the result if it needs one.  Used by ConsoleTester for all output it returns or keeps.
+	 * <p>
+	 * Whether every byte kept on the heap is ASCII is tracked as bytes are written, so no scan is needed here.  Output held on the heap
+	 * is trimmed as bytes, since whitespace is the same single bytes in every ASCII-compatible encoding, and then only the trimmed
+	 * bytes are decoded:
+	 * <ul>
+	 * 	<li>if each byte represents one character (ISO-8859-1 or, for output with no non-ASCII bytes, any ASCII-compatible
+	 * 	encoding), the result is a view of the heap buffer and nothing is decoded or copied</li>
+	 * 	<li>otherwise the trimmed bytes are decoded once with a CharsetDecoder into a CharBuffer</li>
+	 * </ul>
+	 * Output that has been spilled or that has a tail (headAndTail) is got with {@link #getCharSequence(String)} and trimmed as a
+	 * subSequence.  A view of the heap buffer remains valid after the stream is reset, since {@link #canBeReused} is then false.
+	 *
+	 * @param charsetName the name of the encoding of the captured output
+	 * @return a CharSequence with the trimmed captured text
+	 * @throws UnsupportedEncodingException if the encoding is not supported
+	 */
+	synchronized CharSequence getTrimmedText(String charsetName) throws UnsupportedEncodingException
+	{
+		CharSequence text = decodeTrimmed(charsetName);
+		viewTaken = viewTaken || text instanceof ByteCharSequence;
+		return text;
+	}
+
+	/**
+	 * Get the captured output as bytes, neither decoded nor trimmed, for output that is not text.  The result is a read-only view of
+	 * the heap buffer or of the memory-mapped spill file, so nothing is copied, unless bytes have been discarded under policy
+	 * headAndTail, when it is over a copy of the head, the discarded bytes marker and the tail.  A view of the heap buffer remains valid
+	 * after the stream is reset, since {@link #canBeReused} is then false.
+	 *
+	 * @return the captured bytes, from position 0 to the limit
+	 */
+	synchronized ByteBuffer getBytes()
+	{
+		if (tailCount != 0)
+		{
+			return ByteBuffer.wrap(toByteArray()).asReadOnlyBuffer();
+		}
+		viewTaken = viewTaken || spillFile == null;
+		return getKeptBytes();
+	}
+
+	/**
+	 * Get the captured output as a String, trimmed as String.trim would trim it - as {@link #getTrimmedText} does, followed by
+	 * toString, but without keeping a view of the buffer, so with one copy of the trimmed output and at most one decoding of it.
+	 *
+	 * @param charsetName the name of the encoding of the captured output
+	 * @return the trimmed captured text
+	 * @throws UnsupportedEncodingException if the encoding is not supported
+	 */
+	synchronized String getTrimmedString(String charsetName) throws UnsupportedEncodingException
+	{
+		return decodeTrimmed(charsetName).toString();
+	}
+
+	/**
+	 * Get the captured output as trimmed text - see {@link #getTrimmedText}.
+	 */
+	private CharSequence decodeTrimmed(String charsetName) throws UnsupportedEncodingException
+	{
+		Charset charset;
+		try
+		{
+			charset = Charset.forName(charsetName);
+		}
+		catch (IllegalArgumentException ex)
+		{
+			throw new UnsupportedEncodingException(charsetName);
+		}
+
+		if (spillFile != null || tailCount != 0 || !isAsciiCompatible(charset))
+		{
+			return trim(getCharSequence(charsetName));
+		}
+
+		int from = 0;
+		int to = count;
+		while (from < to && (buf[from] & 0xff) <= ' ')
+		{
+			from++;
+		}
+		while (to > from && (buf[to - 1] & 0xff) <= ' ')
+		{
+			to--;
+		}
+
+		if (charset.equals(StandardCharsets.ISO_8859_1) || !heapNonAscii)
+		{
+			return new ByteCharSequence(ByteBuffer.wrap(buf,from,to - from).slice());
+		}
+		CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		try
+		{
+			return decoder.decode(ByteBuffer.wrap(buf,from,to - from));
+		}
+		catch (CharacterCodingException ex)
+		{
+			throw new TestHelpError("Decoding captured " + streamName + " threw CharacterCodingException",ex); // not thrown with REPLACE
+		}
+	}
+
+	/**
+	 * Trim a CharSequence as String.trim does, but with subSequence, which does not copy for views.
+	 */
+	private static CharSequence trim(CharSequence chars)
+	{
+		int from = 0;
+		int to = chars.length();
+		while (from < to && chars.charAt(from) <= ' ')
+		{
+			from++;
+		}
+		while (to > from && chars.charAt(to - 1) <= ' ')
+		{
+			to--;
+		}
+		return (from == 0 && to == chars.length()) ? chars : chars.subSequence(from,to);
+	}
+
+	private static final byte [] ASCII_BYTES = new byte[128];
+	static
+	{
+		for (int i = 0; i < ASCII_BYTES.length; i++)
+		{
+			ASCII_BYTES[i] = (byte)i;
+		}
+	}
+
+	/**
+	 * Check whether an encoding represents each ASCII character as the single byte with the same value.
+	 */
+	private static boolean isAsciiCompatible(Charset charset)
+	{
+		return asciiCompatible.computeIfAbsent(charset,
+				cs -> cs.canEncode() && Arrays.equals(new String(ASCII_BYTES,StandardCharsets.US_ASCII).getBytes(cs),ASCII_BYTES));
+	}
+
+	private static final Map<Charset,Boolean> asciiCompatible = new ConcurrentHashMap<>();
+
+	/**
+	 * Write bytes to the ring buffer holding the most recently written bytes beyond the head.
+	 */
+	private void writeTail(byte b[], int off, int len)
+	{
+		if (len <= 0)
+		{
+			return;
+		}
+		if (tail == null)
+		{
+			tail = new byte[(int)(limit - headLimit)];
+		}
+		if (len >= tail.length)
+		{
+			System.arraycopy(b,off + len - tail.length,tail,0,tail.length);
+			tailStart = 0;
+			tailCount = tail.length;
+			return;
+		}
+
+		int end = (tailStart + tailCount) % tail.length;
+		int first = Math.min(len,tail.length - end);
+		System.arraycopy(b,off,tail,end,first);
+		System.arraycopy(b,off + first,tail,0,len - first);
+
+		int overwritten = tailCount + len - tail.length;
+		if (overwritten > 0)
+		{
+			tailStart = (tailStart + overwritten) % tail.length;
+			tailCount = tail.length;
+		}
+		else
+		{
+			tailCount += len;
+		}
+	}
+
+	/**
+	 * Mark the end of the run whose output is being captured - after this, writes beyond the limit are discarded without throwing
+	 * even if the policy is abort, so that testHelp itself can write to the stream (for example stacktraces written to System.err).
+	 */
+	synchronized void endRun()
+	{
+		runEnded = true;
+		if (comparer != null)
+		{
+			comparer.end();
+		}
+	}
+
+	/**
+	 * Set an expectation with which bytes written in this run are compared as they are written.
+	 *
+	 * @param expected the expected output, null for no comparison
+	 * @param charset the encoding of the captured output
+	 */
+	synchronized void setExpectation(OutputExpectation expected, Charset charset)
+	{
+		comparer = (expected == null) ? null : expected.newComparer(charset);
+	}
+
+	/**
+	 * Set a stream to which all bytes written are also written, whether or not they are kept, as they are written.
+	 *
+	 * @param tee the stream, null for none
+	 */
+	synchronized void setTee(OutputStream tee)
+	{
+		this.tee = tee;
+	}
+
+	/**
+	 * Add a stream to which all bytes written are also written, as {@link #setTee} does, keeping any tee already set - bytes are
+	 * written to the tee already set first.
+	 *
+	 * @param tee the stream to add
+	 */
+	synchronized void addTee(OutputStream tee)
+	{
+		OutputStream first = this.tee;
+		this.tee = (first == null) ? tee : new OutputStream() {
+			@Override
+			public void write(int b) throws IOException
+			{
+				first.write(b);
+				tee.write(b);
+			}
+
+			@Override
+			public void write(byte b[], int off, int len) throws IOException
+			{
+				first.write(b,off,len);
+				tee.write(b,off,len);
+			}
+		};
+	}
+
+	/**
+	 * Get a description of where the captured output first differed from the expected output set by {@link #setExpectation}.
+	 *
+	 * @return the description, or null if there is no expectation or output has matched so far
+	 */
+	synchronized String getMismatchDescription()
+	{
+		return (comparer == null) ? null : comparer.getMismatchDescription();
+	}
+
+	/**
+	 * Get the number of bytes written but not kept.
+	 *
+	 * @return the number of bytes discarded, 0 if the limit has not been exceeded
+	 */
+	synchronized long getDiscardedBytes()
+	{
+		return total - getKeptCount() - tailCount;
+	}
+
+	/**
+	 * Get a description of the bytes discarded for printing with other output info.
+	 *
+	 * @return a description of the form {@literal "<n> bytes discarded (limit <limit> bytes, policy <policy>)"} or null if no bytes were discarded
+	 */
+	synchronized String getDiscardedBytesDescription()
+	{
+		long discarded = getDiscardedBytes();
+		return (discarded == 0) ? null : String.format("%d bytes discarded (limit %d bytes, policy %s)",discarded,limit,policy);
+	}
+
+	/**
+	 * Get the line inserted between head and tail when the policy is headAndTail and bytes have been discarded.
+	 */
+	private byte [] getDiscardedBytesMarker()
+	{
+		return String.format("%n[... %d bytes discarded ...]%n",getDiscardedBytes()).getBytes(StandardCharsets.US_ASCII);
+	}
+
+	@Override
+	public synchronized byte [] toByteArray()
+	{
+		if (spillFile == null && tailCount == 0)
+		{
+			return super.toByteArray();
+		}
+
+		ByteBuffer kept = getKeptBytes();
+		byte [] marker = (tailCount == 0) ? new byte[0] : getDiscardedBytesMarker();
+		int keptCount = kept.remaining();
+		byte [] bytes = new byte[keptCount + marker.length + tailCount];
+		kept.get(bytes,0,keptCount);
+		System.arraycopy(marker,0,bytes,keptCount,marker.length);
+		if (tailCount != 0)
+		{
+			int first = Math.min(tailCount,tail.length - tailStart);
+			System.arraycopy(tail,tailStart,bytes,keptCount + marker.length,first);
+			System.arraycopy(tail,0,bytes,keptCount + marker.length + first,tailCount - first);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Get the number of bytes captured, as the length of {@link #toByteArray} - Integer.MAX_VALUE if more have been spilled.
+	 */
+	@Override
+	public synchronized int size()
+	{
+		long kept = getKeptCount();
+		return (int)Math.min((tailCount == 0) ? kept : kept + getDiscardedBytesMarker().length + tailCount,Integer.MAX_VALUE);
+	}
+
+	@Override
+	public synchronized void writeTo(OutputStream out) throws IOException
+	{
+		if (spillFile == null && tailCount == 0)
+		{
+			super.writeTo(out);
+			return;
+		}
+
+		// from the mapped file in pieces, and the head, marker and tail one after another, rather than joined in one array
+		ByteBuffer kept = getKeptBytes();
+		byte [] piece = new byte[Math.min(kept.remaining(),SPILL_BUFFER_SIZE)];
+		while (kept.hasRemaining())
+		{
+			int length = Math.min(kept.remaining(),piece.length);
+			kept.get(piece,0,length);
+			out.write(piece,0,length);
+		}
+		if (tailCount != 0)
+		{
+			out.write(getDiscardedBytesMarker());
+			int first = Math.min(tailCount,tail.length - tailStart);
+			out.write(tail,tailStart,first);
+			out.write(tail,0,tailCount - first);
+		}
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		try
+		{
+			return toString(Charset.defaultCharset().name());
+		}
+		catch (UnsupportedEncodingException ex)
+		{
+			throw new TestHelpError("Default charset " + Charset.defaultCharset() + " not supported",ex); // not thrown
+		}
+	}
+
+	/**
+	 * Get the captured output as a String - for spilled output decoded from the mapped file (see {@link #getCharSequence}), otherwise
+	 * from the heap buffer or a copy of head, marker and tail, which is no longer than the limit.
+	 */
+	@Override
+	public synchronized String toString(String charsetName) throws UnsupportedEncodingException
+	{
+		return getCharSequence(charsetName).toString();
+	}
+
+	/**
+	 * Get whether this stream, reset, can capture the output of another run with the same PrintStream over it - used by CaptureSession
+	 * to pool capture buffers.  Not if it was made with different settings, if its buffer has grown beyond maxCapacity, or if a write
+	 * has thrown since the last reset, since the PrintStream may then hold characters it has not yet written, or if text returned by
+	 * {@link #getTrimmedText} or bytes returned by {@link #getBytes} are a view of its buffer.
+	 *
+	 * @param limit maximum number of bytes to keep, as passed to the constructor
+	 * @param policy what to do with bytes beyond the limit, as passed to the constructor
+	 * @param spillThreshold spill threshold, as passed to the constructor
+	 * @param maxCapacity largest buffer worth keeping
+	 * @return true if the stream can be reset and reused
+	 */
+	synchronized boolean canBeReused(long limit, OutputLimitPolicy policy, long spillThreshold, int maxCapacity)
+	{
+		return this.limit == ((limit <= 0) ? 0 : Math.min(limit,MAX_LIMIT)) && this.policy == policy && this.spillThreshold == spillThreshold
+				&& buf.length <= maxCapacity && !writeThrew && !viewTaken;
+	}
+
+	@Override
+	public synchronized void reset()
+	{
+		super.reset();
+		writeThrew = false;
+		heapNonAscii = false;
+		viewTaken = false;
+		tailStart = tailCount = 0;
+		total = 0;
+		runEnded = false;
+		comparer = null;
+		tee = null;
+		if (spillFile != null)
+		{
+			if (spillOut != null)
+			{
+				try
+				{
+					spillOut.close();
+				}
+				catch (IOException ex)
+				{
+					// nothing to do - file is deleted below
+				}
+			}
+			deleteSpillFile(spillFile);
+			spillFile = null;
+			spillOut = null;
+			spillMapped = null;
+			spillCount = 0;
+			spillNonAscii = false;
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+package testHelp;
+
+/**
+ * A session within which many ConsoleTester getOutput runs on one thread share their setup, for tests that call getOutput
+ * thousands of times in a loop, as:
+ * <pre>
+  try (CaptureSession session = CaptureSession.open())
+  {
+      for (int i = 0; i &lt; 10000; i++)
+      {
+          ConsoleTester.getOutputReset();
+          String output = ConsoleTester.getOutputFromVFunction(makeVFunction(MyClass::myMethod),i,"some input\n","MyClass::myMethod");
+          ...
+      }
+  }</pre>
+ *
+ * Outside a session each getOutputStart makes new capture buffers for System.out and System.err, a new PrintStream over each (which
+ * looks up the console encoding), and a new input stream, and switches the System streams.  Within a session the buffers, PrintStreams
+ * and input stream are made once and reset between runs, and System.in, System.out and System.err are set once to the delegating
+ * streams returned by {@link ConsoleTester#getSystemIn()}, {@link ConsoleTester#getSystemOut()} and {@link ConsoleTester#getSystemErr()},
+ * so redirecting them for a run changes only the streams delegated to.  Output written by the test itself between runs still goes to
+ * the real System streams.  And the name of the running test, which getOutput methods otherwise find by searching the stack several
+ * times per run, is found once.
+ * <p>
+ * getOutput methods behave the same inside and outside a session - in particular {@link ConsoleTester#getOutputReset()} must still be
+ * called between runs in the same test.  Buffers are not reused if the output limit settings have changed, if a buffer has grown beyond
+ * 1 MB, if a write to it threw (for example when output exceeded a limit with policy abort), or if its PrintStream has been closed.
+ * <p>
+ * A session belongs to the thread that opened it and must be closed on that thread, normally with try-with-resources, and must
+ * be opened and closed within a single test.
+ *
+ * @author John Armstrong
+ */
+public class CaptureSession implements AutoCloseable
+{
+	private static final ThreadLocal<CaptureSession> current = new ThreadLocal<>();
+
+	private final Thread owner;
+	private boolean closed;
+	private long runCount;
+
+	OutputInfo.TestNameInfo testNameInfo; // of the test the session is open in, found on first use - see OutputInfo.getTestNameInfo
+
+	private CaptureBuffers buffers = new CaptureBuffers();
+
+	private CaptureSession()
+	{
+		owner = Thread.currentThread();
+	}
+
+	/**
+	 * Open a session on the calling thread.
+	 *
+	 * @return the session, to be closed when the runs are done
+	 * @throws TestHelpError if a session is already open on the calling thread
+	 */
+	public static CaptureSession open()
+	{
+		if (current.get() != null)
+		{
+			throw new TestHelpError("CaptureSession.open called but a session is already open on this thread");
+		}
+		CaptureSession session = new CaptureSession();
+		current.set(session);
+		ConsoleTester.holdSystemStreamsDelegated();
+		return session;
+	}
+
+	/**
+	 * Close the session, dropping its buffers.  Does nothing if it is already closed.
+	 *
+	 * @throws TestHelpError if called on a thread other than the one that opened the session
+	 */
+	@Override
+	public void close()
+	{
+		if (closed)
+		{
+			return;
+		}
+		if (Thread.currentThread() != owner)
+		{
+			throw new TestHelpError("CaptureSession closed on a thread other than the one that opened it");
+		}
+		closed = true;
+		current.remove();
+		ConsoleTester.releaseSystemStreamsDelegated();
+
+		buffers = null;
+	}
+
+	/**
+	 * Get the number of getOutput runs started in the session.
+	 *
+	 * @return the number of runs
+	 */
+	public long getRunCount()
+	{
+		return runCount;
+	}
+
+	/**
+	 * Get the session open on the calling thread.
+	 *
+	 * @return the session, or null if none is open
+	 */
+	static CaptureSession current()
+	{
+		return current.get();
+	}
+
+	/**
+	 * Get the input stream for a run, reading from an array of bytes.
+	 *
+	 * @param bytes the input bytes
+	 * @return the pooled input stream, reset to read the bytes
+	 */
+	DelegatingInputStream.ByteArrayInput takeInputBytes(byte [] bytes)
+	{
+		return buffers.takeInputBytes(bytes);
+	}
+
+	/**
+	 * Set the capture buffers and PrintStreams of a run in an OutputInfo, reusing those of the previous run where possible - see
+	 * CaptureBuffers.
+	 *
+	 * @param info the OutputInfo of the run
+	 * @param maxOutputBytes limit on output to System.out
+	 * @param maxErrorBytes limit on output to System.err
+	 * @param policy what to do when a limit is exceeded
+	 * @param spillThreshold spill threshold for output to System.out
+	 */
+	void prepare(OutputInfo info, long maxOutputBytes, long maxErrorBytes, OutputLimitPolicy policy, long spillThreshold)
+	{
+		runCount++;
+
+		buffers.prepare(maxOutputBytes,maxErrorBytes,policy,spillThreshold);
+		info.outputBytes = buffers.outputBytes;
+		info.outputStream = buffers.outputStream;
+		info.errorBytes = buffers.errorBytes;
+		info.errorStream = buffers.errorStream;
+	}
+
+}
@@ -0,0 +1,169 @@
+package testHelp;
+
+import static testHelp.AssertionTools.*;
+
+import java.util.regex.Pattern;
+
+/**
+ * Represents an assertion about a CharSequence, in particular the view of captured output returned by
+ * ConsoleTester.getOutputFinishAsView and ConsoleTester.getOutputViewFromVFunction.
+ * <p>
+ * Assertions work on the CharSequence directly - pattern matching uses a Matcher over the CharSequence and equality compares
+ * characters - so a view over a memory-mapped file is never copied into a String.  Subjects longer than
+ * {@link #MAX_SUBJECT_CHARS_IN_MESSAGE} characters are abbreviated in failure messages.
+ *
+ * @author John Armstrong
+ */
+public class CharSequenceAssertion extends GenericObjectAssertionBase<CharSequence,CharSequenceAssertion>
+{
+
+	static final String _DFT_DESC = "char sequence";
+
+	/**
+	 * Number of characters of the subject included in failure messages.
+	 */
+	static final int MAX_SUBJECT_CHARS_IN_MESSAGE = 1000;
+
+	@Override
+	String getDftDesc() {
+		return _DFT_DESC;
+	}
+
+	/**
+	 * Construct a CharSequenceAssertion object
+	 * @param subject the CharSequence to be examined
+	 * @param subjectDescArg and optional description of the subject CharSequence
+	 */
+	CharSequenceAssertion(CharSequence subject, String ... subjectDescArg)
+	{
+		super(subject,getDescAsDescArg(subjectDescArg,_DFT_DESC));
+		this.subject = subject;
+	}
+
+	/**
+	 * Verifies that a CharSequence matches some pattern.
+	 * <p>
+	 * Uses java.util.regex.Matcher.find() which means pattern doesn't have to match whole CharSequence.
+	 *
+	 * @param pattern a regular expression representing the pattern to match (e.g. "foo" or "\s+hello\s+")
+	 * @param patternDescArg an optional description of the pattern
+	 * @return this if the CharSequence matches the pattern
+	 * @throws java.lang.AssertionError if the CharSequence is null or does not match the pattern
+	 * @throws java.util.regex.PatternSyntaxException if the pattern does not compile
+	 */
+	public CharSequenceAssertion matches(String pattern, String ... patternDescArg)
+	{
+		String patternDesc = getDesc(patternDescArg,"pattern");
+		if (subject == null || !Pattern.compile(pattern).matcher(subject).find())
+			failF("Expected to find %s '%s' but did not in %s '%s'",patternDesc,pattern,subjectDesc,abbreviate(subject));
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a CharSequence does not match some pattern.
+	 *
+	 * @param pattern a regular expression representing the pattern to match (e.g. "foo" or "\s+hello\s+")
+	 * @param patternDescArg an optional description of the pattern
+	 * @return this if the CharSequence does not match the pattern
+	 * @throws java.lang.AssertionError if the CharSequence is null or matches the pattern
+	 * @throws java.util.regex.PatternSyntaxException if the pattern does not compile
+	 */
+	public CharSequenceAssertion doesNotMatch(String pattern, String ... patternDescArg)
+	{
+		String patternDesc = getDesc(patternDescArg,"pattern");
+		if (subject == null || Pattern.compile(pattern).matcher(subject).find())
+			failF("Did not expect to find %s '%s' but did in %s '%s'",patternDesc,pattern,subjectDesc,abbreviate(subject));
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a CharSequence has the same characters as another, as String.contentEquals does.  An override of
+	 * {@link GenericObjectAssertionBase#isEqualTo}, which would otherwise compare with equals, which most CharSequence
+	 * implementations do not override.
+	 *
+	 * @param other an object to compare the subject CharSequence to - compared by content if it is a CharSequence, otherwise with equals
+	 * @param otherDescArg an optional description of the other object
+	 * @return this if the CharSequences have the same characters
+	 * @throws java.lang.AssertionError if the CharSequences do not have the same characters
+	 */
+	@Override
+	public CharSequenceAssertion isEqualTo(Object other, String ... otherDescArg)
+	{
+		if (subject == null || !(other instanceof CharSequence))
+			return super.isEqualTo(other,otherDescArg);
+
+		String otherDesc = getDesc(otherDescArg,"other " + _DFT_DESC);
+		CharSequence otherChars = (CharSequence)other;
+		int length = Math.min(subject.length(),otherChars.length());
+		int i = 0;
+		while (i < length && subject.charAt(i) == otherChars.charAt(i))
+		{
+			i++;
+		}
+		if (i < length || subject.length() != otherChars.length())
+			failF("Expected %s '%s' to be equal to %s '%s' but they differ at index %d",subjectDesc,abbreviate(subject),otherDesc,abbreviate(otherChars),i);
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a CharSequence has a particular length.
+	 *
+	 * @param length the expected number of chars
+	 * @return this if the CharSequence has the length
+	 * @throws java.lang.AssertionError if the CharSequence is null or has a different length
+	 */
+	public CharSequenceAssertion hasLength(int length)
+	{
+		if (subject == null || subject.length() != length)
+			failF("Expected %s to have length %d but found %s",subjectDesc,length,(subject == null) ? "null" : "length " + subject.length());
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a CharSequence is non-null but is empty
+	 * @return this if CharSequence is empty
+	 * @throws java.lang.AssertionError is CharSequence is null or not empty
+	 */
+	public CharSequenceAssertion isEmpty()
+	{
+		if (subject == null || subject.length() != 0)
+			failF("Expected %s to be empty but found '%s'",subjectDesc,abbreviate(subject));
+
+		return this;
+	}
+
+	/**
+	 * Verifies that a CharSequence is not empty
+	 *
+	 * @return this if CharSequence is not empty
+	 * @throws java.lang.AssertionError is CharSequence is null or empty
+	 */
+	public CharSequenceAssertion isNotEmpty()
+	{
+		if (subject == null || subject.length() == 0)
+			failF("Expected %s to be non-empty but found '%s'",subjectDesc,abbreviate(subject));
+
+		return this;
+	}
+
+	/**
+	 * Get a CharSequence as a String for a failure message, abbreviated to {@link #MAX_SUBJECT_CHARS_IN_MESSAGE} characters.
+	 */
+	private static String abbreviate(CharSequence chars)
+	{
+		if (chars == null)
+		{
+			return "null";
+		}
+		if (chars.length() <= MAX_SUBJECT_CHARS_IN_MESSAGE)
+		{
+			return chars.toString();
+		}
+		return chars.subSequence(0,MAX_SUBJECT_CHARS_IN_MESSAGE).toString() + "... [" + chars.length() + " chars in all]";
+	}
+
+}
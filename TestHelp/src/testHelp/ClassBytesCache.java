@@ -0,0 +1,124 @@
+package testHelp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Internal (package-private) cache of class files read for {@link IsolatingClassLoader}s, shared by all of them, so a class file is
+ * read and transformed once however many loaders define the class.  Entries are keyed by the loader the file is read through
+ * (compared by identity), the name of the class and the class of the loader defining it, which determines how the file is transformed.
+ * <p>
+ * Cleared by ConsoleTester.setLoader, since a new loader may be for newly compiled classes.
+ *
+ * @author John Armstrong
+ */
+final class ClassBytesCache
+{
+	private static final Map<Key,byte []> cache = new ConcurrentHashMap<>();
+	private static final AtomicLong readCount = new AtomicLong();
+
+	private ClassBytesCache()
+	{
+		// not instantiated
+	}
+
+	private static final class Key
+	{
+		final ClassLoader source;
+		final String className;
+		final Class<?> loaderType;
+
+		Key(ClassLoader source, String className, Class<?> loaderType)
+		{
+			this.source = source;
+			this.className = className;
+			this.loaderType = loaderType;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (!(other instanceof Key))
+			{
+				return false;
+			}
+			Key key = (Key)other;
+			return source == key.source && className.equals(key.className) && loaderType == key.loaderType;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (System.identityHashCode(source) * 31 + className.hashCode()) * 31 + loaderType.hashCode();
+		}
+	}
+
+	/**
+	 * Get the class file of a class, reading and transforming it the first time it is asked for.
+	 *
+	 * @param source the loader to read the class file through, null for the system class loader
+	 * @param className the binary name of the class
+	 * @param loaderType the class of the loader that will define the class
+	 * @param transform the transformation of the class file made by loaders of that class
+	 * @return the transformed class file - shared, so must not be changed
+	 * @throws ClassNotFoundException if the class file cannot be found or read
+	 */
+	static byte [] get(ClassLoader source, String className, Class<?> loaderType, UnaryOperator<byte []> transform) throws ClassNotFoundException
+	{
+		Key key = new Key(source,className,loaderType);
+		byte [] classBytes = cache.get(key);
+		if (classBytes == null)
+		{
+			classBytes = transform.apply(read(source,className));
+			cache.put(key,classBytes);
+		}
+		return classBytes;
+	}
+
+	private static byte [] read(ClassLoader source, String className) throws ClassNotFoundException
+	{
+		String resource = className.replace('.','/') + ".class";
+		try (InputStream in = (source != null) ? source.getResourceAsStream(resource) : ClassLoader.getSystemResourceAsStream(resource))
+		{
+			if (in == null)
+			{
+				throw new ClassNotFoundException(className);
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte [] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) > 0)
+			{
+				bytes.write(buffer,0,count);
+			}
+			readCount.incrementAndGet();
+			return bytes.toByteArray();
+		}
+		catch (IOException ex)
+		{
+			throw new ClassNotFoundException(className,ex);
+		}
+	}
+
+	/**
+	 * Drop all cached class files.
+	 */
+	static void clear()
+	{
+		cache.clear();
+	}
+
+	/**
+	 * Get the number of class files read since the JVM started.
+	 */
+	static long getReadCount()
+	{
+		return readCount.get();
+	}
+
+}
@@ -0,0 +1,543 @@
+package testHelp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import testHelp.VFunctionsAndVUnboundMethods.VFunction;
+
+/**
+ * A script for an interactive dialogue with code that prompts for input, waits for it and reacts to it - a sequence of steps,
+ * each of which either expects output (a literal prompt or a pattern) within a timeout or sends a line of input.  Run with
+ * {@link ConsoleTester#getOutputFromDialogue} or {@link ConsoleTester#getOutputFromVFunctionWithDialogue}, for example:
+ * <pre>
+  ConsoleDialogue dialogue = new ConsoleDialogue()
+      .expect("A or B or return to quit")
+      .send("A")
+      .expect("You entered A")
+      .send("")
+      .expect("Bye");
+  String output = ConsoleTester.getOutputFromDialogue(TestClassWithInteractiveMethods::main2, null, dialogue, "main2 dialogue");</pre>
+ *
+ * Input is sent only when the preceding expectation has been met, so the dialogue checks that the code prompts before it reads
+ * and can follow behavior that depends on earlier output.  Output not matched by an expect step is skipped over.  After the last step
+ * input is closed and the code is expected to end within the default timeout.
+ * <p>
+ * The code runs on a worker thread reading from and writing to pipes - System.in is a stream which blocks until a line is sent and
+ * System.out is captured as in other getOutput methods and also passed to the dialogue as it is written.  Waits use a lock and
+ * condition rather than polling, so many dialogues can run at once (with thread-scoped capture - see
+ * {@link ConsoleTester#setThreadScopedCapture}).  A transcript of output received and lines sent is printed as DIALOGUE
+ * with other output info.
+ * <p>
+ * If an expect step times out the code is interrupted, its input is closed and the run ends as if the code had thrown
+ * {@link ConsoleDialogueError}.  Code that does not end when interrupted is abandoned, as by
+ * {@link ConsoleTester#getOutputFromVFunctionWithTimeout}, and what it writes afterwards is discarded.  A ConsoleDialogue holds only the script, so it can be run any number of times, including concurrently.
+ *
+ * @author John Armstrong
+ */
+public class ConsoleDialogue
+{
+	/**
+	 * Default timeout for expect steps and for the end of the run, in milliseconds, unless changed with {@link #setDefaultTimeout}.
+	 */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * Time allowed for the code to end after it has been interrupted following a timeout, in milliseconds.
+	 */
+	static final long INTERRUPT_GRACE_MILLIS = 100;
+
+	/**
+	 * Number of characters of unmatched output included in the message of a ConsoleDialogueError.
+	 */
+	static final int MAX_UNMATCHED_CHARS_IN_MESSAGE = 200;
+
+	private final List<Step> steps = new ArrayList<>();
+	private long defaultTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+	/**
+	 * A step in the script - an expectation of output (pattern not null) or a line of input to send (line not null).
+	 */
+	private static class Step
+	{
+		final Pattern pattern;
+		final String patternDesc;
+		final long timeoutMillis;
+		final String line;
+
+		Step(Pattern pattern, String patternDesc, long timeoutMillis, String line)
+		{
+			this.pattern = pattern;
+			this.patternDesc = patternDesc;
+			this.timeoutMillis = timeoutMillis;
+			this.line = line;
+		}
+	}
+
+	/**
+	 * Create an empty dialogue.
+	 */
+	public ConsoleDialogue()
+	{
+
+	}
+
+	/**
+	 * Set the timeout for later expect steps added without a timeout, and for the end of the run.
+	 *
+	 * @param timeoutMillis timeout in milliseconds
+	 * @return this
+	 */
+	public ConsoleDialogue setDefaultTimeout(long timeoutMillis)
+	{
+		this.defaultTimeoutMillis = timeoutMillis;
+		return this;
+	}
+
+	/**
+	 * Add a step which expects output containing literal text within the default timeout.
+	 *
+	 * @param text the text expected, e.g. a prompt
+	 * @return this
+	 */
+	public ConsoleDialogue expect(String text)
+	{
+		return expect(text,defaultTimeoutMillis);
+	}
+
+	/**
+	 * Add a step which expects output containing literal text within a timeout.
+	 *
+	 * @param text the text expected, e.g. a prompt
+	 * @param timeoutMillis timeout in milliseconds
+	 * @return this
+	 */
+	public ConsoleDialogue expect(String text, long timeoutMillis)
+	{
+		steps.add(new Step(Pattern.compile(Pattern.quote(text)),"'" + text + "'",timeoutMillis,null));
+		return this;
+	}
+
+	/**
+	 * Add a step which expects output matching a regular expression within the default timeout.
+	 *
+	 * @param regex the pattern expected - as in StringAssertion.matches, need not match a whole line
+	 * @return this
+	 * @throws java.util.regex.PatternSyntaxException if the pattern does not compile
+	 */
+	public ConsoleDialogue expectPattern(String regex)
+	{
+		return expectPattern(regex,defaultTimeoutMillis);
+	}
+
+	/**
+	 * Add a step which expects output matching a regular expression within a timeout.
+	 *
+	 * @param regex the pattern expected - as in StringAssertion.matches, need not match a whole line
+	 * @param timeoutMillis timeout in milliseconds
+	 * @return this
+	 * @throws java.util.regex.PatternSyntaxException if the pattern does not compile
+	 */
+	public ConsoleDialogue expectPattern(String regex, long timeoutMillis)
+	{
+		steps.add(new Step(Pattern.compile(regex),"pattern '" + regex + "'",timeoutMillis,null));
+		return this;
+	}
+
+	/**
+	 * Add a step which sends a line of input, followed by "\n".
+	 *
+	 * @param line the line, without a line separator
+	 * @return this
+	 */
+	public ConsoleDialogue send(String line)
+	{
+		steps.add(new Step(null,null,0,line));
+		return this;
+	}
+
+	/**
+	 * Run the dialogue with a vFunction - called by ConsoleTester.getOutputFromVFunctionWithDialogue.
+	 */
+	<A,R> String run(VFunction<A,R> vFunction, A arg, String desc)
+	{
+		Run run = new Run();
+		ConsoleTester.getOutputStart(run.input,"",null,desc);
+		OutputInfo info = OutputInfo.info();
+		info.expectValue = true;
+		info.outputBytes.addTee(run.output); // after any live tee set by getOutputStart
+
+		// streams of the worker's own, so that if it is abandoned it can be cut off from the streams of the run (as in TimeoutRunner)
+		DelegatingInputStream workerIn = new DelegatingInputStream(info.inputBytes);
+		DelegatingPrintStream workerOut = new DelegatingPrintStream(info.outputStream);
+		DelegatingPrintStream workerErr = new DelegatingPrintStream((info.errorStream != null) ? info.errorStream : info.savedSystemErr);
+		Thread worker = new Thread(() -> {
+			ConsoleTester.redirectWorkerThreadStreams(workerIn,workerOut,workerErr);
+			try
+			{
+				run.finished(vFunction.apply(arg),null);
+			}
+			catch (Throwable ex)
+			{
+				run.finished(null,ex);
+			}
+		},"ConsoleDialogue worker");
+		worker.setDaemon(true); // so an abandoned worker does not keep the JVM alive
+		worker.start();
+
+		Throwable failure = run.play(worker);
+		if (failure != null && worker.isAlive())
+		{
+			TimeoutRunner.abandon(worker,workerIn,workerOut,workerErr);
+		}
+
+		info.input = run.getLinesSent();
+		info.dialogueTranscript = run.getTranscript();
+
+		if (failure == null && run.exception == null)
+		{
+			info.value = run.value;
+			info.output = ConsoleTester.outputBytesToTrimmedString(info.outputBytes);
+		}
+		else
+		{
+			ConsoleTester.getOutputFromException((failure != null) ? failure : run.exception);
+		}
+
+		ConsoleTester.getOutputFinal();
+
+		return info.output;
+	}
+
+	// ==========================================================================================
+	//
+	// Run state
+	//
+	// ==========================================================================================
+
+	/**
+	 * The state of one run of the dialogue - shared by the thread playing the script and the worker thread running the code,
+	 * guarded by one lock, with one condition signalled whenever output is received, input is sent or closed, or the code ends.
+	 */
+	private class Run
+	{
+		final ReentrantLock lock = new ReentrantLock();
+		final Condition changed = lock.newCondition();
+
+		final StringBuilder unmatched = new StringBuilder(); // output received but not yet matched by an expect step
+		final StringBuilder transcript = new StringBuilder();
+		boolean transcriptAtLineStart = true;
+		boolean transcriptAfterSend; // true until the end of the line of output on which a line was sent
+		final StringBuilder linesSent = new StringBuilder();
+
+		ByteBuffer inputBytes = ByteBuffer.allocate(0); // bytes sent but not yet read
+		boolean inputClosed;
+
+		boolean ended;
+		volatile Object value;
+		volatile Throwable exception;
+
+		final CharsetDecoder decoder = Charset.forName(ConsoleTester.getConsoleEncoding()).newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		byte [] undecoded = new byte[0]; // end of a multi-byte character not yet received
+
+		/**
+		 * System.in for the code - blocks until a line is sent or input is closed.
+		 */
+		final InputStream input = new InputStream()
+		{
+			@Override
+			public int read() throws IOException
+			{
+				byte [] b = new byte[1];
+				return (read(b,0,1) < 0) ? -1 : b[0] & 0xff;
+			}
+
+			@Override
+			public int read(byte b[], int off, int len) throws IOException
+			{
+				if (len == 0)
+				{
+					return 0;
+				}
+				lock.lock();
+				try
+				{
+					while (!inputBytes.hasRemaining() && !inputClosed)
+					{
+						changed.await();
+					}
+					if (!inputBytes.hasRemaining())
+					{
+						return -1;
+					}
+					int n = Math.min(len,inputBytes.remaining());
+					inputBytes.get(b,off,n);
+					return n;
+				}
+				catch (InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("ConsoleDialogue input interrupted");
+				}
+				finally
+				{
+					lock.unlock();
+				}
+			}
+
+			@Override
+			public int available()
+			{
+				lock.lock();
+				try
+				{
+					return inputBytes.remaining();
+				}
+				finally
+				{
+					lock.unlock();
+				}
+			}
+		};
+
+		/**
+		 * Tee of captured System.out - decodes output as it is written and wakes the thread playing the script.
+		 */
+		final OutputStream output = new OutputStream()
+		{
+			@Override
+			public void write(int b)
+			{
+				write(new byte[] {(byte)b},0,1);
+			}
+
+			@Override
+			public void write(byte b[], int off, int len)
+			{
+				lock.lock();
+				try
+				{
+					ByteBuffer in = ByteBuffer.allocate(undecoded.length + len);
+					in.put(undecoded).put(b,off,len).flip();
+					CharBuffer out = CharBuffer.allocate((int)Math.ceil(in.remaining() * decoder.maxCharsPerByte()) + 1);
+					decoder.decode(in,out,false);
+					out.flip();
+					unmatched.append(out);
+					undecoded = new byte[in.remaining()];
+					in.get(undecoded);
+					changed.signalAll();
+				}
+				finally
+				{
+					lock.unlock();
+				}
+			}
+		};
+
+		/**
+		 * Record the end of the code - called on the worker thread.
+		 */
+		void finished(Object value, Throwable exception)
+		{
+			lock.lock();
+			try
+			{
+				this.value = value;
+				this.exception = exception;
+				ended = true;
+				changed.signalAll();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Play the script, then close input and wait for the code to end.
+		 *
+		 * @return a ConsoleDialogueError if a step timed out or the code did not end in time, else null
+		 */
+		Throwable play(Thread worker)
+		{
+			lock.lock();
+			try
+			{
+				for (int i = 0; i < steps.size(); i++)
+				{
+					Step step = steps.get(i);
+					if (step.line != null)
+					{
+						send(step.line);
+						continue;
+					}
+
+					Matcher matcher = step.pattern.matcher(unmatched);
+					long remaining = TimeUnit.MILLISECONDS.toNanos(step.timeoutMillis);
+					while (!matcher.find())
+					{
+						if (ended || remaining <= 0)
+						{
+							return stop(worker,String.format("step %d: expected %s %s but found '%s'",i + 1,step.patternDesc,
+									ended ? "before end of output" : "within " + step.timeoutMillis + " ms",abbreviateStart(unmatched)));
+						}
+						remaining = changed.awaitNanos(remaining);
+						matcher.reset(unmatched);
+					}
+					addOutputToTranscript(unmatched.substring(0,matcher.end()));
+					unmatched.delete(0,matcher.end());
+				}
+
+				inputClosed = true;
+				changed.signalAll();
+				long remaining = TimeUnit.MILLISECONDS.toNanos(defaultTimeoutMillis);
+				while (!ended)
+				{
+					if (remaining <= 0)
+					{
+						return stop(worker,String.format("after last step: expected end within %d ms",defaultTimeoutMillis));
+					}
+					remaining = changed.awaitNanos(remaining);
+				}
+				addOutputToTranscript(unmatched.toString());
+				return null;
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				return stop(worker,"interrupted");
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Stop the code after a failure - close input, interrupt the worker and give it a short time to end, after which it is
+		 * abandoned and cut off from the streams of the run.  Called with the lock held.
+		 */
+		private Throwable stop(Thread worker, String message)
+		{
+			addOutputToTranscript(unmatched.toString());
+			unmatched.setLength(0);
+			if (!transcriptAtLineStart)
+			{
+				transcript.append(System.lineSeparator());
+			}
+			transcript.append("! ").append(message);
+			transcriptAtLineStart = false;
+
+			inputClosed = true;
+			changed.signalAll();
+			worker.interrupt();
+			long remaining = TimeUnit.MILLISECONDS.toNanos(INTERRUPT_GRACE_MILLIS);
+			try
+			{
+				while (!ended && remaining > 0)
+				{
+					remaining = changed.awaitNanos(remaining);
+				}
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt(); // give up waiting, but leave interrupt status for caller
+			}
+			return new ConsoleDialogueError(message);
+		}
+
+		/**
+		 * Get unmatched output for a message - the last {@value #MAX_UNMATCHED_CHARS_IN_MESSAGE} characters if there are more.
+		 */
+		private String abbreviateStart(CharSequence text)
+		{
+			int length = text.length();
+			return (length <= MAX_UNMATCHED_CHARS_IN_MESSAGE) ? text.toString()
+					: "..." + text.subSequence(length - MAX_UNMATCHED_CHARS_IN_MESSAGE,length);
+		}
+
+		private void send(String line)
+		{
+			byte [] bytes = (line + "\n").getBytes(); // default encoding, as for input passed as a String
+			ByteBuffer all = ByteBuffer.allocate(inputBytes.remaining() + bytes.length);
+			all.put(inputBytes).put(bytes).flip();
+			inputBytes = all;
+			changed.signalAll();
+
+			if (!transcriptAtLineStart)
+			{
+				transcript.append(System.lineSeparator());
+			}
+			transcript.append("> ").append(line).append(System.lineSeparator());
+			transcriptAtLineStart = true;
+			transcriptAfterSend = true;
+			linesSent.append(line).append('\n');
+		}
+
+		private void addOutputToTranscript(String text)
+		{
+			for (int i = 0; i < text.length(); i++)
+			{
+				char c = text.charAt(i);
+				if (transcriptAfterSend && (c == '\r' || c == '\n'))
+				{
+					transcriptAfterSend = (c == '\r'); // skip end of line on which line was sent - transcript already has one
+					continue;
+				}
+				transcriptAfterSend = false;
+				if (transcriptAtLineStart && c != '\n' && c != '\r')
+				{
+					transcript.append("< ");
+					transcriptAtLineStart = false;
+				}
+				if (c == '\n')
+				{
+					transcriptAtLineStart = true;
+				}
+				transcript.append(c);
+			}
+		}
+
+		String getTranscript()
+		{
+			lock.lock();
+			try
+			{
+				return transcript.toString().trim();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		String getLinesSent()
+		{
+			lock.lock();
+			try
+			{
+				return linesSent.toString();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+}
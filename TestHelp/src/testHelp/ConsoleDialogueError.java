@@ -0,0 +1,20 @@
+package testHelp;
+
+/**
+ * An error recorded as the exception of a ConsoleTester getOutput method run with a {@link ConsoleDialogue} when an expect step times
+ * out, the output ends before an expect step is matched, or the code does not end in time after the last step.  The code being run is
+ * interrupted and its input is closed.
+ * <p>
+ * Extends Error rather than Exception for consistency with other errors that stop a run, such as {@link OutputMismatchError}.
+ * 
+ * @author John Armstrong
+ */
+public class ConsoleDialogueError extends Error
+{
+	private static final long serialVersionUID = 1L;
+
+	public ConsoleDialogueError(String message) {
+		super(message);
+	}
+
+}
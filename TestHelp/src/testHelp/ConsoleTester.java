@@ -1,15 +1,37 @@
 package testHelp;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import testHelp.VFunctionsAndVUnboundMethods.VBiFunction;
 import testHelp.VFunctionsAndVUnboundMethods.VBiUnboundMethod;
@@ -226,7 +248,9 @@ public class ConsoleTester
 	public static String getOutput(String className, String [] mainArgs, String input, String ...descArg)
 	{
 		String desc = AssertionTools.getDesc(descArg, className + "::Main");
-		Consumer<String []> mainClassAsStringArrayConsumer = makeStringArrayConsumerFromMainClassName(className,classLoader);
+		Consumer<String []> mainClassAsStringArrayConsumer = classIsolation
+				? makeStringArrayConsumerFromMainClassName(className,makeRunClassLoader(className),false)
+				: makeStringArrayConsumerFromMainClassName(className,(exitInterceptingLoader != null) ? exitInterceptingLoader : classLoader,true);
 		return getOutputFromVFunction(makeVFunction(mainClassAsStringArrayConsumer),mainArgs,input,desc);
 
 	}
@@ -266,20 +290,20 @@ public class ConsoleTester
 	{
 		// we want to keep the testName and whether it's printed, reset everything else
 		// XXX this should probably be a Info method for proper encapsulation - compare sync()
-		if (OutputInfo.info == null)
+		if (OutputInfo.info() == null)
 		{
 			OutputInfo.sync();
 		}
 		else
 		{
-			OutputInfo.TestNameInfo savedTestNameInfo = OutputInfo.info.testNameInfo;
-			boolean savedTestClassNamePrinted = OutputInfo.info.testClassNamePrinted;
-			boolean savedTestNamePrinted = OutputInfo.info.testNamePrinted;
-			OutputInfo.info = null;
+			OutputInfo.TestNameInfo savedTestNameInfo = OutputInfo.info().testNameInfo;
+			boolean savedTestClassNamePrinted = OutputInfo.info().testClassNamePrinted;
+			boolean savedTestNamePrinted = OutputInfo.info().testNamePrinted;
+			OutputInfo.setInfo(null);
 			OutputInfo.sync();
-			OutputInfo.info.testNameInfo = savedTestNameInfo;
-			OutputInfo.info.testClassNamePrinted = savedTestClassNamePrinted;
-			OutputInfo.info.testNamePrinted = savedTestNamePrinted;
+			OutputInfo.info().testNameInfo = savedTestNameInfo;
+			OutputInfo.info().testClassNamePrinted = savedTestClassNamePrinted;
+			OutputInfo.info().testNamePrinted = savedTestNamePrinted;
 		}
 
 
@@ -297,67 +321,123 @@ public class ConsoleTester
 	 * @throws TestHelpError if called twice without intervening call to getOutput
 	 */
 	public static void getOutputStart(String input, String desc)
+	{
+		getOutputStart(input,null,desc);
+	}
+
+	/**
+	 * Initialize ConsoleTester as {@link #getOutputStart(String, String)} does, with output to System.out compared with an expectation
+	 * as it is written - see {@link OutputExpectation}.  The first line of output that differs from the expected line throws
+	 * {@link OutputMismatchError} from the write, stopping the run, and the point of divergence is recorded and available through
+	 * {@link #getOutputMismatchFromInfo}.
+	 * 
+	 * @param input string representing input
+	 * @param expected the expected output, or null for no comparison
+	 * @param desc a description of what is being run
+	 * @throws TestHelpError if called twice without intervening call to getOutput
+	 */
+	public static void getOutputStart(String input, OutputExpectation expected, String desc)
+	{
+		input = (input == null) ? "" : input;
+		CaptureSession session = CaptureSession.current();
+		InputStream inputStream = (session == null) ? new DelegatingInputStream.ByteArrayInput(input.getBytes()) : session.takeInputBytes(input.getBytes());
+		getOutputStart(inputStream,input,expected,desc);
+	}
+
+	// Capture buffer and PrintStream for System.err reused by getOutput runs outside a CaptureSession on each thread
+	private static final ThreadLocal<CaptureBuffers> errorBuffers = ThreadLocal.withInitial(CaptureBuffers::new);
+
+	/**
+	 * Initialize ConsoleTester with input from an InputStream - see {@link #getOutputStartWithInputStream}.  Package-private for
+	 * ConsoleDialogue.
+	 * 
+	 * @param inputStream the stream to read input from
+	 * @param input string representing input, for printing
+	 * @param expected the expected output, or null for no comparison
+	 * @param desc a description of what is being run
+	 */
+	static void getOutputStart(InputStream inputStream, String input, OutputExpectation expected, String desc)
 	{
 		AssertionTools.syncInfo(); // Will print test class name and test name verboseLevel permitting
 
-		if (OutputInfo.info.getOutputInitialized)
+		if (OutputInfo.info().getOutputInitialized)
 		{
 			TestHelpError ex =  new TestHelpError("getOutputStart called twice");
 			ex.printStackTrace();
 			throw ex;
 		}
 
-		OutputInfo.info.getOutputInitialized = true;
+		OutputInfo.info().getOutputInitialized = true;
 		
-		OutputInfo.info.expectValue = false; // will be set to true in bundled getOutput methods
+		OutputInfo.info().expectValue = false; // will be set to true in bundled getOutput methods
+
+		OutputInfo.info().description = desc;
 
-		OutputInfo.info.description = desc;
+		OutputInfo.info().expectOutput = true;
 
-		OutputInfo.info.expectOutput = true;
+		OutputInfo.info().output = "";
 
-		OutputInfo.info.output = "";
+		OutputInfo.info().outputView = null;
 
-		// Make sure delegating streams are in sync with System streams
+		if (!threadScopedCapture && !systemStreamsDelegated)
+		{
+			// Make sure delegating streams are in sync with System streams
 
-		systemIn.setInputStream(System.in);
-		systemOut.setPrintStream(System.out);
-		systemErr.setPrintStream(System.err);
+			systemIn.setInputStream(System.in);
+			systemOut.setPrintStream(System.out);
+			systemErr.setPrintStream(System.err);
+		}
 
 		// Following are referenced below so have to be declared
-		OutputInfo.info.savedSystemIn = System.in;
-		OutputInfo.info.savedSystemOut = System.out;
-		OutputInfo.info.savedSystemErr = System.err; // For including stacktraces in output (verbose only)
+		OutputInfo.info().savedSystemIn = threadScopedCapture ? realSystemIn : systemStreamsDelegated ? systemIn.getInputStream() : System.in;
+		OutputInfo.info().savedSystemOut = threadScopedCapture ? realSystemOut : systemStreamsDelegated ? systemOut.getPrintStream() : System.out;
+		OutputInfo.info().savedSystemErr = threadScopedCapture ? realSystemErr : systemStreamsDelegated ? systemErr.getPrintStream() : System.err; // For including stacktraces in output (verbose only)
 
-		OutputInfo.info.outputBytes = null; // accessed outside try
-		OutputInfo.info.errorBytes = null; // accessed outside try
+		OutputInfo.info().outputBytes = null; // accessed outside try
+		OutputInfo.info().errorBytes = null; // accessed outside try
 
-		// turn the input string into a stream and make System.in use
-		// this stream instead of the console
+		// make System.in use the input stream instead of the console
 
-		OutputInfo.info.input = (input == null) ? "" : input;
+		OutputInfo.info().input = input;
 
 		// set up input stream to replace System.in
-		OutputInfo.info.inputBytes = new ByteArrayInputStream(OutputInfo.info.input.getBytes());
-		System.setIn(OutputInfo.info.inputBytes);
-		systemIn.setInputStream(System.in);
-
+		OutputInfo.info().inputBytes = inputStream;
 
-		// set up an output stream to replace System.out
-		OutputInfo.info.outputBytes = new ByteArrayOutputStream();
-		OutputInfo.info.outputStream = makePrintStreamFromOutputBytes(OutputInfo.info.outputBytes);
-		System.setOut(OutputInfo.info.outputStream);
-		systemOut.setPrintStream(System.out);
+		CaptureSession session = CaptureSession.current();
+		if (session != null)
+		{
+			// reuse the buffers of the previous run in the session
+			session.prepare(OutputInfo.info(),maxOutputBytes,maxErrorBytes,outputLimitPolicy,spillThreshold);
+		}
+		else
+		{
+			// set up an output stream to replace System.out
+			OutputInfo.info().outputBytes = new CaptureOutputStream(maxOutputBytes,outputLimitPolicy,"System.out",spillThreshold);
+			OutputInfo.info().outputStream = makePrintStreamFromOutputBytes(OutputInfo.info().outputBytes);
+
+			// set up an output stream to replace System.err - always, so output to System.err is kept per run rather than going to
+			// the console, but reused from run to run on this thread, so a quiet run costs only a reset; decoded only when asked for
+			CaptureBuffers buffers = errorBuffers.get();
+			buffers.prepareErrors(maxErrorBytes,outputLimitPolicy);
+			OutputInfo.info().errorBytes = buffers.errorBytes;
+			OutputInfo.info().errorStream = buffers.errorStream;
+		}
+		OutputInfo.info().outputBytes.setExpectation(expected,Charset.forName(consoleEncoding));
 
-		if (verboseLevel > 0)
+		if (liveTee)
 		{
-			// set up an output stream to replace System.err
-			// do only for verbose - otherwise let stacktraces go to System.err as in original code
-			OutputInfo.info.errorBytes = new ByteArrayOutputStream();
-			OutputInfo.info.errorStream = makePrintStreamFromOutputBytes(OutputInfo.info.errorBytes);
-			System.setErr(OutputInfo.info.errorStream);
-			systemErr.setPrintStream(System.err);
+			OutputInfo.info().liveOutputTee = new LiveTee(OutputInfo.info().savedSystemOut,"[out] ".getBytes(Charset.forName(consoleEncoding)),liveTeeMaxBytesPerSecond);
+			OutputInfo.info().outputBytes.setTee(OutputInfo.info().liveOutputTee);
+			OutputInfo.info().liveErrorTee = new LiveTee(OutputInfo.info().savedSystemErr,"[err] ".getBytes(Charset.forName(consoleEncoding)),liveTeeMaxBytesPerSecond);
+			OutputInfo.info().errorBytes.setTee(OutputInfo.info().liveErrorTee);
+		}
+		else
+		{
+			OutputInfo.info().liveOutputTee = OutputInfo.info().liveErrorTee = null;
 		}
 
+		redirectSystemStreams(OutputInfo.info().inputBytes,OutputInfo.info().outputStream,OutputInfo.info().errorStream);
+
 	}
 
 	/** Third step in an unbundled {@literal getOutputStart-<run-user-code>-getOutputFinish-getOutputFromException} sequence.
@@ -371,19 +451,74 @@ public class ConsoleTester
 	{
 		OutputInfo.sync();
 
-		if (!OutputInfo.info.getOutputInitialized)
+		if (!OutputInfo.info().getOutputInitialized)
 		{
 			throw new TestHelpError("getOutputFinish called but not getOutputStart");
 		}
 		// return the string version of whatever was written to the output stream
 
-		OutputInfo.info.output = outputBytesToString(OutputInfo.info.outputBytes).trim();
+		OutputInfo.info().output = outputBytesToTrimmedString(OutputInfo.info().outputBytes);
 
 		return getOutputFinal();
 
 
 	}
 
+	/**
+	 * Alternative third step in an unbundled {@literal getOutputStart-<run-user-code>-getOutputFinish-getOutputFromException} sequence
+	 * which returns the output as a CharSequence view rather than a String.  If the output has been spilled to a temporary file
+	 * (see {@link #setSpillThreshold}) the view is over the memory-mapped file, so very large output is not copied to the heap; 
+	 * otherwise, if the output is ASCII (or the console encoding is ISO-8859-1), it is over the capture buffer, and if not the trimmed
+	 * output is decoded once into a CharBuffer.  No String is made unless toString is called on the view.  The view can be tested with
+	 * verify.that(CharSequence).  Within a {@link CaptureSession} a capture buffer that a view is taken over is not reused.
+	 * 
+	 * @return any text output to System.out when main runs, trimmed as by getOutputFinish
+	 * @throws TestHelpError if getoutputStart has not previously been called
+	 */
+	public static CharSequence getOutputFinishAsView()
+	{
+		OutputInfo.sync();
+
+		if (!OutputInfo.info().getOutputInitialized)
+		{
+			throw new TestHelpError("getOutputFinishAsView called but not getOutputStart");
+		}
+
+		OutputInfo.info().outputView = outputBytesToView(OutputInfo.info().outputBytes);
+		OutputInfo.info().output = null;
+
+		getOutputFinal();
+
+		return OutputInfo.info().outputView;
+	}
+
+	/**
+	 * Alternative third step in an unbundled {@literal getOutputStart-<run-user-code>-getOutputFinish-getOutputFromException} sequence
+	 * for code that writes binary data, such as images, compressed streams or serialized records, to System.out.  Returns the output
+	 * as the bytes written, neither decoded in the console encoding nor trimmed, in a read-only ByteBuffer over the capture buffer, or
+	 * over the memory-mapped file if the output has been spilled (see {@link #setSpillThreshold}), so nothing is copied.  The bytes can
+	 * be tested with verify.that(ByteBuffer).  Within a {@link CaptureSession} a capture buffer that bytes are returned over is not reused.
+	 * 
+	 * @return the bytes output to System.out when main runs, from position 0 to the limit of the buffer
+	 * @throws TestHelpError if getoutputStart has not previously been called
+	 */
+	public static ByteBuffer getOutputFinishAsBytes()
+	{
+		OutputInfo.sync();
+
+		if (!OutputInfo.info().getOutputInitialized)
+		{
+			throw new TestHelpError("getOutputFinishAsBytes called but not getOutputStart");
+		}
+
+		OutputInfo.info().outputBinary = OutputInfo.info().outputBytes.getBytes();
+		OutputInfo.info().output = null;
+
+		getOutputFinal();
+
+		return OutputInfo.info().outputBinary;
+	}
+
 	/**
 	 * Alternative third step in {@literal getOutputStart-<run-user-code>-getOutputFinish-getOutputFromException} sequence.
 	 * The normal sequence {@literal getOutputStart-<run-user-code>-getOutputFinish} should be placed in a try block and
@@ -398,16 +533,16 @@ public class ConsoleTester
 	{
 		OutputInfo.sync();
 
-		if (!OutputInfo.info.getOutputInitialized)
+		if (!OutputInfo.info().getOutputInitialized)
 		{
 			ex = new TestHelpError("getOutputFromException called but not getOutputStart"); // make like it's already been thrown
 		}
 
 		if (ex instanceof TestHelpError)
 		{
-			if (OutputInfo.info.savedSystemErr != null)
+			if (OutputInfo.info().savedSystemErr != null)
 			{
-				System.setErr(OutputInfo.info.savedSystemErr); // Don't need to set it back to bytestream (?)
+				restoreSystemErr(OutputInfo.info().savedSystemErr); // Don't need to set it back to bytestream (?)
 			}
 			printChunkedStackTrace(ex); // goes to real System.err
 			throw (TestHelpError)ex;
@@ -417,9 +552,21 @@ public class ConsoleTester
 		// core exception handling
 		// =========================================
 
-		OutputInfo.info.outputIsException = true;
+		Throwable cause = (ex instanceof WrappedException) ? ex.getCause() : ex;
+		if (cause instanceof SystemExitError)
+		{
+			// an intercepted exit ends the run normally - see setExitInterception
+			OutputInfo.info().exitStatus = ((SystemExitError)cause).getStatus();
+			endRun();
+			OutputInfo.info().output = outputBytesToTrimmedString(OutputInfo.info().outputBytes);
+			return getOutputFinal();
+		}
+
+		OutputInfo.info().outputIsException = true;
 
-		OutputInfo.info.outputBeforeException = outputBytesToString(OutputInfo.info.outputBytes).trim();
+		endRun(); // so stacktraces can be written to capture buffers regardless of output limits
+
+		OutputInfo.info().outputBeforeException = outputBytesToTrimmedString(OutputInfo.info().outputBytes);
 
 		if (ex instanceof WrappedException)
 		{
@@ -429,9 +576,9 @@ public class ConsoleTester
 			{
 				wrappedException.printStackTrace(); // goes to buffer, will be chunked on output
 			}
-			OutputInfo.info.exception = wrappedException;
-			OutputInfo.info.exceptionIsInternal = internal;
-			OutputInfo.info.output = OutputInfo.info.exception.toString();
+			OutputInfo.info().exception = wrappedException;
+			OutputInfo.info().exceptionIsInternal = internal;
+			OutputInfo.info().output = OutputInfo.info().exception.toString();
 		}
 		else
 		{
@@ -440,14 +587,14 @@ public class ConsoleTester
 				ex.printStackTrace(); // goes to buffer, will be chunked on output
 			}
 
-			OutputInfo.info.exception = ex;
-			OutputInfo.info.output = OutputInfo.info.exception.toString();
+			OutputInfo.info().exception = ex;
+			OutputInfo.info().output = OutputInfo.info().exception.toString();
 		}
 
 
 		getOutputFinal();
 
-		return OutputInfo.info.output;
+		return OutputInfo.info().output;
 
 	}
 
@@ -462,42 +609,57 @@ public class ConsoleTester
 	{
 		OutputInfo.sync();
 
-		if (!OutputInfo.info.getOutputInitialized)
+		if (!OutputInfo.info().getOutputInitialized)
 		{
 			throw new TestHelpError("getOutputFinal called but not getOutputStart");
 		}
 
-		System.setIn(OutputInfo.info.savedSystemIn); // no change if input was null
-		systemIn.setInputStream(System.in); // no change if input was null
-		System.setOut(OutputInfo.info.savedSystemOut);
-		systemOut.setPrintStream(System.out);
+		restoreSystemInAndOut(OutputInfo.info().savedSystemIn,OutputInfo.info().savedSystemOut); // no change to System.in if input was null
 
-		if (verboseLevel > 0)
+		if (OutputInfo.info().inputBytes instanceof InputPreviewStream)
+		{
+			OutputInfo.info().input = inputPreviewToString((InputPreviewStream)OutputInfo.info().inputBytes);
+			try
+			{
+				OutputInfo.info().inputBytes.close();
+			}
+			catch (IOException ex)
+			{
+				// nothing to do - input was only read
+			}
+		}
+
+		endRun();
+		StaticStateSnapshot snapshot = staticStateSnapshot;
+		if (snapshot != null)
 		{
+			snapshot.restore(); // see setStaticStateRestore
+		}
+		OutputInfo.info().outputLimitExceeded = OutputInfo.info().outputBytes.getDiscardedBytesDescription();
+		OutputInfo.info().outputMismatch = OutputInfo.info().outputBytes.getMismatchDescription();
+		OutputInfo.info().errorOutputLimitExceeded = OutputInfo.info().errorBytes.getDiscardedBytesDescription();
 
-			System.setErr(OutputInfo.info.savedSystemErr);
-			systemErr.setPrintStream(System.err);
+		restoreSystemErr(OutputInfo.info().savedSystemErr);
 
-			OutputInfo.info.errorOutput = outputBytesToString(OutputInfo.info.errorBytes).trim();		
+		OutputInfo.info().errorOutputPending = true; // decoded and chunked only if asked for - see OutputInfo.processErrorOutput
 
-			if (!OutputInfo.info.errorOutput.isEmpty()) // Following processing works with all errorOutput, not just exceptions
-			{
-				OutputInfo.info.errorOutputContainsErrorOrException = true;
-				String testName = OutputInfo.info.testNameInfo.getTestName();
-				String [] pair = ErrorOutputChunker.getErrorAndExceptionSummaryAndChunkedErrorOutput(OutputInfo.info.errorOutput,testName);
-				OutputInfo.info.errorAndExceptionSummary = pair[0];
-				OutputInfo.info.chunkedErrorOutput = pair[1]; 
-			}
+		if (verboseLevel > 0)
+		{
+			OutputInfo.info().processErrorOutput();
 
 
-			if (OutputInfo.info.outputIsException || OutputInfo.info.errorOutputContainsErrorOrException)
+			if (OutputInfo.info().outputIsException || OutputInfo.info().errorOutputContainsErrorOrException
+					|| OutputInfo.info().outputLimitExceeded != null || OutputInfo.info().errorOutputLimitExceeded != null
+					|| OutputInfo.info().outputMismatch != null || OutputInfo.info().spawnedThreadsStillRunning != null)
 			{
 				printTestNameIfNotAlreadyPrinted();
 				printInfoIfNotAlreadyPrinted();
 			}
 		}
 
-		return OutputInfo.info.output;
+		CaptureOutputStream.deleteUndeletedSpillFiles(); // of earlier runs, on platforms that do not delete mapped files
+
+		return OutputInfo.info().output;
 
 	}
 
@@ -513,10 +675,16 @@ public class ConsoleTester
 	 * Make a {@literal Consumer<String []>} object (the functional type of the standard Java static main method) from a string consisting of a
 	 * package name and the name of the class containing the main routine to run.
 	 * <p>
-	 * May throw WrappedException in two situations:
+	 * The main method is looked up as a MethodHandle the first time the consumer is called for a class name, and the handle is cached,
+	 * so later calls neither load the class nor look up the method again - see {@link #getMainHandle}.  Only handles from the default
+	 * class loader and the loaders set in ConsoleTester are cached, so other loaders passed are not kept reachable; the cache is cleared
+	 * by {@link #setLoader} and {@link #setExitInterception}.
+	 * <p>
+	 * Exceptions thrown by main are not wrapped in an InvocationTargetException as with Method.invoke, so:
 	 * <ul>
-	 * <li>Could not load class or execute its main method - internal flag = true, wrapped exception = exception thrown by code in this method</li>
-	 * <li>Loaded class main and executed main but main threw exception - internal flag = false, wrapped exception = exception thrown from within main</li>
+	 * <li>Could not load class or find its main method - throws WrappedException with internal flag = true, wrapped exception = exception thrown by code in this method</li>
+	 * <li>Loaded class and executed main but main threw an unchecked exception or error - the exception or error is thrown as is</li>
+	 * <li>Loaded class and executed main but main threw a checked exception - throws WrappedException with internal flag = false, wrapped exception = exception thrown from within main</li>
 	 * </ul>
 	 * @param className full name of class containing main method top be executed
 	 * @param classLoader classLoader object if different from default or null for default
@@ -524,24 +692,22 @@ public class ConsoleTester
 	 * @throws WrappedException as explained above
 	 */
 	public static Consumer<String []> makeStringArrayConsumerFromMainClassName(String className, ClassLoader classLoader) {
-		// load the main class, using either the system class loader or a custom one
+		return makeStringArrayConsumerFromMainClassName(className,classLoader,true);
+	}
 
+	/**
+	 * Like {@link #makeStringArrayConsumerFromMainClassName(String, ClassLoader)}, but with the caching of the handle to main optional -
+	 * not cached for a class loader used for one run only, which would otherwise be kept by the cache.
+	 */
+	private static Consumer<String []> makeStringArrayConsumerFromMainClassName(String className, ClassLoader classLoader, boolean cacheHandle) {
 		Consumer<String []> stringArrayConsumer = (String [] args) -> {
-			Class<?> mainClass = null;
+			MethodHandle mainHandle = cacheHandle ? getMainHandle(className,classLoader) : findMainHandle(className,classLoader);
 			try {
-				if (classLoader == null)
-					mainClass = Class.forName(className);
-				else
-					mainClass = classLoader.loadClass(className);
-
-				// run mainClass's main method
-				Method mainMethod = mainClass.getMethod("main",String[].class);
-				mainMethod.invoke(null,(Object)args); // cast for disambiguation
-			} catch (InvocationTargetException ex) {
-				throw new WrappedException(ex.getTargetException(),false);
-			} catch (Exception ex) {
-				throw new WrappedException(ex,true);
-
+				mainHandle.invokeExact(args);
+			} catch (RuntimeException | Error ex) {
+				throw ex;
+			} catch (Throwable ex) {
+				throw new WrappedException(ex,false);
 			}
 		};
 
@@ -549,6 +715,53 @@ public class ConsoleTester
 
 	}
 
+	/**
+	 * Cache of handles to main methods, keyed by class loader (compared by identity) and class name - only for the loaders
+	 * ConsoleTester is set to use, replaced only by setLoader and setExitInterception, which clear the cache - see getMainHandle.
+	 */
+	private static final Map<Map.Entry<ClassLoader,String>,MethodHandle> mainHandles = new ConcurrentHashMap<>();
+
+	/**
+	 * Get a handle to the static main method of a class, of type {@literal (String [])void}, from the cache of handles or, the first
+	 * time for a class name and class loader, by loading the class, using either the system class loader or a custom one, and looking
+	 * the method up with the access of ConsoleTester - as Method.invoke by ConsoleTester would check it.  A handle from a class loader
+	 * other than the default one, the one given to {@link #setLoader} and the exit intercepting one is not cached, so that the cache
+	 * does not keep such a loader and all its classes reachable.
+	 *
+	 * @param className full name of class containing main method
+	 * @param classLoader classLoader object if different from default or null for default
+	 * @return the handle
+	 * @throws WrappedException with internal flag = true if the class cannot be loaded or has no accessible main method
+	 */
+	static MethodHandle getMainHandle(String className, ClassLoader classLoader)
+	{
+		if (classLoader != null && classLoader != ConsoleTester.classLoader && classLoader != exitInterceptingLoader)
+		{
+			return findMainHandle(className,classLoader);
+		}
+		Map.Entry<ClassLoader,String> key = new AbstractMap.SimpleImmutableEntry<>(classLoader,className);
+		MethodHandle mainHandle = mainHandles.get(key);
+		if (mainHandle == null)
+		{
+			mainHandle = findMainHandle(className,classLoader);
+			mainHandles.put(key,mainHandle);
+		}
+		return mainHandle;
+	}
+
+	/**
+	 * Look up a handle to the static main method of a class without the cache - see getMainHandle.
+	 */
+	private static MethodHandle findMainHandle(String className, ClassLoader classLoader)
+	{
+		try {
+			Class<?> mainClass = (classLoader == null) ? Class.forName(className) : classLoader.loadClass(className);
+			return MethodHandles.lookup().findStatic(mainClass,"main",MethodType.methodType(void.class,String[].class));
+		} catch (ReflectiveOperationException ex) {
+			throw new WrappedException(ex,true);
+		}
+	}
+
 	/**
 	 * Do the bundled getOutput sequence running with a generic vFunction functional object, normally passed as method reference, together
 	 * with an argument of the appropriate type.
@@ -579,16 +792,81 @@ public class ConsoleTester
 	 * @return any text output to System.out when method runs
 	 */	
 	public static <A,R> String getOutputFromVFunction(VFunction<A,R> vFunction, A arg,  String input, String desc)
+	{
+		return getOutputFromVFunction(vFunction,arg,input,null,desc);
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running with a generic vFunction functional object, as
+	 * {@link #getOutputFromVFunction(VFunction, Object, String, String)} does, with output to System.out compared with an expectation
+	 * as it is written.  The first line of output that differs from the expected line stops the run with {@link OutputMismatchError},
+	 * so a wrong answer early in a long run is reported without waiting for the run to end.  The point of divergence is available
+	 * through {@link #getOutputMismatchFromInfo}.
+	 * 
+	 * @param <A> the type of the argument passed to the vFunction
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for Runnable and Consumer
+	 * @param vFunction a vFunction functional object which takes an argument of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param arg an argument of of type {@literal <A>} - will be VoidA for Runnable, Callable and Supplier
+	 * @param input text to feed to System.in after method is called
+	 * @param expected the expected output, or null for no comparison
+	 * @param desc a description of what is being run 
+	 * @return any text output to System.out when method runs, or a string representation of the exception if one is thrown
+	 */	
+	public static <A,R> String getOutputFromVFunction(VFunction<A,R> vFunction, A arg,  String input, OutputExpectation expected, String desc)
+	{
+		getOutputStart(input,expected,desc);
+		return getOutputFromVFunctionAfterStart(vFunction,arg);
+	}
+
+	/**
+	 * Do the rest of the bundled getOutput sequence running with a generic vFunction functional object after getOutputStart.
+	 */
+	private static <A,R> String getOutputFromVFunctionAfterStart(VFunction<A,R> vFunction, A arg)
+	{
+		try
+		{
+			OutputInfo.info().expectValue = true;
+			
+			OutputInfo.info().value = runBody(() -> vFunction.apply(arg));
+
+			OutputInfo.info().output = outputBytesToTrimmedString(OutputInfo.info().outputBytes);
+		} 
+		catch (Throwable ex) 
+		{
+			getOutputFromException(ex);
+
+		}
+
+		getOutputFinal();
+
+		return OutputInfo.info().output;
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running with a generic vFunction functional object, as {@link #getOutputFromVFunction} does,
+	 * but return the output as a CharSequence view rather than a String - see {@link #getOutputFinishAsView}.  Intended for methods that
+	 * produce very large output, together with {@link #setSpillThreshold}.
+	 * 
+	 * @param <A> the type of the argument passed to the vFunction
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for Runnable and Consumer
+	 * @param vFunction a vFunction functional object which takes an argument of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param arg an argument of of type {@literal <A>} - will be VoidA for Runnable, Callable and Supplier
+	 * @param input text to feed to System.in after method is called
+	 * @param desc a description of what is being run 
+	 * @return any text output to System.out when method runs, or a string representation of the exception if one is thrown
+	 */	
+	public static <A,R> CharSequence getOutputViewFromVFunction(VFunction<A,R> vFunction, A arg,  String input, String desc)
 	{
 		getOutputStart(input,desc);
 
 		try
 		{
-			OutputInfo.info.expectValue = true;
+			OutputInfo.info().expectValue = true;
 			
-			OutputInfo.info.value = vFunction.apply(arg);
+			OutputInfo.info().value = runBody(() -> vFunction.apply(arg));
 
-			OutputInfo.info.output = outputBytesToString(OutputInfo.info.outputBytes).trim();
+			OutputInfo.info().outputView = outputBytesToView(OutputInfo.info().outputBytes);
+			OutputInfo.info().output = null;
 		} 
 		catch (Throwable ex) 
 		{
@@ -598,7 +876,54 @@ public class ConsoleTester
 
 		getOutputFinal();
 
-		return OutputInfo.info.output;
+		return (OutputInfo.info().output == null) ? OutputInfo.info().outputView : OutputInfo.info().output;
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running with a generic vFunction functional object, as {@link #getOutputFromVFunction} does,
+	 * but return the output as bytes rather than text - see {@link #getOutputFinishAsBytes}.  Intended for methods that write binary
+	 * data to System.out.
+	 * <p>
+	 * If the method throws an exception the bytes returned are those written before the exception, and the exception is recorded as
+	 * by getOutputFromVFunction, so verify.that(ByteBuffer) fails as it does for other subjects.
+	 *
+	 * @param <A> the type of the argument passed to the vFunction
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for Runnable and Consumer
+	 * @param vFunction a vFunction functional object which takes an argument of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param arg an argument of of type {@literal <A>} - will be VoidA for Runnable, Callable and Supplier
+	 * @param input text to feed to System.in after method is called
+	 * @param desc a description of what is being run
+	 * @return the bytes output to System.out when method runs, from position 0 to the limit of the buffer
+	 */
+	public static <A,R> ByteBuffer getOutputBytesFromVFunction(VFunction<A,R> vFunction, A arg,  String input, String desc)
+	{
+		getOutputStart(input,desc);
+
+		try
+		{
+			OutputInfo.info().expectValue = true;
+
+			OutputInfo.info().value = runBody(() -> vFunction.apply(arg));
+
+			OutputInfo.info().outputBinary = OutputInfo.info().outputBytes.getBytes();
+			OutputInfo.info().output = null;
+		}
+		catch (Throwable ex)
+		{
+			getOutputFromException(ex);
+
+			ByteBuffer bytesBeforeException = OutputInfo.info().outputBytes.getBytes();
+			if (OutputInfo.info().exception == null) // exit intercepted - see setExitInterception
+			{
+				OutputInfo.info().outputBinary = bytesBeforeException;
+				OutputInfo.info().output = null;
+			}
+			return bytesBeforeException;
+		}
+
+		getOutputFinal();
+
+		return OutputInfo.info().outputBinary;
 	}
 
 	/**
@@ -635,11 +960,11 @@ public class ConsoleTester
 
 		try
 		{
-			OutputInfo.info.expectValue = true;
+			OutputInfo.info().expectValue = true;
 			
-			OutputInfo.info.value = vUnboundMethod.applyWithClassInstanceAsFirstArg(instance,arg);
+			OutputInfo.info().value = runBody(() -> vUnboundMethod.applyWithClassInstanceAsFirstArg(instance,arg));
 
-			OutputInfo.info.output = outputBytesToString(OutputInfo.info.outputBytes).trim();
+			OutputInfo.info().output = outputBytesToTrimmedString(OutputInfo.info().outputBytes);
 		} 
 		catch (Throwable ex) 
 		{
@@ -649,7 +974,7 @@ public class ConsoleTester
 
 		getOutputFinal();
 
-		return OutputInfo.info.output;
+		return OutputInfo.info().output;
 	}
 
 	/**
@@ -680,11 +1005,11 @@ public class ConsoleTester
 
 		try
 		{
-			OutputInfo.info.expectValue = true;
+			OutputInfo.info().expectValue = true;
 			
-			OutputInfo.info.value = vBiFunction.apply(arg1,arg2);
+			OutputInfo.info().value = runBody(() -> vBiFunction.apply(arg1,arg2));
 
-			OutputInfo.info.output = outputBytesToString(OutputInfo.info.outputBytes).trim();
+			OutputInfo.info().output = outputBytesToTrimmedString(OutputInfo.info().outputBytes);
 		} 
 		catch (Throwable ex) 
 		{
@@ -694,7 +1019,7 @@ public class ConsoleTester
 
 		getOutputFinal();
 
-		return OutputInfo.info.output;
+		return OutputInfo.info().output;
 	}
 
 	/**
@@ -728,9 +1053,9 @@ public class ConsoleTester
 
 		try
 		{
-			OutputInfo.info.value = vBiUnboundMethod.applyWithClassInstanceAsFirstArg(instance,arg1,arg2);
+			OutputInfo.info().value = runBody(() -> vBiUnboundMethod.applyWithClassInstanceAsFirstArg(instance,arg1,arg2));
 
-			OutputInfo.info.output = outputBytesToString(OutputInfo.info.outputBytes).trim();
+			OutputInfo.info().output = outputBytesToTrimmedString(OutputInfo.info().outputBytes);
 		} 
 		catch (Throwable ex) 
 		{
@@ -740,104 +1065,1238 @@ public class ConsoleTester
 
 		getOutputFinal();
 
-		return OutputInfo.info.output;
+		return OutputInfo.info().output;
 	}
-	
-	// ==========================================================================================
-	//
-	// Supplementary getOutput methods for getting value and exception as objects
-	//
-	// ==========================================================================================
 
 	/**
-	 * Get return value from OutputInfo.info if there is one, else null.
-	 * <p>
-	 * Value will be non-null if method executed by getOutput has been called and returns normally.  The value for void
-	 * methods will be {@link testHelp.VFunctionsAndVUnboundMethods#voidR}.  It will be null only if no output method is is called or one
-	 * is called but throws an exception.
+	 * Do the bundled getOutput sequence running a function from int to int, as {@link #getOutputFromVFunction} does, with the
+	 * argument and the value returned kept unboxed - the value is available through {@link #getIntValueFromInfo()} rather than
+	 * {@link #getValueFromInfo()}.  For numeric functions, where boxing every argument and value would distort timing.
 	 * 
-	 * @return Object or null
+	 * @param function the function, as a method reference or lambda
+	 * @param arg the argument to pass to the function
+	 * @param input text to feed to System.in after the function is called
+	 * @param desc a description of what is being run
+	 * @return any text output to System.out when the function runs, or a string representation of the exception if one is thrown
 	 */
-	public static Object getValueFromInfo()
+	public static String getOutputFromIntVFunction(IntUnaryOperator function, int arg, String input, String desc)
 	{
-		OutputInfo.sync(); // so we don't get left-over value from previous test
-		return OutputInfo.info.value;
+		return getOutputFromPrimitiveBody(input,desc,info -> {
+			info.longValue = function.applyAsInt(arg);
+			info.primitiveValueKind = OutputInfo.INT_VALUE;
+		});
 	}
 
 	/**
-	 * Get exception (actually Throwable - may be either Exception or Error) from OutputInfo.info
-	 * if there is one, else null.
+	 * Do the bundled getOutput sequence running a function from long to long, with the argument and the value returned kept unboxed,
+	 * as {@link #getOutputFromIntVFunction} does - the value is available through {@link #getLongValueFromInfo()}.
 	 * 
-	 * @return Throwable or null
+	 * @param function the function, as a method reference or lambda
+	 * @param arg the argument to pass to the function
+	 * @param input text to feed to System.in after the function is called
+	 * @param desc a description of what is being run
+	 * @return any text output to System.out when the function runs, or a string representation of the exception if one is thrown
 	 */
-	public static Throwable getExceptionFromInfo()
+	public static String getOutputFromLongVFunction(LongUnaryOperator function, long arg, String input, String desc)
 	{
-		OutputInfo.sync(); // so we don't get left-over value from previous test
-		return OutputInfo.info.exception;
+		return getOutputFromPrimitiveBody(input,desc,info -> {
+			info.longValue = function.applyAsLong(arg);
+			info.primitiveValueKind = OutputInfo.LONG_VALUE;
+		});
 	}
 
-	// ==========================================================================================
-	//
-	// Static fields and related static methods - classLoader - in original version
-	//
-	// ==========================================================================================
-
-	private static ClassLoader classLoader = null;
-
 	/**
-	 * Allows an alternate class loader to be specified. This is useful when
-	 * compiling code on the fly.
+	 * Do the bundled getOutput sequence running a function from double to double, with the argument and the value returned kept
+	 * unboxed, as {@link #getOutputFromIntVFunction} does - the value is available through {@link #getDoubleValueFromInfo()}.
 	 * 
-	 * @param loader alternate class loader
+	 * @param function the function, as a method reference or lambda
+	 * @param arg the argument to pass to the function
+	 * @param input text to feed to System.in after the function is called
+	 * @param desc a description of what is being run
+	 * @return any text output to System.out when the function runs, or a string representation of the exception if one is thrown
 	 */
-	public static void setLoader(ClassLoader loader)
-	{ 
-		classLoader = loader;
+	public static String getOutputFromDoubleVFunction(DoubleUnaryOperator function, double arg, String input, String desc)
+	{
+		return getOutputFromPrimitiveBody(input,desc,info -> {
+			info.doubleValue = function.applyAsDouble(arg);
+			info.primitiveValueKind = OutputInfo.DOUBLE_VALUE;
+		});
 	}
 
-
-	// ==========================================================================================
-	//
-	// Static fields and related static methods - console encoding - set internally
-	//
-	// ==========================================================================================
-
-	private static final String consoleEncoding;
-
 	/**
-	 * Gets the encoding of System.out as of when this class was loaded.
-	 * Calls {@link #getEncodingFromPrintStream} with System.out as argument.
-	 * 
-	 * @return the standard name of the encoding
+	 * Do the bundled getOutput sequence with a body that stores an unboxed value in the OutputInfo of the run - passed to it, since
+	 * with spawned thread tracking the body runs on a thread of its own.
 	 */
-	public static String getConsoleEncoding()
+	private static String getOutputFromPrimitiveBody(String input, String desc, Consumer<OutputInfo> body)
 	{
-		return consoleEncoding;
-	}
+		getOutputStart(input,desc);
+		OutputInfo info = OutputInfo.info();
+		try
+		{
+			info.expectValue = true;
 
-	static
-	{
-		String systemOutEncoding = getEncodingFromPrintStream(System.out);
-		String systemErrEncoding = getEncodingFromPrintStream(System.err);
-		if (!systemErrEncoding.equals(systemOutEncoding))
+			runBody(() -> {
+				body.accept(info);
+				return null;
+			});
+
+			info.output = outputBytesToTrimmedString(info.outputBytes);
+		} 
+		catch (Throwable ex) 
 		{
-			throw new TestHelpError(String.format(
-					"Unexpected: systemErrEncoding %s != systemOutEncoding %s",
-					systemErrEncoding, systemOutEncoding));
+			getOutputFromException(ex);
 		}
-		consoleEncoding = systemOutEncoding;
+
+		getOutputFinal();
+
+		return OutputInfo.info().output;
 	}
 
 	/**
-	 * Get the encoding of a PrintStream such as System.out or System.err
-	 * 
-	 * @param ps the PrintStream
-	 * @return the standard name of the encoding
+	 * Run the code of a bundled getOutput call - on the calling thread, or, if spawned thread tracking is on, on a thread of its own
+	 * with the threads it starts tracked and joined (see {@link #setSpawnedThreadTracking}).
 	 */
-	public static String getEncodingFromPrintStream(PrintStream ps)
+	private static Object runBody(Supplier<Object> body)
 	{
-		OutputStreamWriter osw = new OutputStreamWriter(ps);
-		return osw.getEncoding();
+		if (!spawnedThreadTracking)
+		{
+			return body.get();
+		}
+
+		SpawnedThreadTracker tracker = new SpawnedThreadTracker(OutputInfo.info(),Charset.forName(consoleEncoding));
+		try
+		{
+			return tracker.run(body,spawnedThreadJoinMillis);
+		}
+		finally
+		{
+			OutputInfo.info().spawnedThreadCount = tracker.getSpawnedCount();
+			OutputInfo.info().threadTaggedOutput = tracker.getThreadTaggedOutput();
+			if (!tracker.getStillRunning().isEmpty())
+			{
+				OutputInfo.info().spawnedThreadsStillRunning = String.format("%d of %d threads started still running after %d ms and cut off from output: %s",
+						tracker.getStillRunning().size(),tracker.getSpawnedCount(),spawnedThreadJoinMillis,String.join(", ",tracker.getStillRunning()));
+			}
+		}
+	}
+	
+	// ==========================================================================================
+	//
+	// getOutput methods with input from an InputStream
+	//
+	// ==========================================================================================
+
+	/**
+	 * Initialize ConsoleTester as {@link #getOutputStart(String, String)} does, but with input read from an InputStream rather than
+	 * a String.  Input is read only as the code being run reads System.in, so input generated on demand or read from a large file
+	 * is never held in memory.  See {@link #makeInputStream(Reader)} and the other makeInputStream overloads for making streams
+	 * from other sources of input.
+	 * <p>
+	 * The stream is closed when the run ends.  The first bytes read (up to 1000) and the number of bytes read are kept for printing
+	 * as INPUT with other output info.
+	 * 
+	 * @param input stream of input - should be in the default encoding, as input passed as a String is
+	 * @param desc a description of what is being run
+	 * @throws TestHelpError if called twice without intervening call to getOutput
+	 */
+	public static void getOutputStartWithInputStream(InputStream input, String desc)
+	{
+		getOutputStart(new InputPreviewStream(input),"",null,desc);
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running with a generic vFunction functional object, as
+	 * {@link #getOutputFromVFunction(VFunction, Object, String, String)} does, but with input read from an InputStream - see
+	 * {@link #getOutputStartWithInputStream}.
+	 * 
+	 * @param <A> the type of the argument passed to the vFunction
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for Runnable and Consumer
+	 * @param vFunction a vFunction functional object which takes an argument of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param arg an argument of of type {@literal <A>} - will be VoidA for Runnable, Callable and Supplier
+	 * @param input stream of input to feed to System.in after method is called
+	 * @param desc a description of what is being run 
+	 * @return any text output to System.out when method runs, or a string representation of the exception if one is thrown
+	 */
+	public static <A,R> String getOutputFromVFunctionWithInputStream(VFunction<A,R> vFunction, A arg, InputStream input, String desc)
+	{
+		getOutputStartWithInputStream(input,desc);
+		return getOutputFromVFunctionAfterStart(vFunction,arg);
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running a main method, as {@link #getOutput(Consumer, String[], String, String)} does,
+	 * but with input read from an InputStream - see {@link #getOutputStartWithInputStream}.
+	 * 
+	 * @param mainMethodReference a functional object of type {@literal consumer<String []>}, typically passed as a method reference
+	 * @param mainArgs an array of strings to be passed as args to main - no args may be passed as null or as <code>new String[0]</code>
+	 * @param input stream of input to feed to System.in after main is called
+	 * @param desc a description of what is being run
+	 * @return any text output to System.out when main runs
+	 */
+	public static String getOutputWithInputStream(Consumer<String []> mainMethodReference, String [] mainArgs, InputStream input, String desc)
+	{
+		return getOutputFromVFunctionWithInputStream(makeVFunction(mainMethodReference),mainArgs,input,desc);
+	}
+
+	/**
+	 * Make an InputStream for a getOutput..WithInputStream method from a Reader.  Characters are encoded in the default encoding, as
+	 * input passed as a String is, as they are read.
+	 * 
+	 * @param reader the Reader to read input from
+	 * @return the InputStream
+	 */
+	public static InputStream makeInputStream(Reader reader)
+	{
+		return new ReaderInputStream(reader,Charset.defaultCharset());
+	}
+
+	/**
+	 * Make an InputStream for a getOutput..WithInputStream method from a file.  The file is read as it is, so it should be in
+	 * the default encoding.
+	 * 
+	 * @param path the file to read input from
+	 * @return the InputStream
+	 * @throws TestHelpError if the file cannot be opened
+	 */
+	public static InputStream makeInputStream(Path path)
+	{
+		try
+		{
+			return Files.newInputStream(path);
+		}
+		catch (IOException ex)
+		{
+			throw new TestHelpError("Could not open input file " + path,ex);
+		}
+	}
+
+	/**
+	 * Make an InputStream for a getOutput..WithInputStream method from lines returned by an Iterator.  Lines are requested only as
+	 * input is read, and each is followed by "\n".
+	 * 
+	 * @param lines the input lines, without line separators
+	 * @return the InputStream
+	 */
+	public static InputStream makeInputStream(Iterator<String> lines)
+	{
+		return makeInputStream(() -> lines.hasNext() ? lines.next() : null);
+	}
+
+	/**
+	 * Make an InputStream for a getOutput..WithInputStream method from lines returned by a Supplier, which is called only as input
+	 * is read.  Each line is followed by "\n".
+	 * 
+	 * @param lines a Supplier of input lines, without line separators, which returns null at the end of input
+	 * @return the InputStream
+	 */
+	public static InputStream makeInputStream(Supplier<String> lines)
+	{
+		return makeInputStream(new Reader()
+		{
+			private String line = "";
+			private int pos = 0;
+
+			@Override
+			public int read(char[] cbuf, int off, int len)
+			{
+				if (line != null && pos == line.length())
+				{
+					line = lines.get();
+					line = (line == null) ? null : line + "\n";
+					pos = 0;
+				}
+				if (line == null)
+				{
+					return -1;
+				}
+				int n = Math.min(len,line.length() - pos);
+				line.getChars(pos,pos + n,cbuf,off);
+				pos += n;
+				return n;
+			}
+
+			@Override
+			public void close()
+			{
+				line = null;
+			}
+		});
+	}
+
+	/**
+	 * Get the preview of input read from an InputStream.
+	 */
+	private static String inputPreviewToString(InputPreviewStream inputPreview)
+	{
+		return inputPreview.getPreview(Charset.defaultCharset());
+	}
+
+	// ==========================================================================================
+	//
+	// getOutput methods with a scripted dialogue
+	//
+	// ==========================================================================================
+
+	/**
+	 * Do the bundled getOutput sequence running a main method, as {@link #getOutput(Consumer, String[], String, String)} does, but
+	 * with input sent and output checked step by step as the method runs, following the script of a {@link ConsoleDialogue}.  The
+	 * method runs on a worker thread; the transcript of the dialogue is printed with other output info.
+	 * 
+	 * @param mainMethodReference a functional object of type {@literal consumer<String []>}, typically passed as a method reference
+	 * @param mainArgs an array of strings to be passed as args to main - no args may be passed as null or as <code>new String[0]</code>
+	 * @param dialogue the script of the dialogue
+	 * @param desc a description of what is being run
+	 * @return any text output to System.out when main runs, or a string representation of the exception if one is thrown or the
+	 * 	dialogue fails (see {@link ConsoleDialogueError})
+	 */
+	public static String getOutputFromDialogue(Consumer<String []> mainMethodReference, String [] mainArgs, ConsoleDialogue dialogue, String desc)
+	{
+		return getOutputFromVFunctionWithDialogue(makeVFunction(mainMethodReference),mainArgs,dialogue,desc);
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running with a generic vFunction functional object, as
+	 * {@link #getOutputFromVFunction(VFunction, Object, String, String)} does, but with input sent and output checked step by step
+	 * following the script of a {@link ConsoleDialogue} - see {@link #getOutputFromDialogue}.
+	 * 
+	 * @param <A> the type of the argument passed to the vFunction
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for Runnable and Consumer
+	 * @param vFunction a vFunction functional object which takes an argument of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param arg an argument of of type {@literal <A>} - will be VoidA for Runnable, Callable and Supplier
+	 * @param dialogue the script of the dialogue
+	 * @param desc a description of what is being run 
+	 * @return any text output to System.out when method runs, or a string representation of the exception if one is thrown or the
+	 * 	dialogue fails (see {@link ConsoleDialogueError})
+	 */
+	public static <A,R> String getOutputFromVFunctionWithDialogue(VFunction<A,R> vFunction, A arg, ConsoleDialogue dialogue, String desc)
+	{
+		return dialogue.run(vFunction,arg,desc);
+	}
+
+	// ==========================================================================================
+	//
+	// Bundled getOutput methods with a timeout
+	//
+	// ==========================================================================================
+
+	/**
+	 * Do the bundled getOutput sequence running a main method, as {@link #getOutput(Consumer, String[], String, String)} does, but
+	 * with a deadline - see {@link #getOutputFromVFunctionWithTimeout}.
+	 * 
+	 * @param mainMethodReference a functional object of type {@literal consumer<String []>}, typically passed as a method reference
+	 * @param mainArgs an array of strings to be passed as args to main - no args may be passed as null or as <code>new String[0]</code>
+	 * @param input text to feed to System.in after main is called
+	 * @param timeoutMillis milliseconds main is given to return
+	 * @param desc a description of what is being run
+	 * @return any text output to System.out when main runs, or a string representation of the exception if one is thrown or the
+	 * 	deadline passes (see {@link OutputTimeoutError})
+	 */
+	public static String getOutputWithTimeout(Consumer<String []> mainMethodReference, String [] mainArgs, String input, long timeoutMillis, String desc)
+	{
+		return getOutputFromVFunctionWithTimeout(makeVFunction(mainMethodReference),mainArgs,input,timeoutMillis,desc);
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running with a generic vFunction functional object, as
+	 * {@link #getOutputFromVFunction(VFunction, Object, String, String)} does, but on a worker thread with a deadline, so code that
+	 * loops without end or waits for input that never comes does not hang the test.
+	 * <p>
+	 * The worker is a virtual thread where the JDK supports them and otherwise a daemon thread.  If the function has not returned
+	 * when the deadline passes the worker is interrupted and, if it does not end within a short grace period, abandoned still running
+	 * but cut off from System.in, System.out and System.err - see TimeoutRunner.  The system streams are restored and the run is
+	 * recorded as having thrown an {@link OutputTimeoutError}, whose stack trace shows where the worker was at the deadline.  Output
+	 * written before the deadline is kept as the output before the exception and printed with other output info.
+	 * <p>
+	 * Code run on the worker sees the same System streams as it would on the test thread, but does not see thread-local state of the
+	 * test thread.
+	 * 
+	 * @param <A> the type of the argument passed to the vFunction
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for Runnable and Consumer
+	 * @param vFunction a vFunction functional object which takes an argument of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param arg an argument of of type {@literal <A>} - will be VoidA for Runnable, Callable and Supplier
+	 * @param input text to feed to System.in after method is called
+	 * @param timeoutMillis milliseconds the method is given to return
+	 * @param desc a description of what is being run 
+	 * @return any text output to System.out when method runs, or a string representation of the exception if one is thrown or the
+	 * 	deadline passes
+	 */
+	public static <A,R> String getOutputFromVFunctionWithTimeout(VFunction<A,R> vFunction, A arg, String input, long timeoutMillis, String desc)
+	{
+		getOutputStart(input,desc);
+		return getOutputWithTimeoutAfterStart(() -> vFunction.apply(arg),timeoutMillis);
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running with a generic vUnboundMethod functional object, as
+	 * {@link #getOutputFromVUnboundMethod} does, but on a worker thread with a deadline - see {@link #getOutputFromVFunctionWithTimeout}.
+	 * 
+	 * @param <C> the type of the instance passed to the vUnboundMethod
+	 * @param <A> the type of the argument passed to the vUnboundMethod
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for RunnableUnboundMethod and ConsumerUnboundMethod  
+	 * @param vUnboundMethod a vUnboundMethod functional object which takes an instance argument of type {@literal <C>} and an argument 
+	 * 	of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param instance an argument of of type {@literal <C>} 
+	 * @param arg an argument of of type {@literal <A>} - will be VoidA for RunnableUnboundMethod, CallableUnboundMethod and SupplierUnboundMethod 
+	 * @param input text to feed to System.in after method is called
+	 * @param timeoutMillis milliseconds the method is given to return
+	 * @param desc a description of what is being run
+	 * @return any text output to System.out when method runs, or a string representation of the exception if one is thrown or the
+	 * 	deadline passes
+	 */
+	public static <C,A,R> String getOutputFromVUnboundMethodWithTimeout(VUnboundMethod<C,A,R> vUnboundMethod, C instance, A arg, String input, long timeoutMillis, String desc)
+	{
+		getOutputStart(input,desc);
+		return getOutputWithTimeoutAfterStart(() -> vUnboundMethod.applyWithClassInstanceAsFirstArg(instance,arg),timeoutMillis);
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running with a generic vBiFunction functional object, as {@link #getOutputFromVBiFunction}
+	 * does, but on a worker thread with a deadline - see {@link #getOutputFromVFunctionWithTimeout}.
+	 *
+	 * @param <A1> the type of the first argument passed to the vBiFunction
+	 * @param <A2> the type of second the argument passed to the vBiFunction
+	 * @param <R> the type of the value returned by the vBiFunction - will be VoidR for BiConsumer
+	 * @param vBiFunction a vBiFunction functional object which takes two arguments of type {@literal <A1> and <A2>} and returns a value
+	 * of {@literal <R>}
+	 * @param arg1 an argument of type {@literal <A1>} 
+	 * @param arg2 an argument of type {@literal <A2>} 
+	 * @param input text to feed to System.in after consumer is called
+	 * @param timeoutMillis milliseconds the function is given to return
+	 * @param desc a description of what is being run 
+	 * @return any text output to System.out when the function runs, or a string representation of the exception if one is thrown or
+	 * 	the deadline passes
+	 */	
+	public static <A1,A2,R> String getOutputFromVBiFunctionWithTimeout(VBiFunction<A1,A2,R> vBiFunction, A1 arg1, A2 arg2, String input, long timeoutMillis, String desc)
+	{
+		getOutputStart(input,desc);
+		return getOutputWithTimeoutAfterStart(() -> vBiFunction.apply(arg1,arg2),timeoutMillis);
+	}
+
+	/**
+	 * Do the bundled getOutput sequence running with a generic vBiUnboundMethod functional object, as
+	 * {@link #getOutputFromVBiUnboundMethod} does, but on a worker thread with a deadline - see {@link #getOutputFromVFunctionWithTimeout}.
+	 * 
+	 * @param <C> the type of the instance passed to the vBiUnboundMethod
+	 * @param <A1> the type of the first argument passed to the vBiUnboundMethod
+	 * @param <A2> the type of the second argument passed to the vBiUnboundMethod
+	 * @param <R> the type of the value returned by the vBiUnboundMethod - will be VoidR for BiConsumerUnboundMethod
+	 * @param vBiUnboundMethod a vBiUnboundMethod functional object which takes an instance argument of type {@literal <C>} and two arguments
+	 * of type {@literal <A1>} and {@literal <A2>} and returns a value of {@literal <R>}
+	 * @param instance an argument of type {@literal <C>} 
+	 * @param arg1 an argument of type {@literal <A1>}
+	 * @param arg2 an argument of type {@literal <A2>} 
+	 * @param input text to feed to System.in after consumer is called
+	 * @param timeoutMillis milliseconds the method is given to return
+	 * @param desc a description of what is being run 
+	 * @return any text output to System.out when the method runs, or a string representation of the exception if one is thrown or
+	 * 	the deadline passes
+	 */	
+	public static <C,A1,A2,R> String getOutputFromVBiUnboundMethodWithTimeout(VBiUnboundMethod<C,A1,A2,R> vBiUnboundMethod, C instance, A1 arg1, A2 arg2, String input, long timeoutMillis, String desc)
+	{
+		getOutputStart(input,desc);
+		return getOutputWithTimeoutAfterStart(() -> vBiUnboundMethod.applyWithClassInstanceAsFirstArg(instance,arg1,arg2),timeoutMillis);
+	}
+
+	/**
+	 * Do the rest of the bundled getOutput sequence with a timeout after getOutputStart, running the code on a TimeoutRunner worker.
+	 */
+	private static String getOutputWithTimeoutAfterStart(Supplier<Object> body, long timeoutMillis)
+	{
+		OutputInfo.info().expectValue = true;
+
+		TimeoutRunner runner = new TimeoutRunner(OutputInfo.info());
+		Throwable ex = runner.run(body,timeoutMillis);
+		if (ex == null)
+		{
+			ex = runner.getException();
+		}
+
+		if (ex != null)
+		{
+			getOutputFromException(ex);
+		}
+		else
+		{
+			OutputInfo.info().value = runner.getValue();
+			OutputInfo.info().output = outputBytesToTrimmedString(OutputInfo.info().outputBytes);
+		}
+
+		getOutputFinal();
+
+		return OutputInfo.info().output;
+	}
+
+	// ==========================================================================================
+	//
+	// Batch getOutput methods
+	//
+	// ==========================================================================================
+
+	/**
+	 * Run a generic vFunction functional object once for each of a list of cases, each with its own argument and input, and return
+	 * a table of the output, value, exception and time of each case - see {@link #getOutputsFromVFunction(VFunction, List, boolean, String)}.
+	 * Runs the cases one after another on the calling thread.
+	 * 
+	 * @param <A> the type of the argument passed to the vFunction
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for Runnable and Consumer
+	 * @param vFunction a vFunction functional object which takes an argument of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param cases the arguments and inputs
+	 * @param desc a description of what is being run
+	 * @return the results, in the order of the cases
+	 */
+	public static <A,R> BatchResults<R> getOutputsFromVFunction(VFunction<A,R> vFunction, List<BatchCase<A>> cases, String desc)
+	{
+		return getOutputsFromVFunction(vFunction,cases,false,desc);
+	}
+
+	/**
+	 * Run a generic vFunction functional object once for each of a stream of cases - see
+	 * {@link #getOutputsFromVFunction(VFunction, List, boolean, String)}.  The stream is collected into a list before the cases are run.
+	 * 
+	 * @param <A> the type of the argument passed to the vFunction
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for Runnable and Consumer
+	 * @param vFunction a vFunction functional object which takes an argument of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param cases the arguments and inputs
+	 * @param parallel true to run cases in parallel in the common fork-join pool, false to run them one after another on the calling thread
+	 * @param desc a description of what is being run
+	 * @return the results, in the order of the cases
+	 */
+	public static <A,R> BatchResults<R> getOutputsFromVFunction(VFunction<A,R> vFunction, Stream<BatchCase<A>> cases, boolean parallel, String desc)
+	{
+		return getOutputsFromVFunction(vFunction,cases.collect(Collectors.toList()),parallel,desc);
+	}
+
+	/**
+	 * Run a generic vFunction functional object once for each of a list of cases, each with its own argument and input, and return
+	 * a table of the output, value, exception and time of each case - for table-driven tests of thousands of cases.
+	 * <p>
+	 * Each case is run as {@link #getOutputFromVFunction(VFunction, Object, String, String)} runs the function, with the same output
+	 * limits, but without the per-run setup of a getOutput call.  System streams are redirected once for the whole batch (to the
+	 * delegating streams returned by {@link #getSystemIn()}, {@link #getSystemOut()} and {@link #getSystemErr()}), and each case only
+	 * resets pooled capture buffers and sets the input.  Nothing is recorded in OutputInfo or printed for each case, and output to
+	 * System.err is captured but not kept.
+	 * <p>
+	 * In parallel mode cases are run in chunks by the threads of the common fork-join pool (and the calling thread), each chunk with
+	 * capture buffers of its own, so each case sees only its own input and output.  The function must then be safe to run concurrently
+	 * - in particular it must not share static state between cases.  Output written by threads started by the function is not captured
+	 * in either mode.  Must not be called between getOutputStart and the end of that run.
+	 * 
+	 * @param <A> the type of the argument passed to the vFunction
+	 * @param <R> the type of the value returned by the vFunction - will be VoidR for Runnable and Consumer
+	 * @param vFunction a vFunction functional object which takes an argument of type {@literal <A>} and returns a value of {@literal <R>}
+	 * @param cases the arguments and inputs
+	 * @param parallel true to run cases in parallel in the common fork-join pool, false to run them one after another on the calling thread
+	 * @param desc a description of what is being run
+	 * @return the results, in the order of the cases
+	 */
+	public static <A,R> BatchResults<R> getOutputsFromVFunction(VFunction<A,R> vFunction, List<BatchCase<A>> cases, boolean parallel, String desc)
+	{
+		AssertionTools.syncInfo(); // Will print test class name and test name verboseLevel permitting
+
+		List<BatchCase<A>> caseList = (cases instanceof RandomAccess) ? cases : new ArrayList<>(cases);
+		BatchResults<R> results = new BatchResults<>(desc,caseList.size());
+
+		holdSystemStreamsDelegated();
+		try
+		{
+			if (parallel)
+			{
+				// cases in chunks, each run with buffers of its own that are dropped with the chunk, so nothing is left in the threads
+				// of the pool after the batch; several chunks a thread, so threads that finish early take more
+				int caseCount = caseList.size();
+				int chunkCount = Math.min(caseCount,(ForkJoinPool.getCommonPoolParallelism() + 1) * BATCH_CHUNKS_PER_THREAD);
+				IntStream.range(0,chunkCount).parallel().forEach(chunk -> {
+					CaptureBuffers buffers = new CaptureBuffers();
+					for (int i = (int)((long)caseCount * chunk / chunkCount); i < (int)((long)caseCount * (chunk + 1) / chunkCount); i++)
+					{
+						runBatchCase(vFunction,caseList.get(i),i,buffers,results);
+					}
+				});
+			}
+			else
+			{
+				CaptureBuffers buffers = new CaptureBuffers();
+				for (int i = 0; i < caseList.size(); i++)
+				{
+					runBatchCase(vFunction,caseList.get(i),i,buffers,results);
+				}
+			}
+		}
+		finally
+		{
+			releaseSystemStreamsDelegated();
+		}
+
+		return results;
+	}
+
+	// Chunks of cases per thread of the common fork-join pool in a parallel batch - see getOutputsFromVFunction
+	private static final int BATCH_CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * Run one case of a batch on the calling thread, capturing its output in a set of buffers, and fill in its row of the results.
+	 */
+	private static <A,R> void runBatchCase(VFunction<A,R> vFunction, BatchCase<A> batchCase, int index, CaptureBuffers buffers, BatchResults<R> results)
+	{
+		buffers.prepare(maxOutputBytes,maxErrorBytes,outputLimitPolicy,0);
+		redirectWorkerThreadStreams(buffers.takeInputBytes(batchCase.getInput().getBytes()),buffers.outputStream,buffers.errorStream);
+
+		R value = null;
+		Throwable exception = null;
+		long start = System.nanoTime();
+		try
+		{
+			value = vFunction.apply(batchCase.getArg());
+		}
+		catch (Throwable ex)
+		{
+			exception = (ex instanceof WrappedException) ? ex.getCause() : ex;
+		}
+		long caseNanos = System.nanoTime() - start;
+
+		redirectWorkerThreadStreams(null,null,null);
+		buffers.outputBytes.endRun();
+		buffers.errorBytes.endRun();
+
+		results.set(index,outputBytesToTrimmedString(buffers.outputBytes),value,exception,caseNanos);
+	}
+
+	// ==========================================================================================
+	//
+	// Supplementary getOutput methods for getting value and exception as objects
+	//
+	// ==========================================================================================
+
+	/**
+	 * Get return value from OutputInfo.info if there is one, else null.
+	 * <p>
+	 * Value will be non-null if method executed by getOutput has been called and returns normally.  The value for void
+	 * methods will be {@link testHelp.VFunctionsAndVUnboundMethods#voidR}.  It will be null only if no output method is is called or one
+	 * is called but throws an exception.
+	 * 
+	 * @return Object or null
+	 */
+	public static Object getValueFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		return OutputInfo.info().value;
+	}
+
+	/**
+	 * Get the int value returned by the function run by {@link #getOutputFromIntVFunction}, unboxed.
+	 * 
+	 * @return the value
+	 * @throws TestHelpError if the last getOutput method was not getOutputFromIntVFunction or the function threw an exception
+	 */
+	public static int getIntValueFromInfo()
+	{
+		return (int)getPrimitiveValueFromInfo(OutputInfo.INT_VALUE).longValue;
+	}
+
+	/**
+	 * Get the long value returned by the function run by {@link #getOutputFromLongVFunction}, unboxed.
+	 * 
+	 * @return the value
+	 * @throws TestHelpError if the last getOutput method was not getOutputFromLongVFunction or the function threw an exception
+	 */
+	public static long getLongValueFromInfo()
+	{
+		return getPrimitiveValueFromInfo(OutputInfo.LONG_VALUE).longValue;
+	}
+
+	/**
+	 * Get the double value returned by the function run by {@link #getOutputFromDoubleVFunction}, unboxed.
+	 * 
+	 * @return the value
+	 * @throws TestHelpError if the last getOutput method was not getOutputFromDoubleVFunction or the function threw an exception
+	 */
+	public static double getDoubleValueFromInfo()
+	{
+		return getPrimitiveValueFromInfo(OutputInfo.DOUBLE_VALUE).doubleValue;
+	}
+
+	private static OutputInfo getPrimitiveValueFromInfo(char kind)
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		if (OutputInfo.info().primitiveValueKind != kind)
+		{
+			throw new TestHelpError("No " + OutputInfo.primitiveValueTypeName(kind) + " value from the last getOutput method");
+		}
+		return OutputInfo.info();
+	}
+
+	/**
+	 * Get exception (actually Throwable - may be either Exception or Error) from OutputInfo.info
+	 * if there is one, else null.
+	 * 
+	 * @return Throwable or null
+	 */
+	public static Throwable getExceptionFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		return OutputInfo.info().exception;
+	}
+
+	/**
+	 * Get the output to System.out captured before an exception was thrown, for example the partial output of a run stopped at its
+	 * deadline by {@link OutputTimeoutError}.
+	 * 
+	 * @return the trimmed output before the exception, or null if no exception was thrown or no getOutput method has been called
+	 */
+	public static String getOutputBeforeExceptionFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		return OutputInfo.info().outputBeforeException;
+	}
+
+	/**
+	 * Get the number of bytes of output to System.out discarded because the output limit set by {@link #setOutputLimits} was exceeded.
+	 * 
+	 * @return number of bytes discarded, 0 if the limit was not exceeded or no getOutput method has been called
+	 */
+	public static long getDiscardedOutputBytesFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		return (OutputInfo.info().outputBytes == null) ? 0 : OutputInfo.info().outputBytes.getDiscardedBytes();
+	}
+
+	/**
+	 * Get where output to System.out first differed from the expectation passed to a getOutput method - see {@link OutputExpectation}.
+	 * 
+	 * @return a description of the point of divergence of the form {@literal "line <n> (byte offset <offset>): expected '<expected>' but found '<actual>'"},
+	 * 	or null if output matched the expectation, there was no expectation or no getOutput method has been called
+	 */
+	public static String getOutputMismatchFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		return OutputInfo.info().outputMismatch;
+	}
+
+	/**
+	 * Get the output to System.err captured in the last getOutput run.  Output to System.err is always captured, whatever the verbose
+	 * level, so it is kept per run rather than interleaved on the console, but is decoded (and chunked for printing by the
+	 * ErrorOutputChunker) only when it is asked for - by this method, by verbose printing, or when info is printed for a failure.
+	 * 
+	 * @return the trimmed output to System.err, or null if no getOutput run has finished
+	 */
+	public static String getErrorOutputFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		OutputInfo.info().processErrorOutput();
+		return OutputInfo.info().errorOutput;
+	}
+
+	/**
+	 * Get the number of threads started by the code run in the last getOutput run, and by threads it started, if spawned thread
+	 * tracking is on - see {@link #setSpawnedThreadTracking}.
+	 * 
+	 * @return the number of threads, 0 if tracking is off or no getOutput method has been called
+	 */
+	public static int getSpawnedThreadCountFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		return OutputInfo.info().spawnedThreadCount;
+	}
+
+	/**
+	 * Get a description of the threads started by the code run in the last getOutput run that were still running at the join deadline
+	 * and were cut off from its output - see {@link #setSpawnedThreadTracking}.
+	 * 
+	 * @return the description, with the names of the threads, or null if none was still running, tracking is off or no getOutput
+	 * 	method has been called
+	 */
+	public static String getSpawnedThreadsStillRunningFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		return OutputInfo.info().spawnedThreadsStillRunning;
+	}
+
+	/**
+	 * Get the output to System.out of the last getOutput run with each line prefixed by the name of the thread that wrote it in
+	 * square brackets, as {@literal "[pool-1-thread-2] result 42"}, if spawned thread tracking is on - see {@link #setSpawnedThreadTracking}.
+	 * Lines written a piece at a time by several threads at once are kept whole.  The code run writes as the thread named
+	 * {@literal "ConsoleTester run <n>"}.
+	 * 
+	 * @return the tagged output, trimmed, or null if tracking is off or no getOutput method has been called
+	 */
+	public static String getThreadTaggedOutputFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		return OutputInfo.info().threadTaggedOutput;
+	}
+
+	/**
+	 * Get the exit status of the last getOutput run, if the code run called System.exit, Runtime.exit or Runtime.halt and the call
+	 * was intercepted - see {@link #setExitInterception}.
+	 * 
+	 * @return the exit status, or null if the code run did not exit or no getOutput method has been called
+	 */
+	public static Integer getExitStatusFromInfo()
+	{
+		OutputInfo.sync(); // so we don't get left-over value from previous test
+		return OutputInfo.info().exitStatus;
+	}
+
+	/**
+	 * Mark the end of the run in the capture buffers of OutputInfo.info() so that output limits no longer abort writes to them.
+	 */
+	private static void endRun()
+	{
+		OutputInfo.info().outputBytes.endRun();
+		if (OutputInfo.info().errorBytes != null)
+		{
+			OutputInfo.info().errorBytes.endRun();
+		}
+		if (OutputInfo.info().liveOutputTee != null)
+		{
+			// stack traces written to the capture buffers by getOutputFromException are not shown live
+			LiveTee.closeAndDrain(OutputInfo.info().liveOutputTee,OutputInfo.info().liveErrorTee);
+			OutputInfo.info().liveOutputTee = OutputInfo.info().liveErrorTee = null;
+		}
+	}
+
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - output limits
+	//
+	// ==========================================================================================
+
+	private static long maxOutputBytes = 0;
+	private static long maxErrorBytes = 0;
+	private static OutputLimitPolicy outputLimitPolicy = OutputLimitPolicy.truncate;
+
+	/**
+	 * Set limits on the number of bytes of output to System.out and System.err captured in each getOutput run, and what to do
+	 * when a limit is exceeded - see {@link OutputLimitPolicy}.  Protects the test JVM from code that prints without end.
+	 * <p>
+	 * By default there are no limits.  When a limit is exceeded the number of bytes discarded is printed with other output info
+	 * and is available through {@link #getDiscardedOutputBytesFromInfo()}.
+	 * 
+	 * @param maxOutputBytes maximum number of bytes of output to System.out to capture per run, 0 for no limit
+	 * @param maxErrorBytes maximum number of bytes of output to System.err to capture per run, 0 for no limit
+	 * @param policy what to do when a limit is exceeded
+	 */
+	public static void setOutputLimits(long maxOutputBytes, long maxErrorBytes, OutputLimitPolicy policy)
+	{
+		ConsoleTester.maxOutputBytes = maxOutputBytes;
+		ConsoleTester.maxErrorBytes = maxErrorBytes;
+		ConsoleTester.outputLimitPolicy = policy;
+	}
+
+	/**
+	 * Get the limit on captured output to System.out set by {@link #setOutputLimits}.
+	 * 
+	 * @return maximum number of bytes, 0 for no limit
+	 */
+	public static long getMaxOutputBytes()
+	{
+		return maxOutputBytes;
+	}
+
+	/**
+	 * Get the limit on captured output to System.err set by {@link #setOutputLimits}.
+	 * 
+	 * @return maximum number of bytes, 0 for no limit
+	 */
+	public static long getMaxErrorBytes()
+	{
+		return maxErrorBytes;
+	}
+
+	/**
+	 * Get the output limit policy set by {@link #setOutputLimits}.
+	 * 
+	 * @return the policy
+	 */
+	public static OutputLimitPolicy getOutputLimitPolicy()
+	{
+		return outputLimitPolicy;
+	}
+
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - spill threshold
+	//
+	// ==========================================================================================
+
+	private static long spillThreshold = 0;
+
+	/**
+	 * Set the number of bytes of output to System.out captured on the heap in each getOutput run before the captured bytes are moved to
+	 * a temporary file, to which later output is appended.  For methods that write hundreds of megabytes.  
+	 * <p>
+	 * When output has been spilled to a file, {@link #getOutputFinishAsView} and {@link #getOutputViewFromVFunction} return a
+	 * CharSequence view of the memory-mapped file, which uses close to no heap if the output is ASCII (or the console encoding
+	 * is ISO-8859-1) and otherwise is decoded once into a CharBuffer.  Methods that return a String copy the output as before.
+	 * <p>
+	 * By default output is never spilled.
+	 * 
+	 * @param spillThreshold number of bytes, 0 for never
+	 */
+	public static void setSpillThreshold(long spillThreshold)
+	{
+		ConsoleTester.spillThreshold = spillThreshold;
+	}
+
+	/**
+	 * Get the spill threshold set by {@link #setSpillThreshold}.
+	 * 
+	 * @return number of bytes, 0 for never
+	 */
+	public static long getSpillThreshold()
+	{
+		return spillThreshold;
+	}
+
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - live tee
+	//
+	// ==========================================================================================
+
+	private static boolean liveTee = false;
+	private static long liveTeeMaxBytesPerSecond = LiveTee.DEFAULT_MAX_BYTES_PER_SECOND;
+
+	/**
+	 * Turn on or off the live tee, with the default rate limit of 64 KB per second per stream - see {@link #setLiveTee(boolean, long)}.
+	 * 
+	 * @param liveTee true to show captured output on the console as it is written
+	 */
+	public static void setLiveTee(boolean liveTee)
+	{
+		setLiveTee(liveTee,LiveTee.DEFAULT_MAX_BYTES_PER_SECOND);
+	}
+
+	/**
+	 * Turn on or off the live tee.  Normally nothing a getOutput run writes reaches the console until the run ends, so a long-running
+	 * program that is making progress looks the same as one that has hung.  With the live tee on, output to System.out and System.err
+	 * is also shown on the real console as it is written, each line starting with "[out] " or "[err] ".  Output is still captured and returned as usual.
+	 * <p>
+	 * The code under test never waits for the console: output is queued, without locking, for a background thread to write.  Output
+	 * beyond the rate limit, or that would take the queue beyond 1 MB, is not shown, and a line giving the number of bytes not shown
+	 * is written in its place.  At the end of each run, output still queued is written before anything is printed about the run.
+	 * <p>
+	 * By default the live tee is off.
+	 * 
+	 * @param liveTee true to show captured output on the console as it is written
+	 * @param maxBytesPerSecond most bytes shown per second for each stream in a run, 0 for no limit
+	 */
+	public static void setLiveTee(boolean liveTee, long maxBytesPerSecond)
+	{
+		ConsoleTester.liveTee = liveTee;
+		ConsoleTester.liveTeeMaxBytesPerSecond = maxBytesPerSecond;
+	}
+
+	/**
+	 * Get whether the live tee is on - see {@link #setLiveTee(boolean, long)}.
+	 * 
+	 * @return true if captured output is shown on the console as it is written
+	 */
+	public static boolean getLiveTee()
+	{
+		return liveTee;
+	}
+
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - spawned thread tracking
+	//
+	// ==========================================================================================
+
+	private static boolean spawnedThreadTracking = false;
+	private static long spawnedThreadJoinMillis = 0;
+
+	/**
+	 * Turn on or off tracking of threads started by code run by bundled getOutput methods - getOutput, getOutputFromVFunction,
+	 * getOutputViewFromVFunction, getOutputFromVUnboundMethod, getOutputFromVBiFunction and getOutputFromVBiUnboundMethod.
+	 * <p>
+	 * Normally a getOutput method restores System.out as soon as the code it runs returns, so output written later by threads the code
+	 * started goes to the console, or into the output of a later run.  With tracking on, the code is run on a thread of its own, in a
+	 * ThreadGroup of its own, and it and the threads it starts (unless given another ThreadGroup) read System.in and write System.out
+	 * and System.err of the run whether or not thread-scoped capture is on.  When the code returns, threads it started that are still
+	 * running are joined, for at most joinMillis, before the output is read.  Any still running after that are cut off - their later
+	 * output is discarded - and their names are printed with other output info and available through
+	 * {@link #getSpawnedThreadsStillRunningFromInfo()}.
+	 * <p>
+	 * Each line of output to System.out is also recorded with the name of the thread that wrote it - see
+	 * {@link #getThreadTaggedOutputFromInfo()}.  The number of threads started is available through
+	 * {@link #getSpawnedThreadCountFromInfo()}.
+	 * <p>
+	 * By default tracking is off.
+	 * 
+	 * @param track true to track threads started by code run
+	 * @param joinMillis most milliseconds to wait for threads started to end after the code returns
+	 */
+	public static void setSpawnedThreadTracking(boolean track, long joinMillis)
+	{
+		ConsoleTester.spawnedThreadTracking = track;
+		ConsoleTester.spawnedThreadJoinMillis = joinMillis;
+	}
+
+	/**
+	 * Get whether tracking of threads started by code run is on - see {@link #setSpawnedThreadTracking}.
+	 * 
+	 * @return true if tracking is on
+	 */
+	public static boolean getSpawnedThreadTracking()
+	{
+		return spawnedThreadTracking;
+	}
+
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - classLoader - in original version
+	//
+	// ==========================================================================================
+
+	private static ClassLoader classLoader = null;
+
+	/**
+	 * Allows an alternate class loader to be specified. This is useful when
+	 * compiling code on the fly - {@link SourceCompiler} makes such a loader from sources compiled in memory.
+	 * <p>
+	 * Clears the caches of handles to main methods and of class files read for class isolation (see {@link #setClassIsolation}), so
+	 * classes compiled again are read again.  If exit interception is on (see {@link #setExitInterception}), its loader is made again
+	 * as a child of the new loader, with the same class name prefixes.
+	 * 
+	 * @param loader alternate class loader
+	 */
+	public static void setLoader(ClassLoader loader)
+	{ 
+		classLoader = loader;
+		mainHandles.clear();
+		ClassBytesCache.clear();
+		if (exitInterceptingLoader != null)
+		{
+			exitInterceptingLoader = new ExitInterceptingClassLoader(getExitInterceptionParent(),exitInterceptingLoader.getClassNamePrefixes());
+		}
+	}
+
+	/**
+	 * Get the alternate class loader set by {@link #setLoader}.
+	 *
+	 * @return the class loader, or null if none is set
+	 */
+	public static ClassLoader getLoader()
+	{
+		return classLoader;
+	}
+
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - class isolation
+	//
+	// ==========================================================================================
+
+	private static boolean classIsolation = false;
+	private static String [] classIsolationPrefixes = new String[0];
+
+	/**
+	 * Turn on or off isolation of the main classes run by
+	 * {@link #getOutput(String className, String [] mainArgs, String input, String [] descArg)} and its overloads taking a class name,
+	 * so each run starts with fresh static state, as it would in a JVM of its own.
+	 * <p>
+	 * With isolation on, each run loads the main class, and the other classes whose names start with any of the prefixes, in a new
+	 * {@link IsolatingClassLoader}, a child of the loader set by {@link #setLoader} if any, so their static fields are initialized
+	 * afresh for each run and changes made by one run are not seen by the next.  With no prefixes the package of the main class is
+	 * isolated (or, for a class in the default package, the class and its nested classes).  Other classes, including the JDK, libraries
+	 * and testHelp itself, are shared by all runs.  If exit interception is on (see {@link #setExitInterception}) the loader of each
+	 * run also rewrites exit calls in the classes matching the prefixes of both settings.
+	 * <p>
+	 * Class files are read through the parent loader, and rewritten for exit interception, once, and kept in a cache shared by the
+	 * loaders of all runs, so an isolated run costs the definition and initialization of the classes it uses rather than the start of
+	 * a JVM.  The cache is cleared by setLoader.
+	 * <p>
+	 * By default isolation is off.
+	 * 
+	 * @param isolate true to load the classes of each run in a new class loader
+	 * @param classNamePrefixes prefixes of the names of the classes to isolate, as {@literal "myPackage."} or {@literal "MyMain"} - none
+	 * 	for the package of the main class
+	 */
+	public static void setClassIsolation(boolean isolate, String... classNamePrefixes)
+	{
+		classIsolation = isolate;
+		classIsolationPrefixes = classNamePrefixes.clone();
+	}
+
+	/**
+	 * Get whether isolation of main classes is on - see {@link #setClassIsolation}.
+	 * 
+	 * @return true if isolation is on
+	 */
+	public static boolean getClassIsolation()
+	{
+		return classIsolation;
+	}
+
+	/**
+	 * Make the class loader for an isolated run of the main method of a class - see setClassIsolation.
+	 */
+	private static IsolatingClassLoader makeRunClassLoader(String className)
+	{
+		String [] prefixes = classIsolationPrefixes;
+		if (prefixes.length == 0)
+		{
+			int lastDot = className.lastIndexOf('.');
+			prefixes = new String[] {(lastDot < 0) ? className : className.substring(0,lastDot + 1)};
+		}
+		ClassLoader parent = (classLoader != null) ? classLoader : ConsoleTester.class.getClassLoader();
+		if (exitInterceptingLoader != null)
+		{
+			String [] exitPrefixes = exitInterceptingLoader.getClassNamePrefixes();
+			String [] allPrefixes = Arrays.copyOf(prefixes,prefixes.length + exitPrefixes.length);
+			System.arraycopy(exitPrefixes,0,allPrefixes,prefixes.length,exitPrefixes.length);
+			return new ExitInterceptingClassLoader(parent,allPrefixes);
+		}
+		return new IsolatingClassLoader(parent,prefixes);
+	}
+
+
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - static state restore
+	//
+	// ==========================================================================================
+
+	private static StaticStateSnapshot staticStateSnapshot = null;
+
+	/**
+	 * Set whether the static fields of a number of classes are restored after each getOutput run to their values when this method
+	 * is called - see {@link StaticStateSnapshot}.  With restore on, a main that keeps state in static fields, as a count of runs, can
+	 * be run again and again as if for the first time, while its classes stay loaded and compiled by the JIT; it is much faster than
+	 * class isolation (see {@link #setClassIsolation}), which loads the classes again for each run, but only restores the fields of
+	 * the classes given.
+	 * <p>
+	 * The snapshot is taken when this method is called, initializing any class not yet initialized, so output of static initializers
+	 * is not part of the output of any run.  Runs on several threads at once (as parallel batch runs) share the fields, so restore
+	 * is only meaningful for runs one at a time.
+	 * <p>
+	 * By default restore is off.
+	 * 
+	 * @param restore true to restore the static fields after each run
+	 * @param deepCopy true to also restore the contents of arrays, collections and maps the fields refer to
+	 * @param classes the classes whose static fields are restored - ignored if restore is false
+	 * @throws TestHelpError if the static fields of a class cannot be read
+	 */
+	public static void setStaticStateRestore(boolean restore, boolean deepCopy, Class<?>... classes)
+	{
+		staticStateSnapshot = restore ? StaticStateSnapshot.take(deepCopy,classes) : null;
+	}
+
+	/**
+	 * Get whether static state restore is on - see {@link #setStaticStateRestore}.
+	 * 
+	 * @return true if restore is on
+	 */
+	public static boolean getStaticStateRestore()
+	{
+		return staticStateSnapshot != null;
+	}
+
+
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - exit interception
+	//
+	// ==========================================================================================
+
+	private static ExitInterceptingClassLoader exitInterceptingLoader = null;
+
+	/**
+	 * Turn on or off interception of System.exit, Runtime.exit and Runtime.halt in main classes run by
+	 * {@link #getOutput(String className, String [] mainArgs, String input, String [] descArg)} and its overloads taking a class name.
+	 * <p>
+	 * With interception on, classes whose names start with any of the prefixes are loaded by an {@link ExitInterceptingClassLoader},
+	 * which rewrites their calls to exit methods to throw {@link SystemExitError} instead, so a main that exits ends its run rather than
+	 * the JVM running the tests, and tests of programs that exit need not fork a JVM per run.  getOutput treats an exit as the end of the
+	 * run: the output returned is the output written before the exit, not an exception, and the exit status is printed with other output
+	 * info as "EXIT STATUS" and available through {@link #getExitStatusFromInfo()}.
+	 * <p>
+	 * The loader is made when interception is turned on, as a child of the loader set by {@link #setLoader} if any, so classes are
+	 * loaded and rewritten once and reused by later runs, and is made again by each later call of setLoader.  Classes loaded by the loader are
+	 * distinct from the same classes loaded otherwise, and have their own static fields, and are in a package of their own at run time,
+	 * so the main class must be public, and a prefix should take in a whole package rather than only some of its classes.  Only calls in classes whose names match are
+	 * intercepted, and code that catches Throwable or Error around an exit call will catch the SystemExitError.
+	 * <p>
+	 * By default interception is off.
+	 * 
+	 * @param intercept true to intercept exit calls
+	 * @param classNamePrefixes prefixes of the names of the classes to rewrite, as {@literal "myPackage."} or {@literal "MyMain"} - at
+	 * 	least one is needed to turn interception on
+	 * @throws TestHelpError if intercept is true and no prefix is given
+	 */
+	public static void setExitInterception(boolean intercept, String... classNamePrefixes)
+	{
+		mainHandles.clear();
+		if (!intercept)
+		{
+			exitInterceptingLoader = null;
+			return;
+		}
+		if (classNamePrefixes.length == 0)
+		{
+			throw new TestHelpError("setExitInterception called to turn interception on but no class name prefix given");
+		}
+		exitInterceptingLoader = new ExitInterceptingClassLoader(getExitInterceptionParent(),classNamePrefixes);
+	}
+
+	private static ClassLoader getExitInterceptionParent()
+	{
+		return (classLoader != null) ? classLoader : ConsoleTester.class.getClassLoader();
+	}
+
+	/**
+	 * Get whether interception of exit calls is on - see {@link #setExitInterception}.
+	 * 
+	 * @return true if interception is on
+	 */
+	public static boolean getExitInterception()
+	{
+		return exitInterceptingLoader != null;
+	}
+
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - console encoding - set internally
+	//
+	// ==========================================================================================
+
+	private static final String consoleEncoding;
+
+	/**
+	 * Gets the encoding of System.out as of when this class was loaded.
+	 * Calls {@link #getEncodingFromPrintStream} with System.out as argument.
+	 * 
+	 * @return the standard name of the encoding
+	 */
+	public static String getConsoleEncoding()
+	{
+		return consoleEncoding;
+	}
+
+	static
+	{
+		String systemOutEncoding = getEncodingFromPrintStream(System.out);
+		String systemErrEncoding = getEncodingFromPrintStream(System.err);
+		if (!systemErrEncoding.equals(systemOutEncoding))
+		{
+			throw new TestHelpError(String.format(
+					"Unexpected: systemErrEncoding %s != systemOutEncoding %s",
+					systemErrEncoding, systemOutEncoding));
+		}
+		consoleEncoding = systemOutEncoding;
+	}
+
+	/**
+	 * Get the encoding of a PrintStream such as System.out or System.err
+	 * 
+	 * @param ps the PrintStream
+	 * @return the standard name of the encoding
+	 */
+	public static String getEncodingFromPrintStream(PrintStream ps)
+	{
+		OutputStreamWriter osw = new OutputStreamWriter(ps);
+		return osw.getEncoding();
 	}
 
 	/**
@@ -876,6 +2335,38 @@ public class ConsoleTester
 		}
 	}
 
+	/**
+	 * Get captured output as a trimmed String - as outputBytesToString followed by trim, but with a single copy of the output and at
+	 * most one decoding of it, and none for ASCII output - see CaptureOutputStream.getTrimmedString.
+	 */
+	static String outputBytesToTrimmedString(CaptureOutputStream outputBytes)
+	{
+		try
+		{
+			return outputBytes.getTrimmedString(consoleEncoding);
+		} catch (UnsupportedEncodingException ex)
+		{
+			throw new TestHelpError("outputBytes.getTrimmedString(" + consoleEncoding
+					+ ") threw UnsupportedEncodingException");
+		}
+	}
+
+	/**
+	 * Get captured output as a trimmed CharSequence view - see {@link #getOutputFinishAsView}.  For ASCII output the view is of the
+	 * capture buffer or spill file, so no String is built unless the caller asks for one with toString.
+	 */
+	private static CharSequence outputBytesToView(CaptureOutputStream outputBytes)
+	{
+		try
+		{
+			return outputBytes.getTrimmedText(consoleEncoding);
+		} catch (UnsupportedEncodingException ex)
+		{
+			throw new TestHelpError("outputBytes.getTrimmedText(" + consoleEncoding
+					+ ") threw UnsupportedEncodingException");
+		}
+	}
+
 
 	// ==========================================================================================
 	//
@@ -910,6 +2401,45 @@ public class ConsoleTester
 	}
 
 
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - consoleFlushDelay
+	//
+	// ==========================================================================================
+
+	/**
+	 * Default delay before informational output, in milliseconds, unless the system property testHelp.consoleFlushDelay is set.
+	 */
+	public static final int DEFAULT_CONSOLE_FLUSH_DELAY_MILLIS = 20;
+
+	private static volatile int consoleFlushDelay = Integer.getInteger("testHelp.consoleFlushDelay",DEFAULT_CONSOLE_FLUSH_DELAY_MILLIS);
+
+	/**
+	 * Set the number of milliseconds to sleep before System.out and System.err are flushed ahead of informational output
+	 * (test names, output info and assertion messages).  Flushing both streams orders them within the JVM, but a console that
+	 * reads them on separate threads, as the eclipse console does, may still interleave stacktraces with informational output
+	 * unless it is given time to catch up - so the default is {@value #DEFAULT_CONSOLE_FLUSH_DELAY_MILLIS}, as in the original
+	 * version, or the value of the system property testHelp.consoleFlushDelay if set.  Where output goes to a single stream, as
+	 * a file or a build tool's log, 0 (no delay) makes verbose output much faster.
+	 * 
+	 * @param millis delay in milliseconds - 0 for none
+	 */
+	public static void setConsoleFlushDelay(int millis)
+	{
+		consoleFlushDelay = millis;
+	}
+
+	/**
+	 * Get value of consoleFlushDelay.
+	 * 
+	 * @return current delay in milliseconds
+	 */
+	public static int getConsoleFlushDelay()
+	{
+		return consoleFlushDelay;
+	}
+
+
 	// ==========================================================================================
 	//
 	// Static fields and related static methods - inputstream systemIn, printstreams systemOut and systemErr
@@ -957,6 +2487,375 @@ public class ConsoleTester
 		return systemErr;
 	}
 
+	// ==========================================================================================
+	//
+	// Static fields and related static methods - thread-scoped capture
+	//
+	// ==========================================================================================
+
+	private static volatile boolean threadScopedCapture = false; // written under the class lock, read by getOutput calls on any thread
+
+	// The System streams in effect when thread-scoped capture was turned on - restored when it is turned off
+	private static InputStream realSystemIn = null;
+	private static PrintStream realSystemOut = null;
+	private static PrintStream realSystemErr = null;
+
+	// True while System streams are the delegating streams outside thread-scoped capture mode, so redirection changes the streams
+	// delegated to - while a CaptureSession is open or threads cut off from a run are alive (see holdSystemStreamsDelegatedWhileAlive)
+	private static boolean systemStreamsDelegated = false;
+	private static int systemStreamsDelegationHolds = 0;
+
+	/**
+	 * Turn thread-scoped capture mode on or off - normally called once per test class in a static initializer, as:
+	 * <pre>
+  static 
+  {
+	  ConsoleTester.setThreadScopedCapture(true);
+  }</pre>
+	 * 
+	 * By default (thread-scoped capture off) getOutputStart and getOutputFinal switch System.in, System.out and System.err
+	 * with System.setIn, System.setOut and System.setErr, and all run state is held in a single OutputInfo object shared by all threads,
+	 * so only one getOutput call can be active at a time.
+	 * <p>
+	 * With thread-scoped capture on, System.in, System.out and System.err are set once to the delegating streams returned by
+	 * {@link #getSystemIn()}, {@link #getSystemOut()} and {@link #getSystemErr()}, which route reads and writes to buffers belonging
+	 * to the calling thread while a getOutput call is active on it and to the real System streams otherwise, and each thread has its
+	 * own OutputInfo object.  Bundled and unbundled getOutput calls can then be made concurrently on different threads, for example
+	 * in tests run with JUnit parallel execution, and each sees only its own input and output.
+	 * <p>
+	 * Note that in this mode output written by threads started by the code being run is not captured unless those threads are
+	 * themselves running a getOutput call, and test numbers printed with test names reflect the order in which tests started.
+	 * 
+	 * Must not be called while a getOutput call is active on any thread.
+	 * 
+	 * @param enable true to turn thread-scoped capture on, false to turn it off and restore the original System streams
+	 */
+	public static synchronized void setThreadScopedCapture(boolean enable)
+	{
+		if (enable == threadScopedCapture)
+		{
+			return;
+		}
+
+		if (enable)
+		{
+			realSystemIn = systemStreamsDelegated ? systemIn.getInputStream() : System.in;
+			realSystemOut = systemStreamsDelegated ? systemOut.getPrintStream() : System.out;
+			realSystemErr = systemStreamsDelegated ? systemErr.getPrintStream() : System.err;
+
+			systemIn.setInputStream(realSystemIn);
+			systemOut.setPrintStream(realSystemOut);
+			systemErr.setPrintStream(realSystemErr);
+
+			System.setIn(systemIn);
+			System.setOut(systemOut);
+			System.setErr(systemErr);
+		}
+		else if (systemStreamsDelegated)
+		{
+			// System streams stay delegating streams so cut off threads remain cut off - see holdSystemStreamsDelegatedWhileAlive
+			systemIn.setInputStream(realSystemIn);
+			systemOut.setPrintStream(realSystemOut);
+			systemErr.setPrintStream(realSystemErr);
+
+			realSystemIn = null;
+			realSystemOut = null;
+			realSystemErr = null;
+		}
+		else
+		{
+			System.setIn(realSystemIn);
+			System.setOut(realSystemOut);
+			System.setErr(realSystemErr);
+
+			realSystemIn = null;
+			realSystemOut = null;
+			realSystemErr = null;
+		}
+
+		OutputInfo.setInfo(null); // discard state belonging to the previous mode
+		OutputInfo.threadScoped = enable;
+		threadScopedCapture = enable;
+	}
+
+	/**
+	 * Get whether thread-scoped capture is on - see {@link #setThreadScopedCapture(boolean)}.
+	 * 
+	 * @return true if thread-scoped capture is on, else false
+	 */
+	public static boolean getThreadScopedCapture()
+	{
+		return threadScopedCapture;
+	}
+
+	/**
+	 * Redirect System.in, System.out and (if errorStream is non-null) System.err to the passed streams - globally or, in
+	 * thread-scoped capture mode, for the calling thread only.
+	 * 
+	 * @param inputStream the stream to read input from
+	 * @param outputStream the stream to capture output to System.out in
+	 * @param errorStream the stream to capture output to System.err in, or null to leave System.err alone
+	 */
+	private static void redirectSystemStreams(InputStream inputStream, PrintStream outputStream, PrintStream errorStream)
+	{
+		if (threadScopedCapture)
+		{
+			systemIn.setThreadInputStream(inputStream);
+			systemOut.setThreadPrintStream(outputStream);
+			if (errorStream != null)
+			{
+				systemErr.setThreadPrintStream(errorStream);
+			}
+		}
+		else if (systemStreamsDelegated)
+		{
+			systemIn.setInputStream(inputStream);
+			systemOut.setPrintStream(outputStream);
+			if (errorStream != null)
+			{
+				systemErr.setPrintStream(errorStream);
+			}
+		}
+		else
+		{
+			System.setIn(inputStream);
+			systemIn.setInputStream(System.in);
+			System.setOut(outputStream);
+			systemOut.setPrintStream(System.out);
+			if (errorStream != null)
+			{
+				System.setErr(errorStream);
+				systemErr.setPrintStream(System.err);
+			}
+		}
+	}
+
+	/**
+	 * Undo the redirection of System.in and System.out done by {@link #redirectSystemStreams} - globally or, in
+	 * thread-scoped capture mode, for the calling thread only.
+	 * 
+	 * @param savedSystemIn the System.in in effect before redirection
+	 * @param savedSystemOut the System.out in effect before redirection
+	 */
+	private static void restoreSystemInAndOut(InputStream savedSystemIn, PrintStream savedSystemOut)
+	{
+		if (threadScopedCapture)
+		{
+			systemIn.setThreadInputStream(null);
+			systemOut.setThreadPrintStream(null);
+		}
+		else if (systemStreamsDelegated)
+		{
+			systemIn.setInputStream(savedSystemIn);
+			systemOut.setPrintStream(savedSystemOut);
+		}
+		else
+		{
+			System.setIn(savedSystemIn);
+			systemIn.setInputStream(System.in);
+			System.setOut(savedSystemOut);
+			systemOut.setPrintStream(System.out);
+		}
+	}
+
+	/**
+	 * Undo the redirection of System.err done by {@link #redirectSystemStreams} - globally or, in thread-scoped capture
+	 * mode, for the calling thread only.
+	 * 
+	 * @param savedSystemErr the System.err in effect before redirection
+	 */
+	private static void restoreSystemErr(PrintStream savedSystemErr)
+	{
+		if (threadScopedCapture)
+		{
+			systemErr.setThreadPrintStream(null);
+		}
+		else if (systemStreamsDelegated)
+		{
+			systemErr.setPrintStream(savedSystemErr);
+		}
+		else
+		{
+			System.setErr(savedSystemErr);
+			systemErr.setPrintStream(System.err);
+		}
+	}
+
+	/**
+	 * Route System.in, System.out and System.err on a worker thread started by testHelp (for example by ConsoleDialogue) to the
+	 * streams of the getOutput call described by an OutputInfo, which is active on the thread that started the worker.  Does nothing
+	 * unless thread-scoped capture is on, since otherwise redirection is global.  Overrides end with the worker thread.
+	 * 
+	 * @param info the OutputInfo of the thread that started the worker
+	 */
+	static void redirectWorkerThreadStreams(OutputInfo info)
+	{
+		if (threadScopedCapture)
+		{
+			systemIn.setThreadInputStream(info.inputBytes);
+			systemOut.setThreadPrintStream(info.outputStream);
+			systemErr.setThreadPrintStream(info.errorStream);
+		}
+	}
+
+	/**
+	 * Route System.in, System.out and System.err on a worker thread started by testHelp to the passed streams, whether or not
+	 * thread-scoped capture is on.  The overrides take effect whenever System streams are the delegating streams - always in
+	 * thread-scoped capture mode, and otherwise while a worker that has been abandoned is alive (see
+	 * {@link #holdSystemStreamsDelegatedWhileAlive}) - so a
+	 * worker given streams it can be cut off from (as TimeoutRunner does) cannot read the input or write to the output of later runs.
+	 * 
+	 * @param inputStream the stream for the worker to read input from
+	 * @param outputStream the stream for the worker to write output to System.out to
+	 * @param errorStream the stream for the worker to write output to System.err to
+	 */
+	static void redirectWorkerThreadStreams(InputStream inputStream, PrintStream outputStream, PrintStream errorStream)
+	{
+		systemIn.setThreadInputStream(inputStream);
+		systemOut.setThreadPrintStream(outputStream);
+		systemErr.setThreadPrintStream(errorStream);
+	}
+
+	/**
+	 * Route System.in, System.out and System.err on the run thread of a SpawnedThreadTracker, and on threads it starts, to the passed
+	 * streams, as {@link #redirectWorkerThreadStreams(InputStream, PrintStream, PrintStream)} does for the calling thread alone.
+	 * 
+	 * @param inputStream the stream for the threads to read input from
+	 * @param outputStream the stream for the threads to write output to System.out to
+	 * @param errorStream the stream for the threads to write output to System.err to
+	 */
+	static void redirectTrackedThreadStreams(InputStream inputStream, PrintStream outputStream, PrintStream errorStream)
+	{
+		systemIn.setInheritableThreadInputStream(inputStream);
+		systemOut.setInheritableThreadPrintStream(outputStream);
+		systemErr.setInheritableThreadPrintStream(errorStream);
+	}
+
+	/**
+	 * Make System.in, System.out and System.err the delegating streams returned by {@link #getSystemIn()}, {@link #getSystemOut()}
+	 * and {@link #getSystemErr()} until a matching call to {@link #releaseSystemStreamsDelegated} - used by CaptureSession so that
+	 * redirection for each run is a change of the streams delegated to.
+	 */
+	static synchronized void holdSystemStreamsDelegated()
+	{
+		systemStreamsDelegationHolds++;
+		delegateSystemStreams();
+	}
+
+	/**
+	 * Hold System streams as the delegating streams, as {@link #holdSystemStreamsDelegated} does, until the threads returned by
+	 * aliveThreads have all ended, so that the per-thread overrides of threads cut off from the streams of a run while still running
+	 * (an abandoned timeout worker, or spawned threads still running after their join) take effect as long as they run.  Redirection by
+	 * getOutput calls without thread-scoped capture meanwhile changes the streams delegated to rather than the System streams themselves,
+	 * with the same effect for all other threads.  A daemon thread waits for the threads to end, asking aliveThreads again after they
+	 * have in case they started others, and then releases the hold.
+	 *
+	 * @param aliveThreads returns the threads cut off that are still alive
+	 */
+	static void holdSystemStreamsDelegatedWhileAlive(Supplier<List<Thread>> aliveThreads)
+	{
+		holdSystemStreamsDelegated();
+		Thread watcher = new Thread(() -> {
+			List<Thread> alive;
+			while (!(alive = aliveThreads.get()).isEmpty())
+			{
+				for (Thread thread : alive)
+				{
+					try
+					{
+						thread.join();
+					}
+					catch (InterruptedException ex)
+					{
+						// nothing interrupts the watcher - wait on
+					}
+				}
+			}
+			releaseSystemStreamsDelegated();
+		},"ConsoleTester cut off thread watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	/**
+	 * Release a hold taken by {@link #holdSystemStreamsDelegated} - when no holds remain System streams are set back to the streams
+	 * delegated to.
+	 */
+	static synchronized void releaseSystemStreamsDelegated()
+	{
+		if (--systemStreamsDelegationHolds > 0 || !systemStreamsDelegated)
+		{
+			return;
+		}
+
+		if (!threadScopedCapture)
+		{
+			System.setIn(systemIn.getInputStream());
+			System.setOut(systemOut.getPrintStream());
+			System.setErr(systemErr.getPrintStream());
+		}
+		systemStreamsDelegated = false;
+	}
+
+	/**
+	 * Make System streams the delegating streams, delegating to the current System streams, unless they already are.
+	 */
+	private static void delegateSystemStreams()
+	{
+		if (systemStreamsDelegated)
+		{
+			return;
+		}
+
+		if (!threadScopedCapture)
+		{
+			systemIn.setInputStream(System.in);
+			systemOut.setPrintStream(System.out);
+			systemErr.setPrintStream(System.err);
+
+			System.setIn(systemIn);
+			System.setOut(systemOut);
+			System.setErr(systemErr);
+		}
+		systemStreamsDelegated = true;
+	}
+
+	/**
+	 * Replace the streams System.out and System.err write to outside getOutput runs - the System streams themselves or, while the
+	 * System streams are the delegating streams, the streams delegated to.  Used by TestDaemon to send the output of the tests of a
+	 * request to its client.  Must not be called while a getOutput call is active.
+	 * 
+	 * @param out the new stream for System.out
+	 * @param err the new stream for System.err
+	 * @return the streams replaced, for System.out then System.err
+	 */
+	static synchronized PrintStream [] replaceRealSystemOutAndErr(PrintStream out, PrintStream err)
+	{
+		PrintStream [] replaced;
+		if (threadScopedCapture)
+		{
+			replaced = new PrintStream [] {realSystemOut,realSystemErr};
+			realSystemOut = out;
+			realSystemErr = err;
+		}
+		else if (systemStreamsDelegated)
+		{
+			replaced = new PrintStream [] {systemOut.getPrintStream(),systemErr.getPrintStream()};
+		}
+		else
+		{
+			replaced = new PrintStream [] {System.out,System.err};
+			System.setOut(out);
+			System.setErr(err);
+		}
+		if (threadScopedCapture || systemStreamsDelegated)
+		{
+			systemOut.setPrintStream(out);
+			systemErr.setPrintStream(err);
+		}
+		return replaced;
+	}
+
 	// ==========================================================================================
 	//
 	// Print methods
@@ -975,7 +2874,7 @@ public class ConsoleTester
 	public static void printTestClassNameIfNotAlreadyPrinted() // not called as of 2019-08-31
 	{
 		OutputInfo.sync();
-		OutputInfo.info.printTestClassNameIfNotAlreadyPrinted(System.out);
+		OutputInfo.info().printTestClassNameIfNotAlreadyPrinted(System.out);
 	}
 
 	/**
@@ -993,7 +2892,7 @@ public class ConsoleTester
 	public static void printTestNameIfNotAlreadyPrinted()
 	{
 		OutputInfo.sync();
-		OutputInfo.info.printTestNameIfNotAlreadyPrinted(System.out);
+		OutputInfo.info().printTestNameIfNotAlreadyPrinted(System.out);
 	}
 
 	/**
@@ -1010,7 +2909,7 @@ public class ConsoleTester
 	public static void printInfoIfNotAlreadyPrinted()
 	{
 		OutputInfo.sync();
-		OutputInfo.info.printInfoIfNotAlreadyPrinted(System.out);
+		OutputInfo.info().printInfoIfNotAlreadyPrinted(System.out);
 	}
 
 	/**
@@ -1025,7 +2924,7 @@ public class ConsoleTester
 	public static void printChunkedStackTrace(Throwable ex)
 	{
 		OutputInfo.sync();
-		String testName = OutputInfo.info.testNameInfo.getTestName();
+		String testName = OutputInfo.info().testNameInfo.getTestName();
 		ErrorOutputChunker.printChunkedStackTrace(ex,System.err,testName);
 	}
 
@@ -1038,7 +2937,7 @@ public class ConsoleTester
 	public static void setDescription(String desc)
 	{
 		AssertionTools.syncInfo(); // Will print test class name and test name verboseLevel permitting
-		OutputInfo.info.description = desc;
+		OutputInfo.info().description = desc;
 	}
 
 	/**
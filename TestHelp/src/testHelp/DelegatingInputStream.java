@@ -1,7 +1,10 @@
 package testHelp;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A derivative of InputStream which delegates to an internally stored reference to a "real" InputStream which can be changed.  Can be used to
@@ -9,14 +12,85 @@ import java.io.InputStream;
  *  to the original version as they do System.in.
  * <p>
  * Useful for passing a PrintStream class instance or argument with a method reference that requires one.  
+ * <p>
+ * In addition to the "real" InputStream shared by all threads, a per-thread InputStream can be set with {@link #setThreadInputStream}, which
+ * takes precedence for the thread that set it (see {@link ConsoleTester#setThreadScopedCapture}).
+ * <p>
+ * All InputStream methods are forwarded, including the bulk read methods used by Scanner, BufferedReader and InputStreamReader, so
+ * wrapping a stream in a DelegatingInputStream adds one virtual call per read rather than one per byte - except close, which does
+ * not close the stream passed in the constructor call.  When the stream delegated to is a {@link ByteArrayInput}, as it is within
+ * ConsoleTester getOutput methods, its unread bytes can also be accessed directly through {@link #getRemainingBytes()}.
  * 
  * @author John Armstrong
  */
 public class DelegatingInputStream extends InputStream
 {
+	/**
+	 * A ByteArrayInputStream whose buffer can be accessed directly - used by ConsoleTester getOutput methods to hold input.
+	 */
+	public static class ByteArrayInput extends ByteArrayInputStream
+	{
+		/**
+		 * Create a ByteArrayInput that reads from an array of bytes (without copying it).
+		 * 
+		 * @param buf the input bytes
+		 */
+		public ByteArrayInput(byte [] buf)
+		{
+			super(buf);
+		}
+
+		/**
+		 * Start reading from another array of bytes (without copying it), as if this were a new ByteArrayInput - used by
+		 * CaptureSession to reuse input streams.
+		 *
+		 * @param buf the input bytes
+		 */
+		synchronized void setBytes(byte [] buf)
+		{
+			this.buf = buf;
+			this.pos = 0;
+			this.count = buf.length;
+			this.mark = 0;
+		}
+
+		/**
+		 * Get a read-only view of the bytes that have not yet been read.  The view shares the underlying buffer, so getting it
+		 * does not copy the bytes, and does not change the position of this stream.
+		 * 
+		 * @return a read-only ByteBuffer whose position is 0 and whose limit is the number of unread bytes
+		 */
+		public synchronized ByteBuffer getRemainingBytes()
+		{
+			return ByteBuffer.wrap(buf,pos,count - pos).slice().asReadOnlyBuffer();
+		}
+
+		/**
+		 * Write all unread bytes to an OutputStream in a single write call and mark them as read.
+		 * 
+		 * @param out the OutputStream to write to
+		 * @return the number of bytes written
+		 * @throws IOException if out throws IOException
+		 */
+		public synchronized long transferTo(OutputStream out) throws IOException
+		{
+			int len = count - pos;
+			out.write(buf,pos,len);
+			pos = count;
+			return len;
+		}
+	}
+
+	private static final int TRANSFER_BUFFER_SIZE = 8192;
 	
 	private InputStream is;
 
+	private final InputStream defaultIs; // passed in the constructor call - not closed by close
+
+	private final ThreadLocal<InputStream> threadIs = new ThreadLocal<>();
+
+	private final InheritableThreadLocal<InputStream> inheritableIs = new InheritableThreadLocal<>();
+
 	/** 
 	 * Create a DelegatingInputStream with an initial value for the "real" InputStream it delegates to - typically System.in.
 	 * 
@@ -25,6 +99,7 @@ public class DelegatingInputStream extends InputStream
 	public DelegatingInputStream(InputStream is)
 	{
 		this.is = is;
+		this.defaultIs = is;
 	}
 	
 	/**
@@ -39,19 +114,159 @@ public class DelegatingInputStream extends InputStream
 	}
 
 	/**
-	 * Get the InputStream being delegated to
+	 * Set the value of the InputStream object to delegate to for the current thread only, overriding the one set by
+	 * {@link #setInputStream} - typically a buffer-based one used for getting input in thread-scoped capture mode.
+	 * 
+	 * @param is a InputStream object, or null to remove the override for the current thread
+	 */
+	public void setThreadInputStream(InputStream is)
+	{
+		if (is == null)
+		{
+			threadIs.remove();
+		}
+		else
+		{
+			threadIs.set(is);
+		}
+	}
+
+	/**
+	 * Set the value of the InputStream object to delegate to for the current thread and for threads it starts from now on, and threads
+	 * they start, overriding the one set by {@link #setInputStream} - see {@link DelegatingPrintStream#setInheritableThreadPrintStream}.
+	 * An override set by {@link #setThreadInputStream} takes precedence.
+	 * 
+	 * @param is a InputStream object, or null to remove the override for the current thread
+	 */
+	public void setInheritableThreadInputStream(InputStream is)
+	{
+		if (is == null)
+		{
+			inheritableIs.remove();
+		}
+		else
+		{
+			inheritableIs.set(is);
+		}
+	}
+
+	/**
+	 * Get the InputStream being delegated to by the current thread - the one set by {@link #setThreadInputStream} if there
+	 * is one, else the one set by {@link #setInheritableThreadInputStream} for this thread or a thread that started it if there
+	 * is one, else the one set by {@link #setInputStream} or passed in the constructor call.
 	 * 
 	 * @return a InputStream object
 	 */
 	public InputStream getInputStream()
 	{
-		return is;
+		InputStream tis = threadIs.get();
+		if (tis == null)
+		{
+			tis = inheritableIs.get();
+		}
+		return (tis != null) ? tis : is;
+	}
+
+	/**
+	 * Get a read-only view of the unread bytes of the stream being delegated to by the current thread, if it is a {@link ByteArrayInput}.
+	 * 
+	 * @return a read-only ByteBuffer as returned by {@link ByteArrayInput#getRemainingBytes()}, or null if the stream being delegated to
+	 * is not a ByteArrayInput
+	 */
+	public ByteBuffer getRemainingBytes()
+	{
+		InputStream dis = getInputStream();
+		return (dis instanceof ByteArrayInput) ? ((ByteArrayInput)dis).getRemainingBytes() : null;
 	}
 
 	@Override
 	public int read() throws IOException
 	{
-		return is.read();
+		return getInputStream().read();
+	}
+
+	@Override
+	public int read(byte b[]) throws IOException
+	{
+		return getInputStream().read(b,0,b.length);
+	}
+
+	@Override
+	public int read(byte b[], int off, int len) throws IOException
+	{
+		return getInputStream().read(b,off,len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		return getInputStream().skip(n);
+	}
+
+	@Override
+	public int available() throws IOException
+	{
+		return getInputStream().available();
+	}
+
+	/**
+	 * Close the InputStream being delegated to by the current thread, unless it is the one passed in the constructor call - typically
+	 * System.in, which closing a substitute for it should not close.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		InputStream dis = getInputStream();
+		if (dis != defaultIs)
+		{
+			dis.close();
+		}
+	}
+
+	@Override
+	public void mark(int readlimit)
+	{
+		getInputStream().mark(readlimit);
+	}
+
+	@Override
+	public void reset() throws IOException
+	{
+		getInputStream().reset();
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return getInputStream().markSupported();
+	}
+
+	/**
+	 * Read all remaining bytes from the stream being delegated to and write them to an OutputStream - overrides
+	 * InputStream.transferTo where it exists (Java 9 and later).  A {@link ByteArrayInput} is written in a single call,
+	 * other streams through a fixed size buffer.
+	 * 
+	 * @param out the OutputStream to write to
+	 * @return the number of bytes transferred
+	 * @throws IOException if reading or writing throws IOException
+	 */
+	public long transferTo(OutputStream out) throws IOException
+	{
+		InputStream dis = getInputStream();
+		if (dis instanceof ByteArrayInput)
+		{
+			return ((ByteArrayInput)dis).transferTo(out);
+		}
+
+		long transferred = 0;
+		byte [] buffer = new byte[TRANSFER_BUFFER_SIZE];
+		int read;
+		while ((read = dis.read(buffer,0,TRANSFER_BUFFER_SIZE)) >= 0)
+		{
+			out.write(buffer,0,read);
+			transferred += read;
+		}
+		return transferred;
 	}
 
 }
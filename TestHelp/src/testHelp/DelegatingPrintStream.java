@@ -11,6 +11,10 @@ import java.util.Locale;
  * and later switch back to the original version to the original versions as they do System.out and System.err.
  * <p>
  * Useful for passing a PrintStream class instance or argument with a method reference that requires one.  
+ * <p>
+ * In addition to the "real" PrintStream shared by all threads, a per-thread PrintStream can be set with {@link #setThreadPrintStream}, which
+ * takes precedence for the thread that set it.  This allows a single instance installed as System.out or System.err to route output from
+ * different threads to different buffers, as ConsoleTester does in thread-scoped capture mode (see {@link ConsoleTester#setThreadScopedCapture}).
  * 
  * @author John Armstrong
  */
@@ -28,6 +32,10 @@ public class DelegatingPrintStream extends PrintStream
 
 	private PrintStream ps = null;
 
+	private final ThreadLocal<PrintStream> threadPs = new ThreadLocal<>();
+
+	private final InheritableThreadLocal<PrintStream> inheritablePs = new InheritableThreadLocal<>();
+
 	/** 
 	 * Create a DelegatingPrintStream with an initial value for the "real" PrintStream it delegates to - typically System.out or System.err.
 	 * 
@@ -52,198 +60,242 @@ public class DelegatingPrintStream extends PrintStream
 	}
 
 	/**
-	 * Get the PrintStream being delegated to
+	 * Set the value of the PrintStream object to delegate to for the current thread only, overriding the one set by
+	 * {@link #setPrintStream} - typically a buffer-based one used for output capture in thread-scoped capture mode.
+	 * 
+	 * @param ps a PrintStream object, or null to remove the override for the current thread
+	 */
+	public void setThreadPrintStream(PrintStream ps)
+	{
+		if (ps == null)
+		{
+			threadPs.remove();
+		}
+		else
+		{
+			threadPs.set(ps);
+		}
+	}
+
+	/**
+	 * Set the value of the PrintStream object to delegate to for the current thread and for threads it starts from now on, and threads
+	 * they start, overriding the one set by {@link #setPrintStream} - used to capture output from threads started by code under test
+	 * (see {@link ConsoleTester#setSpawnedThreadTracking}).  An override set by {@link #setThreadPrintStream} takes precedence.
+	 * 
+	 * @param ps a PrintStream object, or null to remove the override for the current thread
+	 */
+	public void setInheritableThreadPrintStream(PrintStream ps)
+	{
+		if (ps == null)
+		{
+			inheritablePs.remove();
+		}
+		else
+		{
+			inheritablePs.set(ps);
+		}
+	}
+
+	/**
+	 * Get the PrintStream being delegated to by the current thread - the one set by {@link #setThreadPrintStream} if there
+	 * is one, else the one set by {@link #setInheritableThreadPrintStream} for this thread or a thread that started it if there
+	 * is one, else the one set by {@link #setPrintStream} or passed in the constructor call.
 	 * 
 	 * @return a PrintStream object
 	 */
 	public PrintStream getPrintStream()
 	{
-		return ps;
+		PrintStream tps = threadPs.get();
+		if (tps == null)
+		{
+			tps = inheritablePs.get();
+		}
+		return (tps != null) ? tps : ps;
 	}
 
 	@Override
 	public void flush()
 	{
-		ps.flush();
+		getPrintStream().flush();
 	}
 
 	@Override
 	public void close()
 	{
-		ps.close();
+		getPrintStream().close();
 	}
 
 	@Override
 	public boolean checkError()
 	{
-		return ps.checkError();
+		return getPrintStream().checkError();
 	}
 
 	@Override
 	public void write(int b)
 	{
-		ps.write(b);
+		getPrintStream().write(b);
 	}
 
 	@Override
 	public void write(byte buf[], int off, int len)
 	{
-		ps.write(buf,off,len);
+		getPrintStream().write(buf,off,len);
 	}
 
 	@Override
 	public void print(boolean b)
 	{
-		ps.print(b);
+		getPrintStream().print(b);
 	}
 
 	@Override
 	public void print(char c)
 	{
-		ps.print(c);
+		getPrintStream().print(c);
 	}
 
 	@Override
 	public void print(int i)
 	{
-		ps.print(i);
+		getPrintStream().print(i);
 	}
 
 	@Override
 	public void print(long l)
 	{
-		ps.print(l);
+		getPrintStream().print(l);
 	}
 
 	@Override
 	public void print(float f)
 	{
-		ps.print(f);
+		getPrintStream().print(f);
 	}
 
 	@Override
 	public void print(double d)
 	{
-		ps.print(d);
+		getPrintStream().print(d);
 	}
 
 	@Override
 	public void print(char s[])
 	{
-		ps.print(s);
+		getPrintStream().print(s);
 	}
 
 	@Override
 	public void print(String s)
 	{
-		ps.print(s);
+		getPrintStream().print(s);
 	}
 
 	@Override
 	public void print(Object obj)
 	{
-		ps.print(obj);
+		getPrintStream().print(obj);
 	}
 
 	@Override
 	public void println()
 	{
-		ps.println();
+		getPrintStream().println();
 	}
 
 	@Override
 	public void println(boolean x)
 	{
-		ps.println(x);
+		getPrintStream().println(x);
 	}
 
 	@Override
 	public void println(char x)
 	{
-		ps.println(x);
+		getPrintStream().println(x);
 	}
 
 	@Override
 	public void println(int x)
 	{
-		ps.println(x);
+		getPrintStream().println(x);
 	}
 
 	@Override
 	public void println(long x)
 	{
-		ps.println(x);
+		getPrintStream().println(x);
 	}
 
 	@Override
 	public void println(float x)
 	{
-		ps.println(x);
+		getPrintStream().println(x);
 	}
 
 	@Override
 	public void println(double x)
 	{
-		ps.println(x);
+		getPrintStream().println(x);
 	}
 
 	@Override
 	public void println(char x[])
 	{
-		ps.println(x);
+		getPrintStream().println(x);
 	}
 
 	@Override
 	public void println(String x)
 	{
-		ps.println(x);
+		getPrintStream().println(x);
 	}
 
 	@Override
 	public void println(Object x)
 	{
-		ps.println(x);
+		getPrintStream().println(x);
 	}
 
 	public PrintStream printf(String format, Object... args)
 	{
-		return ps.format(format,args);
+		return getPrintStream().format(format,args);
 	}
 
 	@Override
 	public PrintStream printf(Locale l, String format, Object... args)
 	{
-		return ps.printf(l,format,args);
+		return getPrintStream().printf(l,format,args);
 	}
 
 	@Override
 	public PrintStream format(String format, Object... args)
 	{
-		return ps.format(format,args);
+		return getPrintStream().format(format,args);
 	}
 
 	@Override
 	public PrintStream format(Locale l, String format, Object... args)
 	{
-		return ps.format(l,format,args);
+		return getPrintStream().format(l,format,args);
 	}
 
 	@Override
 	public PrintStream append(CharSequence csq)
 	{
-		return ps.append(csq);
+		return getPrintStream().append(csq);
 	}
 
 	@Override
 	public PrintStream append(CharSequence csq, int start, int end)
 	{
-		return ps.append(csq,start,end);
+		return getPrintStream().append(csq,start,end);
 	}
 
 	@Override
 	public PrintStream append(char c)
 	{
-		return ps.append(c);
+		return getPrintStream().append(c);
 	}
 
 }
@@ -0,0 +1,423 @@
+package testHelp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An {@link IsolatingClassLoader} that loads classes whose names start with given prefixes itself, rather than through its parent,
+ * and rewrites calls in them to System.exit, Runtime.exit and Runtime.halt as calls to {@link ExitInterceptor}, which throws {@link SystemExitError} -
+ * see {@link ConsoleTester#setExitInterception}.  So main methods that exit can be run by getOutput in the JVM running the tests,
+ * rather than in a JVM of their own.
+ * <p>
+ * The class file of each class is read through the parent, and patched in place: an entry for each replacement method is added at the
+ * end of the constant pool, the invokestatic or invokevirtual instructions that call an exit method are changed to invokestatic of its
+ * replacement, which takes the Runtime (if any) as an extra first argument so the operand stack is unchanged, and method handles to
+ * an exit method (as made for method references like {@code System::exit}) are changed to method handles to its replacement.  Nothing
+ * else in the class file changes, so the offsets of instructions, and with them the stack map frames, stay valid.  Class files
+ * without exit calls are defined unchanged.
+ * <p>
+ * Only calls in classes loaded by the loader are rewritten - not calls made by the JDK or by libraries loaded by the parent, or calls
+ * made by reflection.  Classes loaded by the loader are distinct from the same classes loaded by the parent, so have their own static
+ * fields.  Rewritten class files are cached with those read by other IsolatingClassLoaders, so each is rewritten once.
+ *
+ * @author John Armstrong
+ */
+public class ExitInterceptingClassLoader extends IsolatingClassLoader
+{
+	static
+	{
+		registerAsParallelCapable();
+	}
+
+	private static final String INTERCEPTOR = "testHelp/ExitInterceptor";
+
+	/**
+	 * The exit methods rewritten, as class.name descriptor, mapped to the name and descriptor of their replacement in ExitInterceptor.
+	 */
+	private static final Map<String,String []> replacements = new HashMap<>();
+
+	static
+	{
+		replacements.put("java/lang/System.exit(I)V",new String[] {"exit","(I)V"});
+		replacements.put("java/lang/Runtime.exit(I)V",new String[] {"exit","(Ljava/lang/Runtime;I)V"});
+		replacements.put("java/lang/Runtime.halt(I)V",new String[] {"halt","(Ljava/lang/Runtime;I)V"});
+	}
+
+	/**
+	 * Make a loader that loads and rewrites classes whose names start with any of a number of prefixes, and delegates loading of
+	 * others to a parent.
+	 *
+	 * @param parent the loader to read class files through and to delegate other classes to
+	 * @param classNamePrefixes prefixes of the binary names of the classes to load, as {@literal "myPackage."} or {@literal "MyClass"}
+	 */
+	public ExitInterceptingClassLoader(ClassLoader parent, String... classNamePrefixes)
+	{
+		super(parent,classNamePrefixes);
+	}
+
+	/**
+	 * Get whether a class is loaded and rewritten by this loader.
+	 *
+	 * @param className the binary name of the class
+	 * @return true if the class is loaded by an IsolatingClassLoader with the same prefixes and is not a class of testHelp used by
+	 * 	rewritten classes
+	 */
+	@Override
+	public boolean intercepts(String className)
+	{
+		if (className.equals(ExitInterceptor.class.getName()) || className.equals(SystemExitError.class.getName()))
+		{
+			return false;
+		}
+		return super.intercepts(className);
+	}
+
+	/**
+	 * Rewrite the exit calls in a class file - see {@link #rewriteExitCalls}.
+	 */
+	@Override
+	protected byte [] transform(byte [] classBytes)
+	{
+		return rewriteExitCalls(classBytes);
+	}
+
+	// ==========================================================================================
+	//
+	// Class file rewriting
+	//
+	// ==========================================================================================
+
+	/**
+	 * Rewrite the calls to exit methods in a class file as calls to their replacements in ExitInterceptor.
+	 *
+	 * @param classBytes the class file
+	 * @return the rewritten class file, or classBytes itself if the class refers to no exit method
+	 * @throws ClassFormatError if the class file cannot be parsed
+	 */
+	static byte [] rewriteExitCalls(byte [] classBytes)
+	{
+		try
+		{
+			return new Rewriter(classBytes).rewrite();
+		}
+		catch (IndexOutOfBoundsException | BufferUnderflowException ex)
+		{
+			throw new ClassFormatError("Truncated class file: " + ex);
+		}
+	}
+
+	/**
+	 * One pass over one class file.  The constant pool is indexed first; if it holds a Methodref to an exit method the rest of the
+	 * file is walked to find the instructions to patch.
+	 */
+	private static final class Rewriter
+	{
+		private final byte [] classBytes;
+		private final ByteBuffer in;
+		private int cpCount;
+		private int [] cpOffsets; // offset of the tag of each entry, 0 for unused slots
+		private int cpEnd;
+
+		private final Map<Integer,Integer> methodrefMap = new HashMap<>(); // exit Methodref index -> replacement Methodref index
+		private final ByteArrayOutputStream added = new ByteArrayOutputStream();
+		private final DataOutputStream addedData = new DataOutputStream(added);
+		private int nextIndex;
+
+		Rewriter(byte [] classBytes)
+		{
+			this.classBytes = classBytes;
+			this.in = ByteBuffer.wrap(classBytes); // big-endian, as class files are
+		}
+
+		byte [] rewrite()
+		{
+			if (in.getInt() != 0xCAFEBABE)
+			{
+				throw new ClassFormatError("Not a class file - bad magic number");
+			}
+			in.getShort(); // minor version
+			in.getShort(); // major version
+			readConstantPool();
+
+			Map<String,Integer> replacementIndexes = new HashMap<>();
+			for (int i = 1; i < cpCount; i++)
+			{
+				if (cpOffsets[i] != 0 && classBytes[cpOffsets[i]] == 10) // Methodref
+				{
+					String [] replacement = replacements.get(memberKey(i));
+					if (replacement != null)
+					{
+						String key = replacement[0] + replacement[1];
+						Integer index = replacementIndexes.get(key);
+						if (index == null)
+						{
+							index = addMethodref(replacement[0],replacement[1]);
+							replacementIndexes.put(key,index);
+						}
+						methodrefMap.put(i,index);
+					}
+				}
+			}
+			if (methodrefMap.isEmpty())
+			{
+				return classBytes;
+			}
+			if (nextIndex > 0xffff)
+			{
+				throw new ClassFormatError("Constant pool too large to add exit interception entries");
+			}
+
+			byte [] patched = classBytes.clone();
+			patchMethodHandles(patched);
+			patchCode(patched);
+
+			byte [] extra = added.toByteArray();
+			byte [] result = new byte[classBytes.length + extra.length];
+			System.arraycopy(patched,0,result,0,8);
+			result[8] = (byte)(nextIndex >> 8);
+			result[9] = (byte)nextIndex;
+			System.arraycopy(patched,10,result,10,cpEnd - 10);
+			System.arraycopy(extra,0,result,cpEnd,extra.length);
+			System.arraycopy(patched,cpEnd,result,cpEnd + extra.length,classBytes.length - cpEnd);
+			return result;
+		}
+
+		private void readConstantPool()
+		{
+			cpCount = in.getShort() & 0xffff;
+			cpOffsets = new int[cpCount];
+			for (int i = 1; i < cpCount; i++)
+			{
+				cpOffsets[i] = in.position();
+				int tag = in.get();
+				switch (tag)
+				{
+				case 1: // Utf8
+					skip(in.getShort() & 0xffff);
+					break;
+				case 3: case 4: // Integer, Float
+				case 9: case 10: case 11: case 12: // Fieldref, Methodref, InterfaceMethodref, NameAndType
+				case 17: case 18: // Dynamic, InvokeDynamic
+					skip(4);
+					break;
+				case 5: case 6: // Long, Double - take two slots
+					skip(8);
+					i++;
+					break;
+				case 7: case 8: case 16: case 19: case 20: // Class, String, MethodType, Module, Package
+					skip(2);
+					break;
+				case 15: // MethodHandle
+					skip(3);
+					break;
+				default:
+					throw new ClassFormatError("Unknown constant pool tag " + tag + " at entry " + i);
+				}
+			}
+			cpEnd = in.position();
+			nextIndex = cpCount;
+		}
+
+		private void skip(int count)
+		{
+			in.position(in.position() + count);
+		}
+
+		private int u2(int offset)
+		{
+			return ((classBytes[offset] & 0xff) << 8) | (classBytes[offset + 1] & 0xff);
+		}
+
+		/**
+		 * Get a Utf8 entry - only compared with ASCII names, so decoded as Latin-1.
+		 */
+		private String utf8(int index)
+		{
+			int offset = cpOffsets[index];
+			return new String(classBytes,offset + 3,u2(offset + 1),StandardCharsets.ISO_8859_1);
+		}
+
+		/**
+		 * Get a Methodref entry as class.name descriptor.
+		 */
+		private String memberKey(int index)
+		{
+			int offset = cpOffsets[index];
+			int classNameIndex = u2(cpOffsets[u2(offset + 1)] + 1);
+			int nameAndType = cpOffsets[u2(offset + 3)];
+			return utf8(classNameIndex) + "." + utf8(u2(nameAndType + 1)) + utf8(u2(nameAndType + 3));
+		}
+
+		/**
+		 * Add the entries for a Methodref to a method of ExitInterceptor, adding its Class entry first if not already added.
+		 *
+		 * @return the index of the Methodref
+		 */
+		private int addMethodref(String name, String descriptor)
+		{
+			try
+			{
+				if (added.size() == 0)
+				{
+					addedData.writeByte(1);
+					addedData.writeUTF(INTERCEPTOR); // entry cpCount
+					addedData.writeByte(7);
+					addedData.writeShort(cpCount); // entry cpCount + 1, the Class of ExitInterceptor
+					nextIndex += 2;
+				}
+				addedData.writeByte(1);
+				addedData.writeUTF(name);
+				addedData.writeByte(1);
+				addedData.writeUTF(descriptor);
+				addedData.writeByte(12);
+				addedData.writeShort(nextIndex);
+				addedData.writeShort(nextIndex + 1);
+				addedData.writeByte(10);
+				addedData.writeShort(cpCount + 1);
+				addedData.writeShort(nextIndex + 2);
+				nextIndex += 4;
+				return nextIndex - 1;
+			}
+			catch (IOException ex)
+			{
+				throw new TestHelpError("Unexpected IOException writing to a ByteArrayOutputStream: " + ex);
+			}
+		}
+
+		/**
+		 * Change method handles to exit methods to REF_invokeStatic handles to their replacements.
+		 */
+		private void patchMethodHandles(byte [] patched)
+		{
+			for (int i = 1; i < cpCount; i++)
+			{
+				int offset = cpOffsets[i];
+				if (offset != 0 && classBytes[offset] == 15)
+				{
+					Integer replacement = methodrefMap.get(u2(offset + 2));
+					if (replacement != null)
+					{
+						patched[offset + 1] = 6; // REF_invokeStatic
+						patched[offset + 2] = (byte)(replacement >> 8);
+						patched[offset + 3] = (byte)(int)replacement;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Walk the Code attribute of each method and change calls to exit methods to invokestatic of their replacements.
+		 */
+		private void patchCode(byte [] patched)
+		{
+			in.position(cpEnd + 6); // access flags, this class, super class
+			skip(2 * (in.getShort() & 0xffff)); // interfaces
+			int fieldCount = in.getShort() & 0xffff;
+			for (int i = 0; i < fieldCount; i++)
+			{
+				skip(6);
+				skipAttributes();
+			}
+			int methodCount = in.getShort() & 0xffff;
+			for (int i = 0; i < methodCount; i++)
+			{
+				skip(6);
+				int attributeCount = in.getShort() & 0xffff;
+				for (int j = 0; j < attributeCount; j++)
+				{
+					int nameIndex = in.getShort() & 0xffff;
+					int length = in.getInt();
+					int start = in.position();
+					if (utf8(nameIndex).equals("Code"))
+					{
+						int codeLength = in.getInt(start + 4);
+						patchInstructions(patched,start + 8,codeLength);
+					}
+					in.position(start + length);
+				}
+			}
+		}
+
+		private void skipAttributes()
+		{
+			int attributeCount = in.getShort() & 0xffff;
+			for (int i = 0; i < attributeCount; i++)
+			{
+				skip(2);
+				skip(in.getInt());
+			}
+		}
+
+		private void patchInstructions(byte [] patched, int codeStart, int codeLength)
+		{
+			int pc = 0;
+			while (pc < codeLength)
+			{
+				int opcode = classBytes[codeStart + pc] & 0xff;
+				if (opcode == 0xb6 || opcode == 0xb8) // invokevirtual, invokestatic
+				{
+					Integer replacement = methodrefMap.get(u2(codeStart + pc + 1));
+					if (replacement != null)
+					{
+						patched[codeStart + pc] = (byte)0xb8;
+						patched[codeStart + pc + 1] = (byte)(replacement >> 8);
+						patched[codeStart + pc + 2] = (byte)(int)replacement;
+					}
+				}
+				pc += instructionLength(codeStart,pc,opcode);
+			}
+		}
+
+		/**
+		 * Get the length of the instruction at pc, including operands.  Switch padding is relative to the start of the code.
+		 */
+		private int instructionLength(int codeStart, int pc, int opcode)
+		{
+			switch (opcode)
+			{
+			case 0x10: case 0x12: case 0xa9: case 0xbc: // bipush, ldc, ret, newarray
+			case 0x15: case 0x16: case 0x17: case 0x18: case 0x19: // loads with index
+			case 0x36: case 0x37: case 0x38: case 0x39: case 0x3a: // stores with index
+				return 2;
+			case 0x11: case 0x13: case 0x14: case 0x84: // sipush, ldc_w, ldc2_w, iinc
+			case 0xb2: case 0xb3: case 0xb4: case 0xb5: // field access
+			case 0xb6: case 0xb7: case 0xb8: // invokevirtual, invokespecial, invokestatic
+			case 0xbb: case 0xbd: case 0xc0: case 0xc1: // new, anewarray, checkcast, instanceof
+			case 0xc6: case 0xc7: // ifnull, ifnonnull
+				return 3;
+			case 0xc5: // multianewarray
+				return 4;
+			case 0xb9: case 0xba: case 0xc8: case 0xc9: // invokeinterface, invokedynamic, goto_w, jsr_w
+				return 5;
+			case 0xc4: // wide
+				return ((classBytes[codeStart + pc + 1] & 0xff) == 0x84) ? 6 : 4;
+			case 0xaa: // tableswitch
+			{
+				int operands = codeStart + pc + 1 + ((4 - (pc + 1) % 4) % 4);
+				int low = in.getInt(operands + 4);
+				int high = in.getInt(operands + 8);
+				return operands - (codeStart + pc) + 12 + 4 * (high - low + 1);
+			}
+			case 0xab: // lookupswitch
+			{
+				int operands = codeStart + pc + 1 + ((4 - (pc + 1) % 4) % 4);
+				int pairs = in.getInt(operands + 4);
+				return operands - (codeStart + pc) + 8 + 8 * pairs;
+			}
+			default:
+				if (opcode >= 0x99 && opcode <= 0xa8) // if.., goto, jsr
+				{
+					return 3;
+				}
+				return 1;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package testHelp;
+
+/**
+ * Replacements for System.exit, Runtime.exit and Runtime.halt called by classes loaded by an {@link ExitInterceptingClassLoader},
+ * which rewrites calls to those methods as calls to these.  Each throws a {@link SystemExitError} with the exit status instead of
+ * ending the JVM.
+ * <p>
+ * Public only so rewritten classes in other packages can call it - not intended to be called directly.
+ *
+ * @author John Armstrong
+ */
+public final class ExitInterceptor
+{
+	private ExitInterceptor()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * Replacement for System.exit(status).
+	 *
+	 * @param status the exit status
+	 * @throws SystemExitError always
+	 */
+	public static void exit(int status)
+	{
+		throw new SystemExitError("System.exit(" + status + ") called",status);
+	}
+
+	/**
+	 * Replacement for runtime.exit(status).
+	 *
+	 * @param runtime the Runtime exit was called on - ignored
+	 * @param status the exit status
+	 * @throws SystemExitError always
+	 */
+	public static void exit(Runtime runtime, int status)
+	{
+		throw new SystemExitError("Runtime.exit(" + status + ") called",status);
+	}
+
+	/**
+	 * Replacement for runtime.halt(status).
+	 *
+	 * @param runtime the Runtime halt was called on - ignored
+	 * @param status the exit status
+	 * @throws SystemExitError always
+	 */
+	public static void halt(Runtime runtime, int status)
+	{
+		throw new SystemExitError("Runtime.halt(" + status + ") called",status);
+	}
+
+}
@@ -0,0 +1,91 @@
+package testHelp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * An internal (package-private) FilterInputStream which keeps a copy of the first bytes read and counts all bytes read.  Used by
+ * ConsoleTester getOutput methods which take input as an InputStream to make a bounded preview of the input for printing as INPUT
+ * with other output info.
+ *
+ * @author John Armstrong
+ */
+class InputPreviewStream extends FilterInputStream
+{
+	/**
+	 * Number of bytes kept for the preview.
+	 */
+	static final int PREVIEW_BYTES = 1000;
+
+	private final ByteArrayOutputStream preview = new ByteArrayOutputStream();
+	private long total;
+
+	/**
+	 * Create an InputPreviewStream.
+	 *
+	 * @param in the stream to read from
+	 */
+	InputPreviewStream(InputStream in)
+	{
+		super(in);
+	}
+
+	@Override
+	public synchronized int read() throws IOException
+	{
+		int b = in.read();
+		if (b >= 0)
+		{
+			record(new byte[] {(byte)b},0,1);
+		}
+		return b;
+	}
+
+	@Override
+	public synchronized int read(byte b[], int off, int len) throws IOException
+	{
+		int n = in.read(b,off,len);
+		if (n > 0)
+		{
+			record(b,off,n);
+		}
+		return n;
+	}
+
+	@Override
+	public synchronized long skip(long n) throws IOException
+	{
+		long skipped = in.skip(n);
+		total += skipped;
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return false; // reset would make the preview and count wrong
+	}
+
+	private void record(byte b[], int off, int len)
+	{
+		int keep = Math.min(len,Math.max(0,PREVIEW_BYTES - preview.size()));
+		preview.write(b,off,keep);
+		total += len;
+	}
+
+	/**
+	 * Get the preview - the first bytes read, followed by the number of bytes read if there were more.
+	 *
+	 * @param charset the encoding of the input
+	 * @return the preview
+	 */
+	synchronized String getPreview(Charset charset)
+	{
+		String text = new String(preview.toByteArray(),charset);
+		return (total <= preview.size()) ? text : String.format("%s%n[... %d bytes read in all]",text,total);
+	}
+
+}
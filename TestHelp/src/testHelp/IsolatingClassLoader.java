@@ -0,0 +1,109 @@
+package testHelp;
+
+/**
+ * A class loader that loads classes whose names start with given prefixes itself, rather than through its parent, so they are
+ * distinct from the same classes loaded by the parent and by other IsolatingClassLoaders, with their own static fields - see
+ * {@link ConsoleTester#setClassIsolation}.  Other classes are loaded by the parent as usual.
+ * <p>
+ * Class files are read through the parent, and (for subclasses) transformed, once, and kept in a cache shared by all loaders with
+ * the same parent (see ClassBytesCache), so a new loader costs only the definition of the classes it loads - there is no file reading
+ * or parsing per loader.
+ * <p>
+ * The classes of testHelp itself are never loaded by the loader unless a prefix names them more closely than the package as a whole,
+ * as {@literal "testHelp.MyTestMain"}, so code run shares ConsoleTester, its streams and its settings with the tests.
+ *
+ * @author John Armstrong
+ */
+public class IsolatingClassLoader extends ClassLoader
+{
+	static
+	{
+		registerAsParallelCapable();
+	}
+
+	private static final String TESTHELP_PACKAGE_PREFIX = "testHelp.";
+
+	private final String [] classNamePrefixes;
+
+	/**
+	 * Make a loader that loads classes whose names start with any of a number of prefixes, and delegates loading of others to a parent.
+	 *
+	 * @param parent the loader to read class files through and to delegate other classes to
+	 * @param classNamePrefixes prefixes of the binary names of the classes to load, as {@literal "myPackage."} or {@literal "MyClass"}
+	 */
+	public IsolatingClassLoader(ClassLoader parent, String... classNamePrefixes)
+	{
+		super(parent);
+		this.classNamePrefixes = classNamePrefixes.clone();
+	}
+
+	/**
+	 * Get whether a class is loaded by this loader, rather than by its parent.
+	 *
+	 * @param className the binary name of the class
+	 * @return true if the name starts with one of the prefixes, and, for a class of package testHelp, the prefix is longer than
+	 * 	{@literal "testHelp."}
+	 */
+	public boolean intercepts(String className)
+	{
+		boolean inTestHelp = className.startsWith(TESTHELP_PACKAGE_PREFIX);
+		for (String prefix : classNamePrefixes)
+		{
+			if (className.startsWith(prefix) && (!inTestHelp || prefix.length() > TESTHELP_PACKAGE_PREFIX.length()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the prefixes of the names of the classes loaded by this loader.
+	 */
+	String [] getClassNamePrefixes()
+	{
+		return classNamePrefixes.clone();
+	}
+
+	@Override
+	protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+	{
+		if (!intercepts(name))
+		{
+			return super.loadClass(name,resolve);
+		}
+		synchronized (getClassLoadingLock(name))
+		{
+			Class<?> loaded = findLoadedClass(name);
+			if (loaded == null)
+			{
+				loaded = findClass(name);
+			}
+			if (resolve)
+			{
+				resolveClass(loaded);
+			}
+			return loaded;
+		}
+	}
+
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException
+	{
+		byte [] classBytes = ClassBytesCache.get(getParent(),name,getClass(),this::transform);
+		return defineClass(name,classBytes,0,classBytes.length);
+	}
+
+	/**
+	 * Transform the class file of a class before it is defined - called once per class per parent, since the result is cached.  The
+	 * class file returned must not be changed afterwards.
+	 *
+	 * @param classBytes the class file as read through the parent
+	 * @return the class file to define - classBytes itself, unchanged, here
+	 */
+	protected byte [] transform(byte [] classBytes)
+	{
+		return classBytes;
+	}
+
+}
@@ -0,0 +1,357 @@
+package testHelp;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Internal (package-private) live tee of one captured stream of a getOutput run to the real console - see
+ * {@link ConsoleTester#setLiveTee(boolean, long)}.
+ * <p>
+ * A LiveTee is set as the tee of a {@link CaptureOutputStream}, so every byte the code under test writes is also written to it.  A
+ * write never blocks: the bytes are copied and put on a queue shared by all LiveTees, bounded by {@link #QUEUE_CAPACITY_BYTES}, and
+ * a single daemon writer thread takes them off the queue and writes them to the console, starting each line with a prefix.  Writes
+ * that would overfill the queue are dropped, as are lines beyond a rate limit of bytes per second, which the writer applies to each
+ * LiveTee with a token bucket holding at most one second's worth of bytes.  Dropped bytes are counted and reported on the console
+ * in a line of the form
+ * <pre>
+   [out] [... 123456 bytes not shown]</pre>
+ * before the next bytes shown, or when the LiveTee is closed at the end of the run.
+ * <p>
+ * The queue is a ConcurrentLinkedQueue, which is lock-free, and the writer is woken with LockSupport.unpark, which does not block,
+ * so the code under test never waits for the console, or for another thread writing to it.  The writer parks without a timeout while
+ * the queue is empty, so it costs nothing between runs.
+ *
+ * @author John Armstrong
+ */
+final class LiveTee extends OutputStream
+{
+	/**
+	 * Most bytes held on the queue, over all LiveTees, waiting to be written to the console.
+	 */
+	static final int QUEUE_CAPACITY_BYTES = 1 << 20;
+
+	/**
+	 * Default rate limit, in bytes per second per stream.
+	 */
+	static final long DEFAULT_MAX_BYTES_PER_SECOND = 64 * 1024;
+
+	/**
+	 * Most milliseconds {@link #closeAndDrain} waits for the writer to catch up.
+	 */
+	static final long DRAIN_MILLIS = 1000;
+
+	private static final ConcurrentLinkedQueue<Chunk> queue = new ConcurrentLinkedQueue<>();
+	private static final AtomicLong queuedBytes = new AtomicLong(); // bytes on the queue
+	private static final AtomicLong chunksQueued = new AtomicLong();
+	private static volatile long chunksDone; // chunks taken off the queue and written or dropped - written by writer only
+	private static volatile Thread writer; // started by the first LiveTee
+
+	private final PrintStream console;
+	private final byte [] prefix;
+	private final long maxBytesPerSecond; // 0 or less for no limit
+	private final AtomicLong dropped = new AtomicLong(); // bytes dropped and not yet reported
+	private volatile boolean closed;
+
+	// Used by writer thread only
+	private boolean atLineStart = true;
+	private boolean dropping; // dropping bytes for the rate limit
+	private double tokens;
+	private long lastRefillNanos;
+
+	/**
+	 * A run of bytes written to a LiveTee, or a marker that the LiveTee has been closed.
+	 */
+	private static final class Chunk
+	{
+		final LiveTee tee;
+		final byte [] bytes; // null for close marker
+
+		Chunk(LiveTee tee, byte [] bytes)
+		{
+			this.tee = tee;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Create a LiveTee, starting the writer thread if this is the first.
+	 *
+	 * @param console the stream to write to - the real System.out or System.err
+	 * @param prefix text written at the start of each line, in the encoding of the captured bytes
+	 * @param maxBytesPerSecond rate limit, 0 or less for none
+	 */
+	LiveTee(PrintStream console, byte [] prefix, long maxBytesPerSecond)
+	{
+		this.console = console;
+		this.prefix = prefix;
+		this.maxBytesPerSecond = maxBytesPerSecond;
+		this.tokens = maxBytesPerSecond;
+		this.lastRefillNanos = System.nanoTime();
+		startWriter();
+	}
+
+	@Override
+	public void write(int b)
+	{
+		write(new byte[] {(byte)b},0,1);
+	}
+
+	@Override
+	public void write(byte b[], int off, int len)
+	{
+		if (closed || len <= 0)
+		{
+			return;
+		}
+		if (queuedBytes.addAndGet(len) > QUEUE_CAPACITY_BYTES)
+		{
+			queuedBytes.addAndGet(-len);
+			dropped.addAndGet(len);
+			return;
+		}
+		byte [] bytes = new byte[len];
+		System.arraycopy(b,off,bytes,0,len);
+		offer(new Chunk(this,bytes));
+	}
+
+	/**
+	 * Stop queuing bytes written and queue a marker on which the writer reports any bytes dropped and ends an unfinished line.
+	 * Does nothing if already closed.
+	 */
+	@Override
+	public void close()
+	{
+		if (closed)
+		{
+			return;
+		}
+		closed = true;
+		offer(new Chunk(this,null));
+	}
+
+	/**
+	 * Close LiveTees and wait, for at most {@link #DRAIN_MILLIS}, until the writer has written all bytes queued, so the console
+	 * output of a run appears before what the test prints about the run.  Called by the test thread at the end of a run - never by
+	 * the code under test.
+	 *
+	 * @param tees the LiveTees to close - null entries are skipped
+	 */
+	static void closeAndDrain(LiveTee... tees)
+	{
+		for (LiveTee tee : tees)
+		{
+			if (tee != null)
+			{
+				tee.close();
+			}
+		}
+		long target = chunksQueued.get();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_MILLIS);
+		while (chunksDone < target && System.nanoTime() < deadline)
+		{
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+
+	private static void offer(Chunk chunk)
+	{
+		queue.offer(chunk);
+		chunksQueued.incrementAndGet();
+		LockSupport.unpark(writer);
+	}
+
+	private static synchronized void startWriter()
+	{
+		if (writer != null)
+		{
+			return;
+		}
+		Thread thread = new Thread(LiveTee::writeQueued,"testHelp LiveTee writer");
+		thread.setDaemon(true);
+		writer = thread;
+		thread.start();
+	}
+
+	/**
+	 * Body of the writer thread - take chunks off the queue and write them, flushing the consoles written to when the queue is empty.
+	 */
+	private static void writeQueued()
+	{
+		PrintStream [] toFlush = new PrintStream[2];
+		while (true)
+		{
+			Chunk chunk = queue.poll();
+			if (chunk == null)
+			{
+				for (int i = 0; i < toFlush.length; i++)
+				{
+					if (toFlush[i] != null)
+					{
+						toFlush[i].flush();
+						toFlush[i] = null;
+					}
+				}
+				LockSupport.park(); // until offer unparks it - a permit given before this is not lost
+				continue;
+			}
+			try
+			{
+				if (chunk.bytes == null)
+				{
+					chunk.tee.finish();
+				}
+				else
+				{
+					queuedBytes.addAndGet(-chunk.bytes.length);
+					chunk.tee.show(chunk.bytes);
+				}
+				PrintStream console = chunk.tee.console;
+				if (toFlush[0] == null || toFlush[0] == console)
+				{
+					toFlush[0] = console;
+				}
+				else if (toFlush[1] == null || toFlush[1] == console)
+				{
+					toFlush[1] = console;
+				}
+				else
+				{
+					console.flush(); // more than two consoles - not normally the case
+				}
+			}
+			catch (RuntimeException ex)
+			{
+				// nothing to do - a console that throws loses the tee output, not the run
+			}
+			chunksDone = chunksDone + 1;
+		}
+	}
+
+	/**
+	 * Write bytes within the rate limit, dropping the rest.  Bytes are dropped a line at a time: once over the limit, bytes are dropped
+	 * to the end of the line, and lines are dropped until a tenth of a second's worth of bytes is available again.
+	 */
+	private void show(byte [] bytes)
+	{
+		int from = 0;
+		int to = bytes.length;
+		if (maxBytesPerSecond > 0)
+		{
+			long now = System.nanoTime();
+			tokens = Math.min(maxBytesPerSecond,tokens + (now - lastRefillNanos) * (maxBytesPerSecond / 1e9));
+			lastRefillNanos = now;
+
+			while (dropping && from < to)
+			{
+				int end = indexOfNewline(bytes,from,to) + 1;
+				if (end == 0)
+				{
+					end = to;
+				}
+				else if (tokens >= Math.max(1,maxBytesPerSecond / 10))
+				{
+					dropping = false;
+				}
+				dropped.addAndGet(end - from);
+				from = end;
+			}
+			if (to - from > tokens)
+			{
+				// show only whole lines within the limit
+				int end = from;
+				for (int i = from; i < from + (int)tokens; i++)
+				{
+					if (bytes[i] == '\n')
+					{
+						end = i + 1;
+					}
+				}
+				dropped.addAndGet(to - end);
+				to = end;
+				dropping = true;
+			}
+			tokens -= to - from;
+		}
+		if (from < to)
+		{
+			reportDropped();
+			writeLines(bytes,from,to);
+		}
+	}
+
+	private static int indexOfNewline(byte [] bytes, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			if (bytes[i] == '\n')
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Report bytes dropped and end an unfinished line.
+	 */
+	private void finish()
+	{
+		reportDropped();
+		if (!atLineStart)
+		{
+			console.println();
+			atLineStart = true;
+		}
+	}
+
+	private void reportDropped()
+	{
+		long count = dropped.getAndSet(0);
+		if (count > 0)
+		{
+			if (!atLineStart)
+			{
+				console.println();
+			}
+			console.write(prefix,0,prefix.length);
+			console.println("[... " + count + " bytes not shown]");
+			atLineStart = true;
+		}
+	}
+
+	/**
+	 * Write bytes, starting each line with the prefix.
+	 */
+	private void writeLines(byte [] bytes, int from, int to)
+	{
+		int start = from;
+		for (int i = from; i < to; i++)
+		{
+			if (bytes[i] == '\n')
+			{
+				if (atLineStart)
+				{
+					console.write(prefix,0,prefix.length);
+				}
+				console.write(bytes,start,i + 1 - start);
+				start = i + 1;
+				atLineStart = true;
+			}
+		}
+		if (start < to)
+		{
+			if (atLineStart)
+			{
+				console.write(prefix,0,prefix.length);
+			}
+			console.write(bytes,start,to - start);
+			atLineStart = false;
+		}
+	}
+
+}
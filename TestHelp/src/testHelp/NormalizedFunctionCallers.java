@@ -8,7 +8,13 @@ import java.util.concurrent.Callable;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
 import java.util.function.Supplier;
 
 import static testHelp.AssertionTools.failF;
@@ -246,4 +252,148 @@ public interface NormalizedFunctionCallers {
 		return getExceptionFromVTriFunction(vTriFunction,arg1,arg2,arg3,desc);
 	}
 	
+	/* 
+	 * getValueFrom..Function and getExceptionFrom..Function methods for functions on primitives, called directly rather than through
+	 * the boxing normalizers of FunctionNormalizers, so arguments and values stay unboxed and a call that returns normally allocates
+	 * nothing - for numeric functions called millions of times
+	 */
+	
+	// IntUnaryOperator
+	
+	public static int getReturnValueFromIntVFunction(IntUnaryOperator oneArgFunction, int arg, String desc) {
+		try {
+			return oneArgFunction.applyAsInt(arg);
+		} catch (Throwable ex) {
+			failWithExceptionF("Function %s called with arg [%s] threw exception %s",desc,arg,ex,ex);
+			return 0;
+		}
+	}
+
+	public static Throwable getExceptionFromIntVFunction(IntUnaryOperator oneArgFunction, int arg, String desc) {
+		try {
+			int value = oneArgFunction.applyAsInt(arg);
+			failF("Function %s called with arg [%s] returned value [%s] instead of throwing exception",desc,arg,value);
+			return null;
+		} catch (java.lang.AssertionError ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			return ex;
+		}
+	}
+	
+	// IntBinaryOperator
+	
+	public static int getReturnValueFromIntVBiFunction(IntBinaryOperator twoArgFunction, int arg1, int arg2, String desc) {
+		try {
+			return twoArgFunction.applyAsInt(arg1,arg2);
+		} catch (Throwable ex) {
+			failWithExceptionF("Function %s called with arg1 [%s] arg2 [%s] threw exception %s",desc,arg1,arg2,ex,ex);
+			return 0;
+		}
+	}
+
+	public static Throwable getExceptionFromIntVBiFunction(IntBinaryOperator twoArgFunction, int arg1, int arg2, String desc) {
+		try {
+			int value = twoArgFunction.applyAsInt(arg1,arg2);
+			failF("Function %s called with arg1 [%s] arg2 [%s] returned value [%s] instead of throwing exception",desc,arg1,arg2,value);
+			return null;
+		} catch (java.lang.AssertionError ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			return ex;
+		}
+	}
+
+	// LongUnaryOperator
+	
+	public static long getReturnValueFromLongVFunction(LongUnaryOperator oneArgFunction, long arg, String desc) {
+		try {
+			return oneArgFunction.applyAsLong(arg);
+		} catch (Throwable ex) {
+			failWithExceptionF("Function %s called with arg [%s] threw exception %s",desc,arg,ex,ex);
+			return 0;
+		}
+	}
+
+	public static Throwable getExceptionFromLongVFunction(LongUnaryOperator oneArgFunction, long arg, String desc) {
+		try {
+			long value = oneArgFunction.applyAsLong(arg);
+			failF("Function %s called with arg [%s] returned value [%s] instead of throwing exception",desc,arg,value);
+			return null;
+		} catch (java.lang.AssertionError ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			return ex;
+		}
+	}
+	
+	// LongBinaryOperator
+	
+	public static long getReturnValueFromLongVBiFunction(LongBinaryOperator twoArgFunction, long arg1, long arg2, String desc) {
+		try {
+			return twoArgFunction.applyAsLong(arg1,arg2);
+		} catch (Throwable ex) {
+			failWithExceptionF("Function %s called with arg1 [%s] arg2 [%s] threw exception %s",desc,arg1,arg2,ex,ex);
+			return 0;
+		}
+	}
+
+	public static Throwable getExceptionFromLongVBiFunction(LongBinaryOperator twoArgFunction, long arg1, long arg2, String desc) {
+		try {
+			long value = twoArgFunction.applyAsLong(arg1,arg2);
+			failF("Function %s called with arg1 [%s] arg2 [%s] returned value [%s] instead of throwing exception",desc,arg1,arg2,value);
+			return null;
+		} catch (java.lang.AssertionError ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			return ex;
+		}
+	}
+
+	// DoubleUnaryOperator
+	
+	public static double getReturnValueFromDoubleVFunction(DoubleUnaryOperator oneArgFunction, double arg, String desc) {
+		try {
+			return oneArgFunction.applyAsDouble(arg);
+		} catch (Throwable ex) {
+			failWithExceptionF("Function %s called with arg [%s] threw exception %s",desc,arg,ex,ex);
+			return 0;
+		}
+	}
+
+	public static Throwable getExceptionFromDoubleVFunction(DoubleUnaryOperator oneArgFunction, double arg, String desc) {
+		try {
+			double value = oneArgFunction.applyAsDouble(arg);
+			failF("Function %s called with arg [%s] returned value [%s] instead of throwing exception",desc,arg,value);
+			return null;
+		} catch (java.lang.AssertionError ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			return ex;
+		}
+	}
+	
+	// DoubleBinaryOperator
+	
+	public static double getReturnValueFromDoubleVBiFunction(DoubleBinaryOperator twoArgFunction, double arg1, double arg2, String desc) {
+		try {
+			return twoArgFunction.applyAsDouble(arg1,arg2);
+		} catch (Throwable ex) {
+			failWithExceptionF("Function %s called with arg1 [%s] arg2 [%s] threw exception %s",desc,arg1,arg2,ex,ex);
+			return 0;
+		}
+	}
+
+	public static Throwable getExceptionFromDoubleVBiFunction(DoubleBinaryOperator twoArgFunction, double arg1, double arg2, String desc) {
+		try {
+			double value = twoArgFunction.applyAsDouble(arg1,arg2);
+			failF("Function %s called with arg1 [%s] arg2 [%s] returned value [%s] instead of throwing exception",desc,arg1,arg2,value);
+			return null;
+		} catch (java.lang.AssertionError ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			return ex;
+		}
+	}
+
 }
@@ -0,0 +1,330 @@
+package testHelp;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * Represents the output expected from a ConsoleTester getOutput run, as a source of lines, for streaming comparison with captured
+ * output to System.out as it is written - see {@link ConsoleTester#getOutputFromVFunction(VFunction, Object, String, OutputExpectation, String)}.
+ * <p>
+ * Each time a line of output is completed it is compared with the next expected line.  At the first line that differs the write
+ * throws {@link OutputMismatchError}, which stops the run, and the divergence point (line number, byte offset, expected and actual line)
+ * is recorded in OutputInfo.  Lines are compared exactly except that a trailing carriage return is ignored, so expectations can be
+ * written with "\n" line separators on any platform.  Empty output lines after the last expected line are allowed, as they would
+ * be removed when output is trimmed.  If the run ends before all expected lines have been written, the mismatch is recorded but
+ * nothing is thrown.
+ * <p>
+ * Expectations from a String or a file can be used for any number of runs; an expectation from an Iterator can be used for one run.
+ *
+ * @author John Armstrong
+ */
+public class OutputExpectation
+{
+	private final Supplier<Iterator<String>> lines;
+	private final String desc;
+
+	private OutputExpectation(Supplier<Iterator<String>> lines, String desc)
+	{
+		this.lines = lines;
+		this.desc = desc;
+	}
+
+	/**
+	 * Make an expectation of output with the lines of a String, as separated by "\n", "\r\n" or "\r".  A trailing line separator is
+	 * optional.
+	 *
+	 * @param expected the expected output
+	 * @return the expectation
+	 */
+	public static OutputExpectation fromString(String expected)
+	{
+		String [] split = expected.split("\\R",-1);
+		int count = (split.length > 0 && split[split.length - 1].isEmpty()) ? split.length - 1 : split.length;
+		String [] expectedLines = Arrays.copyOf(split,count);
+		return new OutputExpectation(() -> Arrays.asList(expectedLines).iterator(),"string");
+	}
+
+	/**
+	 * Make an expectation of output with the lines of a UTF-8 text file, read as they are compared, so the file need not fit in memory.
+	 *
+	 * @param path the file with the expected output
+	 * @return the expectation
+	 */
+	public static OutputExpectation fromFile(Path path)
+	{
+		return fromFile(path,StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Make an expectation of output with the lines of a text file, read as they are compared, so the file need not fit in memory.
+	 *
+	 * @param path the file with the expected output
+	 * @param charset the encoding of the file
+	 * @return the expectation
+	 */
+	public static OutputExpectation fromFile(Path path, Charset charset)
+	{
+		return new OutputExpectation(() -> new FileLineIterator(path,charset),"file " + path);
+	}
+
+	/**
+	 * Make an expectation of output with the lines returned by an Iterator, which are requested only as they are compared, so they
+	 * can be generated.  Can be used for one run only.
+	 *
+	 * @param expectedLines the expected lines, without line separators
+	 * @return the expectation
+	 */
+	public static OutputExpectation fromLines(Iterator<String> expectedLines)
+	{
+		boolean [] used = new boolean[1];
+		return new OutputExpectation(() -> {
+			if (used[0])
+			{
+				throw new TestHelpError("OutputExpectation.fromLines used for more than one run");
+			}
+			used[0] = true;
+			return expectedLines;
+		},"lines");
+	}
+
+	/**
+	 * Get a new comparer of output with this expectation, for one run.
+	 */
+	Comparer newComparer(Charset charset)
+	{
+		return new Comparer(lines.get(),charset);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "OutputExpectation from " + desc;
+	}
+
+	// ==========================================================================================
+	//
+	// Comparer
+	//
+	// ==========================================================================================
+
+	/**
+	 * Internal (package-private) comparer of output bytes, written by CaptureOutputStream as they are captured, with the expected lines.
+	 */
+	static class Comparer
+	{
+		private final Iterator<String> expectedLines;
+		private final Charset charset;
+
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+		private long lineNumber; // of the current line, from 1
+		private long lineOffset; // byte offset of the start of the current line
+		private long offset; // bytes compared so far
+
+		private String mismatch;
+		private boolean ended;
+
+		private Comparer(Iterator<String> expectedLines, Charset charset)
+		{
+			this.expectedLines = expectedLines;
+			this.charset = charset;
+			this.lineNumber = 1;
+		}
+
+		/**
+		 * Compare bytes written to the captured output, completing a line at each "\n".
+		 *
+		 * @throws OutputMismatchError at the first line that differs from the expected line, and on every later write
+		 */
+		void write(byte b[], int off, int len)
+		{
+			if (ended)
+			{
+				return;
+			}
+			if (mismatch != null)
+			{
+				throw new OutputMismatchError(mismatch);
+			}
+
+			int start = off;
+			for (int i = off; i < off + len; i++)
+			{
+				if (b[i] == '\n')
+				{
+					line.write(b,start,i - start);
+					offset += i - start + 1;
+					start = i + 1;
+					if (!compareLine())
+					{
+						throw new OutputMismatchError(mismatch);
+					}
+				}
+			}
+			line.write(b,start,off + len - start);
+			offset += off + len - start;
+		}
+
+		/**
+		 * Compare the current line with the next expected line, and start a new line.
+		 *
+		 * @return false if they differ, after recording the mismatch
+		 */
+		private boolean compareLine()
+		{
+			String actual = new String(line.toByteArray(),charset);
+			if (actual.endsWith("\r"))
+			{
+				actual = actual.substring(0,actual.length() - 1);
+			}
+
+			if (expectedLines.hasNext())
+			{
+				String expected = expectedLines.next();
+				if (!expected.equals(actual))
+				{
+					mismatch = String.format("line %d (byte offset %d): expected '%s' but found '%s'",lineNumber,lineOffset,expected,actual);
+				}
+			}
+			else if (!actual.isEmpty())
+			{
+				mismatch = String.format("line %d (byte offset %d): expected end of output but found '%s'",lineNumber,lineOffset,actual);
+			}
+
+			line.reset();
+			lineNumber++;
+			lineOffset = offset;
+			return mismatch == null;
+		}
+
+		/**
+		 * End comparison at the end of a run - compare any incomplete last line and check that no expected lines remain.  Does not
+		 * throw, and does nothing if called again.
+		 */
+		void end()
+		{
+			if (ended)
+			{
+				return;
+			}
+			ended = true;
+
+			if (mismatch == null && line.size() > 0)
+			{
+				compareLine();
+			}
+			while (mismatch == null && expectedLines.hasNext())
+			{
+				String expected = expectedLines.next();
+				if (!expected.isEmpty()) // empty lines at end would be removed when output is trimmed
+				{
+					mismatch = String.format("line %d (byte offset %d): expected '%s' but output ended",lineNumber,lineOffset,expected);
+				}
+			}
+			if (expectedLines instanceof AutoCloseable)
+			{
+				try
+				{
+					((AutoCloseable)expectedLines).close();
+				}
+				catch (Exception ex)
+				{
+					// nothing to do - file was only read
+				}
+			}
+		}
+
+		/**
+		 * Get a description of where output first differed from the expected output.
+		 *
+		 * @return a description of the form {@literal "line <n> (byte offset <offset>): expected '<expected>' but found '<actual>'"}, or null if
+		 * 	output has matched so far
+		 */
+		String getMismatchDescription()
+		{
+			return mismatch;
+		}
+	}
+
+	/**
+	 * Iterator over the lines of a file, opened on first use and closed at the end of the file or by the Comparer.
+	 */
+	private static class FileLineIterator implements Iterator<String>, AutoCloseable
+	{
+		private final Path path;
+		private final Charset charset;
+		private BufferedReader reader;
+		private String next;
+		private boolean done;
+
+		FileLineIterator(Path path, Charset charset)
+		{
+			this.path = path;
+			this.charset = charset;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if (next == null && !done)
+			{
+				try
+				{
+					if (reader == null)
+					{
+						reader = Files.newBufferedReader(path,charset);
+					}
+					next = reader.readLine();
+				}
+				catch (IOException ex)
+				{
+					throw new TestHelpError("Could not read expected output from " + path,ex);
+				}
+				if (next == null)
+				{
+					close();
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public String next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			String line = next;
+			next = null;
+			return line;
+		}
+
+		@Override
+		public void close()
+		{
+			done = true;
+			if (reader != null)
+			{
+				try
+				{
+					reader.close();
+				}
+				catch (IOException ex)
+				{
+					// nothing to do - file was only read
+				}
+				reader = null;
+			}
+		}
+	}
+
+}
@@ -1,9 +1,9 @@
 package testHelp;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An internal (package-private) class which holds data accumulated and used in ConsoleTester.getOutput and Assertion classes and provides methods for
@@ -13,7 +13,7 @@ import java.io.PrintStream;
  * The printing methods can be called directly in tests, but they are normally called indirectly through methods in other classes/interfaces,
  * which in turn may be called directly in tests but are normally called internally within the other classes/interfaces.
  * <p>
- * Three static methods, which print only data stored in OutputInfo (or more exactly, in {@link OutputInfo#info}), are indirectly callable through
+ * Three static methods, which print only data stored in OutputInfo (or more exactly, in {@link OutputInfo#info()}), are indirectly callable through
  * corresponding public static methods in public class ConsoleTester: 
  * <br>
  * <ul>
@@ -109,22 +109,35 @@ class OutputInfo
 	/**
 	 * The number of the last test detected.  Starts at zero, is incremented each time a new test is detected.
 	 * <p>
-	 * Persists for lifetime of unittest run under normal junit operation where test class is loaded only once.
+	 * Persists for lifetime of unittest run under normal junit operation where test class is loaded only once.  Atomic, since with
+	 * thread-scoped capture tests on several threads are detected at once - each OutputInfo keeps its own number in {@link #testNumber}.
 	 */
-	static int testNum = 0;
+	static final AtomicInteger testNum = new AtomicInteger();
 
 
 	/**
-	 * Static reference to the one and only instance (at any time) of an OutputInfo object.
+	 * Static reference to the one and only instance (at any time) of an OutputInfo object shared by all threads - used when
+	 * {@link #threadScoped} is false.
 	 */
-	static OutputInfo info;
+	private static OutputInfo sharedInfo;
+
+	/**
+	 * Per-thread instances of OutputInfo - used when {@link #threadScoped} is true.
+	 */
+	private static final ThreadLocal<OutputInfo> threadInfo = new ThreadLocal<>();
+
+	/**
+	 * If true each thread has its own OutputInfo object, otherwise all threads share a single one.  Set by
+	 * {@link ConsoleTester#setThreadScopedCapture(boolean)}.
+	 */
+	static volatile boolean threadScoped = false;
 	
 	/**
 	 * Used in diagnostics that identify caller of test method - used by {@link #getTestNameInfo()}.
 	 */
 	static final String testClassCallerClassName = "sun.reflect.NativeMethodAccessorImpl";
 	
-	// Instance fields (in OutputInfo.info)
+	// Instance fields (in OutputInfo.info())
 
 	// ======================================
 	//
@@ -136,12 +149,30 @@ class OutputInfo
 	 * object containing test name info for current test.
 	 */
 	TestNameInfo testNameInfo;
+
+	/**
+	 * The number of the test, from {@link #testNum} when the test was detected.
+	 */
+	int testNumber;
 	
 	/**
 	 * return value from vFunction or vUnBoundMethod when called within getOutput method, otherwise null
 	 */
 	Object value;
 
+	/**
+	 * return value from a function on primitives run by ConsoleTester.getOutputFromIntVFunction, getOutputFromLongVFunction or
+	 * getOutputFromDoubleVFunction, held unboxed - in longValue for an int or long value, in doubleValue for a double value -
+	 * with primitiveValueKind {@link #INT_VALUE}, {@link #LONG_VALUE} or {@link #DOUBLE_VALUE}, or 0 if there is no such value
+	 */
+	char primitiveValueKind;
+	long longValue;
+	double doubleValue;
+
+	static final char INT_VALUE = 'I';
+	static final char LONG_VALUE = 'J';
+	static final char DOUBLE_VALUE = 'D';
+
 	/**
 	 * set by getOutputFromException called directly or within bundled getOutput method when there is an exception,
 	 * otherwise null.
@@ -162,7 +193,8 @@ class OutputInfo
 	String description;
 
 	/** 
-	 * The input string passed to getOutputStart and bundled getOutput methods that calls it.
+	 * The input string passed to getOutputStart and bundled getOutput methods that calls it, or for getOutput..WithInputStream
+	 * methods a preview of the input read - the first bytes read and the number of bytes read.
 	 * <p>
 	 * Printed by printInfo as "INPUT: " + value.
 	 */
@@ -180,6 +212,33 @@ class OutputInfo
 	 * Note: this behavior is for backwards compatibility with the original version of testHelp.
 	 */
 	String output;
+
+	/**
+	 * Captured output to System.out as a CharSequence view returned by ConsoleTester.getOutputFinishAsView or
+	 * ConsoleTester.getOutputViewFromVFunction, in which case {@link #output} is null - for very large outputs the view is over a
+	 * memory-mapped temporary file rather than a String (see ConsoleTester.setSpillThreshold).
+	 * <p>
+	 * Printed as "OUTPUT [VIEW]: " + the first {@link #VIEW_PREVIEW_LENGTH} characters of value and its length.
+	 */
+	CharSequence outputView;
+
+	/**
+	 * Number of characters of {@link #outputView} printed by printInfo.
+	 */
+	static final int VIEW_PREVIEW_LENGTH = 1000;
+
+	/**
+	 * Captured output to System.out as bytes returned by ConsoleTester.getOutputFinishAsBytes or ConsoleTester.getOutputBytesFromVFunction,
+	 * neither decoded nor trimmed, in which case {@link #output} is null.
+	 * <p>
+	 * Printed as "OUTPUT [BINARY]: " + the number of bytes and the first {@link #BINARY_PREVIEW_LENGTH} bytes in hex.
+	 */
+	ByteBuffer outputBinary;
+
+	/**
+	 * Number of bytes of {@link #outputBinary} printed by printInfo.
+	 */
+	static final int BINARY_PREVIEW_LENGTH = 64;
 	
 	/**
 	 * Captured output to System.out up to the point when an exception is thrown.
@@ -190,7 +249,8 @@ class OutputInfo
 	String outputBeforeException;
 	
 	/**
-	 * Captured output to System.err.  Is not printed, but is used to make {@link #chunkedErrorOutput}, which is printed.
+	 * Captured output to System.err.  Is not printed, but is used to make {@link #chunkedErrorOutput}, which is printed.  Null until
+	 * decoded from {@link #errorBytes} by {@link #processErrorOutput}.
 	 */
 	String errorOutput;
 	
@@ -199,6 +259,64 @@ class OutputInfo
 	 */
 	String errorAndExceptionSummary;
 	
+	/**
+	 * Description of the bytes of output to System.out discarded because the output limit was exceeded, or null if it was not.
+	 * <p>
+	 * Printed as "OUTPUT [LIMIT EXCEEDED]: " + value.
+	 */
+	String outputLimitExceeded;
+
+	/**
+	 * Transcript of a dialogue run with ConsoleTester.getOutputFromDialogue or getOutputFromVFunctionWithDialogue - output received,
+	 * each line prefixed by "&lt; ", and lines sent, prefixed by "&gt; ", in order, followed by a line prefixed by "! " if the
+	 * dialogue failed.  Null for other getOutput methods.
+	 * <p>
+	 * Printed as "DIALOGUE: " + value.
+	 */
+	String dialogueTranscript;
+
+	/**
+	 * Description of the point at which output to System.out first differed from the OutputExpectation passed to a getOutput method,
+	 * or null if it did not or there was no expectation.
+	 * <p>
+	 * Printed as "OUTPUT [MISMATCH]: " + value.
+	 */
+	String outputMismatch;
+
+	/**
+	 * Description of the threads started by the code run that were still running at the join deadline and were cut off from its
+	 * output, or null if there were none or spawned thread tracking is off - see ConsoleTester.setSpawnedThreadTracking.
+	 * <p>
+	 * Printed as "SPAWNED THREADS [STILL RUNNING]: " + value.
+	 */
+	String spawnedThreadsStillRunning;
+
+	/**
+	 * Status passed to System.exit, Runtime.exit or Runtime.halt by the code run, or null if it did not exit or exit interception is off
+	 * - see ConsoleTester.setExitInterception.
+	 * <p>
+	 * Printed as "EXIT STATUS: " + value.
+	 */
+	Integer exitStatus;
+
+	/**
+	 * Output to System.out with each line prefixed by the name of the thread that wrote it, or null if spawned thread tracking is off.
+	 * Not printed.
+	 */
+	String threadTaggedOutput;
+
+	/**
+	 * Number of threads started by the code run, or 0 if spawned thread tracking is off.  Not printed.
+	 */
+	int spawnedThreadCount;
+
+	/**
+	 * Description of the bytes of output to System.err discarded because the output limit was exceeded, or null if it was not.
+	 * <p>
+	 * Printed as "ERROR_OUTPUT [LIMIT EXCEEDED]: " + value.
+	 */
+	String errorOutputLimitExceeded;
+
 	/**
 	 *  Captured output to Systenm.err as chunked by the ErrorOutputChunker.
 	 *  <p>
@@ -236,6 +354,11 @@ class OutputInfo
 	 * Internal flag.
 	 */
 	boolean errorOutputContainsErrorOrException;
+
+	/**
+	 * Internal flag - true if {@link #errorBytes} holds output to System.err of a finished run not yet processed by {@link #processErrorOutput}.
+	 */
+	boolean errorOutputPending;
 	
 	/**
 	 * Internal flag.
@@ -281,17 +404,27 @@ class OutputInfo
 	/**
 	 * Internal data.
 	 */
-	ByteArrayInputStream inputBytes; // accessed only within block, could be local
+	InputStream inputBytes; // a DelegatingInputStream.ByteArrayInput, or an InputPreviewStream for input from an InputStream
+
+	/**
+	 * Internal data.
+	 */
+	CaptureOutputStream outputBytes; // accessed outside try
+
+	/**
+	 * Internal data.
+	 */
+	CaptureOutputStream errorBytes; // accessed outside try
 
 	/**
 	 * Internal data.
 	 */
-	ByteArrayOutputStream outputBytes; // accessed outside try
+	LiveTee liveOutputTee; // null unless ConsoleTester.setLiveTee
 
 	/**
 	 * Internal data.
 	 */
-	ByteArrayOutputStream errorBytes; // accessed outside try
+	LiveTee liveErrorTee; // null unless ConsoleTester.setLiveTee
 
 	/**
 	 * Internal data.
@@ -310,16 +443,26 @@ class OutputInfo
 	{
 		// strings
 		description = input = output = outputBeforeException = errorOutput = chunkedErrorOutput = errorAndExceptionSummary = null;
+		outputLimitExceeded = errorOutputLimitExceeded = outputMismatch = dialogueTranscript = null;
+		spawnedThreadsStillRunning = threadTaggedOutput = null;
+		spawnedThreadCount = 0;
+		exitStatus = null;
+		outputView = null;
+		outputBinary = null;
 
 		// booleans
-		expectValue = exceptionIsInternal = getOutputInitialized = expectOutput = outputIsException = errorOutputContainsErrorOrException = testClassNamePrinted = testNamePrinted = infoPrinted = false;
+		expectValue = exceptionIsInternal = getOutputInitialized = expectOutput = outputIsException = errorOutputContainsErrorOrException = errorOutputPending = testClassNamePrinted = testNamePrinted = infoPrinted = false;
 		inputBytes = null;
 		savedSystemIn = null;
 		outputStream = errorStream = savedSystemOut = savedSystemErr = null;
 		outputBytes = errorBytes = null;
+		liveOutputTee = liveErrorTee = null;
 
 		testNameInfo = null;
 		value = null;
+		primitiveValueKind = 0;
+		longValue = 0;
+		doubleValue = 0;
 		exception = null;
 	}
 	
@@ -328,6 +471,14 @@ class OutputInfo
 	// Internal methods
 	//
 	// ====================================================================	
+
+	/**
+	 * Get the name of the type of a primitive value kind - {@link #INT_VALUE}, {@link #LONG_VALUE} or {@link #DOUBLE_VALUE}.
+	 */
+	static String primitiveValueTypeName(char kind)
+	{
+		return (kind == INT_VALUE) ? "int" : (kind == LONG_VALUE) ? "long" : "double";
+	}
 	
 	/**
 	 * Gets a new fully initialized TestNameInfo object for currently running test.
@@ -335,11 +486,31 @@ class OutputInfo
 	 * Uses a heuristic to find the currently running test - immediate caller is {@code sun.reflect.NativeMethodAccessorImpl.invoke0()}.
 	 * <p>
 	 * Important note: will fail with exception if not called within a test in a unittest running under junit.
+	 * <p>
+	 * Within a {@link CaptureSession} the stack is searched only once, since the test cannot change while the session is open, and the
+	 * same TestNameInfo object is returned for all later calls.
 	 * 
 	 * @return new TestestNameInfo object
 	 * @throws TestHelpError if a test cannot be found on stack
 	 */
 	static TestNameInfo getTestNameInfo()
+	{
+		CaptureSession session = CaptureSession.current();
+		if (session == null)
+		{
+			return findTestNameInfoOnStack();
+		}
+		if (session.testNameInfo == null)
+		{
+			session.testNameInfo = findTestNameInfoOnStack();
+		}
+		return session.testNameInfo;
+	}
+
+	/**
+	 * Gets a new fully initialized TestNameInfo object for currently running test by searching the stack - see {@link #getTestNameInfo()}.
+	 */
+	private static TestNameInfo findTestNameInfoOnStack()
 	{
 		StackTraceElement[] stacktrace = Thread.currentThread().getStackTrace();
 
@@ -362,15 +533,52 @@ class OutputInfo
 	}
 
 	/**
-	 * Ensures that the singleton OutputInfo object stored in static field {@link OutputInfo#info} is up-to-date
+	 * Get the current OutputInfo object - the single shared one or, in thread-scoped mode, the one belonging to the current thread.
+	 * 
+	 * @return the current OutputInfo object or null if it has not yet been created by {@link #sync()}
+	 */
+	static OutputInfo info()
+	{
+		return threadScoped ? threadInfo.get() : sharedInfo;
+	}
+
+	/**
+	 * Set the current OutputInfo object - the single shared one or, in thread-scoped mode, the one belonging to the current thread.
+	 * 
+	 * @param newInfo the new OutputInfo object or null to discard the current one
+	 */
+	static void setInfo(OutputInfo newInfo)
+	{
+		if (threadScoped)
+		{
+			if (newInfo == null)
+			{
+				threadInfo.remove();
+			}
+			else
+			{
+				threadInfo.set(newInfo);
+			}
+		}
+		else
+		{
+			sharedInfo = newInfo;
+		}
+	}
+
+	/**
+	 * Ensures that the current OutputInfo object returned by {@link #info()} is up-to-date
 	 */
 	static void sync()
 	{
+		OutputInfo info = info();
+
 		if (info == null)
 		{
 			info = new OutputInfo();
 			info.testNameInfo = getTestNameInfo();
-			testNum++;
+			info.testNumber = testNum.incrementAndGet();
+			setInfo(info);
 
 		} else
 		{
@@ -379,7 +587,7 @@ class OutputInfo
 
 			if (!curTestNameInfo.testClassName.equals(info.testNameInfo.testClassName)) // new test file - must running multiple tests
 			{
-				testNum = 0;
+				testNum.set(0);
 				
 				info.testClassNamePrinted = false;
 				curTestNameInfo = getTestNameInfo();
@@ -390,7 +598,8 @@ class OutputInfo
 			{
 				info = new OutputInfo();
 				info.testNameInfo = getTestNameInfo();
-				testNum++;
+				info.testNumber = testNum.incrementAndGet();
+				setInfo(info);
 				info.testClassNamePrinted = curTestClassNamePrinted;
 				info.testNamePrinted = false;
 			}
@@ -399,28 +608,39 @@ class OutputInfo
 	}
 
 	/**
-	 * Flushes specified Printstream.  If PrintStream is System.out or System.err, flushes both of them
-	 * in that order.  Purpose of flushing both System output streams is to avoid overlapping outputs.
-	 * The method also includes a 20 msec sleep to mitigate a multithreading race condition between
-	 * System.out and System.err printing in the eclipse console.
+	 * Flushes specified Printstream.  If PrintStream is System.out or System.err, flushes both of them,
+	 * System.err first, so that anything already written to either of them (typically stacktraces written to System.err)
+	 * has left the JVM before whatever is printed next.  Purpose of flushing both System output streams is to avoid
+	 * overlapping outputs.
+	 * <p>
+	 * Flushing orders the two streams within the JVM, but a console that reads them on separate threads, as the eclipse
+	 * console does, may still interleave them, so a delay is slept before flushing - see
+	 * {@link ConsoleTester#setConsoleFlushDelay(int)}, which can turn it off.
 	 * 
 	 * @param out PrintStream to flush.
 	 */
 	static void flushPrintStreams(PrintStream out)
 	{
-		try
+		int delay = ConsoleTester.getConsoleFlushDelay();
+		if (delay > 0)
 		{
-			Thread.sleep(20); // for latency across threads (seen in stacktraces)
-		} catch (InterruptedException e)
-		{
-			// e.printStackTrace();
+			try
+			{
+				Thread.sleep(delay); // for latency across threads (seen in stacktraces)
+			} catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
 		}
 
-		out.flush();
 		if (out == System.out || out == System.err)
 		{
-			System.out.flush();
 			System.err.flush();
+			System.out.flush();
+		}
+		else
+		{
+			out.flush();
 		}
 	}
 
@@ -492,7 +712,7 @@ class OutputInfo
 		flushPrintStreams(out);
 
 		out.println("==========================================================================================\n");
-		out.println(String.format("TEST (%d): %s %s\n", testNum, testNameInfo.getTestName(), testNameInfo.getFileNameAndLineNumber()));
+		out.println(String.format("TEST (%d): %s %s\n", testNumber, testNameInfo.getTestName(), testNameInfo.getFileNameAndLineNumber()));
 
 	}
 
@@ -530,13 +750,27 @@ or optionally by ConsoleTester.setDescription in tests where no getOutput method
 
 <li>INPUT: {@link #input} - the input string in a bundled getOutput call</li>
 
+<li>DIALOGUE: {@link #dialogueTranscript} - the transcript of output received and lines sent in a getOutput call with a ConsoleDialogue</li>
+
 <li>OUTPUT: {@link #output} - captured output to System.out in a bundled or unbundled getOutput call that completes without throwing an exception - value will be the string returned by bundled getOutput or unbundled getOutputFinish</li>
+<li>OUTPUT [VIEW]: {@link #outputView} - the start and length of captured output to System.out returned as a view by ConsoleTester.getOutputFinishAsView or getOutputViewFromVFunction</li>
+<li>OUTPUT [BINARY]: {@link #outputBinary} - the number of bytes and first bytes in hex of captured output to System.out returned as bytes by ConsoleTester.getOutputFinishAsBytes or getOutputBytesFromVFunction</li>
 <li>OUTPUT [BEFORE EXCEPTION] or [BEFORE INTERNAL EXCEPTION]: {@link #outputBeforeException}- captured output to System.out in a bundled or unbundled getOutput call before an except is thrown</li>
 <li>OUTPUT [EXCEPTION]: {@link #output} - a string representation of exception thrown in a bundled opr unbundled getOut call - value will be the string returned by bundled getOutput.. or unbundled getOutputFromException</li>
 
-<li>VALUE: {@link #value} - the simple classname and string representation of value returned within a bundled output call or "[not set]" in an unbundled call - a value "VoidR voidR" indicates that executed method had void return type</li>
+<li>OUTPUT [LIMIT EXCEEDED]: {@link #outputLimitExceeded} - the number of bytes of captured output to System.out discarded because the limit set by ConsoleTester.setOutputLimits was exceeded</li>
+
+<li>OUTPUT [MISMATCH]: {@link #outputMismatch} - the line number, byte offset, expected line and actual line where captured output to System.out first differed from the OutputExpectation passed to a getOutput method</li>
+
+<li>SPAWNED THREADS [STILL RUNNING]: {@link #spawnedThreadsStillRunning} - the threads started by the code run in a getOutput call that were still running at the join deadline and were cut off from its output (spawned thread tracking only)</li>
+
+<li>EXIT STATUS: {@link #exitStatus} - the status passed to an exit call intercepted in a getOutput call (exit interception only)</li>
+
+<li>VALUE: {@link #value} - the simple classname and string representation of value returned within a bundled output call or "[not set]" in an unbundled call - a value "VoidR voidR" indicates that executed method had void return type - or the type and value of {@link #primitiveValueKind an unboxed value}, as "int 42"</li>
  
 <li>ERROR_OUTPUT: {@link #chunkedErrorOutput} - captured output to System.err in a bundled or unbundled getOutput call including exception traces and other outour - will be parsed into possibly truncated chunks by the ErrorOutputChunker</li>
+
+<li>ERROR_OUTPUT [LIMIT EXCEEDED]: {@link #errorOutputLimitExceeded} - the number of bytes of captured output to System.err discarded because the limit set by ConsoleTester.setOutputLimits was exceeded</li>
 </ul>
 	 * <p>
 	 * Note that the only value that is printed when no bundled or unbundled getOutput methods have been called is description, abd a value will
@@ -555,6 +789,8 @@ or optionally by ConsoleTester.setDescription in tests where no getOutput method
 		//printTestNameIfNotAlreadyPrinted(out);
 		AssertionTools.syncInfo();
 
+		processErrorOutput();
+
 		if (description == null)
 		{
 			//out.println("DESCRIPTION: [null]\n");
@@ -579,10 +815,23 @@ or optionally by ConsoleTester.setDescription in tests where no getOutput method
 				out.println("INPUT: " + input.trim() + "\n");
 			}
 
+			if (dialogueTranscript != null)
+			{
+				out.println("DIALOGUE:\n" + dialogueTranscript + "\n");
+			}
+
 			if (exception == null)
 			{
 				
-				if (output == null)
+				if (output == null && outputView != null)
+				{
+					out.println("OUTPUT [VIEW]: " + getOutputViewPreview() + "\n");
+				}
+				else if (output == null && outputBinary != null)
+				{
+					out.println("OUTPUT [BINARY]: " + getOutputBinaryPreview() + "\n");
+				}
+				else if (output == null)
 				{
 					throw new TestHelpError("info.expectOutput is true but info.output is null"); // added 2019-05-24
 				}
@@ -628,7 +877,32 @@ or optionally by ConsoleTester.setDescription in tests where no getOutput method
         			
 			}
 
-			if (value != null)
+			if (outputLimitExceeded != null)
+			{
+				out.println("OUTPUT [LIMIT EXCEEDED]: " + outputLimitExceeded + "\n");
+			}
+
+			if (outputMismatch != null)
+			{
+				out.println("OUTPUT [MISMATCH]: " + outputMismatch + "\n");
+			}
+
+			if (spawnedThreadsStillRunning != null)
+			{
+				out.println("SPAWNED THREADS [STILL RUNNING]: " + spawnedThreadsStillRunning + "\n");
+			}
+
+			if (exitStatus != null)
+			{
+				out.println("EXIT STATUS: " + exitStatus + "\n");
+			}
+
+			if (primitiveValueKind != 0)
+			{
+				out.println("VALUE: " + primitiveValueTypeName(primitiveValueKind) + " "
+						+ ((primitiveValueKind == DOUBLE_VALUE) ? Double.toString(doubleValue) : Long.toString(longValue)) + "\n");
+			}
+			else if (value != null)
 			{
 				out.println("VALUE: " + value.getClass().getSimpleName() + " " + value.toString()  + "\n"); 
 			}
@@ -655,6 +929,11 @@ or optionally by ConsoleTester.setDescription in tests where no getOutput method
 				out.println("ERROR_OUTPUT: " + chunkedErrorOutput.trim() + "\n");
 			}
 
+			if (errorOutputLimitExceeded != null)
+			{
+				out.println("ERROR_OUTPUT [LIMIT EXCEEDED]: " + errorOutputLimitExceeded + "\n");
+			}
+
 			if (errorAndExceptionSummary != null && !errorAndExceptionSummary.isEmpty())
 			{
 				// out.println("ERROR_OUTPUT ERRORS AND EXCEPTIONS: " + errorAndExceptionSummary.trim() + "\n"); // comment out 2019-08-30
@@ -662,7 +941,42 @@ or optionally by ConsoleTester.setDescription in tests where no getOutput method
 		}
 
 	}
-	
+
+	/**
+	 * Get the number of bytes of {@link #outputBinary} and its first {@link #BINARY_PREVIEW_LENGTH} bytes in hex.
+	 */
+	private String getOutputBinaryPreview()
+	{
+		int length = outputBinary.remaining();
+		StringBuilder preview = new StringBuilder(length + " bytes");
+		for (int i = 0; i < Math.min(length,BINARY_PREVIEW_LENGTH); i++)
+		{
+			preview.append(String.format((i == 0) ? ": %02x" : " %02x",outputBinary.get(outputBinary.position() + i) & 0xff));
+		}
+		if (length > BINARY_PREVIEW_LENGTH)
+		{
+			preview.append(" ...");
+		}
+		return preview.toString();
+	}
+
+	/**
+	 * Get the start of {@link #outputView}, trimmed and abbreviated to {@link #VIEW_PREVIEW_LENGTH} characters, with its length.
+	 */
+	private String getOutputViewPreview()
+	{
+		int length = outputView.length();
+		if (length == 0)
+		{
+			return "[empty]";
+		}
+		if (length <= VIEW_PREVIEW_LENGTH)
+		{
+			return outputView.toString();
+		}
+		return outputView.subSequence(0,VIEW_PREVIEW_LENGTH).toString() + "\n[... " + length + " chars in all]";
+	}
+
 
 	/**
 	 * Calls {@link printInfo} if it has not already been called for the current test, else does nothing.
@@ -679,6 +993,32 @@ or optionally by ConsoleTester.setDescription in tests where no getOutput method
 		}
 	}
 
+	/**
+	 * Decode captured output to System.err into {@link #errorOutput} and, if it is not empty, chunk it into {@link #chunkedErrorOutput}
+	 * with the ErrorOutputChunker, if the run has finished and this has not already been done.  Called only when error output is
+	 * asked for - by verbose printing in ConsoleTester.getOutputFinal, by printInfo and by ConsoleTester.getErrorOutputFromInfo - so
+	 * a run that writes nothing to System.err, or that nothing asks about, costs no decoding.
+	 */
+	void processErrorOutput()
+	{
+		if (!errorOutputPending)
+		{
+			return;
+		}
+		errorOutputPending = false;
+
+		errorOutput = ConsoleTester.outputBytesToTrimmedString(errorBytes);
+
+		if (!errorOutput.isEmpty()) // Following processing works with all errorOutput, not just exceptions
+		{
+			errorOutputContainsErrorOrException = true;
+			String testName = testNameInfo.getTestName();
+			String [] pair = ErrorOutputChunker.getErrorAndExceptionSummaryAndChunkedErrorOutput(errorOutput,testName);
+			errorAndExceptionSummary = pair[0];
+			chunkedErrorOutput = pair[1]; 
+		}
+	}
+
 	// ====================================================================
 	//
 	//	 print message (1): printFailMessage
@@ -0,0 +1,20 @@
+package testHelp;
+
+/**
+ * An error thrown from a write to System.out or System.err within a ConsoleTester getOutput method when the captured
+ * output exceeds its limit and the limit policy is {@link OutputLimitPolicy#abort}.  Stops the code being run, which is then
+ * treated as having thrown an exception.
+ * <p>
+ * Extends Error rather than Exception so that code being run which catches Exception does not keep running.
+ * 
+ * @author John Armstrong
+ */
+public class OutputLimitExceededError extends Error
+{
+	private static final long serialVersionUID = 1L;
+
+	public OutputLimitExceededError(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,19 @@
+package testHelp;
+
+/**
+ * Represents what ConsoleTester getOutput methods do when output captured from System.out or System.err exceeds the limit
+ * set by {@link ConsoleTester#setOutputLimits}.
+ * 
+ * <ul>
+ * 	<li>truncate - keep the output up to the limit, discard the rest and let the run continue</li>
+ * 	<li>headAndTail - keep the first half and the last half of the limit, discard what is in between and let the run continue</li>
+ * 	<li>abort - keep the output up to the limit and stop the run by throwing {@link OutputLimitExceededError} from the write that exceeds it</li>
+ * </ul>
+ * 
+ * @author John Armstrong
+ */
+public enum OutputLimitPolicy {
+	truncate,
+	headAndTail,
+	abort
+}
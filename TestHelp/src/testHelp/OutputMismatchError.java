@@ -0,0 +1,20 @@
+package testHelp;
+
+/**
+ * An error thrown from a write to System.out within a ConsoleTester getOutput method run with an {@link OutputExpectation}
+ * when a completed line of output differs from the expected line.  Stops the code being run at the first mismatch, which is then
+ * treated as having thrown an exception.
+ * <p>
+ * Extends Error rather than Exception so that code being run which catches Exception does not keep running.
+ * 
+ * @author John Armstrong
+ */
+public class OutputMismatchError extends Error
+{
+	private static final long serialVersionUID = 1L;
+
+	public OutputMismatchError(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,21 @@
+package testHelp;
+
+/**
+ * An error recorded as the exception of a ConsoleTester getOutput run with a timeout (for example
+ * {@link ConsoleTester#getOutputFromVFunctionWithTimeout}) when the code being run does not return before the deadline.  Output
+ * written before the deadline is kept as the output before the exception.
+ * <p>
+ * The stack trace of the error is that of the worker thread running the code at the deadline, so it shows where the code was
+ * stuck rather than where the error was made.
+ *
+ * @author John Armstrong
+ */
+public class OutputTimeoutError extends Error
+{
+	private static final long serialVersionUID = 1L;
+
+	public OutputTimeoutError(String message) {
+		super(message);
+	}
+
+}
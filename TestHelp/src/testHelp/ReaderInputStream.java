@@ -0,0 +1,120 @@
+package testHelp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * An internal (package-private) InputStream which reads characters from a Reader and encodes them as they are read, so the
+ * characters are never all held in memory.  Used by ConsoleTester.makeInputStream to feed a Reader, or lines from an Iterator
+ * or Supplier, to System.in.
+ * <p>
+ * Characters that cannot be encoded are replaced, as they are by String.getBytes.
+ *
+ * @author John Armstrong
+ */
+class ReaderInputStream extends InputStream
+{
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+	private final CharsetEncoder encoder;
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+	private final ByteBuffer bytes;
+	private boolean endOfInput;
+	private boolean flushed;
+
+	/**
+	 * Create a ReaderInputStream.
+	 *
+	 * @param reader the Reader to read characters from
+	 * @param charset the encoding of the bytes returned
+	 */
+	ReaderInputStream(Reader reader, Charset charset)
+	{
+		this.reader = reader;
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.bytes = ByteBuffer.allocate((int)Math.ceil(BUFFER_SIZE * encoder.maxBytesPerChar()));
+		chars.flip(); // empty, ready for reading
+		bytes.flip();
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		return fill() ? bytes.get() & 0xff : -1;
+	}
+
+	@Override
+	public int read(byte b[], int off, int len) throws IOException
+	{
+		if (len == 0)
+		{
+			return 0;
+		}
+		if (!fill())
+		{
+			return -1;
+		}
+		int n = Math.min(len,bytes.remaining());
+		bytes.get(b,off,n);
+		return n;
+	}
+
+	@Override
+	public int available()
+	{
+		return bytes.remaining();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+
+	/**
+	 * Make sure there are encoded bytes to read, reading and encoding more characters if necessary.
+	 *
+	 * @return false at the end of the input
+	 */
+	private boolean fill() throws IOException
+	{
+		while (!bytes.hasRemaining())
+		{
+			if (flushed)
+			{
+				return false;
+			}
+
+			if (!endOfInput && chars.remaining() < 2) // less than 2 so a surrogate pair is not split
+			{
+				chars.compact();
+				int n = reader.read(chars);
+				chars.flip();
+				if (n < 0)
+				{
+					endOfInput = true;
+				}
+			}
+
+			bytes.clear();
+			CoderResult result = encoder.encode(chars,bytes,endOfInput);
+			if (endOfInput && result.isUnderflow())
+			{
+				flushed = encoder.flush(bytes).isUnderflow();
+			}
+			bytes.flip();
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,20 @@
+package testHelp;
+
+/**
+ * An error thrown by {@link SourceCompiler} when sources do not compile.  The message holds the compiler's diagnostics, one per
+ * line, as {@literal "Hello.java:3: error: ';' expected"}.
+ * <p>
+ * Extends Error rather than Exception for consistency with other errors thrown by testHelp, so tests that compile many submissions
+ * can catch it around each compilation and report it as the result of the submission.
+ *
+ * @author John Armstrong
+ */
+public class SourceCompilationError extends Error
+{
+	private static final long serialVersionUID = 1L;
+
+	public SourceCompilationError(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,387 @@
+package testHelp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles Java sources in memory, with the compiler of the JDK running the tests, and makes a class loader for the classes compiled,
+ * ready to be passed to {@link ConsoleTester#setLoader} for getOutput(className, ...), as:
+ * <pre>
+  ConsoleTester.setLoader(SourceCompiler.compileFiles(submissionFiles));
+  String output = ConsoleTester.getOutput("Hello","some input\n");</pre>
+ *
+ * Nothing is written to disk: sources are read from strings (or read once from files) and class files are written to a map.  The class
+ * files compiled are cached by the SHA-256 digest of the sources, their file names and the compiler options, so compiling the same
+ * sources again - as when a suite is run again over unchanged submissions - skips the compiler and only makes a new loader.  Sources
+ * that do not compile throw {@link SourceCompilationError}, and that result is cached too.  The cache is held in memory for the life
+ * of the JVM only: a suite run again in a new JVM compiles everything again, so to skip the compiler across runs keep the JVM, as
+ * {@link TestDaemon} does.  It keeps the results of the {@value #MAX_CACHED_COMPILATIONS} sets of sources used most recently, so
+ * a run over many submissions, or a daemon running for hours, does not keep every class file compiled, and can be emptied with
+ * {@link #clearCache}.
+ * <p>
+ * Each call returns a new loader, so classes of one call do not share static state with those of another, even from the cache.  The
+ * loader delegates to the loader of testHelp first, as loaders normally do, so sources should not define classes with the names of
+ * classes on the class path.
+ *
+ * @author John Armstrong
+ */
+public final class SourceCompiler
+{
+	/**
+	 * The number of sets of sources whose results are cached - the least recently used is dropped when another is added.
+	 */
+	public static final int MAX_CACHED_COMPILATIONS = 256;
+
+	// in access order, guarded by itself
+	private static final Map<String,Compiled> cache = new LinkedHashMap<String,Compiled>(16,0.75f,true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String,Compiled> eldest)
+		{
+			return size() > MAX_CACHED_COMPILATIONS;
+		}
+	};
+	private static final AtomicLong compileCount = new AtomicLong();
+
+	/**
+	 * Never called private do-nothing constructor to suppress default constructor in javadoc
+	 */
+	private SourceCompiler()
+	{
+
+	}
+
+	/**
+	 * The result of compiling a set of sources - class files by binary class name, or the diagnostics if the sources did not compile.
+	 */
+	private static final class Compiled
+	{
+		final Map<String,byte []> classFiles;
+		final String errors;
+
+		Compiled(Map<String,byte []> classFiles, String errors)
+		{
+			this.classFiles = classFiles;
+			this.errors = errors;
+		}
+	}
+
+	/**
+	 * Compile sources held in strings and make a loader for the classes compiled.
+	 *
+	 * @param sourcesByFileName the text of each source file by its file name, as {@literal "Hello.java"} or
+	 * 	{@literal "myPackage/Hello.java"} - only the last part of the name is checked by the compiler, against the public class
+	 * @param options options for the compiler, as "-source", "8" or "-Xlint:none"
+	 * @return a new class loader for the classes compiled
+	 * @throws SourceCompilationError if the sources do not compile
+	 * @throws TestHelpError if no compiler is available, as when running with a JRE rather than a JDK
+	 */
+	public static ClassLoader compile(Map<String,String> sourcesByFileName, String... options)
+	{
+		Map<String,String> sorted = new TreeMap<>(sourcesByFileName); // so the digest does not depend on map order
+		String digest = digest(sorted,options);
+		Compiled compiled;
+		synchronized (cache)
+		{
+			compiled = cache.get(digest);
+		}
+		if (compiled == null)
+		{
+			compiled = compileNow(sorted,options); // outside the lock, so other sources compile meanwhile
+			synchronized (cache)
+			{
+				cache.put(digest,compiled);
+			}
+		}
+		if (compiled.errors != null)
+		{
+			throw new SourceCompilationError(compiled.errors);
+		}
+		return new InMemoryClassLoader(SourceCompiler.class.getClassLoader(),compiled.classFiles);
+	}
+
+	/**
+	 * Compile source files and make a loader for the classes compiled.  Each file is read as UTF-8 and compiled as if from its file
+	 * name alone, so files compiled together must have different names.
+	 *
+	 * @param sourceFiles the source files
+	 * @param options options for the compiler, as "-source", "8" or "-Xlint:none"
+	 * @return a new class loader for the classes compiled
+	 * @throws SourceCompilationError if the sources do not compile
+	 * @throws TestHelpError if a file cannot be read, two files have the same name or no compiler is available
+	 */
+	public static ClassLoader compileFiles(Collection<Path> sourceFiles, String... options)
+	{
+		Map<String,String> sources = new HashMap<>();
+		Map<String,Path> files = new HashMap<>();
+		for (Path file : sourceFiles)
+		{
+			String fileName = file.getFileName().toString();
+			Path sameName = files.put(fileName,file);
+			if (sameName != null)
+			{
+				throw new TestHelpError("Source files " + sameName + " and " + file + " have the same name - only one can be compiled");
+			}
+			try
+			{
+				sources.put(fileName,new String(Files.readAllBytes(file),StandardCharsets.UTF_8));
+			}
+			catch (IOException ex)
+			{
+				throw new TestHelpError("Could not read source file " + file,ex);
+			}
+		}
+		return compile(sources,options);
+	}
+
+	/**
+	 * Get the number of times the compiler has been run, for sets of sources not found in the cache.
+	 */
+	static long getCompileCount()
+	{
+		return compileCount.get();
+	}
+
+	/**
+	 * Drop all cached results, so the sources of later calls are compiled again.
+	 */
+	public static void clearCache()
+	{
+		synchronized (cache)
+		{
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Get the SHA-256 digest, in hex, of sources with their file names and compiler options - each string is digested with its length
+	 * first, so no two different sets of strings digest the same bytes.
+	 */
+	private static String digest(Map<String,String> sortedSources, String [] options)
+	{
+		MessageDigest sha256;
+		try
+		{
+			sha256 = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex)
+		{
+			throw new TestHelpError("SHA-256 is not supported",ex); // every JDK must support it
+		}
+		List<String> strings = new ArrayList<>();
+		strings.add(Integer.toString(options.length));
+		strings.addAll(Arrays.asList(options));
+		for (Map.Entry<String,String> source : sortedSources.entrySet())
+		{
+			strings.add(source.getKey());
+			strings.add(source.getValue());
+		}
+		for (String string : strings)
+		{
+			byte [] bytes = string.getBytes(StandardCharsets.UTF_8);
+			sha256.update(ByteBuffer.allocate(4).putInt(0,bytes.length));
+			sha256.update(bytes);
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : sha256.digest())
+		{
+			hex.append(String.format("%02x",b & 0xff));
+		}
+		return hex.toString();
+	}
+
+	private static Compiled compileNow(Map<String,String> sources, String [] options)
+	{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+		{
+			throw new TestHelpError("No Java compiler is available - SourceCompiler needs a JDK rather than a JRE");
+		}
+		compileCount.incrementAndGet();
+
+		List<JavaFileObject> sourceObjects = new ArrayList<>();
+		for (Map.Entry<String,String> source : sources.entrySet())
+		{
+			sourceObjects.add(new StringSource(source.getKey(),source.getValue()));
+		}
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		StringWriter compilerOutput = new StringWriter();
+		Map<String,byte []> classFiles = new ConcurrentHashMap<>(); // written by the compiler as each class file is closed
+		boolean succeeded;
+		try (JavaFileManager fileManager = new ClassFileCollector(compiler.getStandardFileManager(diagnostics,Locale.ROOT,StandardCharsets.UTF_8),classFiles))
+		{
+			succeeded = compiler.getTask(compilerOutput,fileManager,diagnostics,Arrays.asList(options),null,sourceObjects).call();
+		}
+		catch (IOException ex)
+		{
+			throw new TestHelpError("Closing in-memory file manager threw IOException",ex); // nothing to close on disk
+		}
+
+		if (succeeded)
+		{
+			return new Compiled(Collections.unmodifiableMap(new HashMap<>(classFiles)),null);
+		}
+		StringBuilder errors = new StringBuilder();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+		{
+			String kind = (diagnostic.getKind() == Diagnostic.Kind.ERROR) ? "error"
+					: (diagnostic.getKind() == Diagnostic.Kind.NOTE || diagnostic.getKind() == Diagnostic.Kind.OTHER) ? "note" : "warning";
+			// the source may be a string given or a file the compiler found itself, as on the source path
+			String where = (diagnostic.getSource() == null) ? "" : diagnostic.getSource().getName() + ":" + diagnostic.getLineNumber() + ": ";
+			errors.append(where).append(kind).append(": ").append(diagnostic.getMessage(Locale.ROOT)).append('\n');
+		}
+		errors.append(compilerOutput);
+		return new Compiled(null,errors.toString().trim());
+	}
+
+	/**
+	 * A source file held in a string.
+	 */
+	private static final class StringSource extends SimpleJavaFileObject
+	{
+		final String fileName;
+		private final String text;
+
+		StringSource(String fileName, String text)
+		{
+			super(makeUri("string",fileName),Kind.SOURCE);
+			this.fileName = fileName;
+			this.text = text;
+		}
+
+		@Override
+		public String getName()
+		{
+			return fileName;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors)
+		{
+			return text;
+		}
+	}
+
+	private static URI makeUri(String scheme, String path)
+	{
+		try
+		{
+			return new URI(scheme,null,"/" + path,null);
+		}
+		catch (URISyntaxException ex)
+		{
+			throw new TestHelpError("Could not make URI for " + path,ex);
+		}
+	}
+
+	/**
+	 * File manager that keeps class files written by the compiler in a map rather than writing them to disk.  Everything else - in
+	 * particular the class path compiled against - is as for the standard file manager.
+	 */
+	private static final class ClassFileCollector extends ForwardingJavaFileManager<StandardJavaFileManager>
+	{
+		private final Map<String,byte []> classFiles;
+
+		ClassFileCollector(StandardJavaFileManager standard, Map<String,byte []> classFiles)
+		{
+			super(standard);
+			this.classFiles = classFiles;
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling)
+		{
+			return new SimpleJavaFileObject(makeUri("mem",className.replace('.','/') + kind.extension),kind) {
+				@Override
+				public OutputStream openOutputStream()
+				{
+					return new ByteArrayOutputStream() {
+						@Override
+						public void close()
+						{
+							classFiles.put(className,toByteArray());
+						}
+					};
+				}
+			};
+		}
+	}
+
+	/**
+	 * Loader of classes compiled in memory.  Also serves their class files as resources, so an {@link IsolatingClassLoader} with this
+	 * loader as its parent (see ConsoleTester.setClassIsolation) can read them.
+	 */
+	private static final class InMemoryClassLoader extends ClassLoader
+	{
+		private final Map<String,byte []> classFiles;
+
+		InMemoryClassLoader(ClassLoader parent, Map<String,byte []> classFiles)
+		{
+			super(parent);
+			this.classFiles = classFiles;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException
+		{
+			byte [] classFile = classFiles.get(name);
+			if (classFile == null)
+			{
+				throw new ClassNotFoundException(name);
+			}
+			return defineClass(name,classFile,0,classFile.length);
+		}
+
+		@Override
+		public InputStream getResourceAsStream(String name)
+		{
+			if (name.endsWith(".class"))
+			{
+				byte [] classFile = classFiles.get(name.substring(0,name.length() - ".class".length()).replace('/','.'));
+				if (classFile != null)
+				{
+					return new ByteArrayInputStream(classFile);
+				}
+			}
+			return super.getResourceAsStream(name);
+		}
+	}
+
+}
@@ -0,0 +1,343 @@
+package testHelp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Internal (package-private) runner of the code of a bundled getOutput call that tracks the threads the code starts - see
+ * {@link ConsoleTester#setSpawnedThreadTracking}.
+ * <p>
+ * The code is run on a platform thread in a ThreadGroup of its own, which threads it starts join unless they are given another
+ * group.  The run thread reads and writes System.in, System.out and System.err through streams of its own, set as inheritable
+ * per-thread overrides (see {@link DelegatingPrintStream#setInheritableThreadPrintStream}), so threads it starts, and threads they
+ * start, use them too, whether or not thread-scoped capture is on.  Threads started are counted as they are made, through an
+ * InheritableThreadLocal whose childValue is called by the Thread constructor.
+ * <p>
+ * When the code returns, threads still running in the group are joined, for at most the join deadline, before the output of the
+ * run is read.  Threads still running after the deadline are cut off: their streams are switched to an empty stream and to streams
+ * that discard output, so their late output goes neither to the console nor to the output of a later run.  The switch takes effect
+ * through the delegating streams of ConsoleTester, which stay the System streams until the threads cut off have ended.
+ * <p>
+ * While a run is tracked, each complete line written to System.out is also recorded with the name of the thread that wrote it.
+ *
+ * @author John Armstrong
+ */
+class SpawnedThreadTracker
+{
+	private static final AtomicInteger runNumber = new AtomicInteger();
+
+	private static final PrintStream discardStream = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b)
+		{
+			// discard
+		}
+
+		@Override
+		public void write(byte b[], int off, int len)
+		{
+			// discard
+		}
+	});
+
+	private final ThreadGroup group;
+	private final DelegatingInputStream runIn;
+	private final DelegatingPrintStream runOut;
+	private final DelegatingPrintStream runErr;
+	private final ThreadTaggingTee taggingTee;
+
+	private final AtomicInteger spawnedCount = new AtomicInteger();
+	private final List<String> stillRunning = new ArrayList<>();
+
+	/**
+	 * Marker inherited by every thread started from the run thread - childValue is called on the starting thread by the constructor
+	 * of each thread started, so counts them however short-lived they are.
+	 */
+	private final InheritableThreadLocal<SpawnedThreadTracker> marker = new InheritableThreadLocal<SpawnedThreadTracker>() {
+		@Override
+		protected SpawnedThreadTracker childValue(SpawnedThreadTracker parentValue)
+		{
+			if (parentValue != null)
+			{
+				parentValue.spawnedCount.incrementAndGet();
+			}
+			return parentValue;
+		}
+	};
+
+	private volatile Object value;
+	private volatile Throwable exception;
+
+	/**
+	 * Create a tracker for the getOutput call described by an OutputInfo, which must have been started with getOutputStart, and
+	 * set the tagging tee on its capture buffer for System.out.
+	 *
+	 * @param info the OutputInfo of the thread that creates the tracker
+	 * @param charset the encoding of the captured output
+	 */
+	SpawnedThreadTracker(OutputInfo info, Charset charset)
+	{
+		group = new ThreadGroup("ConsoleTester run " + runNumber.incrementAndGet());
+		runIn = new DelegatingInputStream(info.inputBytes);
+		runOut = new DelegatingPrintStream(info.outputStream);
+		runErr = new DelegatingPrintStream((info.errorStream != null) ? info.errorStream : info.savedSystemErr);
+		taggingTee = new ThreadTaggingTee(charset);
+		info.outputBytes.addTee(taggingTee);
+	}
+
+	/**
+	 * Run code on a thread of its own, wait until it returns, then join threads it started that are still running, for at most a
+	 * deadline, and cut off any still running after it.
+	 *
+	 * @param body the code to run, returning the value of the run
+	 * @param joinMillis milliseconds to wait for started threads to end after the code returns
+	 * @return the value returned by the code
+	 * @throws RuntimeException or Error thrown by the code, with checked exceptions wrapped in WrappedException
+	 */
+	Object run(Supplier<Object> body, long joinMillis)
+	{
+		ConsoleTester.holdSystemStreamsDelegated(); // so the inheritable overrides take effect without thread-scoped capture
+		boolean interrupted = false;
+		try
+		{
+			Thread runThread = new Thread(group,() -> {
+				ConsoleTester.redirectTrackedThreadStreams(runIn,runOut,runErr);
+				marker.set(this);
+				try
+				{
+					value = body.get();
+				}
+				catch (Throwable ex)
+				{
+					exception = ex;
+				}
+			},group.getName());
+			runThread.start();
+
+			while (runThread.isAlive())
+			{
+				try
+				{
+					runThread.join();
+				}
+				catch (InterruptedException ex)
+				{
+					interrupted = true; // the code under test is not stopped - wait on
+				}
+			}
+
+			interrupted |= joinSpawned(joinMillis);
+		}
+		finally
+		{
+			ConsoleTester.releaseSystemStreamsDelegated();
+			if (interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (exception instanceof RuntimeException)
+		{
+			throw (RuntimeException)exception;
+		}
+		if (exception instanceof Error)
+		{
+			throw (Error)exception;
+		}
+		if (exception != null)
+		{
+			throw new WrappedException(exception,false);
+		}
+		return value;
+	}
+
+	/**
+	 * Join threads in the group until none is alive or the deadline passes, then cut off any still alive.
+	 *
+	 * @return true if the calling thread was interrupted while joining
+	 */
+	private boolean joinSpawned(long joinMillis)
+	{
+		boolean interrupted = false;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(joinMillis);
+		List<Thread> alive = aliveThreads();
+		while (!alive.isEmpty())
+		{
+			for (Thread thread : alive)
+			{
+				long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remainingMillis <= 0)
+				{
+					break;
+				}
+				try
+				{
+					thread.join(remainingMillis);
+				}
+				catch (InterruptedException ex)
+				{
+					interrupted = true;
+					deadline = System.nanoTime(); // stop waiting
+				}
+			}
+			alive = aliveThreads(); // threads may have started others
+			if (deadline - System.nanoTime() <= 0)
+			{
+				break;
+			}
+		}
+
+		if (!alive.isEmpty())
+		{
+			runIn.setInputStream(new ByteArrayInputStream(new byte[0]));
+			runOut.setPrintStream(discardStream);
+			runErr.setPrintStream(discardStream);
+			ConsoleTester.holdSystemStreamsDelegatedWhileAlive(this::aliveThreads); // including threads they start
+			for (Thread thread : alive)
+			{
+				stillRunning.add(thread.getName());
+			}
+		}
+		taggingTee.endRun();
+		return interrupted;
+	}
+
+	private List<Thread> aliveThreads()
+	{
+		Thread [] threads = new Thread[group.activeCount() + 16];
+		int count = group.enumerate(threads,true);
+		List<Thread> alive = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+		{
+			if (threads[i].isAlive())
+			{
+				alive.add(threads[i]);
+			}
+		}
+		return alive;
+	}
+
+	/**
+	 * Get the number of threads started by the code run, and by threads it started.
+	 */
+	int getSpawnedCount()
+	{
+		return spawnedCount.get();
+	}
+
+	/**
+	 * Get the names of the threads still running at the join deadline, which were cut off from the streams of the run.
+	 */
+	List<String> getStillRunning()
+	{
+		return stillRunning;
+	}
+
+	/**
+	 * Get the lines written to System.out, each prefixed by the name of the thread that wrote it in square brackets.
+	 */
+	String getThreadTaggedOutput()
+	{
+		return taggingTee.toString();
+	}
+
+	/**
+	 * Tee of the capture buffer for System.out that records each line written prefixed by the name of the thread that wrote it.
+	 * Partial lines are held per thread until completed, so lines written a piece at a time by several threads are not mixed.
+	 */
+	private static class ThreadTaggingTee extends OutputStream
+	{
+		private final Charset charset;
+		private final ByteArrayOutputStream tagged = new ByteArrayOutputStream();
+		private final Map<Thread,ByteArrayOutputStream> partialLines = new IdentityHashMap<>();
+		private boolean runEnded;
+
+		ThreadTaggingTee(Charset charset)
+		{
+			this.charset = charset;
+		}
+
+		@Override
+		public synchronized void write(int b)
+		{
+			write(new byte[] {(byte)b},0,1);
+		}
+
+		@Override
+		public synchronized void write(byte b[], int off, int len)
+		{
+			if (runEnded)
+			{
+				return;
+			}
+			Thread thread = Thread.currentThread();
+			ByteArrayOutputStream line = partialLines.get(thread);
+			int start = off;
+			for (int i = off; i < off + len; i++)
+			{
+				if (b[i] == '\n')
+				{
+					appendTag(thread);
+					if (line != null)
+					{
+						byte [] head = line.toByteArray();
+						tagged.write(head,0,head.length);
+						partialLines.remove(thread);
+						line = null;
+					}
+					tagged.write(b,start,i + 1 - start);
+					start = i + 1;
+				}
+			}
+			if (start < off + len)
+			{
+				if (line == null)
+				{
+					line = new ByteArrayOutputStream();
+					partialLines.put(thread,line);
+				}
+				line.write(b,start,off + len - start);
+			}
+		}
+
+		/**
+		 * Stop recording and add any partial lines.
+		 */
+		synchronized void endRun()
+		{
+			for (Map.Entry<Thread,ByteArrayOutputStream> entry : partialLines.entrySet())
+			{
+				appendTag(entry.getKey());
+				byte [] line = entry.getValue().toByteArray();
+				tagged.write(line,0,line.length);
+				tagged.write('\n');
+			}
+			partialLines.clear();
+			runEnded = true;
+		}
+
+		private void appendTag(Thread thread)
+		{
+			byte [] tag = ("[" + thread.getName() + "] ").getBytes(charset);
+			tagged.write(tag,0,tag.length);
+		}
+
+		@Override
+		public synchronized String toString()
+		{
+			return new String(tagged.toByteArray(),charset).trim();
+		}
+	}
+
+}
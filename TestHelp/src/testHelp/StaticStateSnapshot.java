@@ -0,0 +1,261 @@
+package testHelp;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of the static fields of a number of classes, which can be restored any number of times - see
+ * {@link ConsoleTester#setStaticStateRestore}.  Restoring a snapshot after each run of a main that keeps state in static fields lets
+ * the same classes, loaded, initialized and compiled by the JIT once, be run again and again as if for the first time, without the
+ * cost of a new class loader per run (see {@link ConsoleTester#setClassIsolation}).
+ * <p>
+ * Fields are read and written through MethodHandles made once per class and cached.  All static fields declared by each class are
+ * kept, other than compile-time constants and synthetic fields.  Final fields cannot be set, so only the contents of the objects
+ * they refer to can be restored.
+ * <p>
+ * By default only the values of the fields are kept, so an array or collection changed in place by a run stays changed.  With deep
+ * copy the contents of arrays (at all levels, for arrays of arrays), collections and maps referred to by the fields are copied too,
+ * and restored in place, into the same objects; the elements of collections and maps are not copied.  Collections and maps that
+ * cannot be changed are left as they are.
+ *
+ * @author John Armstrong
+ */
+public final class StaticStateSnapshot
+{
+	/**
+	 * Accessors for one static field
+	 */
+	private static final class StaticField
+	{
+		final Field field;
+		final MethodHandle getter; // () -> Object
+		final MethodHandle setter; // (Object) -> void, null for a final field
+
+		StaticField(Field field, MethodHandle getter, MethodHandle setter)
+		{
+			this.field = field;
+			this.getter = getter;
+			this.setter = setter;
+		}
+	}
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class,Object.class);
+
+	// Accessors for the static fields of each class, made the first time a class is snapshot - kept with the class, so they do not
+	// keep the classes of discarded loaders alive
+	private static final ClassValue<StaticField []> staticFields = new ClassValue<StaticField []>() {
+		@Override
+		protected StaticField [] computeValue(Class<?> type)
+		{
+			return findStaticFields(type);
+		}
+	};
+
+	private final StaticField [] fields;
+	private final Object [] values;
+	private final Object [] contents; // copies of the contents of arrays, collections and maps, null entries for other values
+
+	private StaticStateSnapshot(StaticField [] fields, Object [] values, Object [] contents)
+	{
+		this.fields = fields;
+		this.values = values;
+		this.contents = contents;
+	}
+
+	/**
+	 * Take a snapshot of the static fields of classes, initializing any class not yet initialized.
+	 *
+	 * @param deepCopy true to copy the contents of arrays, collections and maps referred to by the fields
+	 * @param classes the classes
+	 * @return the snapshot
+	 * @throws TestHelpError if a field cannot be read, as when the static initializer of its class throws
+	 */
+	public static StaticStateSnapshot take(boolean deepCopy, Class<?>... classes)
+	{
+		List<StaticField> fields = new ArrayList<>();
+		for (Class<?> type : classes)
+		{
+			for (StaticField field : staticFields.get(type))
+			{
+				fields.add(field);
+			}
+		}
+		StaticField [] fieldArray = fields.toArray(new StaticField[fields.size()]);
+		Object [] values = new Object[fieldArray.length];
+		Object [] contents = new Object[fieldArray.length];
+		for (int i = 0; i < fieldArray.length; i++)
+		{
+			values[i] = get(fieldArray[i]);
+			contents[i] = deepCopy ? copyContents(values[i]) : null;
+		}
+		return new StaticStateSnapshot(fieldArray,values,contents);
+	}
+
+	/**
+	 * Set the static fields back to their values when the snapshot was taken, and, with deep copy, the contents of the arrays,
+	 * collections and maps they refer to.  The snapshot is not changed, so can be restored again.
+	 *
+	 * @throws TestHelpError if a field cannot be set
+	 */
+	public void restore()
+	{
+		for (int i = 0; i < fields.length; i++)
+		{
+			StaticField field = fields[i];
+			if (field.setter != null)
+			{
+				try
+				{
+					field.setter.invokeExact(values[i]);
+				}
+				catch (Throwable ex)
+				{
+					throw new TestHelpError("Could not set static field " + field.field,ex);
+				}
+			}
+			if (contents[i] != null)
+			{
+				restoreContents(values[i],contents[i]);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of fields in the snapshot.
+	 */
+	int getFieldCount()
+	{
+		return fields.length;
+	}
+
+	private static StaticField [] findStaticFields(Class<?> type)
+	{
+		List<StaticField> fields = new ArrayList<>();
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		for (Field field : type.getDeclaredFields())
+		{
+			int modifiers = field.getModifiers();
+			boolean isFinal = Modifier.isFinal(modifiers);
+			if (!Modifier.isStatic(modifiers) || field.isSynthetic()
+					|| (isFinal && (field.getType().isPrimitive() || field.getType() == String.class)))
+			{
+				continue; // not static, or a constant (which may have been inlined where used anyway)
+			}
+			try
+			{
+				field.setAccessible(true);
+				MethodHandle getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+				MethodHandle setter = isFinal ? null : lookup.unreflectSetter(field).asType(SETTER_TYPE);
+				fields.add(new StaticField(field,getter,setter));
+			}
+			catch (IllegalAccessException | RuntimeException ex)
+			{
+				throw new TestHelpError("Could not make accessors for static field " + field,ex);
+			}
+		}
+		return fields.toArray(new StaticField[fields.size()]);
+	}
+
+	private static Object get(StaticField field)
+	{
+		try
+		{
+			return (Object)field.getter.invokeExact();
+		}
+		catch (Throwable ex)
+		{
+			throw new TestHelpError("Could not read static field " + field.field,ex);
+		}
+	}
+
+	/**
+	 * Copy the contents of an array, collection or map, or return null for any other object.
+	 */
+	private static Object copyContents(Object value)
+	{
+		if (value == null)
+		{
+			return null;
+		}
+		if (value.getClass().isArray())
+		{
+			return copyArray(value);
+		}
+		if (value instanceof Collection)
+		{
+			return new ArrayList<Object>((Collection<?>)value);
+		}
+		if (value instanceof Map)
+		{
+			return new LinkedHashMap<Object,Object>((Map<?,?>)value);
+		}
+		return null;
+	}
+
+	/**
+	 * Copy an array, and the arrays it contains at all levels.
+	 */
+	private static Object copyArray(Object array)
+	{
+		int length = Array.getLength(array);
+		Object copy = Array.newInstance(array.getClass().getComponentType(),length);
+		System.arraycopy(array,0,copy,0,length);
+		if (copy instanceof Object [])
+		{
+			Object [] elements = (Object [])copy;
+			for (int i = 0; i < length; i++)
+			{
+				if (elements[i] != null && elements[i].getClass().isArray())
+				{
+					elements[i] = copyArray(elements[i]);
+				}
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Copy saved contents back into an array, collection or map - a fresh copy of any contained array, so the saved contents are
+	 * never shared with code run.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void restoreContents(Object target, Object saved)
+	{
+		if (target.getClass().isArray())
+		{
+			Object copy = (saved instanceof Object []) ? copyArray(saved) : saved; // arrays of primitives contain no arrays
+			System.arraycopy(copy,0,target,0,Array.getLength(target));
+			return;
+		}
+		try
+		{
+			if (target instanceof Collection)
+			{
+				Collection<Object> collection = (Collection<Object>)target;
+				collection.clear();
+				collection.addAll((Collection<?>)saved);
+			}
+			else
+			{
+				Map<Object,Object> map = (Map<Object,Object>)target;
+				map.clear();
+				map.putAll((Map<?,?>)saved);
+			}
+		}
+		catch (UnsupportedOperationException ex)
+		{
+			// cannot be changed, so cannot have been changed by the run
+		}
+	}
+
+}
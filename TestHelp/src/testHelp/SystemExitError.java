@@ -0,0 +1,34 @@
+package testHelp;
+
+/**
+ * An error thrown in place of System.exit, Runtime.exit and Runtime.halt in classes loaded by an {@link ExitInterceptingClassLoader},
+ * so code under test that exits ends its run rather than the JVM running the tests - see {@link ConsoleTester#setExitInterception}.
+ * <p>
+ * ConsoleTester getOutput methods treat the error as the end of the run, not as an exception: the output is the output written before
+ * the exit, and the exit status is recorded, and can be got from {@link ConsoleTester#getExitStatusFromInfo()}.  Code that catches
+ * Throwable or Error around the exit call will catch it.
+ *
+ * @author John Armstrong
+ */
+public class SystemExitError extends Error
+{
+	private static final long serialVersionUID = 1L;
+
+	private final int status;
+
+	public SystemExitError(String message, int status) {
+		super(message);
+		this.status = status;
+	}
+
+	/**
+	 * Get the status passed to the exit call intercepted.
+	 *
+	 * @return the exit status
+	 */
+	public int getStatus()
+	{
+		return status;
+	}
+
+}
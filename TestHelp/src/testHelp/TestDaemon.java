@@ -0,0 +1,773 @@
+package testHelp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A long-lived process that runs test classes on request, so suites run again and again - by an instructor marking, or by a script -
+ * pay for JVM startup, and for loading and JIT compiling testHelp, once rather than on every run.  Started and used from the command
+ * line as:
+ * <pre>
+  java -cp testHelp.jar:junit.jar testHelp.TestDaemon serve
+  java -cp testHelp.jar testHelp.TestDaemon run bin:lib/extra.jar myPackage.MyTests myPackage.MoreTests
+  java -cp testHelp.jar testHelp.TestDaemon stop</pre>
+ *
+ * The daemon listens on a loopback socket ({@link #DEFAULT_PORT} unless a port is given after the command), so only local processes
+ * can reach it, and runs only requests that carry the token in {@link #TOKEN_FILE_NAME} in the user's home directory, so only
+ * processes of the user who started it can have it run code.  The daemon makes the file, readable and writable only by its owner,
+ * the first time it starts, and neither daemon nor client uses a token file that others can read or write.  Each run request loads the test classes, and the code they test, from the class path given, in a new class loader,
+ * so nothing is kept from one request to the next - except testHelp itself, loaded once by the daemon, along with any other class on
+ * the class path of the daemon, so the class path given should not repeat those.  While the tests run, the new loader is the thread
+ * context class loader and ConsoleTester's loader (see {@link ConsoleTester#setLoader}), so mains named to ConsoleTester are found on
+ * the class path given.  Other settings of ConsoleTester made by one suite and not set again by the next are kept.
+ * <p>
+ * Tests are found and run as the JUnit Jupiter engine would for simple test classes: each method annotated with Test (of JUnit
+ * Jupiter or JUnit 4), declared in the class or inherited, is called, in order of name, on a new instance of the class, through
+ * reflection, between methods annotated with BeforeEach (or Before) and AfterEach (or After), those of superclasses before those
+ * of subclasses for Before and after them for After; BeforeAll and AfterAll methods are called around the tests of the class.
+ * Tests and classes annotated with Disabled (or Ignore) are skipped, and not counted as run.  A class using any other feature of
+ * JUnit, such as extensions, nested, parameterized or repeated tests or rules, is reported as failed rather than run differently
+ * from JUnit.  Annotations are matched by name, so testHelp does not depend on the JUnit engine.  Output to System.out and System.err while the
+ * tests run, including testHelp's verbose output, is streamed to the client as it is written, followed by a line for each failure
+ * and a summary line.  The client exits with status 0 if all tests pass and 1 otherwise.
+ * <p>
+ * Requests are run one at a time, since tests share System.out and System.err.  A request that cannot be read or run is reported to
+ * the client as one failure, and the daemon goes on to the next.  A test that calls System.exit ends the daemon.
+ *
+ * @author John Armstrong
+ */
+public final class TestDaemon implements AutoCloseable
+{
+	/**
+	 * Port the daemon listens on unless another is given.
+	 */
+	public static final int DEFAULT_PORT = 47147;
+
+	/**
+	 * Name of the file in the user's home directory holding the token that requests must carry.
+	 */
+	public static final String TOKEN_FILE_NAME = ".testHelpDaemonToken";
+
+	// Connecting: the client sends the token, TOKEN_LENGTH hexadecimal digits, and the daemon answers a byte ACCEPTED or REFUSED,
+	// closing the connection if refused
+	static final int ACCEPTED = 1;
+	static final int REFUSED = 2;
+
+	// Requests: a byte RUN, the class path and the number and names of the test classes; or a byte STOP
+	static final int RUN = 1;
+	static final int STOP = 2;
+
+	// Responses: any number of frames of output, each a byte OUT or ERR and a string; then a byte DONE, the number of tests run and
+	// the number that failed
+	static final int OUT = 1;
+	static final int ERR = 2;
+	static final int DONE = 3;
+
+	static final int TOKEN_LENGTH = 64;
+
+	// Time a client has to send its token, so a connection that sends nothing does not hold up the daemon
+	private static final int TOKEN_TIMEOUT_MILLIS = 10000;
+
+	// Internals of testHelp initialized when the daemon starts, so the first request finds them ready
+	private static final String [] WARM_CLASSES = {"testHelp.ConsoleTester","testHelp.OutputInfo","testHelp.ErrorOutputChunker","testHelp.verify"};
+
+	// JUnit features the runner of the daemon does not support
+	private static final Set<String> UNSUPPORTED_ANNOTATIONS = new HashSet<>(Arrays.asList(
+			"org.junit.jupiter.api.Nested","org.junit.jupiter.api.RepeatedTest","org.junit.jupiter.api.TestFactory",
+			"org.junit.jupiter.api.TestTemplate","org.junit.jupiter.api.TestInstance","org.junit.jupiter.api.extension.ExtendWith",
+			"org.junit.jupiter.api.extension.RegisterExtension","org.junit.jupiter.params.ParameterizedTest",
+			"org.junit.runner.RunWith","org.junit.Rule","org.junit.ClassRule"));
+
+	private final ServerSocket serverSocket;
+	private final Thread acceptThread;
+	private final byte [] token;
+
+	private TestDaemon(int port, Path tokenFile) throws IOException
+	{
+		token = readToken(tokenFile,true);
+		serverSocket = new ServerSocket(port,50,InetAddress.getLoopbackAddress());
+		for (String className : WARM_CLASSES)
+		{
+			try
+			{
+				Class.forName(className,true,TestDaemon.class.getClassLoader());
+			}
+			catch (ClassNotFoundException ex)
+			{
+				throw new TestHelpError("testHelp class " + className + " not found",ex);
+			}
+		}
+		acceptThread = new Thread(this::serve,"TestDaemon on port " + getPort());
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	/**
+	 * Start a daemon in this JVM, listening on a thread of its own, with the token in {@link #TOKEN_FILE_NAME} in the user's home
+	 * directory.
+	 *
+	 * @param port the loopback port to listen on, 0 for any free port
+	 * @return the daemon
+	 * @throws IOException if the port cannot be listened on, or the token file cannot be read or made
+	 */
+	public static TestDaemon start(int port) throws IOException
+	{
+		return start(port,getDefaultTokenFile());
+	}
+
+	/**
+	 * Start a daemon in this JVM, listening on a thread of its own.
+	 *
+	 * @param port the loopback port to listen on, 0 for any free port
+	 * @param tokenFile the file holding the token requests must carry, made with a new token if there is none
+	 * @return the daemon
+	 * @throws IOException if the port cannot be listened on, or the token file cannot be read or made
+	 */
+	public static TestDaemon start(int port, Path tokenFile) throws IOException
+	{
+		return new TestDaemon(port,tokenFile);
+	}
+
+	/**
+	 * Get the token file used unless another is given: {@link #TOKEN_FILE_NAME} in the user's home directory.
+	 *
+	 * @return the path of the token file
+	 */
+	public static Path getDefaultTokenFile()
+	{
+		return Paths.get(System.getProperty("user.home"),TOKEN_FILE_NAME);
+	}
+
+	/**
+	 * Read the token from a token file, checking that only its owner can read or write it - where the file system has POSIX
+	 * permissions - and making it with a new random token if asked and there is none.
+	 */
+	static byte [] readToken(Path tokenFile, boolean create) throws IOException
+	{
+		boolean posix = Files.getFileStore(tokenFile.toAbsolutePath().getParent()).supportsFileAttributeView(PosixFileAttributeView.class);
+		if (create && !Files.exists(tokenFile))
+		{
+			byte [] random = new byte[TOKEN_LENGTH / 2];
+			new SecureRandom().nextBytes(random);
+			StringBuilder hex = new StringBuilder();
+			for (byte b : random)
+			{
+				hex.append(String.format("%02x",b & 0xff));
+			}
+			try
+			{
+				if (posix)
+				{
+					Files.createFile(tokenFile,PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+				}
+				else
+				{
+					Files.createFile(tokenFile);
+				}
+				Files.write(tokenFile,hex.toString().getBytes(StandardCharsets.US_ASCII));
+			}
+			catch (FileAlreadyExistsException ex)
+			{
+				// made by another daemon starting at the same time - use its token
+			}
+		}
+		if (!Files.exists(tokenFile))
+		{
+			throw new IOException("no TestDaemon token file " + tokenFile + " - start the daemon first");
+		}
+		if (posix && !PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile)).matches("r[w-]-------"))
+		{
+			throw new IOException("TestDaemon token file " + tokenFile + " may be read or written by others - make it readable only by its owner (chmod 600)");
+		}
+		byte [] token = new String(Files.readAllBytes(tokenFile),StandardCharsets.US_ASCII).trim().getBytes(StandardCharsets.US_ASCII);
+		if (token.length != TOKEN_LENGTH)
+		{
+			throw new IOException("TestDaemon token file " + tokenFile + " does not hold a token - delete it and start the daemon again");
+		}
+		return token;
+	}
+
+	/**
+	 * Get the port the daemon listens on.
+	 *
+	 * @return the port
+	 */
+	public int getPort()
+	{
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Stop listening.  A request being run is finished.
+	 */
+	@Override
+	public void close()
+	{
+		try
+		{
+			serverSocket.close();
+		}
+		catch (IOException ex)
+		{
+			// nothing more to do
+		}
+	}
+
+	private void serve()
+	{
+		while (!serverSocket.isClosed())
+		{
+			try (Socket socket = serverSocket.accept())
+			{
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				byte [] requestToken = new byte[TOKEN_LENGTH];
+				socket.setSoTimeout(TOKEN_TIMEOUT_MILLIS);
+				in.readFully(requestToken);
+				boolean accepted = MessageDigest.isEqual(requestToken,token);
+				out.writeByte(accepted ? ACCEPTED : REFUSED);
+				out.flush();
+				if (!accepted)
+				{
+					continue;
+				}
+				socket.setSoTimeout(0);
+				int request = in.read();
+				if (request == STOP)
+				{
+					close();
+				}
+				else if (request == RUN)
+				{
+					try
+					{
+						String classPath = WorkerProcess.readString(in);
+						String [] testClassNames = new String[in.readInt()];
+						for (int i = 0; i < testClassNames.length; i++)
+						{
+							testClassNames[i] = WorkerProcess.readString(in);
+						}
+						runRequest(classPath,testClassNames,out);
+					}
+					catch (RuntimeException | TestHelpError ex)
+					{
+						// a bad request or a failure outside the tests - report it, so the client does not wait for ever
+						reportRequestFailure(ex,out);
+					}
+				}
+			}
+			catch (SocketException | SocketTimeoutException | EOFException ex)
+			{
+				// closed, or the client went away or sent nothing
+			}
+			catch (IOException | RuntimeException | TestHelpError ex)
+			{
+				ex.printStackTrace(); // goes to the console of the daemon - the client has gone
+			}
+		}
+	}
+
+	/**
+	 * Report a request that could not be run to the client, as one failure.
+	 */
+	private static void reportRequestFailure(Throwable failure, DataOutputStream out) throws IOException
+	{
+		PrintStream clientErr = new PrintStream(new FrameOutputStream(out,ERR),true);
+		clientErr.println("FAIL request: TestDaemon could not run it: " + failure);
+		failure.printStackTrace(clientErr);
+		synchronized (out)
+		{
+			out.writeByte(DONE);
+			out.writeInt(0);
+			out.writeInt(1);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Run the tests of a request with System.out and System.err sent to the client.
+	 */
+	private static void runRequest(String classPath, String [] testClassNames, DataOutputStream out) throws IOException
+	{
+		PrintStream clientOut = new PrintStream(new FrameOutputStream(out,OUT),true);
+		PrintStream clientErr = new PrintStream(new FrameOutputStream(out,ERR),true);
+		PrintStream [] saved = ConsoleTester.replaceRealSystemOutAndErr(clientOut,clientErr);
+		ClassLoader savedLoader = ConsoleTester.getLoader();
+		Thread thread = Thread.currentThread();
+		ClassLoader savedContextLoader = thread.getContextClassLoader();
+		int [] counts; // run, failed
+		try (URLClassLoader loader = new URLClassLoader(toUrls(classPath),TestDaemon.class.getClassLoader()))
+		{
+			// classes named to ConsoleTester (getOutput("UserMain",...)) and those looked up through the context loader come from the
+			// class path of the request
+			ConsoleTester.setLoader(loader);
+			thread.setContextClassLoader(loader);
+			counts = runTestClasses(loader,testClassNames,clientErr);
+		}
+		finally
+		{
+			thread.setContextClassLoader(savedContextLoader);
+			ConsoleTester.setLoader(savedLoader);
+			ConsoleTester.replaceRealSystemOutAndErr(saved[0],saved[1]);
+			clientOut.flush();
+			clientErr.flush();
+		}
+		synchronized (out)
+		{
+			out.writeByte(DONE);
+			out.writeInt(counts[0]);
+			out.writeInt(counts[1]);
+			out.flush();
+		}
+	}
+
+	private static URL [] toUrls(String classPath) throws IOException
+	{
+		List<URL> urls = new ArrayList<>();
+		for (String entry : classPath.split(File.pathSeparator))
+		{
+			if (!entry.isEmpty())
+			{
+				urls.add(new File(entry).toURI().toURL());
+			}
+		}
+		return urls.toArray(new URL[urls.size()]);
+	}
+
+	/**
+	 * Run the tests of a number of test classes, reporting each failure and a summary.
+	 *
+	 * @param loader the loader to load the classes with
+	 * @param testClassNames the binary names of the test classes
+	 * @param report the stream to report failures and the summary to
+	 * @return the number of tests run and the number that failed
+	 */
+	static int [] runTestClasses(ClassLoader loader, String [] testClassNames, PrintStream report)
+	{
+		int run = 0;
+		int failed = 0;
+		int skipped = 0;
+		for (String className : testClassNames)
+		{
+			Class<?> testClass;
+			try
+			{
+				testClass = Class.forName(className,true,loader);
+			}
+			catch (ClassNotFoundException | LinkageError ex)
+			{
+				report.println("FAIL " + className + ": could not load class: " + ex);
+				failed++;
+				continue;
+			}
+			String unsupported = findUnsupported(testClass);
+			if (unsupported != null)
+			{
+				report.println("FAIL " + className + ": uses " + unsupported + ", which TestDaemon cannot run - run the class with JUnit");
+				failed++;
+				continue;
+			}
+			List<Method> superclassFirst = new ArrayList<>();
+			List<Method> subclassFirst = new ArrayList<>();
+			List<Method> tests = new ArrayList<>();
+			collectMethods(testClass,superclassFirst,subclassFirst,tests);
+			if (isAnnotated(testClass,"Disabled","Ignore"))
+			{
+				skipped += tests.size();
+				continue;
+			}
+			if (!invokeAll(superclassFirst,null,report,className,"BeforeAll"))
+			{
+				failed++;
+				continue;
+			}
+			for (Method method : tests)
+			{
+				if (isAnnotated(method,"Disabled","Ignore"))
+				{
+					skipped++;
+					continue;
+				}
+				run++;
+				String testName = className + "." + method.getName();
+				Object instance;
+				try
+				{
+					Constructor<?> constructor = testClass.getDeclaredConstructor();
+					constructor.setAccessible(true);
+					instance = constructor.newInstance();
+				}
+				catch (ReflectiveOperationException ex)
+				{
+					report.println("FAIL " + testName + ": could not make instance of test class: " + ex);
+					failed++;
+					continue;
+				}
+				boolean passed = invokeAll(superclassFirst,instance,report,testName,"BeforeEach","Before")
+						&& invoke(method,instance,report,testName);
+				passed &= invokeAll(subclassFirst,instance,report,testName,"AfterEach","After");
+				if (!passed)
+				{
+					failed++;
+				}
+			}
+			if (!invokeAll(subclassFirst,null,report,className,"AfterAll"))
+			{
+				failed++;
+			}
+		}
+		report.println("RAN " + run + " FAILED " + failed + ((skipped == 0) ? "" : " SKIPPED " + skipped));
+		return new int [] {run,failed};
+	}
+
+	/**
+	 * Collect the methods of a test class and its superclasses, leaving out those overridden: in order of name within each class,
+	 * superclass methods first (the order of Before methods) and subclass methods first (the order of After methods); and the Test
+	 * methods, in order of name.
+	 */
+	private static void collectMethods(Class<?> testClass, List<Method> superclassFirst, List<Method> subclassFirst, List<Method> tests)
+	{
+		Set<String> seen = new HashSet<>();
+		for (Class<?> type = testClass; type != null && type != Object.class; type = type.getSuperclass())
+		{
+			Method [] declared = type.getDeclaredMethods();
+			Arrays.sort(declared,Comparator.comparing(Method::getName));
+			List<Method> methods = new ArrayList<>();
+			for (Method method : declared)
+			{
+				// a method overridden in a subclass is seen there first; private and static methods are not overridden
+				String signature = method.getName() + Arrays.toString(method.getParameterTypes());
+				int modifiers = method.getModifiers();
+				if (method.isSynthetic() || (!seen.add(signature) && !Modifier.isPrivate(modifiers) && !Modifier.isStatic(modifiers)))
+				{
+					continue;
+				}
+				methods.add(method);
+				if (isAnnotated(method,"Test"))
+				{
+					tests.add(method);
+				}
+			}
+			subclassFirst.addAll(methods);
+			superclassFirst.addAll(0,methods);
+		}
+		tests.sort(Comparator.comparing(Method::getName));
+	}
+
+	/**
+	 * Find a JUnit feature used by a test class that TestDaemon does not support - so the class is reported rather than run
+	 * differently from JUnit - or null if there is none.
+	 */
+	private static String findUnsupported(Class<?> testClass)
+	{
+		for (Class<?> type = testClass; type != null && type != Object.class; type = type.getSuperclass())
+		{
+			List<AnnotatedElement> elements = new ArrayList<>();
+			elements.add(type);
+			elements.addAll(Arrays.asList(type.getDeclaredClasses()));
+			elements.addAll(Arrays.asList(type.getDeclaredMethods()));
+			elements.addAll(Arrays.asList(type.getDeclaredFields()));
+			for (AnnotatedElement element : elements)
+			{
+				for (Annotation annotation : element.getAnnotations())
+				{
+					String name = annotation.annotationType().getName();
+					if (UNSUPPORTED_ANNOTATIONS.contains(name))
+					{
+						return "@" + name;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Call the methods with any of the given annotations, static methods if instance is null, stopping at the first that throws.
+	 */
+	private static boolean invokeAll(List<Method> methods, Object instance, PrintStream report, String name, String... annotationNames)
+	{
+		for (Method method : methods)
+		{
+			if (Modifier.isStatic(method.getModifiers()) == (instance == null) && isAnnotated(method,annotationNames)
+					&& !invoke(method,instance,report,name))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Call a method through reflection - as JUnit does, and as ConsoleTester relies on to find the test it is called from.
+	 */
+	private static boolean invoke(Method method, Object instance, PrintStream report, String name)
+	{
+		try
+		{
+			method.setAccessible(true);
+			method.invoke(instance);
+			return true;
+		}
+		catch (InvocationTargetException ex)
+		{
+			report.println("FAIL " + name + ": " + ex.getCause());
+			ex.getCause().printStackTrace(report);
+		}
+		catch (ReflectiveOperationException | RuntimeException ex)
+		{
+			report.println("FAIL " + name + ": could not call " + method.getName() + ": " + ex);
+		}
+		return false;
+	}
+
+	private static boolean isAnnotated(AnnotatedElement element, String... annotationNames)
+	{
+		for (Annotation annotation : element.getAnnotations())
+		{
+			String name = annotation.annotationType().getName();
+			for (String annotationName : annotationNames)
+			{
+				if (name.equals("org.junit.jupiter.api." + annotationName) || name.equals("org.junit." + annotationName))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Output stream that sends each write to the client as a frame.
+	 */
+	private static final class FrameOutputStream extends OutputStream
+	{
+		private final DataOutputStream out;
+		private final int frameType;
+
+		FrameOutputStream(DataOutputStream out, int frameType)
+		{
+			this.out = out;
+			this.frameType = frameType;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			write(new byte [] {(byte)b},0,1);
+		}
+
+		@Override
+		public void write(byte [] b, int off, int len) throws IOException
+		{
+			synchronized (out)
+			{
+				out.writeByte(frameType);
+				out.writeInt(len);
+				out.write(b,off,len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			synchronized (out)
+			{
+				out.flush();
+			}
+		}
+	}
+
+	/**
+	 * Ask a daemon to run test classes, copying their output as it comes, with the token in {@link #TOKEN_FILE_NAME} in the user's
+	 * home directory.
+	 *
+	 * @param port the port of the daemon
+	 * @param classPath the class path of the test classes and the code they test, as for the java command
+	 * @param testClassNames the binary names of the test classes
+	 * @param out the stream to copy output to System.out to
+	 * @param err the stream to copy output to System.err, and the reports of failures, to
+	 * @return the number of tests run and the number that failed
+	 * @throws IOException if the daemon cannot be reached, refuses the request or goes away
+	 */
+	public static int [] run(int port, String classPath, List<String> testClassNames, OutputStream out, OutputStream err) throws IOException
+	{
+		return run(port,getDefaultTokenFile(),classPath,testClassNames,out,err);
+	}
+
+	/**
+	 * Ask a daemon to run test classes, copying their output as it comes.
+	 *
+	 * @param port the port of the daemon
+	 * @param tokenFile the file holding the token of the daemon
+	 * @param classPath the class path of the test classes and the code they test, as for the java command
+	 * @param testClassNames the binary names of the test classes
+	 * @param out the stream to copy output to System.out to
+	 * @param err the stream to copy output to System.err, and the reports of failures, to
+	 * @return the number of tests run and the number that failed
+	 * @throws IOException if the daemon cannot be reached, refuses the request or goes away
+	 */
+	public static int [] run(int port, Path tokenFile, String classPath, List<String> testClassNames, OutputStream out, OutputStream err)
+			throws IOException
+	{
+		try (Socket socket = connect(port,tokenFile))
+		{
+			DataOutputStream toDaemon = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			toDaemon.writeByte(RUN);
+			WorkerProcess.writeString(toDaemon,classPath);
+			toDaemon.writeInt(testClassNames.size());
+			for (String className : testClassNames)
+			{
+				WorkerProcess.writeString(toDaemon,className);
+			}
+			toDaemon.flush();
+
+			DataInputStream fromDaemon = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			byte [] buffer = new byte[8192];
+			for (int frameType = fromDaemon.readByte(); frameType != DONE; frameType = fromDaemon.readByte())
+			{
+				OutputStream copyTo = (frameType == OUT) ? out : err;
+				for (int length = fromDaemon.readInt(); length > 0; )
+				{
+					int count = fromDaemon.read(buffer,0,Math.min(length,buffer.length));
+					if (count < 0)
+					{
+						throw new IOException("TestDaemon went away during a run");
+					}
+					copyTo.write(buffer,0,count);
+					length -= count;
+				}
+				copyTo.flush();
+			}
+			return new int [] {fromDaemon.readInt(),fromDaemon.readInt()};
+		}
+	}
+
+	/**
+	 * Ask a daemon to stop, with the token in {@link #TOKEN_FILE_NAME} in the user's home directory.
+	 *
+	 * @param port the port of the daemon
+	 * @throws IOException if the daemon cannot be reached
+	 */
+	public static void stop(int port) throws IOException
+	{
+		stop(port,getDefaultTokenFile());
+	}
+
+	/**
+	 * Ask a daemon to stop.
+	 *
+	 * @param port the port of the daemon
+	 * @param tokenFile the file holding the token of the daemon
+	 * @throws IOException if the daemon cannot be reached
+	 */
+	public static void stop(int port, Path tokenFile) throws IOException
+	{
+		try (Socket socket = connect(port,tokenFile))
+		{
+			socket.getOutputStream().write(STOP);
+		}
+	}
+
+	/**
+	 * Connect to a daemon and give it the token.
+	 */
+	private static Socket connect(int port, Path tokenFile) throws IOException
+	{
+		byte [] token = readToken(tokenFile,false);
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(),port);
+		try
+		{
+			socket.getOutputStream().write(token);
+			if (socket.getInputStream().read() != ACCEPTED)
+			{
+				throw new IOException("TestDaemon on port " + port + " refused the request - its token is not the one in " + tokenFile);
+			}
+			return socket;
+		}
+		catch (IOException ex)
+		{
+			socket.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Serve, run tests or stop, from the command line - see the class description.
+	 *
+	 * @param args {@literal serve [port]}, {@literal run [-port <port>] <classpath> <testClass>...} or {@literal stop [port]}
+	 * @throws Exception if the daemon cannot be started or reached
+	 */
+	public static void main(String [] args) throws Exception
+	{
+		String command = (args.length == 0) ? "" : args[0];
+		List<String> rest = new ArrayList<>(Arrays.asList(args).subList(Math.min(1,args.length),args.length));
+		int port = DEFAULT_PORT;
+		if (command.equals("run") && rest.size() >= 2 && rest.get(0).equals("-port"))
+		{
+			port = Integer.parseInt(rest.remove(1));
+			rest.remove(0);
+		}
+		else if (!command.equals("run") && rest.size() == 1)
+		{
+			port = Integer.parseInt(rest.remove(0));
+		}
+
+		if (command.equals("serve") && rest.isEmpty())
+		{
+			TestDaemon daemon = start(port);
+			System.out.println("TestDaemon listening on port " + daemon.getPort());
+			daemon.acceptThread.join();
+		}
+		else if (command.equals("run") && rest.size() >= 2)
+		{
+			int [] counts = run(port,rest.get(0),rest.subList(1,rest.size()),System.out,System.err);
+			System.exit(counts[1] == 0 ? 0 : 1);
+		}
+		else if (command.equals("stop") && rest.isEmpty())
+		{
+			stop(port);
+		}
+		else
+		{
+			System.err.println("usage: TestDaemon serve [port] | run [-port <port>] <classpath> <testClass>... | stop [port]");
+			System.exit(2);
+		}
+	}
+
+}
@@ -0,0 +1,216 @@
+package testHelp;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Internal (package-private) runner of the code of a bundled getOutput call on a worker thread with a deadline - see
+ * {@link ConsoleTester#getOutputFromVFunctionWithTimeout}.
+ * <p>
+ * The worker is a virtual thread if the JDK supports them (Java 21 and later, found by reflection since testHelp is built for
+ * Java 8) and otherwise a daemon platform thread.  At the deadline the worker is interrupted and, if it has not ended after
+ * {@link #INTERRUPT_GRACE_MILLIS}, abandoned - Java has no safe way of stopping a thread that ignores interrupts.  An abandoned
+ * worker keeps running, but its System.in, System.out and System.err are switched to an empty stream and to streams that discard
+ * output, so it cannot read the input or write to the output of later runs - for as long as it runs, System streams are the delegating
+ * streams of ConsoleTester, through which the switch takes effect, and when it ends they are put back.  While any abandoned worker is still alive, new
+ * workers are platform threads, since a virtual thread looping without blocking would keep its carrier thread.
+ *
+ * @author John Armstrong
+ */
+class TimeoutRunner
+{
+	/**
+	 * Milliseconds the worker is given to end after it is interrupted at the deadline before it is abandoned.
+	 */
+	static final long INTERRUPT_GRACE_MILLIS = 100;
+
+	private static final List<Thread> abandonedWorkers = new ArrayList<>();
+
+	private static final PrintStream discardStream = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b)
+		{
+			// discard
+		}
+
+		@Override
+		public void write(byte b[], int off, int len)
+		{
+			// discard
+		}
+	});
+
+	private final DelegatingInputStream workerIn;
+	private final DelegatingPrintStream workerOut;
+	private final DelegatingPrintStream workerErr;
+
+	private volatile Object value;
+	private volatile Throwable exception;
+
+	/**
+	 * Create a runner for the getOutput call described by an OutputInfo, which must have been started with getOutputStart.
+	 *
+	 * @param info the OutputInfo of the thread that creates the runner
+	 */
+	TimeoutRunner(OutputInfo info)
+	{
+		workerIn = new DelegatingInputStream(info.inputBytes);
+		workerOut = new DelegatingPrintStream(info.outputStream);
+		workerErr = new DelegatingPrintStream((info.errorStream != null) ? info.errorStream : info.savedSystemErr);
+	}
+
+	/**
+	 * Run code on a worker thread and wait until it returns or the deadline passes.
+	 *
+	 * @param body the code to run, returning the value of the run
+	 * @param timeoutMillis milliseconds to wait for the code to return
+	 * @return null if the code returned (normally or by throwing) before the deadline, else an OutputTimeoutError with the stack
+	 * 	trace of the worker at the deadline
+	 */
+	OutputTimeoutError run(Supplier<Object> body, long timeoutMillis)
+	{
+		Thread worker = newWorkerThread(() -> {
+			ConsoleTester.redirectWorkerThreadStreams(workerIn,workerOut,workerErr);
+			try
+			{
+				value = body.get();
+			}
+			catch (Throwable ex)
+			{
+				exception = ex;
+			}
+		},"ConsoleTester timeout worker");
+		worker.start();
+
+		boolean interrupted = false;
+		try
+		{
+			worker.join(timeoutMillis);
+		}
+		catch (InterruptedException ex)
+		{
+			interrupted = true; // treat as deadline reached
+		}
+		if (!worker.isAlive())
+		{
+			if (interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}
+
+		StackTraceElement [] stackTrace = worker.getStackTrace();
+		worker.interrupt();
+		try
+		{
+			worker.join(INTERRUPT_GRACE_MILLIS);
+		}
+		catch (InterruptedException ex)
+		{
+			interrupted = true;
+		}
+
+		String message;
+		if (worker.isAlive())
+		{
+			abandon(worker,workerIn,workerOut,workerErr);
+			message = String.format("Timed out after %d ms - worker thread did not end when interrupted and was abandoned",timeoutMillis);
+		}
+		else
+		{
+			message = String.format("Timed out after %d ms - worker thread ended when interrupted",timeoutMillis);
+		}
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		OutputTimeoutError error = new OutputTimeoutError(message);
+		error.setStackTrace(stackTrace);
+		return error;
+	}
+
+	/**
+	 * Get the value returned by the code run, if it returned normally before the deadline.
+	 */
+	Object getValue()
+	{
+		return value;
+	}
+
+	/**
+	 * Get the exception thrown by the code run, if it threw one before the deadline.
+	 */
+	Throwable getException()
+	{
+		return exception;
+	}
+
+	/**
+	 * Cut an abandoned worker off from the streams of the run and remember it - also used by ConsoleDialogue for a worker that
+	 * did not end after a failed step.
+	 *
+	 * @param worker the worker, still alive
+	 * @param workerIn the stream the worker reads System.in from, switched to an empty stream
+	 * @param workerOut the stream the worker writes System.out to, switched to a stream that discards output
+	 * @param workerErr the stream the worker writes System.err to, switched to a stream that discards output
+	 */
+	static void abandon(Thread worker, DelegatingInputStream workerIn, DelegatingPrintStream workerOut, DelegatingPrintStream workerErr)
+	{
+		workerIn.setInputStream(new ByteArrayInputStream(new byte[0]));
+		workerOut.setPrintStream(discardStream);
+		workerErr.setPrintStream(discardStream);
+		ConsoleTester.holdSystemStreamsDelegatedWhileAlive(() -> worker.isAlive() ? Collections.singletonList(worker) : Collections.emptyList());
+
+		synchronized (abandonedWorkers)
+		{
+			abandonedWorkers.add(worker);
+		}
+	}
+
+	/**
+	 * Make a worker thread - a virtual thread if the JDK supports them and no abandoned worker is still alive, else a daemon
+	 * platform thread.
+	 *
+	 * @param runnable the code for the thread to run
+	 * @param name the name of the thread
+	 * @return the thread, not started
+	 */
+	static Thread newWorkerThread(Runnable runnable, String name)
+	{
+		boolean abandonedWorkerAlive;
+		synchronized (abandonedWorkers)
+		{
+			abandonedWorkers.removeIf(thread -> !thread.isAlive());
+			abandonedWorkerAlive = !abandonedWorkers.isEmpty();
+		}
+
+		if (!abandonedWorkerAlive)
+		{
+			try
+			{
+				Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+				Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+				builder = builderClass.getMethod("name",String.class).invoke(builder,name);
+				Method unstarted = builderClass.getMethod("unstarted",Runnable.class);
+				return (Thread)unstarted.invoke(builder,runnable);
+			}
+			catch (ReflectiveOperationException ex)
+			{
+				// no virtual threads before Java 21 (or 19 and 20 without preview features) - fall through
+			}
+		}
+
+		Thread thread = new Thread(runnable,name);
+		thread.setDaemon(true); // so an abandoned worker does not keep the JVM alive
+		return thread;
+	}
+
+}
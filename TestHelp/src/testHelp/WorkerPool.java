@@ -0,0 +1,339 @@
+package testHelp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of worker JVMs, started ahead of use, that run mains in processes of their own - for code that may crash the JVM, exhaust
+ * the heap, loop without end or use native code, which no isolation within the test JVM can contain.  As:
+ * <pre>
+  try (WorkerPool pool = new WorkerPool(2,100))
+  {
+      WorkerResult result = pool.getOutput("myPackage.MyMain",null,"some input\n",5000);
+      verify.that(result.getOutput()).isEqualTo("expected output");
+  }</pre>
+ *
+ * Each worker runs the class path of the test JVM, has ConsoleTester loaded and warmed up before its first job, and runs jobs one
+ * at a time, each with its main class loaded afresh and with System.exit intercepted - see WorkerProcess.  Jobs and results pass
+ * over the standard input and output of the worker in a compact binary protocol, so a job costs little more than the same run in
+ * the test JVM.  Classes given to {@link ConsoleTester#setLoader} are not seen by workers.
+ * <p>
+ * A worker is replaced by a new one after a given number of jobs, when a job times out (the worker is killed), when the worker
+ * ends unexpectedly and after a job throws a VirtualMachineError, as OutOfMemoryError.  If a replacement cannot be started, the pool
+ * keeps its place and tries again for the next job, which fails if the worker still cannot be started.  The pool can be used by
+ * several threads at once, each job waiting for an idle worker; jobs waiting when the pool is closed fail.
+ *
+ * @author John Armstrong
+ */
+public final class WorkerPool implements AutoCloseable
+{
+	/**
+	 * Milliseconds a worker is given to end when the pool is closed before it is killed.
+	 */
+	static final long QUIT_GRACE_MILLIS = 1000;
+
+	private final int jobsPerWorker;
+	private final List<String> command;
+	private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+	private final List<Worker> allWorkers = new ArrayList<>(); // for close
+	private final AtomicInteger startCount = new AtomicInteger();
+	private final ScheduledExecutorService killer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable,"WorkerPool timeouts");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private volatile boolean closed = false;
+
+	/**
+	 * A worker JVM and the streams to talk to it.
+	 */
+	private static final class Worker
+	{
+		final Process process;
+		final DataOutputStream toWorker;
+		final DataInputStream fromWorker;
+		int jobCount = 0;
+
+		Worker(Process process)
+		{
+			this.process = process;
+			this.toWorker = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+			this.fromWorker = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+		}
+
+		/**
+		 * Make a marker, queued among idle workers.
+		 */
+		Worker()
+		{
+			this.process = null;
+			this.toWorker = null;
+			this.fromWorker = null;
+		}
+	}
+
+	// Queued in place of a worker that could not be started, so the pool does not shrink - the job that takes it starts one
+	private static final Worker NO_WORKER = new Worker();
+
+	// Queued when the pool is closed, and put back by each job that takes it, so jobs waiting for a worker do not wait for ever
+	private static final Worker POOL_CLOSED = new Worker();
+
+	/**
+	 * Start a pool of worker JVMs.  Returns once the processes are started, without waiting for the JVMs to be ready - the first job
+	 * given to each waits for that.
+	 *
+	 * @param size the number of workers
+	 * @param jobsPerWorker the number of jobs each worker runs before it is replaced
+	 * @param jvmOptions options for the worker JVMs, as "-Xmx256m"
+	 * @throws TestHelpError if a worker cannot be started or size or jobsPerWorker is less than 1
+	 */
+	public WorkerPool(int size, int jobsPerWorker, String... jvmOptions)
+	{
+		if (size < 1 || jobsPerWorker < 1)
+		{
+			throw new TestHelpError("WorkerPool size and jobsPerWorker must be at least 1");
+		}
+		this.jobsPerWorker = jobsPerWorker;
+		command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-Dsun.reflect.inflationThreshold=" + Integer.MAX_VALUE); // see WorkerProcess.invoke
+		command.addAll(Arrays.asList(jvmOptions));
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(WorkerProcess.class.getName());
+		try
+		{
+			for (int i = 0; i < size; i++)
+			{
+				idleWorkers.add(startWorker());
+			}
+		}
+		catch (TestHelpError ex)
+		{
+			close();
+			throw ex;
+		}
+	}
+
+	private Worker startWorker()
+	{
+		try
+		{
+			Worker worker = new Worker(new ProcessBuilder(command).redirectError(Redirect.INHERIT).start());
+			startCount.incrementAndGet();
+			synchronized (allWorkers)
+			{
+				allWorkers.add(worker);
+			}
+			return worker;
+		}
+		catch (IOException ex)
+		{
+			throw new TestHelpError("Could not start worker JVM with " + command,ex);
+		}
+	}
+
+	/**
+	 * Run the main method of a class in a worker, waiting for an idle worker if there is none.
+	 *
+	 * @param className the binary name of the class, which must be public and on the class path of the test JVM
+	 * @param mainArgs an array of strings to be passed as args to main - no args may be passed as null
+	 * @param input text to feed to System.in
+	 * @param timeoutMillis milliseconds after which the worker is killed if main has not ended, 0 for no limit
+	 * @return the result of the job - failed if a worker JVM could not be started for it
+	 * @throws TestHelpError if the pool is closed or the thread is interrupted while waiting for a worker
+	 */
+	public WorkerResult getOutput(String className, String [] mainArgs, String input, long timeoutMillis)
+	{
+		if (closed)
+		{
+			throw new TestHelpError("WorkerPool is closed");
+		}
+		Worker taken;
+		try
+		{
+			taken = idleWorkers.take();
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new TestHelpError("Interrupted while waiting for a worker",ex);
+		}
+		if (taken == POOL_CLOSED)
+		{
+			idleWorkers.add(POOL_CLOSED); // for the next job waiting
+			throw new TestHelpError("WorkerPool is closed");
+		}
+		if (taken == NO_WORKER)
+		{
+			try
+			{
+				taken = startWorker();
+			}
+			catch (TestHelpError ex)
+			{
+				idleWorkers.add(NO_WORKER);
+				return WorkerResult.failed(ex.getMessage() + ": " + ex.getCause());
+			}
+		}
+		Worker worker = taken;
+
+		AtomicBoolean timedOut = new AtomicBoolean();
+		ScheduledFuture<?> kill = (timeoutMillis <= 0) ? null : killer.schedule(() -> {
+			timedOut.set(true);
+			worker.process.destroyForcibly();
+		},timeoutMillis,TimeUnit.MILLISECONDS);
+		WorkerResult result;
+		boolean replace;
+		try
+		{
+			WorkerProcess.writeJob(worker.toWorker,className,mainArgs,input == null ? "" : input);
+			result = WorkerProcess.readResult(worker.fromWorker);
+			replace = WorkerProcess.readReplace(worker.fromWorker);
+		}
+		catch (IOException ex)
+		{
+			result = WorkerResult.failed(timedOut.get() ? "timed out after " + timeoutMillis + " ms" : describeEnd(worker.process));
+			replace = true;
+		}
+		finally
+		{
+			if (kill != null)
+			{
+				kill.cancel(false);
+			}
+		}
+
+		worker.jobCount++;
+		if (replace || timedOut.get() || worker.jobCount >= jobsPerWorker || closed)
+		{
+			stopWorker(worker);
+			if (!closed)
+			{
+				idleWorkers.add(startWorkerOrMark());
+			}
+		}
+		else
+		{
+			idleWorkers.add(worker);
+			if (closed && idleWorkers.remove(worker)) // closed while the job ran, and missed by close
+			{
+				stopWorker(worker);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Start a worker to replace another, or get {@link #NO_WORKER} if it cannot be started.
+	 */
+	private Worker startWorkerOrMark()
+	{
+		try
+		{
+			return startWorker();
+		}
+		catch (TestHelpError ex)
+		{
+			return NO_WORKER;
+		}
+	}
+
+	private static String describeEnd(Process process)
+	{
+		try
+		{
+			if (process.waitFor(QUIT_GRACE_MILLIS,TimeUnit.MILLISECONDS))
+			{
+				return "worker JVM ended with exit code " + process.exitValue();
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		return "worker JVM stopped responding";
+	}
+
+	/**
+	 * Tell a worker to quit, and kill it if it has not ended after {@link #QUIT_GRACE_MILLIS}.
+	 */
+	private void stopWorker(Worker worker)
+	{
+		synchronized (allWorkers)
+		{
+			allWorkers.remove(worker);
+		}
+		try
+		{
+			worker.toWorker.writeByte(WorkerProcess.QUIT);
+			worker.toWorker.close();
+		}
+		catch (IOException ex)
+		{
+			// already ended
+		}
+		killer.schedule(() -> {
+			worker.process.destroyForcibly();
+		},QUIT_GRACE_MILLIS,TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Get the number of worker JVMs started by the pool, including those that replaced others.
+	 *
+	 * @return the number of workers started
+	 */
+	public int getStartCount()
+	{
+		return startCount.get();
+	}
+
+	/**
+	 * Stop all workers - idle workers now, workers running a job when their job ends.  Jobs waiting for a worker fail.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		List<Worker> workers;
+		synchronized (allWorkers)
+		{
+			workers = new ArrayList<>(allWorkers);
+		}
+		for (Worker worker : workers)
+		{
+			if (idleWorkers.remove(worker))
+			{
+				stopWorker(worker);
+			}
+		}
+		while (idleWorkers.remove(NO_WORKER))
+		{
+			// and any other
+		}
+		idleWorkers.add(POOL_CLOSED);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("WorkerPool: %d jobs per worker, %d workers started%s",jobsPerWorker,getStartCount(),closed ? ", closed" : "");
+	}
+
+}
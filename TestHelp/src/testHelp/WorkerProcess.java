@@ -0,0 +1,220 @@
+package testHelp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Internal (package-private) main of the worker JVMs of a {@link WorkerPool}, and the protocol by which the pool talks to them.
+ * <p>
+ * The worker reads jobs from its standard input and writes results to its standard output, one at a time.  The real standard output
+ * is kept for results only: System.out is switched to System.err, so output of code outside a run (as a thread left running by an
+ * earlier job) goes to the console rather than corrupting the protocol.  Each job is run by {@link ConsoleTester#getOutput(String,
+ * String[], String, String...)} with class isolation and interception of exits for the package of the main class, so a job
+ * sees none of the static state of earlier jobs and cannot end the worker by calling System.exit.
+ * <p>
+ * The protocol is binary, through DataInputStream and DataOutputStream.  A job is a byte {@link #RUN}, the class name, the number of
+ * arguments (-1 for null) and each argument, and the input.  A result is the output, the error output, the description of the
+ * exception thrown, whether there is an exit status and the status, the nanoseconds taken, and whether the worker should be replaced,
+ * as after an OutOfMemoryError, which may leave it unusable.  Strings are written as an int length in bytes (-1 for null) and UTF-8
+ * bytes, so they are not limited to the 64K of writeUTF.  A byte {@link #QUIT}, or the end of input, ends the worker.
+ *
+ * @author John Armstrong
+ */
+final class WorkerProcess
+{
+	static final int QUIT = 0;
+	static final int RUN = 1;
+
+	private WorkerProcess()
+	{
+		// not instantiated
+	}
+
+	/**
+	 * Run jobs read from standard input until told to quit.
+	 *
+	 * @param args not used
+	 * @throws IOException if standard input or output fails, as when the pool has gone away
+	 */
+	public static void main(String [] args) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+		System.setOut(System.err);
+		System.setIn(new ByteArrayInputStream(new byte[0]));
+
+		ConsoleTester.setVerboseLevel(0);
+		invoke(WARM_UP); // load and initialize ConsoleTester and capture before the first job
+
+		while (in.read() == RUN)
+		{
+			String className = readString(in);
+			int argCount = in.readInt();
+			String [] mainArgs = (argCount < 0) ? null : new String[argCount];
+			for (int i = 0; i < argCount; i++)
+			{
+				mainArgs[i] = readString(in);
+			}
+			String input = readString(in);
+			invoke(RUN_JOB,className,mainArgs,input,out);
+			out.flush();
+		}
+	}
+
+	private static final Method WARM_UP = findMethod("warmUp");
+	private static final Method RUN_JOB = findMethod("runJob",String.class,String [].class,String.class,DataOutputStream.class);
+
+	private static Method findMethod(String name, Class<?>... parameterTypes)
+	{
+		try
+		{
+			return WorkerProcess.class.getDeclaredMethod(name,parameterTypes);
+		}
+		catch (NoSuchMethodException ex)
+		{
+			throw new TestHelpError("WorkerProcess method " + name + " not found",ex);
+		}
+	}
+
+	/**
+	 * Call a method of the worker through reflection, as JUnit calls a test method, since ConsoleTester finds the test it is called
+	 * from by looking for the reflective call on the stack (see OutputInfo.getTestNameInfo).  The pool starts workers with
+	 * reflection inflation off, so the call stays a native reflective call however many jobs are run.
+	 */
+	private static void invoke(Method method, Object... args) throws IOException
+	{
+		try
+		{
+			method.invoke(null,args);
+		}
+		catch (InvocationTargetException ex)
+		{
+			if (ex.getCause() instanceof IOException)
+			{
+				throw (IOException)ex.getCause();
+			}
+			throw new TestHelpError("Worker " + method.getName() + " threw " + ex.getCause(),ex.getCause());
+		}
+		catch (IllegalAccessException ex)
+		{
+			throw new TestHelpError("Could not call worker " + method.getName(),ex);
+		}
+	}
+
+	private static void warmUp()
+	{
+		Consumer<String []> warmUp = warmUpArgs -> System.out.print("warm");
+		ConsoleTester.getOutput(warmUp,null,"","warm up");
+	}
+
+	private static void runJob(String className, String [] mainArgs, String input, DataOutputStream out) throws IOException
+	{
+		// the main class as well as its package, since classes of package testHelp are only isolated when named - see IsolatingClassLoader
+		int lastDot = className.lastIndexOf('.');
+		String [] prefixes = {(lastDot < 0) ? className : className.substring(0,lastDot + 1),className};
+		ConsoleTester.getOutputReset();
+		ConsoleTester.setClassIsolation(true,prefixes);
+		ConsoleTester.setExitInterception(true,prefixes);
+		long start = System.nanoTime();
+		String output = ConsoleTester.getOutput(className,mainArgs,input);
+		long nanos = System.nanoTime() - start;
+
+		Throwable exception = ConsoleTester.getExceptionFromInfo();
+		String exceptionDescription = null;
+		if (exception != null)
+		{
+			output = ConsoleTester.getOutputBeforeExceptionFromInfo();
+			StringWriter stackTrace = new StringWriter();
+			exception.printStackTrace(new PrintWriter(stackTrace));
+			exceptionDescription = stackTrace.toString();
+		}
+		writeString(out,output);
+		writeString(out,ConsoleTester.getErrorOutputFromInfo());
+		writeString(out,exceptionDescription);
+		Integer exitStatus = ConsoleTester.getExitStatusFromInfo();
+		out.writeBoolean(exitStatus != null);
+		out.writeInt((exitStatus == null) ? 0 : exitStatus);
+		out.writeLong(nanos);
+		out.writeBoolean(exception instanceof VirtualMachineError);
+	}
+
+	/**
+	 * Write a job to a worker.
+	 */
+	static void writeJob(DataOutputStream out, String className, String [] mainArgs, String input) throws IOException
+	{
+		out.writeByte(RUN);
+		writeString(out,className);
+		out.writeInt((mainArgs == null) ? -1 : mainArgs.length);
+		if (mainArgs != null)
+		{
+			for (String arg : mainArgs)
+			{
+				writeString(out,arg);
+			}
+		}
+		writeString(out,input);
+		out.flush();
+	}
+
+	/**
+	 * Read the result of a job from a worker, apart from whether the worker should be replaced, which follows it - see
+	 * {@link #readReplace}.
+	 */
+	static WorkerResult readResult(DataInputStream in) throws IOException
+	{
+		String output = readString(in);
+		String errorOutput = readString(in);
+		String exception = readString(in);
+		boolean exited = in.readBoolean();
+		int exitStatus = in.readInt();
+		long nanos = in.readLong();
+		return new WorkerResult(output,errorOutput,exception,exited ? Integer.valueOf(exitStatus) : null,nanos,null);
+	}
+
+	/**
+	 * Read whether a worker should be replaced, following the result of each job.
+	 */
+	static boolean readReplace(DataInputStream in) throws IOException
+	{
+		return in.readBoolean();
+	}
+
+	static void writeString(DataOutputStream out, String string) throws IOException
+	{
+		if (string == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		byte [] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+		if (length < 0)
+		{
+			return null;
+		}
+		byte [] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes,StandardCharsets.UTF_8);
+	}
+
+}
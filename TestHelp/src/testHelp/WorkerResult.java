@@ -0,0 +1,113 @@
+package testHelp;
+
+/**
+ * The result of a job run in a worker JVM by {@link WorkerPool#getOutput} - the equivalent of what ConsoleTester keeps in OutputInfo
+ * for a run in the test JVM, as far as it can be sent from another process: the output, the error output, a description of the
+ * exception thrown, the exit status and the time taken.  If the worker JVM ended or was stopped before the job ended, there is only
+ * a description of the failure.
+ *
+ * @author John Armstrong
+ */
+public final class WorkerResult
+{
+	private final String output;
+	private final String errorOutput;
+	private final String exception;
+	private final Integer exitStatus;
+	private final long nanos;
+	private final String workerFailure;
+
+	/**
+	 * Make a result - by WorkerProcess for a job that ended, by WorkerPool for one whose worker failed.
+	 */
+	WorkerResult(String output, String errorOutput, String exception, Integer exitStatus, long nanos, String workerFailure)
+	{
+		this.output = output;
+		this.errorOutput = errorOutput;
+		this.exception = exception;
+		this.exitStatus = exitStatus;
+		this.nanos = nanos;
+		this.workerFailure = workerFailure;
+	}
+
+	/**
+	 * Make the result of a job whose worker failed.
+	 */
+	static WorkerResult failed(String workerFailure)
+	{
+		return new WorkerResult(null,null,null,null,0,workerFailure);
+	}
+
+	/**
+	 * Get the output of the job - text output to System.out, trimmed as by getOutput methods.  Unlike getOutput methods, the output
+	 * of a job that throws is the output before the exception - see {@link #getException()}.
+	 *
+	 * @return the output, or null if the worker failed
+	 */
+	public String getOutput()
+	{
+		return output;
+	}
+
+	/**
+	 * Get the output of the job to System.err, as {@link ConsoleTester#getErrorOutputFromInfo} would.
+	 *
+	 * @return the error output, or null if the worker failed
+	 */
+	public String getErrorOutput()
+	{
+		return errorOutput;
+	}
+
+	/**
+	 * Get the stack trace of the exception thrown by the job, as printed in the worker.
+	 *
+	 * @return the stack trace, or null if the job returned normally or the worker failed
+	 */
+	public String getException()
+	{
+		return exception;
+	}
+
+	/**
+	 * Get the exit status of the job, if it called System.exit, Runtime.exit or Runtime.halt (which are intercepted).
+	 *
+	 * @return the exit status, or null if the job did not exit or the worker failed
+	 */
+	public Integer getExitStatus()
+	{
+		return exitStatus;
+	}
+
+	/**
+	 * Get the time taken by the job in the worker, not counting sending the job and its result.
+	 *
+	 * @return elapsed nanoseconds, 0 if the worker failed
+	 */
+	public long getNanos()
+	{
+		return nanos;
+	}
+
+	/**
+	 * Get a description of the failure of the worker JVM running the job, as when it timed out or crashed.
+	 *
+	 * @return the description, or null if the job ended in the worker
+	 */
+	public String getWorkerFailure()
+	{
+		return workerFailure;
+	}
+
+	@Override
+	public String toString()
+	{
+		if (workerFailure != null)
+		{
+			return "WorkerResult: worker failed: " + workerFailure;
+		}
+		return String.format("WorkerResult: %s%s, %.3f ms: %s",(exception != null) ? "exception, " : "",
+				(exitStatus != null) ? "exit status " + exitStatus : "no exit",nanos / 1e6,output);
+	}
+
+}
@@ -10,18 +10,47 @@ Original, refactored and extended
 <p>
 Extensions
 <ul>
+<li>BatchCase</li>
+<li>BatchResults</li>
+<li>ByteCharSequence</li>
+<li>CaptureBuffers</li>
+<li>CaptureOutputStream</li>
+<li>CaptureSession</li>
+<li>ClassBytesCache</li>
+<li>ConsoleDialogue</li>
 <li>DelegatingInputStream</li>
 <li>DelegatingPrintStream</li>
 <li>ErrorOutputChunker</li>
+<li>ExitInterceptingClassLoader</li>
+<li>ExitInterceptor</li>
+<li>InputPreviewStream</li>
+<li>IsolatingClassLoader</li>
+<li>LiveTee</li>
+<li>OutputExpectation</li>
 <li>OutputInfo</li>
+<li>OutputLimitPolicy</li>
+<li>ReaderInputStream</li>
+<li>SourceCompiler</li>
+<li>SpawnedThreadTracker</li>
+<li>StaticStateSnapshot</li>
+<li>TestDaemon</li>
+<li>TimeoutRunner</li>
+<li>WorkerPool</li>
+<li>WorkerProcess</li>
+<li>WorkerResult</li>
 </ul>
 <p>
 Unittest
 <ul>
+<li>CaptureSessionTests</li>
 <li>ConsoleTesterTests</li>
+<li>ConsoleTesterThreadScopedTests</li>
 <li>ConsoleTesterVFunctionAndVUnboundMethodTests</li>
 <li>MiscTests</li>
 <li>SampleOutputInfoPrintingTests</li>
+<li>TestClassThatHangs</li>
+<li>TestClassWithExit</li>
+<li>TestClassWithStatics</li>
 </ul>
 <p>
 (2)  ASSERTIONS (all called directly or indirectly through fluent verify interface)
@@ -29,7 +58,9 @@ Unittest
 Original
 <ul>
 <li>BooleanAssertion</li>
+<li>ByteBufferAssertion</li>
 <li>CallableAssertion</li>
+<li>CharSequenceAssertion</li>
 <li>CollectionAssertion</li>
 <li>CompareType</li>
 <li>DoubleAssertion</li>
@@ -81,6 +112,12 @@ Unittests
 <p>
 (4)  EXCEPTIONS - all extensions
 <ul>
+<li>ConsoleDialogueError</li>
+<li>OutputLimitExceededError</li>
+<li>OutputMismatchError</li>
+<li>OutputTimeoutError</li>
+<li>SourceCompilationError</li>
+<li>SystemExitError</li>
 <li>TestHelpError</li>
 <li>WrappedException</li>
 </ul>
@@ -2,6 +2,7 @@ package testHelp;
 
 import static testHelp.AssertionTools.*;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.concurrent.Callable; 
 
@@ -39,6 +40,38 @@ public class verify
 		return new StringAssertion(subject,subjectDescArg);
 	}
 
+	/**
+	 * verify things about a CharSequence, in particular a view of captured output returned by ConsoleTester.getOutputFinishAsView
+	 * or ConsoleTester.getOutputViewFromVFunction, without copying it into a String
+	 *
+	 * @param subject the CharSequence to examine
+	 * @param subjectDescArg an optional description of the CharSequence
+	 * @return a new CharSequenceAssertion initialized with subject CharSequence and description
+	 * @throws java.lang.AssertionError if an exception has previously been caught and stored in outputInfo
+	 */
+	public static CharSequenceAssertion that(CharSequence subject, String ... subjectDescArg)
+	{
+		syncInfo();
+		noExceptionThrown(false);
+		return new CharSequenceAssertion(subject,subjectDescArg);
+	}
+
+	/**
+	 * verify things about a ByteBuffer, in particular binary output returned by ConsoleTester.getOutputFinishAsBytes or
+	 * ConsoleTester.getOutputBytesFromVFunction, byte by byte rather than as text
+	 *
+	 * @param subject the ByteBuffer to examine - its remaining bytes are examined and its position is not changed
+	 * @param subjectDescArg an optional description of the ByteBuffer
+	 * @return a new ByteBufferAssertion initialized with subject ByteBuffer and description
+	 * @throws java.lang.AssertionError if an exception has previously been caught and stored in outputInfo
+	 */
+	public static ByteBufferAssertion that(ByteBuffer subject, String ... subjectDescArg)
+	{
+		syncInfo();
+		noExceptionThrown(false);
+		return new ByteBufferAssertion(subject,subjectDescArg);
+	}
+
 	/** Verify things about a runnable snippet of code
 	 * 
 	 * @param subject the runnable functional object to run (once) and examine
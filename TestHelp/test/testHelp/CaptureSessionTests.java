@@ -0,0 +1,135 @@
+package testHelp;
+
+import java.io.PrintStream;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Tests of ConsoleTester getOutput methods run within a CaptureSession, with a benchmark of per-run overhead with and without a session,
+ * run only when the system property testHelp.benchmarks is true.
+ *
+ * @author John Armstrong
+ */
+class CaptureSessionTests
+{
+	static {
+		ConsoleTester.setVerboseLevel(2);
+	}
+
+	static void echo()
+	{
+		System.out.println("echo " + new Scanner(System.in).nextLine());
+	}
+
+	@Test
+	void test_session_runsAreIndependent()
+	{
+		PrintStream systemOutBefore = System.out;
+		try (CaptureSession session = CaptureSession.open())
+		{
+			for (int i = 0; i < 3; i++)
+			{
+				ConsoleTester.getOutputReset();
+				String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(CaptureSessionTests::echo),null,
+						"input " + i + "\n","echo in session");
+				verify.that(output).isEqualTo("echo input " + i);
+			}
+			verify.thatObject(session.getRunCount()).isEqualTo(3L);
+		}
+		verify.that(System.out == systemOutBefore).isTrue("System.out restored when session closed");
+	}
+
+	@Test
+	void test_session_bufferNotReusedAfterAbort()
+	{
+		ConsoleTester.setOutputLimits(100,100,OutputLimitPolicy.abort);
+		try (CaptureSession session = CaptureSession.open())
+		{
+			ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction((Runnable)() -> { while (true) System.out.print("0123456789"); }),
+					null,"","print forever with 100 byte limit in session");
+			verify.exceptionThrown().ofType(OutputLimitExceededError.class);
+
+			ConsoleTester.getOutputReset();
+			String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(CaptureSessionTests::echo),null,
+					"after abort\n","echo in session after abort");
+			verify.that(output).isEqualTo("echo after abort");
+			verify.thatObject(session.getRunCount()).isEqualTo(2L);
+		}
+		finally
+		{
+			ConsoleTester.setOutputLimits(0,0,OutputLimitPolicy.truncate);
+		}
+	}
+
+	@Test
+	void test_session_openTwice()
+	{
+		CaptureSession session = CaptureSession.open();
+		try
+		{
+			CaptureSession.open();
+			verify.fail("Expected TestHelpError from second CaptureSession.open");
+		}
+		catch (TestHelpError ex)
+		{
+			verify.that(ex.getMessage()).matches("already open");
+		}
+		finally
+		{
+			session.close();
+		}
+	}
+
+	// =====================================================
+	//
+	//	Benchmark - prints per-run time with and without a session - run with -DtestHelp.benchmarks=true
+	//
+	// =====================================================
+
+	static final int BENCHMARK_WARMUP_RUNS = 5000;
+	static final int BENCHMARK_RUNS = 20000;
+
+	@Test
+	@EnabledIfSystemProperty(named = "testHelp.benchmarks", matches = "true")
+	void test_session_benchmark()
+	{
+		runEchoes(BENCHMARK_WARMUP_RUNS);
+		long withoutSession = runEchoes(BENCHMARK_RUNS);
+
+		long withSession;
+		try (CaptureSession session = CaptureSession.open())
+		{
+			runEchoes(BENCHMARK_WARMUP_RUNS);
+			withSession = runEchoes(BENCHMARK_RUNS);
+			verify.thatObject(session.getRunCount()).isEqualTo((long)(BENCHMARK_WARMUP_RUNS + BENCHMARK_RUNS));
+		}
+
+		verify.infoF("%d getOutputFromVFunction runs without session: %.2f microseconds per run",BENCHMARK_RUNS,withoutSession / 1000.0 / BENCHMARK_RUNS);
+		verify.infoF("%d getOutputFromVFunction runs with session:    %.2f microseconds per run",BENCHMARK_RUNS,withSession / 1000.0 / BENCHMARK_RUNS);
+	}
+
+	/**
+	 * Run echo a number of times, each with getOutputReset and getOutputFromVFunction.
+	 *
+	 * @return elapsed nanoseconds
+	 */
+	private static long runEchoes(int runs)
+	{
+		VFunctionsAndVUnboundMethods.VFunction<VFunctionsAndVUnboundMethods.VoidA,VFunctionsAndVUnboundMethods.VoidR> vFunction =
+				VFunctionsAndVUnboundMethods.makeVFunction(CaptureSessionTests::echo);
+		long start = System.nanoTime();
+		for (int i = 0; i < runs; i++)
+		{
+			ConsoleTester.getOutputReset();
+			String output = ConsoleTester.getOutputFromVFunction(vFunction,null,"x\n","echo for benchmark");
+			if (!output.equals("echo x"))
+			{
+				verify.failF("Expected 'echo x' but found '%s' in run %d",output,i);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+}
@@ -392,4 +392,36 @@ public class ConsoleTesterTests
 		}
 	}
 	
+
+	// =============================================================
+	//
+	// Dialogue tests with MainClass2 (interactive)
+	//
+	// =============================================================
+
+	@Test
+	void test_getOutputFromDialogue_good()
+	{
+		ConsoleDialogue dialogue = new ConsoleDialogue()
+				.expect("A or B or return to quit")
+				.send("A")
+				.expectPattern("You entered [AB]")
+				.expect("A or B or return to quit")
+				.send("")
+				.expect("Bye");
+		String output = ConsoleTester.getOutputFromDialogue(MainClass2::main,null,dialogue,"MainClass2::main dialogue");
+		verify.that(output).matches("You entered A\\s+A or B or return to quit\\s+Bye$");
+	}
+
+	@Test
+	void test_getOutputFromDialogue_expectTimesOut()
+	{
+		ConsoleDialogue dialogue = new ConsoleDialogue()
+				.expect("A or B or return to quit")
+				.send("A")
+				.expect("You entered B",200);
+		ConsoleTester.getOutputFromDialogue(MainClass2::main,null,dialogue,"MainClass2::main dialogue with wrong expectation");
+		verify.exceptionThrown().ofType(ConsoleDialogueError.class).withMessage("step 3: expected 'You entered B' within 200 ms",CompareType.Substring);
+	}
+
 }
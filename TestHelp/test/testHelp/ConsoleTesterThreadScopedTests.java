@@ -0,0 +1,212 @@
+package testHelp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of ConsoleTester getOutput methods in thread-scoped capture mode.  The getOutput tests are the same as ones in
+ * ConsoleTesterTests and can be run in parallel under JUnit parallel execution.
+ *
+ * @author John Armstrong
+ */
+class ConsoleTesterThreadScopedTests
+{
+	static {
+		ConsoleTester.setVerboseLevel(2);
+	}
+
+	@BeforeAll
+	static void setThreadScopedCaptureOn()
+	{
+		ConsoleTester.setThreadScopedCapture(true);
+	}
+
+	@AfterAll
+	static void setThreadScopedCaptureOff()
+	{
+		ConsoleTester.setThreadScopedCapture(false);
+	}
+
+	@Test
+	void test_getOutput_ClassName_twoArgs()
+	{
+		String output = ConsoleTester.getOutput("testHelp.ConsoleTesterTests$MainClass1", new String[] {"arg1","arg2"}, "");
+		verify.that(output).matches("arg\\[1\\] \"arg2\"");
+	}
+
+	@Test
+	void test_getOutput_MethodReference_input()
+	{
+		String output = ConsoleTester.getOutput(TestClassWithInteractiveMethods::main2, null, "A\nB\n\n", "TestClassWithInteractiveMethods::main2 + A,B");
+		verify.that(output).matches("You entered B");
+	}
+
+	@Test
+	void test_getOutput_MethodReference_exception()
+	{
+		ConsoleTester.getOutput(TestClassWithInteractiveMethods::main2, null, "A\nC\n", "TestClassWithInteractiveMethods::main2 + A,C -> exception");
+		verify.exceptionThrown();
+	}
+
+	@Test
+	void test_getOutputFromDialogue()
+	{
+		ConsoleDialogue dialogue = new ConsoleDialogue()
+				.expect("A or B or return to quit")
+				.send("B")
+				.expect("You entered B")
+				.send("");
+		String output = ConsoleTester.getOutputFromDialogue(TestClassWithInteractiveMethods::main2,null,dialogue,"TestClassWithInteractiveMethods::main2 dialogue");
+		verify.that(output).matches("Bye$");
+	}
+
+	@Test
+	void test_getOutputWithTimeout()
+	{
+		String output = ConsoleTester.getOutputWithTimeout(TestClassWithInteractiveMethods::main2,null,"A\n\n",5000,"TestClassWithInteractiveMethods::main2 with timeout");
+		verify.that(output).matches("Bye$");
+	}
+
+	@Test
+	void test_getOutputFromVFunction_spawnedThreadTracking()
+	{
+		ConsoleTester.setSpawnedThreadTracking(true,5000);
+		try
+		{
+			String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> MiscTests.printFromSpawnedThread(100)),null,"",
+					"MiscTests.printFromSpawnedThread(100) with spawned thread tracking");
+			verify.that(output).matches("from spawned thread$");
+		}
+		finally
+		{
+			ConsoleTester.setSpawnedThreadTracking(false,0);
+		}
+	}
+
+	@Test
+	void test_unbundledGetOutput()
+	{
+		String output;
+		try
+		{
+			ConsoleTester.getOutputStart("some input\n","Unbundled call");
+			System.out.println("Read: " + new java.util.Scanner(System.in).nextLine());
+			output = ConsoleTester.getOutputFinish();
+		}
+		catch (Throwable ex)
+		{
+			output = ConsoleTester.getOutputFromException(ex);
+		}
+		verify.that(output).isEqualTo("Read: some input");
+	}
+
+	static void echoSlowly(String [] args)
+	{
+		String line = new Scanner(System.in).nextLine();
+		for (char c : ("echo " + line).toCharArray()) // a character at a time, so that output of concurrent runs would interleave
+		{
+			System.out.print(c);
+			Thread.yield();
+		}
+	}
+
+	static String getOutputOfEcho(String line)
+	{
+		ConsoleTester.getOutputReset();
+		return ConsoleTester.getOutput(ConsoleTesterThreadScopedTests::echoSlowly,null,line + "\n","echo " + line);
+	}
+
+	@Test
+	void test_getOutput_concurrentCalls() throws Exception
+	{
+		// called through reflection on each thread, as JUnit calls a test method, since getOutput finds its test on the stack
+		Method getOutputOfEcho = ConsoleTesterThreadScopedTests.class.getDeclaredMethod("getOutputOfEcho",String.class);
+		int runsPerThread = 10;
+		String [][] outputs = new String[3][runsPerThread];
+		Throwable [] failures = new Throwable[outputs.length];
+		CountDownLatch start = new CountDownLatch(1);
+		Thread [] threads = new Thread[outputs.length];
+		for (int i = 0; i < threads.length; i++)
+		{
+			int n = i;
+			threads[n] = new Thread(() -> {
+				try
+				{
+					start.await();
+					for (int run = 0; run < runsPerThread; run++)
+					{
+						outputs[n][run] = (String)getOutputOfEcho.invoke(null,"thread " + n + " run " + run);
+					}
+				}
+				catch (InvocationTargetException ex)
+				{
+					failures[n] = ex.getCause();
+				}
+				catch (ReflectiveOperationException | InterruptedException ex)
+				{
+					failures[n] = ex;
+				}
+			});
+			threads[n].start();
+		}
+		start.countDown();
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		for (int i = 0; i < outputs.length; i++)
+		{
+			verify.that(failures[i] == null).isTrue("thread " + i + " completed without exception - " + failures[i]);
+			for (int run = 0; run < runsPerThread; run++)
+			{
+				verify.that(outputs[i][run],"output of thread " + i + " run " + run).isEqualTo("echo thread " + i + " run " + run);
+			}
+		}
+	}
+
+	@Test
+	void test_delegatingPrintStream_routesPerThread() throws InterruptedException
+	{
+		ConsoleTester.printTestNameIfNotAlreadyPrinted();
+
+		ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[4];
+		Thread[] threads = new Thread[buffers.length];
+
+		for (int i = 0; i < threads.length; i++)
+		{
+			int n = i;
+			buffers[n] = new ByteArrayOutputStream();
+			threads[n] = new Thread(() -> {
+				PrintStream ps = ConsoleTester.makePrintStreamFromOutputBytes(buffers[n]);
+				((DelegatingPrintStream)ConsoleTester.getSystemOut()).setThreadPrintStream(ps);
+				for (int j = 0; j < 1000; j++)
+				{
+					System.out.println("thread " + n);
+				}
+				((DelegatingPrintStream)ConsoleTester.getSystemOut()).setThreadPrintStream(null);
+			});
+			threads[n].start();
+		}
+
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		for (int i = 0; i < buffers.length; i++)
+		{
+			String output = ConsoleTester.outputBytesToString(buffers[i]);
+			verify.that(output,"output of thread " + i).doesNotMatch("thread [^" + i + "]");
+		}
+	}
+
+}
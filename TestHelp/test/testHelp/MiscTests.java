@@ -1,8 +1,36 @@
 package testHelp;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 
 class MiscTests
 {
@@ -53,6 +81,45 @@ class MiscTests
 		ConsoleTester.printInfoIfNotAlreadyPrinted();
 	}
 	
+	// =====================================================
+	//
+	//	Console flush delay
+	//
+	// =====================================================
+
+	@Test
+	void test_consoleFlushDelay()
+	{
+		verify.thatObject(ConsoleTester.getConsoleFlushDelay())
+			.isEqualTo(Integer.getInteger("testHelp.consoleFlushDelay",ConsoleTester.DEFAULT_CONSOLE_FLUSH_DELAY_MILLIS));
+		int delayBefore = ConsoleTester.getConsoleFlushDelay();
+		try
+		{
+			int count = 5;
+			ConsoleTester.setConsoleFlushDelay(20);
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++)
+			{
+				OutputInfo.flushPrintStreams(System.out);
+			}
+			long delayedMillis = (System.nanoTime() - start) / 1_000_000;
+			verify.that(delayedMillis >= 20 * count).isTrue("flush sleeps the delay each time");
+
+			ConsoleTester.setConsoleFlushDelay(0);
+			start = System.nanoTime();
+			for (int i = 0; i < count; i++)
+			{
+				OutputInfo.flushPrintStreams(System.out);
+			}
+			long undelayedMillis = (System.nanoTime() - start) / 1_000_000;
+			verify.that(undelayedMillis < 20 * count).isTrue("flush does not sleep without a delay");
+		}
+		finally
+		{
+			ConsoleTester.setConsoleFlushDelay(delayBefore);
+		}
+	}
+
 	// =====================================================
 	//
 	//	Error output chunking
@@ -225,6 +292,1734 @@ class MiscTests
 
 	}
 
+	// =====================================================
+	//
+	//	DelegatingInputStream
+	//
+	// =====================================================
+
+	@Test
+	void test_delegatingInputStream_bulkReadAndRemainingBytes()
+	{
+		String output;
+		try
+		{
+			ConsoleTester.getOutputStart("line 1\nline 2\nline 3\n","bulk read of 7 bytes from ConsoleTester.getSystemIn()");
+
+			byte [] buffer = new byte[7];
+			int read = ConsoleTester.getSystemIn().read(buffer,0,buffer.length);
+			System.out.println("Read " + read + ": " + new String(buffer,0,read,StandardCharsets.US_ASCII).trim());
+
+			ByteBuffer remaining = ((DelegatingInputStream)ConsoleTester.getSystemIn()).getRemainingBytes();
+			System.out.println("Remaining " + remaining.remaining() + ": " + StandardCharsets.US_ASCII.decode(remaining).toString().replace('\n','|'));
+
+			output = ConsoleTester.getOutputFinish();
+		}
+		catch (Throwable ex)
+		{
+			output = ConsoleTester.getOutputFromException(ex);
+		}
+		verify.that(output).isEqualTo("Read 7: line 1" + System.lineSeparator() + "Remaining 14: line 2|line 3|");
+	}
+
+	/**
+	 * A ByteArrayInputStream that counts single byte and bulk reads, and records whether it has been closed.
+	 */
+	static final class CountingInputStream extends java.io.ByteArrayInputStream
+	{
+		int singleReads;
+		int bulkReads;
+		boolean closed;
+
+		CountingInputStream(String text)
+		{
+			super(text.getBytes(StandardCharsets.US_ASCII));
+		}
+
+		@Override
+		public synchronized int read()
+		{
+			singleReads++;
+			return super.read();
+		}
+
+		@Override
+		public synchronized int read(byte [] b, int off, int len)
+		{
+			bulkReads++;
+			return super.read(b,off,len);
+		}
+
+		@Override
+		public void close()
+		{
+			closed = true;
+		}
+	}
+
+	@Test
+	void test_delegatingInputStream_forwarding() throws IOException
+	{
+		CountingInputStream defaultIn = new CountingInputStream("0123456789");
+		DelegatingInputStream in = new DelegatingInputStream(defaultIn);
+
+		byte [] buffer = new byte[4];
+		verify.that(in.read(buffer)).isEqualTo(4);
+		verify.that(in.read(buffer,1,2)).isEqualTo(2);
+		verify.that(new String(buffer,StandardCharsets.US_ASCII)).isEqualTo("0453");
+		verify.that(defaultIn.bulkReads).isEqualTo(2);
+		verify.that(defaultIn.singleReads).isEqualTo(0);
+		verify.that(in.skip(1) == 1).isTrue("skip forwarded");
+		verify.that(in.available()).isEqualTo(3);
+		verify.that(in.read()).isEqualTo('7');
+		verify.that(defaultIn.singleReads).isEqualTo(1);
+
+		in.close();
+		verify.that(defaultIn.closed).isFalse("stream passed in constructor not closed");
+
+		CountingInputStream other = new CountingInputStream("");
+		in.setInputStream(other);
+		in.close();
+		verify.that(other.closed).isTrue("other stream closed");
+		in.setInputStream(defaultIn);
+		in.close();
+		verify.that(defaultIn.closed).isFalse("stream passed in constructor not closed once set again");
+	}
+
+	// =====================================================
+	//
+	//	Output limits
+	//
+	// =====================================================
+
+	static void printLines(int count)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			System.out.println("line " + i);
+		}
+	}
+
+	@Test
+	void test_getOutput_outputLimit_truncate()
+	{
+		ConsoleTester.setOutputLimits(100,100,OutputLimitPolicy.truncate);
+		try
+		{
+			String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printLines(1000)),null,"","printLines(1000) with 100 byte limit");
+			verify.that(output).matches("^line 0");
+			verify.that(output).doesNotMatch("line 999");
+			verify.that(ConsoleTester.getDiscardedOutputBytesFromInfo() > 0).isTrue();
+		}
+		finally
+		{
+			ConsoleTester.setOutputLimits(0,0,OutputLimitPolicy.truncate);
+		}
+	}
+
+	@Test
+	void test_getOutput_outputLimit_headAndTail()
+	{
+		ConsoleTester.setOutputLimits(100,100,OutputLimitPolicy.headAndTail);
+		try
+		{
+			String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printLines(1000)),null,"","printLines(1000) with 100 byte limit");
+			verify.that(output).matches("^line 0");
+			verify.that(output).matches("bytes discarded");
+			verify.that(output).matches("line 999$");
+		}
+		finally
+		{
+			ConsoleTester.setOutputLimits(0,0,OutputLimitPolicy.truncate);
+		}
+	}
+
+	@Test
+	void test_getOutput_outputLimit_abort()
+	{
+		ConsoleTester.setOutputLimits(100,100,OutputLimitPolicy.abort);
+		try
+		{
+			ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction((Runnable)() -> { while (true) printLines(1); }),null,"","printLines forever with 100 byte limit");
+			verify.exceptionThrown().ofType(OutputLimitExceededError.class);
+		}
+		finally
+		{
+			ConsoleTester.setOutputLimits(0,0,OutputLimitPolicy.truncate);
+		}
+	}
+
+	// =====================================================
+	//
+	//	Spill to disk
+	//
+	// =====================================================
+
+	@Test
+	void test_getOutputView_spilled()
+	{
+		ConsoleTester.setSpillThreshold(1000);
+		try
+		{
+			CharSequence output = ConsoleTester.getOutputViewFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printLines(100000)),null,"","printLines(100000) with 1000 byte spill threshold");
+			verify.that(output).isInstanceOf(ByteCharSequence.class);
+			verify.that(output).matches("^line 0\\R");
+			verify.that(output).matches("line 99999$");
+			verify.that(output.subSequence(0,6)).isEqualTo("line 0");
+		}
+		finally
+		{
+			ConsoleTester.setSpillThreshold(0);
+		}
+	}
+
+	@Test
+	void test_getOutputView_spillFileDeleted() throws IOException, InterruptedException
+	{
+		Path tempDirectory = Paths.get(System.getProperty("java.io.tmpdir"));
+		List<Path> before = listSpillFiles(tempDirectory);
+		ConsoleTester.setSpillThreshold(1000);
+		try
+		{
+			CharSequence output = ConsoleTester.getOutputViewFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printLines(10000)),null,"","printLines(10000) with 1000 byte spill threshold");
+			verify.that(output).matches("line 9999$");
+		}
+		finally
+		{
+			ConsoleTester.setSpillThreshold(0);
+		}
+
+		// deleted when mapped, or where mapped files cannot be deleted, by a later getOutput once the view has been collected
+		long deadline = System.currentTimeMillis() + 5000;
+		List<Path> left;
+		while (!(left = listSpillFiles(tempDirectory)).stream().allMatch(before::contains) && System.currentTimeMillis() < deadline)
+		{
+			System.gc();
+			Thread.sleep(50);
+			ConsoleTester.getOutputReset();
+			ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printLines(1)),null,"","printLines(1)");
+		}
+		left.removeAll(before);
+		verify.that(left.isEmpty()).isTrue("spill file deleted: " + left);
+		verify.that(CaptureOutputStream.getUndeletedSpillFileCount()).isEqualTo(0);
+	}
+
+	private static List<Path> listSpillFiles(Path directory) throws IOException
+	{
+		try (java.util.stream.Stream<Path> files = Files.list(directory))
+		{
+			return files.filter(file -> file.getFileName().toString().matches("testHelp-capture-.*\\.out")).collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	void test_captureOutputStream_spilledStringAndWriteTo() throws IOException
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+		{
+			text.append("ligne ").append(i).append(" \u00e9t\u00e9\n");
+		}
+		byte [] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+		CaptureOutputStream spilled = new CaptureOutputStream(0,OutputLimitPolicy.truncate,"System.out",100);
+		spilled.write(bytes,0,bytes.length);
+		verify.that(spilled.isSpilled()).isTrue("spilled");
+		verify.that(spilled.size()).isEqualTo(bytes.length);
+		verify.that(spilled.toString("UTF-8")).isEqualTo(text.toString());
+		ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		spilled.writeTo(copy);
+		verify.that(Arrays.equals(copy.toByteArray(),bytes)).isTrue("spilled bytes written to another stream");
+		spilled.reset();
+
+		CaptureOutputStream headAndTail = new CaptureOutputStream(1000,OutputLimitPolicy.headAndTail,"System.out",100);
+		headAndTail.write(bytes,0,bytes.length);
+		copy.reset();
+		headAndTail.writeTo(copy);
+		verify.that(Arrays.equals(copy.toByteArray(),headAndTail.toByteArray())).isTrue("head, marker and tail written to another stream");
+		verify.that(headAndTail.size()).isEqualTo(copy.size());
+		verify.that(headAndTail.toString("UTF-8")).matches("bytes discarded");
+		headAndTail.reset();
+	}
+
+	@Test
+	void test_getOutputView_notSpilled()
+	{
+		CharSequence output = ConsoleTester.getOutputViewFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printLines(3)),null,"","printLines(3) with no spill threshold");
+		verify.that(output).isInstanceOf(ByteCharSequence.class);
+		verify.that(output).isEqualTo(String.format("line 0%nline 1%nline 2"));
+	}
+
+	@Test
+	void test_getOutputView_nonAscii()
+	{
+		CharSequence output = ConsoleTester.getOutputViewFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> System.out.println("\t caf\u00e9 \u2013 na\u00efve \n")),
+				null,"","print non-ASCII text padded with whitespace");
+		verify.that(output.toString()).isEqualTo(new String("caf\u00e9 \u2013 na\u00efve".getBytes(Charset.forName(ConsoleTester.getConsoleEncoding())),Charset.forName(ConsoleTester.getConsoleEncoding())));
+	}
+
+	// =====================================================
+	//
+	//	Binary output
+	//
+	// =====================================================
+
+	static void printAllByteValues()
+	{
+		byte [] bytes = new byte[256];
+		for (int i = 0; i < bytes.length; i++)
+		{
+			bytes[i] = (byte)i;
+		}
+		System.out.write(bytes,0,bytes.length);
+		System.out.flush();
+	}
+
+	@Test
+	void test_getOutputBytesFromVFunction()
+	{
+		ByteBuffer output = ConsoleTester.getOutputBytesFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(MiscTests::printAllByteValues),null,"","printAllByteValues");
+		byte [] expected = new byte[256];
+		for (int i = 0; i < expected.length; i++)
+		{
+			expected[i] = (byte)i;
+		}
+		verify.that(output.isReadOnly()).isTrue("output bytes read-only");
+		verify.that(output).hasLength(256);
+		verify.that(output).isEqualTo(expected);
+		verify.that(output).startsWith(new byte[] {0,1,2,3});
+		verify.that(output).endsWith(new byte[] {(byte)0xfd,(byte)0xfe,(byte)0xff});
+
+		expected[200] = 0;
+		verify.that(output).differsFirstAt(expected,200);
+		verify.that(output).differsFirstAt(Arrays.copyOf(expected,100),100);
+	}
+
+	@Test
+	void test_getOutputBytesFromVFunction_digest()
+	{
+		ByteBuffer output = ConsoleTester.getOutputBytesFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> System.out.print("abc")),null,"","print abc");
+		verify.that(output).hasDigest("SHA-256","BA7816BF8F01CFEA414140DE5DAE2223B00361A396177A9CB410FF61F20015AD");
+		verify.that(output.position()).isEqualTo(0);
+	}
+
+	@Test
+	void test_byteBufferMismatch()
+	{
+		byte [] bytes = new byte[1000];
+		for (int i = 0; i < bytes.length; i++)
+		{
+			bytes[i] = (byte)(i * 31);
+		}
+		for (int offset : new int [] {0,7,8,9,15,16,500,999})
+		{
+			byte [] changed = bytes.clone();
+			changed[offset]++;
+			verify.that(ByteBufferAssertion.mismatch(ByteBuffer.wrap(bytes),ByteBuffer.wrap(changed))).isEqualTo(offset);
+		}
+		verify.that(ByteBufferAssertion.mismatch(ByteBuffer.wrap(bytes),ByteBuffer.wrap(bytes.clone()))).isEqualTo(-1);
+		verify.that(ByteBufferAssertion.mismatch(ByteBuffer.wrap(bytes),ByteBuffer.wrap(bytes,0,600).slice())).isEqualTo(600);
+
+		ByteBuffer offsetBytes = ByteBuffer.wrap(bytes);
+		offsetBytes.position(3);
+		verify.that(ByteBufferAssertion.mismatch(offsetBytes,ByteBuffer.wrap(Arrays.copyOfRange(bytes,3,1000)))).isEqualTo(-1);
+		verify.that(offsetBytes.position()).isEqualTo(3);
+	}
+
+	@Test
+	void test_byteBufferAssertion_failure()
+	{
+		try
+		{
+			verify.that(ByteBuffer.wrap(new byte[] {1,2,3,4})).isEqualTo(new byte[] {1,2,9,4});
+			verify.fail("Expected assertion to fail");
+		}
+		catch (java.lang.AssertionError ex)
+		{
+			verify.that(ex.getMessage()).matches("differ at offset 2: 01 02 \\[03\\] 04 in bytes, 01 02 \\[09\\] 04 in other bytes");
+		}
+	}
+
+	// =====================================================
+	//
+	//	Error output
+	//
+	// =====================================================
+
+	@Test
+	void test_getErrorOutputFromInfo_verboseLevel0()
+	{
+		int verboseLevel = ConsoleTester.getVerboseLevel();
+		ConsoleTester.setVerboseLevel(0);
+		try
+		{
+			String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> {
+				System.out.println("to out");
+				System.err.println("to err");
+			}),null,"","print to System.out and System.err at verbose level 0");
+			verify.that(output).isEqualTo("to out");
+			verify.that(OutputInfo.info().errorOutput == null).isTrue("error output not decoded until asked for");
+			verify.that(ConsoleTester.getErrorOutputFromInfo()).isEqualTo("to err");
+		}
+		finally
+		{
+			ConsoleTester.setVerboseLevel(verboseLevel);
+		}
+	}
+
+	@Test
+	void test_getErrorOutputFromInfo_runsAreSeparate()
+	{
+		ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> System.err.println("first")),null,"","print first to System.err");
+		verify.that(ConsoleTester.getErrorOutputFromInfo()).isEqualTo("first");
+		ConsoleTester.getOutputReset();
+		ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> System.out.println("quiet")),null,"","print nothing to System.err");
+		verify.that(ConsoleTester.getErrorOutputFromInfo()).isEqualTo("");
+	}
+
+	// =====================================================
+	//
+	//	Spawned threads
+	//
+	// =====================================================
+
+	static void printFromSpawnedThread(long sleepMillis)
+	{
+		System.out.println("before start");
+		new Thread(() -> {
+			try
+			{
+				Thread.sleep(sleepMillis);
+			}
+			catch (InterruptedException ex)
+			{
+				// end early
+			}
+			System.out.println("from spawned thread");
+		},"spawned").start();
+		System.out.println("after start");
+	}
+
+	@Test
+	void test_spawnedThreadTracking_joined()
+	{
+		ConsoleTester.setSpawnedThreadTracking(true,5000);
+		try
+		{
+			String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printFromSpawnedThread(200)),null,"","printFromSpawnedThread(200) with 5000 ms join");
+			verify.that(output).isEqualTo(String.format("before start%nafter start%nfrom spawned thread"));
+			verify.thatObject(ConsoleTester.getSpawnedThreadCountFromInfo()).isEqualTo(1);
+			verify.that(ConsoleTester.getSpawnedThreadsStillRunningFromInfo() == null).isTrue("no thread still running");
+			verify.that(ConsoleTester.getThreadTaggedOutputFromInfo()).matches("^\\[ConsoleTester run \\d+\\] before start\\R");
+			verify.that(ConsoleTester.getThreadTaggedOutputFromInfo()).matches("\\[spawned\\] from spawned thread$");
+		}
+		finally
+		{
+			ConsoleTester.setSpawnedThreadTracking(false,0);
+		}
+	}
+
+	@Test
+	void test_spawnedThreadTracking_cutOff()
+	{
+		ConsoleTester.setSpawnedThreadTracking(true,100);
+		try
+		{
+			String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printFromSpawnedThread(500)),null,"","printFromSpawnedThread(500) with 100 ms join");
+			verify.that(output).isEqualTo(String.format("before start%nafter start"));
+			verify.that(ConsoleTester.getSpawnedThreadsStillRunningFromInfo()).matches("^1 of 1 threads started still running after 100 ms .*: spawned$");
+
+			ConsoleTester.getOutputReset();
+			output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> {
+				try
+				{
+					Thread.sleep(1000);
+				}
+				catch (InterruptedException ex)
+				{
+					// end early
+				}
+				System.out.println("next run");
+			}),null,"","next run, while cut off thread writes");
+			verify.that(output).isEqualTo("next run");
+			verify.that(systemStreamsRestoredWithin(5000)).isTrue("System streams restored after cut off thread ended");
+		}
+		finally
+		{
+			ConsoleTester.setSpawnedThreadTracking(false,0);
+		}
+	}
+
+	// =====================================================
+	//
+	//	Live tee
+	//
+	// =====================================================
+
+	@Test
+	void test_liveTee_prefixesLines()
+	{
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		LiveTee tee = new LiveTee(new PrintStream(console,true),"[out] ".getBytes(),0);
+		tee.write("line 0\nline ".getBytes(),0,12);
+		tee.write("1\nline 2".getBytes(),0,8);
+		LiveTee.closeAndDrain(tee);
+		verify.that(console.toString()).isEqualTo("[out] line 0\n[out] line 1\n[out] line 2" + System.lineSeparator());
+	}
+
+	@Test
+	void test_liveTee_rateLimited()
+	{
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		LiveTee tee = new LiveTee(new PrintStream(console,true),"[out] ".getBytes(),100);
+		byte [] bytes = new byte[10000];
+		Arrays.fill(bytes,(byte)'x');
+		tee.write(bytes,0,bytes.length);
+		tee.write("ok\n".getBytes(),0,3);
+		LiveTee.closeAndDrain(tee);
+		verify.that(console.toString()).matches("^\\[out\\] \\[\\.\\.\\. 10003 bytes not shown\\]\\R$");
+	}
+
+	@Test
+	void test_liveTee_writerParksWhenIdle() throws InterruptedException
+	{
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		LiveTee tee = new LiveTee(new PrintStream(console,true),"[out] ".getBytes(),0);
+		tee.write("first\n".getBytes(),0,6);
+		LiveTee.closeAndDrain(tee);
+		Thread writer = null;
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+		{
+			if (thread.getName().equals("testHelp LiveTee writer"))
+			{
+				writer = thread;
+			}
+		}
+		verify.that(writer != null).isTrue("writer thread found");
+		long deadline = System.currentTimeMillis() + 1000;
+		while (writer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		verify.thatObject(writer.getState()).isEqualTo(Thread.State.WAITING); // not TIMED_WAITING - no wake-ups while idle
+
+		// and is woken by the next write
+		LiveTee next = new LiveTee(new PrintStream(console,true),"[out] ".getBytes(),0);
+		next.write("second\n".getBytes(),0,7);
+		LiveTee.closeAndDrain(next);
+		verify.that(console.toString()).isEqualTo("[out] first\n[out] second\n");
+	}
+
+	@Test
+	void test_getOutput_liveTee()
+	{
+		ConsoleTester.setLiveTee(true,1000);
+		try
+		{
+			String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printLines(100000)),null,"","printLines(100000) with live tee at 1000 bytes per second");
+			verify.that(output).matches("^line 0\\R");
+			verify.that(output).matches("line 99999$");
+		}
+		finally
+		{
+			ConsoleTester.setLiveTee(false);
+		}
+	}
+
+	// =====================================================
+	//
+	//	Streaming output expectations
+	//
+	// =====================================================
+
+	@Test
+	void test_getOutput_expectation_matches() throws IOException
+	{
+		Path expectedFile = Files.createTempFile("MiscTests",".txt");
+		try
+		{
+			Files.write(expectedFile,Arrays.asList("line 0","line 1","line 2"));
+			String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printLines(3)),null,"",
+					OutputExpectation.fromFile(expectedFile),"printLines(3) expecting lines 0-2 from file");
+			verify.that(output).matches("line 2$");
+			verify.that(ConsoleTester.getOutputMismatchFromInfo() == null).isTrue();
+		}
+		finally
+		{
+			Files.delete(expectedFile);
+		}
+	}
+
+	@Test
+	void test_getOutput_expectation_stopsAtFirstMismatch()
+	{
+		Iterator<String> expectedLines = IntStream.iterate(0,i -> i + 1).mapToObj(i -> (i == 3) ? "line three" : "line " + i).iterator();
+		ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction((Runnable)() -> { for (int i = 0; ; i++) System.out.println("line " + i); }),null,"",
+				OutputExpectation.fromLines(expectedLines),"printLines forever expecting 'line three' at line 4");
+		verify.exceptionThrown().ofType(OutputMismatchError.class).withMessage("line 4 (byte offset 21): expected 'line three' but found 'line 3'",CompareType.Equal);
+	}
+
+	@Test
+	void test_getOutput_expectation_outputEndsEarly()
+	{
+		String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(() -> printLines(3)),null,"",
+				OutputExpectation.fromString("line 0\nline 1\nline 2\nline 3\n"),"printLines(3) expecting lines 0-3");
+		verify.that(output).matches("line 2$");
+		verify.that(ConsoleTester.getOutputMismatchFromInfo()).matches("^line 4 .*expected 'line 3' but output ended");
+	}
+
+	// =====================================================
+	//
+	//	Input streams
+	//
+	// =====================================================
+
+	static void sumLines()
+	{
+		Scanner scanner = new Scanner(System.in);
+		long count = 0;
+		long sum = 0;
+		while (scanner.hasNextLine())
+		{
+			sum += Long.parseLong(scanner.nextLine());
+			count++;
+		}
+		System.out.println("count " + count + " sum " + sum);
+	}
+
+	@Test
+	void test_getOutput_inputStream_iterator()
+	{
+		Iterator<String> lines = IntStream.range(0,100000).mapToObj(Integer::toString).iterator();
+		String output = ConsoleTester.getOutputFromVFunctionWithInputStream(VFunctionsAndVUnboundMethods.makeVFunction(MiscTests::sumLines),null,
+				ConsoleTester.makeInputStream(lines),"sumLines with 100000 lines from iterator");
+		verify.that(output).isEqualTo("count 100000 sum 4999950000");
+	}
+
+	@Test
+	void test_getOutput_inputStream_reader()
+	{
+		String output = ConsoleTester.getOutputFromVFunctionWithInputStream(VFunctionsAndVUnboundMethods.makeVFunction(
+				() -> System.out.println("Read: " + new Scanner(System.in).nextLine())),null,
+				ConsoleTester.makeInputStream(new StringReader("a line from a reader\n")),"echo line from reader");
+		verify.that(output).isEqualTo("Read: a line from a reader");
+	}
+
+	@Test
+	void test_getOutput_inputStream_path() throws IOException
+	{
+		Path inputFile = Files.createTempFile("MiscTests",".txt");
+		try
+		{
+			Files.write(inputFile,Arrays.asList("1","2","3"));
+			String output = ConsoleTester.getOutputFromVFunctionWithInputStream(VFunctionsAndVUnboundMethods.makeVFunction(MiscTests::sumLines),null,
+					ConsoleTester.makeInputStream(inputFile),"sumLines with lines from file");
+			verify.that(output).isEqualTo("count 3 sum 6");
+		}
+		finally
+		{
+			Files.delete(inputFile);
+		}
+	}
+
+	// =====================================================
+	//
+	//	Timeouts
+	//
+	// =====================================================
+
+	@Test
+	void test_getOutputWithTimeout_returns()
+	{
+		String output = ConsoleTester.getOutputFromVBiFunctionWithTimeout(VFunctionsAndVUnboundMethods.makeVBiFunction((Integer a, Integer b) -> {
+				System.out.println("adding");
+				return a + b;
+			}),2,3,null,5000,"add with timeout");
+		verify.that(output).isEqualTo("adding");
+		verify.thatObject(ConsoleTester.getValueFromInfo()).isEqualTo(5);
+	}
+
+	@Test
+	void test_getOutputWithTimeout_sleepInterrupted()
+	{
+		ConsoleTester.getOutputFromVFunctionWithTimeout(VFunctionsAndVUnboundMethods.makeVFunction((Runnable)() -> {
+				System.out.println("going to sleep");
+				try
+				{
+					Thread.sleep(60000);
+				}
+				catch (InterruptedException ex)
+				{
+					throw new RuntimeException(ex);
+				}
+			}),null,null,200,"sleep with timeout");
+		verify.exceptionThrown().ofType(OutputTimeoutError.class)
+			.withMessage("Timed out after 200 ms - worker thread ended when interrupted",CompareType.Equal);
+		String outputBeforeTimeout = ConsoleTester.getOutputBeforeExceptionFromInfo();
+		if (!"going to sleep".equals(outputBeforeTimeout))
+		{
+			verify.failF("Expected output before timeout 'going to sleep' but found '%s'",outputBeforeTimeout);
+		}
+	}
+
+	@Test
+	void test_getOutputWithTimeout_loopAbandoned()
+	{
+		ConsoleTester.getOutputFromVFunctionWithTimeout(VFunctionsAndVUnboundMethods.makeVFunction((Runnable)() -> {
+				long end = System.nanoTime() + 1_000_000_000L; // ignores interrupts, but ends so it does not spin for the rest of the tests
+				while (System.nanoTime() < end)
+				{
+					System.out.println("still looping");
+				}
+			}),null,null,200,"printing loop ignoring interrupts with timeout");
+		verify.exceptionThrown().ofType(OutputTimeoutError.class).withMessage("abandoned",CompareType.Substring);
+
+		// the abandoned worker is still printing, but not to the output of later runs
+		ConsoleTester.getOutputReset();
+		String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction((Runnable)() -> {
+				System.out.println("next run");
+				try
+				{
+					Thread.sleep(50);
+				}
+				catch (InterruptedException ex)
+				{
+					// nothing to do
+				}
+			}),null,null,"run after abandoned worker");
+		verify.that(output).isEqualTo("next run");
+
+		// once the abandoned worker ends, System.out is no longer the delegating stream
+		verify.that(systemStreamsRestoredWithin(5000)).isTrue("System streams restored after abandoned worker ended");
+	}
+
+	@Test
+	void test_getOutputFromDialogue_workerAbandoned()
+	{
+		ConsoleDialogue dialogue = new ConsoleDialogue().expect("never printed",200);
+		ConsoleTester.getOutputFromVFunctionWithDialogue(VFunctionsAndVUnboundMethods.makeVFunction((Runnable)() -> {
+				long end = System.nanoTime() + 1_000_000_000L; // ignores interrupts, but ends so it does not run for the rest of the tests
+				while (System.nanoTime() < end)
+				{
+					System.out.println("LEAK");
+					System.err.println("LEAK");
+					try
+					{
+						Thread.sleep(5);
+					}
+					catch (InterruptedException ex)
+					{
+						// ignored
+					}
+				}
+			}),null,dialogue,"dialogue with printing loop ignoring interrupts");
+		verify.exceptionThrown().ofType(ConsoleDialogueError.class);
+
+		// the abandoned worker is still printing, but not to the output or error output of later runs
+		ConsoleTester.getOutputReset();
+		String output = ConsoleTester.getOutputFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction((Runnable)() -> {
+				System.out.println("quiet");
+				try
+				{
+					Thread.sleep(30);
+				}
+				catch (InterruptedException ex)
+				{
+					// nothing to do
+				}
+			}),null,null,"run after abandoned dialogue worker");
+		verify.that(output).isEqualTo("quiet");
+		verify.that(ConsoleTester.getErrorOutputFromInfo()).doesNotMatch("LEAK");
+
+		verify.that(systemStreamsRestoredWithin(5000)).isTrue("System streams restored after abandoned dialogue worker ended");
+	}
+
+	static boolean systemStreamsRestoredWithin(long millis)
+	{
+		long deadline = System.currentTimeMillis() + millis;
+		while (System.out == ConsoleTester.getSystemOut() || System.in == ConsoleTester.getSystemIn())
+		{
+			if (System.currentTimeMillis() > deadline)
+			{
+				return false;
+			}
+			try
+			{
+				Thread.sleep(20);
+			}
+			catch (InterruptedException ex)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// =====================================================
+	//
+	//	Batches
+	//
+	// =====================================================
+
+	static int addInput(int n)
+	{
+		int input = Integer.parseInt(new Scanner(System.in).nextLine());
+		System.out.println(input + " + " + n);
+		if (n == 13)
+		{
+			throw new IllegalArgumentException("unlucky");
+		}
+		return input + n;
+	}
+
+	static List<BatchCase<Integer>> makeAddInputCases(int count)
+	{
+		return IntStream.range(0,count).mapToObj(i -> BatchCase.of(i,(i * 2) + "\n")).collect(Collectors.toList());
+	}
+
+	@Test
+	void test_getOutputsFromVFunction_sequential()
+	{
+		BatchResults<Integer> results = ConsoleTester.getOutputsFromVFunction(VFunctionsAndVUnboundMethods.makeVFunction(MiscTests::addInput),
+				makeAddInputCases(100),"addInput batch");
+		verify.that(results.size()).isEqualTo(100);
+		verify.that(results.getOutput(7)).isEqualTo("14 + 7");
+		verify.thatObject(results.getValue(7)).isEqualTo(21);
+		verify.that(results.getOutput(13)).isEqualTo("26 + 13");
+		verify.thatObject(results.getException(13)).isInstanceOf(IllegalArgumentException.class);
+		verify.that(results.getExceptionCount()).isEqualTo(1);
+	}
+
+	@Test
+	void test_getOutputsFromVFunction_parallel()
+	{
+		int count = 20000;
+		VFunctionsAndVUnboundMethods.VFunction<Integer,Integer> addInput = VFunctionsAndVUnboundMethods.makeVFunction(MiscTests::addInput);
+
+		long start = System.nanoTime();
+		BatchResults<Integer> sequential = ConsoleTester.getOutputsFromVFunction(addInput,makeAddInputCases(count),false,"addInput batch");
+		long sequentialNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		BatchResults<Integer> parallel = ConsoleTester.getOutputsFromVFunction(addInput,makeAddInputCases(count).stream(),true,"addInput batch in parallel");
+		long parallelNanos = System.nanoTime() - start;
+
+		for (int i = 0; i < count; i++)
+		{
+			if (!parallel.getOutput(i).equals(sequential.getOutput(i)) || (i != 13 && !parallel.getValue(i).equals(sequential.getValue(i))))
+			{
+				verify.failF("Case %d differs in parallel: '%s' %s, sequential: '%s' %s",i,parallel.getOutput(i),parallel.getValue(i),
+						sequential.getOutput(i),sequential.getValue(i));
+			}
+		}
+		verify.that(parallel.getExceptionCount()).isEqualTo(1);
+		verify.infoF("%d cases: %.1f ms sequential, %.1f ms parallel",count,sequentialNanos / 1e6,parallelNanos / 1e6);
+	}
+
+	@Test
+	void test_getOutputsFromVFunction_parallelFewCases()
+	{
+		// fewer cases than chunks - every case run once, in its own place
+		VFunctionsAndVUnboundMethods.VFunction<Integer,Integer> addInput = VFunctionsAndVUnboundMethods.makeVFunction(MiscTests::addInput);
+		for (int count : new int[] {0,1,3})
+		{
+			BatchResults<Integer> results = ConsoleTester.getOutputsFromVFunction(addInput,makeAddInputCases(count),true,"few cases in parallel");
+			verify.that(results.size()).isEqualTo(count);
+			for (int i = 0; i < count; i++)
+			{
+				verify.that(results.getOutput(i)).isEqualTo((i * 2) + " + " + i);
+			}
+		}
+	}
+
+	// =====================================================
+	//
+	//	Main class handles
+	//
+	// =====================================================
+
+	@Test
+	void test_getMainHandle_cached()
+	{
+		java.lang.invoke.MethodHandle handle = ConsoleTester.getMainHandle("testHelp.ConsoleTesterTests$MainClass2",null);
+		verify.that(ConsoleTester.getMainHandle("testHelp.ConsoleTesterTests$MainClass2",null) == handle).isTrue("same handle from cache");
+
+		ConsoleTester.setLoader(null);
+		verify.that(ConsoleTester.getMainHandle("testHelp.ConsoleTesterTests$MainClass2",null) != handle).isTrue("cache cleared by setLoader");
+	}
+
+	@Test
+	void test_getMainHandle_otherLoaderNotCached()
+	{
+		ClassLoader loader = new java.net.URLClassLoader(new java.net.URL[0],MiscTests.class.getClassLoader());
+		java.lang.invoke.MethodHandle handle = ConsoleTester.getMainHandle("testHelp.ConsoleTesterTests$MainClass2",loader);
+		verify.that(ConsoleTester.getMainHandle("testHelp.ConsoleTesterTests$MainClass2",loader) != handle).isTrue("handle from a loader not set in ConsoleTester not cached");
+
+		ConsoleTester.setLoader(loader);
+		try
+		{
+			handle = ConsoleTester.getMainHandle("testHelp.ConsoleTesterTests$MainClass2",loader);
+			verify.that(ConsoleTester.getMainHandle("testHelp.ConsoleTesterTests$MainClass2",loader) == handle).isTrue("handle from the loader set cached");
+		}
+		finally
+		{
+			ConsoleTester.setLoader(null);
+		}
+	}
+
+	@Test
+	void test_getOutput_className_exceptionNotWrapped()
+	{
+		ConsoleTester.getOutput("testHelp.ConsoleTesterTests$MainClass2","C\n");
+		verify.exceptionThrown().ofType(IllegalArgumentException.class).withMessage("Bad input: C",CompareType.Equal);
+		StackTraceElement [] frames = OutputInfo.info().exception.getStackTrace();
+		int main = 0;
+		while (!frames[main].getMethodName().equals("main"))
+		{
+			main++;
+		}
+		if (!frames[main + 1].getClassName().startsWith("testHelp.ConsoleTester"))
+		{
+			verify.failF("Expected main to be called directly by ConsoleTester but was called by %s",frames[main + 1]);
+		}
+	}
+
+	@Test
+	void test_getOutput_className_notFound()
+	{
+		ConsoleTester.getOutput("testHelp.NoSuchMainClass","");
+		verify.exceptionThrown().ofType(ClassNotFoundException.class);
+		if (!OutputInfo.info().exceptionIsInternal)
+		{
+			verify.fail("Expected exception loading main class to be internal");
+		}
+	}
+
+	// =====================================================
+	//
+	//	Class isolation
+	//
+	// =====================================================
+
+	@Test
+	void test_getOutput_classIsolation()
+	{
+		ConsoleTester.setClassIsolation(true,"testHelp.TestClassWithStatics");
+		try
+		{
+			ConsoleTester.getOutput("testHelp.TestClassWithStatics","");
+			long readCount = ClassBytesCache.getReadCount();
+			for (int i = 0; i < 3; i++)
+			{
+				ConsoleTester.getOutputReset();
+				String output = ConsoleTester.getOutput("testHelp.TestClassWithStatics","");
+				verify.that(output).isEqualTo("run 1");
+			}
+			verify.that(ClassBytesCache.getReadCount() == readCount).isTrue("class file read once");
+		}
+		finally
+		{
+			ConsoleTester.setClassIsolation(false);
+		}
+
+		ConsoleTester.getOutputReset();
+		String first = ConsoleTester.getOutput("testHelp.TestClassWithStatics","");
+		ConsoleTester.getOutputReset();
+		String second = ConsoleTester.getOutput("testHelp.TestClassWithStatics","");
+		verify.that(second).isNotEqualTo(first);
+	}
+
+	@Test
+	void test_getOutput_classIsolationWithExitInterception()
+	{
+		ConsoleTester.setClassIsolation(true,"testHelp.TestClassWithStatics");
+		ConsoleTester.setExitInterception(true,"testHelp.TestClassWithExit");
+		try
+		{
+			String output = ConsoleTester.getOutput("testHelp.TestClassWithExit",new String[] {"exit"},"");
+			verify.that(output).isEqualTo("before exit");
+			verify.thatObject(ConsoleTester.getExitStatusFromInfo()).isEqualTo(3);
+		}
+		finally
+		{
+			ConsoleTester.setExitInterception(false);
+			ConsoleTester.setClassIsolation(false);
+		}
+	}
+
+	@Test
+	void test_isolatingClassLoader_testHelpNotIsolated()
+	{
+		IsolatingClassLoader loader = new IsolatingClassLoader(MiscTests.class.getClassLoader(),"testHelp.");
+		verify.that(loader.intercepts("testHelp.ConsoleTester")).isFalse("testHelp class isolated by package prefix");
+		verify.that(new IsolatingClassLoader(null,"testHelp.TestClassWithStatics").intercepts("testHelp.TestClassWithStatics")).isTrue("testHelp class isolated by class prefix");
+	}
+
+	@Test
+	void test_getOutput_classIsolation_timing()
+	{
+		ConsoleTester.setClassIsolation(true,"testHelp.TestClassWithStatics");
+		try (CaptureSession session = CaptureSession.open())
+		{
+			int count = 1000;
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++)
+			{
+				ConsoleTester.getOutputReset();
+				String output = ConsoleTester.getOutput("testHelp.TestClassWithStatics","");
+				if (!output.equals("run 1"))
+				{
+					verify.failF("Run %d of isolated main gave '%s'",i,output);
+				}
+			}
+			verify.infoF("%.1f microseconds per isolated run",(System.nanoTime() - start) / 1e3 / count);
+			verify.thatObject(session.getRunCount()).isEqualTo((long)count);
+		}
+		finally
+		{
+			ConsoleTester.setClassIsolation(false);
+		}
+	}
+
+	// =====================================================
+	//
+	//	Exit interception
+	//
+	// =====================================================
+
+	@Test
+	void test_getOutput_exitIntercepted()
+	{
+		ConsoleTester.setExitInterception(true,"testHelp.TestClassWithExit");
+		try
+		{
+			String output = ConsoleTester.getOutput("testHelp.TestClassWithExit",new String[] {"exit"},"");
+			verify.that(output).isEqualTo("before exit");
+			verify.thatObject(ConsoleTester.getExitStatusFromInfo()).isEqualTo(3);
+
+			ConsoleTester.getOutputReset();
+			output = ConsoleTester.getOutput("testHelp.TestClassWithExit",new String[] {"halt"},"");
+			verify.that(output).isEqualTo("before exit");
+			verify.thatObject(ConsoleTester.getExitStatusFromInfo()).isEqualTo(4);
+
+			ConsoleTester.getOutputReset();
+			output = ConsoleTester.getOutput("testHelp.TestClassWithExit",new String[] {"reference"},"");
+			verify.that(output).isEqualTo("before exit");
+			verify.thatObject(ConsoleTester.getExitStatusFromInfo()).isEqualTo(5);
+
+			ConsoleTester.getOutputReset();
+			output = ConsoleTester.getOutput("testHelp.TestClassWithExit",new String[] {"none"},"");
+			verify.that(output).isEqualTo(String.format("before exit%nafter exit"));
+			verify.that(ConsoleTester.getExitStatusFromInfo() == null).isTrue("no exit status");
+		}
+		finally
+		{
+			ConsoleTester.setExitInterception(false);
+		}
+	}
+
+	@Test
+	void test_rewriteExitCalls_unchangedWithoutExit() throws IOException
+	{
+		byte [] classBytes;
+		try (java.io.InputStream in = MiscTests.class.getResourceAsStream("MiscTests.class"))
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) >= 0)
+			{
+				bytes.write(b);
+			}
+			classBytes = bytes.toByteArray();
+		}
+		verify.that(ExitInterceptingClassLoader.rewriteExitCalls(classBytes) == classBytes).isTrue("class without exit calls unchanged");
+	}
+
+	// =====================================================
+	//
+	//	Primitive functions
+	//
+	// =====================================================
+
+	@Test
+	void test_getOutputFromIntVFunction()
+	{
+		String output = ConsoleTester.getOutputFromIntVFunction(x -> {
+			System.out.print("squaring " + x);
+			return x * x;
+		},12,null,"square");
+		verify.that(output).isEqualTo("squaring 12");
+		verify.that(ConsoleTester.getIntValueFromInfo()).isEqualTo(144);
+		verify.that(ConsoleTester.getValueFromInfo() == null).isTrue("no boxed value");
+
+		ConsoleTester.getOutputReset();
+		ConsoleTester.getOutputFromLongVFunction(x -> x << 40,3,null,"shift");
+		verify.that(ConsoleTester.getLongValueFromInfo() == 3L << 40).isTrue("long value");
+
+		ConsoleTester.getOutputReset();
+		ConsoleTester.getOutputFromDoubleVFunction(Math::sqrt,2.25,null,"sqrt");
+		verify.that(ConsoleTester.getDoubleValueFromInfo() == 1.5).isTrue("double value");
+
+		try
+		{
+			ConsoleTester.getLongValueFromInfo();
+			verify.fail("long value from double function");
+		}
+		catch (TestHelpError ex)
+		{
+			verify.that(ex.getMessage()).isEqualTo("No long value from the last getOutput method");
+		}
+	}
+
+	@Test
+	void test_getReturnValueFromPrimitiveVFunctions()
+	{
+		verify.that(NormalizedFunctionCallers.getReturnValueFromIntVBiFunction(Math::max,3,7,"max")).isEqualTo(7);
+		verify.that(NormalizedFunctionCallers.getReturnValueFromLongVFunction(Math::negateExact,5L,"negate") == -5L).isTrue("long value");
+		verify.that(NormalizedFunctionCallers.getReturnValueFromDoubleVBiFunction(Math::pow,2.0,10.0,"pow") == 1024.0).isTrue("double value");
+		Throwable ex = NormalizedFunctionCallers.getExceptionFromIntVFunction(Math::negateExact,Integer.MIN_VALUE,"negate");
+		verify.that(ex instanceof ArithmeticException).isTrue("overflow thrown");
+	}
+
+	@Test
+	void test_getReturnValueFromIntVFunction_allocationFree()
+	{
+		java.lang.management.ThreadMXBean threadBean = java.lang.management.ManagementFactory.getThreadMXBean();
+		if (!(threadBean instanceof com.sun.management.ThreadMXBean) || !((com.sun.management.ThreadMXBean)threadBean).isThreadAllocatedMemorySupported())
+		{
+			verify.info("Allocation per thread not measurable on this JVM");
+			return;
+		}
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean)threadBean;
+		long threadId = Thread.currentThread().getId();
+		IntUnaryOperator function = x -> x * 31 + 1000;
+		VFunctionsAndVUnboundMethods.VFunction<Integer,Integer> boxedFunction = VFunctionsAndVUnboundMethods.makeVFunction(FunctionNormalizers.normalizeIntUnaryOperator(function));
+		int count = 1_000_000;
+		long sum = 0;
+		for (int i = 0; i < count; i++) // warm up
+		{
+			sum += NormalizedFunctionCallers.getReturnValueFromIntVFunction(function,i,"function");
+			sum += NormalizedFunctionCallers.getReturnValueFromOneArgVFunction(boxedFunction,i,"boxed function");
+		}
+
+		long start = allocationBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < count; i++)
+		{
+			sum += NormalizedFunctionCallers.getReturnValueFromIntVFunction(function,i,"function");
+		}
+		long primitiveBytes = allocationBean.getThreadAllocatedBytes(threadId) - start;
+
+		start = allocationBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < count; i++)
+		{
+			sum += NormalizedFunctionCallers.getReturnValueFromOneArgVFunction(boxedFunction,i,"boxed function");
+		}
+		long boxedBytes = allocationBean.getThreadAllocatedBytes(threadId) - start;
+
+		verify.infoF("%d calls: %d bytes allocated unboxed, %d bytes boxed (sum %d)",count,primitiveBytes,boxedBytes,sum);
+		// boxing an int outside the Integer cache takes at least 16 bytes, so less than a byte a call means no call allocates - whether
+		// the calls were interpreted or compiled, since the unboxed path has nothing to allocate and relies on no escape analysis
+		verify.that(primitiveBytes < count).isTrue("unboxed calls allocation-free");
+	}
+
+	// =====================================================
+	//
+	//	Static state restore
+	//
+	// =====================================================
+
+	@Test
+	void test_getOutput_staticStateRestore()
+	{
+		ConsoleTester.setStaticStateRestore(true,false,TestClassWithStatics.class);
+		try
+		{
+			int runArgsSize = TestClassWithStatics.runArgs.size();
+			String first = ConsoleTester.getOutput("testHelp.TestClassWithStatics",new String[] {"a"},"");
+			for (int i = 0; i < 3; i++)
+			{
+				ConsoleTester.getOutputReset();
+				String output = ConsoleTester.getOutput("testHelp.TestClassWithStatics",new String[] {"a"},"");
+				verify.that(output).isEqualTo(first);
+			}
+			verify.that(TestClassWithStatics.runArgs.size() == runArgsSize + 4).isTrue("list not restored without deep copy");
+		}
+		finally
+		{
+			ConsoleTester.setStaticStateRestore(false,false);
+		}
+	}
+
+	@Test
+	void test_getOutput_staticStateRestore_deepCopy()
+	{
+		ConsoleTester.setStaticStateRestore(true,true,TestClassWithStatics.class);
+		try
+		{
+			int runArgsSize = TestClassWithStatics.runArgs.size();
+			int [][] argLengths = TestClassWithStatics.argLengths;
+			int argLength = argLengths[0][0];
+			for (int i = 0; i < 3; i++)
+			{
+				ConsoleTester.getOutputReset();
+				ConsoleTester.getOutput("testHelp.TestClassWithStatics",new String[] {"a","b"},"");
+				verify.that(TestClassWithStatics.runArgs.size() == runArgsSize).isTrue("final list restored in place");
+				verify.that(TestClassWithStatics.argLengths == argLengths).isTrue("array field restored");
+				verify.that(TestClassWithStatics.argLengths[0][0] == argLength).isTrue("nested array restored");
+			}
+		}
+		finally
+		{
+			ConsoleTester.setStaticStateRestore(false,false);
+		}
+	}
+
+	@Test
+	void test_getOutput_staticStateRestore_timing()
+	{
+		ConsoleTester.setStaticStateRestore(true,true,TestClassWithStatics.class);
+		try (CaptureSession session = CaptureSession.open())
+		{
+			String first = ConsoleTester.getOutput("testHelp.TestClassWithStatics","");
+			int count = 1000;
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++)
+			{
+				ConsoleTester.getOutputReset();
+				String output = ConsoleTester.getOutput("testHelp.TestClassWithStatics","");
+				if (!output.equals(first))
+				{
+					verify.failF("Run %d of restored main gave '%s'",i,output);
+				}
+			}
+			verify.infoF("%.1f microseconds per restored run",(System.nanoTime() - start) / 1e3 / count);
+			verify.thatObject(session.getRunCount()).isEqualTo((long)count + 1);
+		}
+		finally
+		{
+			ConsoleTester.setStaticStateRestore(false,false);
+		}
+	}
+
+	// =====================================================
+	//
+	//	Worker pool
+	//
+	// =====================================================
+
+	@Test
+	void test_workerPool_isolatedRuns()
+	{
+		try (WorkerPool pool = new WorkerPool(1,2))
+		{
+			for (int i = 0; i < 3; i++)
+			{
+				WorkerResult result = pool.getOutput("testHelp.TestClassWithStatics",null,"",0);
+				verify.that(result.getOutput()).isEqualTo("run 1");
+			}
+			verify.that(pool.getStartCount()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	void test_workerPool_timing()
+	{
+		try (WorkerPool pool = new WorkerPool(1,1000))
+		{
+			pool.getOutput("testHelp.TestClassWithStatics",null,"",0); // wait for the worker to start
+			int count = 200;
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++)
+			{
+				WorkerResult result = pool.getOutput("testHelp.TestClassWithStatics",null,"",0);
+				if (!"run 1".equals(result.getOutput()))
+				{
+					verify.failF("Job %d in worker gave %s",i,result);
+				}
+			}
+			verify.infoF("%.1f microseconds per job in worker",(System.nanoTime() - start) / 1e3 / count);
+		}
+	}
+
+	@Test
+	void test_workerPool_exitAndException()
+	{
+		try (WorkerPool pool = new WorkerPool(1,10))
+		{
+			WorkerResult result = pool.getOutput("testHelp.TestClassWithExit",new String[] {"exit"},"",0);
+			verify.that(result.getOutput()).isEqualTo("before exit");
+			verify.thatObject(result.getExitStatus()).isEqualTo(3);
+
+			result = pool.getOutput("testHelp.TestClassWithExit",new String[] {"halt"},"",0);
+			verify.thatObject(result.getExitStatus()).isEqualTo(4);
+
+			result = pool.getOutput("testHelp.TestClassWithExit",null,"",0);
+			verify.that(result.getOutput()).isEqualTo("before exit");
+			verify.that(result.getException()).matches("^java.lang.NullPointerException");
+			verify.that(result.getExitStatus() == null).isTrue("no exit status");
+
+			verify.that(pool.getStartCount()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void test_workerPool_timeout()
+	{
+		try (WorkerPool pool = new WorkerPool(1,10))
+		{
+			WorkerResult result = pool.getOutput("testHelp.TestClassThatHangs",null,"",2000);
+			verify.that(result.getWorkerFailure()).isEqualTo("timed out after 2000 ms");
+
+			result = pool.getOutput("testHelp.TestClassWithStatics",null,"",0);
+			verify.that(result.getOutput()).isEqualTo("run 1");
+			verify.that(pool.getStartCount()).isEqualTo(2);
+		}
+	}
+
+	@Test
+	void test_workerPool_replacementFails() throws ReflectiveOperationException
+	{
+		try (WorkerPool pool = new WorkerPool(1,1))
+		{
+			// the java command of the pool, made unrunnable for the worker started to replace the first
+			java.lang.reflect.Field commandField = WorkerPool.class.getDeclaredField("command");
+			commandField.setAccessible(true);
+			@SuppressWarnings("unchecked")
+			List<String> command = (List<String>)commandField.get(pool);
+			String java = command.get(0);
+			command.set(0,java + ".missing");
+			verify.that(pool.getOutput("testHelp.TestClassWithStatics",null,"",0).getOutput()).isEqualTo("run 1");
+			for (int i = 0; i < 2; i++)
+			{
+				WorkerResult result = pool.getOutput("testHelp.TestClassWithStatics",null,"",0);
+				verify.that(result.getWorkerFailure()).matches("^Could not start worker JVM");
+			}
+			command.set(0,java);
+			verify.that(pool.getOutput("testHelp.TestClassWithStatics",null,"",0).getOutput()).isEqualTo("run 1");
+		}
+	}
+
+	@Test
+	void test_workerPool_closeWhileWaiting() throws InterruptedException
+	{
+		WorkerPool pool = new WorkerPool(1,10);
+		Thread hanging = new Thread(() -> pool.getOutput("testHelp.TestClassThatHangs",null,"",5000));
+		hanging.start();
+		Thread.sleep(200); // the only worker is taken
+		String [] waitingError = new String[1];
+		Thread waiting = new Thread(() -> {
+			try
+			{
+				pool.getOutput("testHelp.TestClassWithStatics",null,"",0);
+			}
+			catch (TestHelpError ex)
+			{
+				waitingError[0] = ex.getMessage();
+			}
+		});
+		waiting.start();
+		Thread.sleep(200);
+		pool.close();
+		waiting.join(2000);
+		verify.that(waiting.isAlive()).isFalse("job waiting for a worker ended by close");
+		verify.that(waitingError[0]).isEqualTo("WorkerPool is closed");
+		hanging.join();
+	}
+
+	// =====================================================
+	//
+	//	Test daemon
+	//
+	// =====================================================
+
+	static final String daemonSampleTestsSource = String.join("\n",
+			"package daemonTest;",
+			"import org.junit.jupiter.api.*;",
+			"import testHelp.*;",
+			"class DaemonSampleBase {",
+			"	boolean ready = false;",
+			"	@BeforeEach",
+			"	void setUp() {",
+			"		ready = true;",
+			"	}",
+			"	@Test",
+			"	void test_inherited() {",
+			"		verify.that(ready).isTrue(\"inherited BeforeEach called\");",
+			"	}",
+			"}",
+			"public class DaemonSampleTests extends DaemonSampleBase {",
+			"	static int runs = 0;",
+			"	@Test",
+			"	void test_pass() {",
+			"		runs++;",
+			"		verify.that(runs == 1).isTrue(\"test class loaded afresh\");",
+			"		verify.that(ready).isTrue(\"inherited BeforeEach called\");",
+			"		verify.that(ConsoleTester.getOutput(\"daemonTest.DaemonSampleMain\",\"\")).matches(\"^run 1\\\\s*$\");",
+			"	}",
+			"	@Test",
+			"	void test_fail() {",
+			"		verify.fail(\"deliberate failure\");",
+			"	}",
+			"	@Disabled",
+			"	@Test",
+			"	void test_disabled() {",
+			"		verify.fail(\"disabled test called\");",
+			"	}",
+			"}",
+			"class DaemonSampleRepeatedTests {",
+			"	@RepeatedTest(2)",
+			"	void test_repeated() {",
+			"	}",
+			"}");
+
+	// a main only on the class path sent to the daemon - loaded afresh by each request, so it counts from 1 each time
+	static final String daemonSampleMainSource = String.join("\n",
+			"package daemonTest;",
+			"public class DaemonSampleMain {",
+			"	static int runs = 0;",
+			"	public static void main(String [] args) {",
+			"		System.out.println(\"run \" + ++runs);",
+			"	}",
+			"}");
+
+	@Test
+	void test_testDaemon_run() throws IOException
+	{
+		Path directory = Files.createTempDirectory("testHelpDaemon");
+		Path source = directory.resolve("DaemonSampleTests.java");
+		Files.write(source,daemonSampleTestsSource.getBytes(StandardCharsets.UTF_8));
+		Path mainSource = directory.resolve("DaemonSampleMain.java");
+		Files.write(mainSource,daemonSampleMainSource.getBytes(StandardCharsets.UTF_8));
+		int status = javax.tools.ToolProvider.getSystemJavaCompiler().run(null,null,null,"-d",directory.toString(),
+				"-cp",System.getProperty("java.class.path"),source.toString(),mainSource.toString());
+		verify.that(status == 0).isTrue("sample tests compiled");
+		Path tokenFile = directory.resolve("token");
+
+		try (TestDaemon daemon = TestDaemon.start(0,tokenFile))
+		{
+			for (int i = 0; i < 2; i++)
+			{
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				ByteArrayOutputStream err = new ByteArrayOutputStream();
+				int [] counts = TestDaemon.run(daemon.getPort(),tokenFile,directory.toString(),Arrays.asList("daemonTest.DaemonSampleTests"),out,err);
+				String report = err.toString();
+				verify.that(counts[0] == 3 && counts[1] == 1).isTrue("3 tests run, 1 failed, run " + i + ": " + report);
+				verify.that(report).matches("FAIL daemonTest\\.DaemonSampleTests\\.test_fail: .*deliberate failure");
+				verify.that(report).matches("RAN 3 FAILED 1 SKIPPED 1");
+				verify.that(report).doesNotMatch("FAIL daemonTest\\.DaemonSampleTests\\.test_(pass|inherited|disabled)");
+			}
+
+			ByteArrayOutputStream err = new ByteArrayOutputStream();
+			int [] counts = TestDaemon.run(daemon.getPort(),tokenFile,directory.toString(),Arrays.asList("daemonTest.DaemonSampleRepeatedTests"),
+					new ByteArrayOutputStream(),err);
+			verify.that(counts[0] == 0 && counts[1] == 1).isTrue("class it cannot run reported failed: " + err);
+			verify.that(err.toString()).matches("FAIL daemonTest\\.DaemonSampleRepeatedTests: uses @org\\.junit\\.jupiter\\.api\\.RepeatedTest");
+		}
+		finally
+		{
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void test_testDaemon_token() throws IOException
+	{
+		Path directory = Files.createTempDirectory("testHelpDaemon");
+		Path tokenFile = directory.resolve("token");
+		Path otherTokenFile = directory.resolve("otherToken");
+		try (TestDaemon daemon = TestDaemon.start(0,tokenFile))
+		{
+			verify.that(PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile))).matches("^rw-------$");
+
+			TestDaemon.start(0,otherTokenFile).close(); // makes a token file with another token
+			String refused = null;
+			try
+			{
+				TestDaemon.run(daemon.getPort(),otherTokenFile,directory.toString(),Arrays.asList("daemonTest.None"),
+						new ByteArrayOutputStream(),new ByteArrayOutputStream());
+			}
+			catch (IOException ex)
+			{
+				refused = ex.getMessage();
+			}
+			verify.that(refused).matches("refused the request");
+
+			Files.setPosixFilePermissions(tokenFile,PosixFilePermissions.fromString("rw-r--r--"));
+			String unsafe = null;
+			try
+			{
+				TestDaemon.stop(daemon.getPort(),tokenFile);
+			}
+			catch (IOException ex)
+			{
+				unsafe = ex.getMessage();
+			}
+			verify.that(unsafe).matches("may be read or written by others");
+		}
+		finally
+		{
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void test_testDaemon_badRequest() throws IOException
+	{
+		Path directory = Files.createTempDirectory("testHelpDaemon");
+		Path tokenFile = directory.resolve("token");
+		try (TestDaemon daemon = TestDaemon.start(0,tokenFile))
+		{
+			// a request with a negative number of test classes, which the client never sends
+			try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),daemon.getPort()))
+			{
+				socket.setSoTimeout(10000);
+				DataOutputStream toDaemon = new DataOutputStream(socket.getOutputStream());
+				toDaemon.write(TestDaemon.readToken(tokenFile,false));
+				toDaemon.writeByte(TestDaemon.RUN);
+				WorkerProcess.writeString(toDaemon,directory.toString());
+				toDaemon.writeInt(-1);
+				toDaemon.flush();
+
+				DataInputStream fromDaemon = new DataInputStream(socket.getInputStream());
+				verify.thatObject(fromDaemon.readByte()).isEqualTo((byte)TestDaemon.ACCEPTED);
+				StringBuilder report = new StringBuilder();
+				int frameType;
+				while ((frameType = fromDaemon.readByte()) != TestDaemon.DONE)
+				{
+					verify.thatObject(frameType).isEqualTo(TestDaemon.ERR);
+					byte [] frame = new byte[fromDaemon.readInt()];
+					fromDaemon.readFully(frame);
+					report.append(new String(frame,StandardCharsets.UTF_8));
+				}
+				verify.that(report.toString()).matches("FAIL request: TestDaemon could not run it: java\\.lang\\.NegativeArraySizeException");
+				verify.that(fromDaemon.readInt() == 0 && fromDaemon.readInt() == 1).isTrue("bad request counted as one failure");
+			}
+
+			// the daemon still serves later requests
+			ByteArrayOutputStream err = new ByteArrayOutputStream();
+			int [] counts = TestDaemon.run(daemon.getPort(),tokenFile,directory.toString(),Arrays.asList("daemonTest.None"),new ByteArrayOutputStream(),err);
+			verify.that(counts[0] == 0 && counts[1] == 1).isTrue("missing class reported failed: " + err);
+			verify.that(err.toString()).matches("FAIL daemonTest\\.None: could not load class");
+		}
+		finally
+		{
+			deleteDirectory(directory);
+		}
+	}
+
+	static void deleteDirectory(Path directory) throws IOException
+	{
+		try (java.util.stream.Stream<Path> paths = Files.walk(directory))
+		{
+			paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	// =====================================================
+	//
+	//	Source compilation
+	//
+	// =====================================================
+
+	static final String helloSource = String.join("\n",
+			"package hello;",
+			"public class Hello {",
+			"	public static void main(String [] args) {",
+			"		System.out.print(\"Hello \" + new java.util.Scanner(System.in).nextLine());",
+			"	}",
+			"}");
+
+	@Test
+	void test_sourceCompiler_compileAndRun()
+	{
+		Map<String,String> sources = Collections.singletonMap("Hello.java",helloSource);
+		ClassLoader loader = SourceCompiler.compile(sources);
+		ConsoleTester.setLoader(loader);
+		try
+		{
+			String output = ConsoleTester.getOutput("hello.Hello","world\n");
+			verify.that(output).isEqualTo("Hello world");
+		}
+		finally
+		{
+			ConsoleTester.setLoader(null);
+		}
+
+		long compileCount = SourceCompiler.getCompileCount();
+		ClassLoader again = SourceCompiler.compile(new HashMap<>(sources));
+		verify.that(SourceCompiler.getCompileCount() == compileCount).isTrue("same sources not compiled again");
+		verify.that(again != loader).isTrue("new loader for cached classes");
+		SourceCompiler.compile(sources,"-g:none");
+		verify.that(SourceCompiler.getCompileCount() == compileCount + 1).isTrue("sources compiled again with other options");
+	}
+
+	@Test
+	void test_sourceCompiler_setLoaderWithExitInterception()
+	{
+		ConsoleTester.setExitInterception(true,"hello.");
+		try
+		{
+			String [] outputs = new String[2];
+			String [] words = {"first","second"};
+			for (int i = 0; i < words.length; i++)
+			{
+				String source = helloSource.replace("\"Hello \" + new java.util.Scanner(System.in).nextLine()","\"" + words[i] + "\"");
+				ConsoleTester.setLoader(SourceCompiler.compile(Collections.singletonMap("Hello.java",source)));
+				ConsoleTester.getOutputReset();
+				outputs[i] = ConsoleTester.getOutput("hello.Hello","");
+			}
+			verify.that(outputs[0]).isEqualTo("first");
+			verify.that(outputs[1]).isEqualTo("second");
+		}
+		finally
+		{
+			ConsoleTester.setExitInterception(false);
+			ConsoleTester.setLoader(null);
+		}
+	}
+
+	@Test
+	void test_sourceCompiler_compilationError()
+	{
+		Map<String,String> sources = Collections.singletonMap("Broken.java","public class Broken {\n\tint x = 1\n}\n");
+		for (int i = 0; i < 2; i++)
+		{
+			long compileCount = SourceCompiler.getCompileCount();
+			try
+			{
+				SourceCompiler.compile(sources);
+				verify.fail("Broken source compiled");
+			}
+			catch (SourceCompilationError ex)
+			{
+				verify.that(ex.getMessage()).matches("^Broken\\.java:2: error: ");
+			}
+			verify.that(SourceCompiler.getCompileCount() == compileCount + (1 - i)).isTrue("failure cached");
+		}
+	}
+
+	@Test
+	void test_sourceCompiler_errorInImplicitSource() throws IOException
+	{
+		// Helper is not given, but found by the compiler on the source path - its errors are reported with the name of its file
+		Path directory = Files.createTempDirectory("testHelpSources");
+		Path file = directory.resolve("Helper.java");
+		try
+		{
+			Files.write(file,"public class Helper {\n\tint x = 1\n}\n".getBytes(StandardCharsets.UTF_8));
+			SourceCompiler.compile(Collections.singletonMap("User.java","public class User {\n\tHelper helper;\n}\n"),"-sourcepath",directory.toString());
+			verify.fail("Source using broken Helper compiled");
+		}
+		catch (SourceCompilationError ex)
+		{
+			verify.that(ex.getMessage()).matches("Helper\\.java:2: error: ");
+		}
+		finally
+		{
+			Files.delete(file);
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	void test_sourceCompiler_compileFiles() throws IOException
+	{
+		Path directory = Files.createTempDirectory("testHelpSources");
+		Path file = directory.resolve("Hello.java");
+		try
+		{
+			Files.write(file,helloSource.getBytes(StandardCharsets.UTF_8));
+			ConsoleTester.setLoader(SourceCompiler.compileFiles(Collections.singletonList(file)));
+			String output = ConsoleTester.getOutput("hello.Hello","files\n");
+			verify.that(output).isEqualTo("Hello files");
+		}
+		finally
+		{
+			ConsoleTester.setLoader(null);
+			Files.delete(file);
+			Files.delete(directory);
+		}
+	}
+
+	@Test
+	void test_sourceCompiler_compileFilesSameName() throws IOException
+	{
+		Path directory = Files.createTempDirectory("testHelpSources");
+		try
+		{
+			Path first = Files.createDirectory(directory.resolve("first")).resolve("Hello.java");
+			Path second = Files.createDirectory(directory.resolve("second")).resolve("Hello.java");
+			Files.write(first,helloSource.getBytes(StandardCharsets.UTF_8));
+			Files.write(second,helloSource.getBytes(StandardCharsets.UTF_8));
+			String message = null;
+			try
+			{
+				SourceCompiler.compileFiles(Arrays.asList(first,second));
+			}
+			catch (TestHelpError ex)
+			{
+				message = ex.getMessage();
+			}
+			verify.that(message).matches("have the same name");
+		}
+		finally
+		{
+			deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	void test_sourceCompiler_clearCache()
+	{
+		Map<String,String> sources = Collections.singletonMap("Hello.java",helloSource.replace("\"Hello \"","\"Cleared \""));
+		SourceCompiler.compile(sources);
+		long compileCount = SourceCompiler.getCompileCount();
+		SourceCompiler.compile(sources);
+		verify.that(SourceCompiler.getCompileCount() == compileCount).isTrue("cached sources not compiled again");
+		SourceCompiler.clearCache();
+		SourceCompiler.compile(sources);
+		verify.that(SourceCompiler.getCompileCount() == compileCount + 1).isTrue("sources compiled again after clearCache");
+	}
+
+	// =====================================================
+	//
+	//	Startup benchmark
+	//
+	// =====================================================
+
+	@Test
+	@EnabledIfSystemProperty(named = "testHelp.benchmarks", matches = "true")
+	void test_startup_benchmark() throws IOException, InterruptedException
+	{
+		int runs = 5;
+		long [][] lambdaNanos = new long[2][runs]; // first run, making the VFunction
+		long [][] namedNanos = new long[2][runs];
+		for (int i = 0; i < runs; i++) // alternately, so both see the same state of the machine
+		{
+			long [] lambdaRun = StartupBenchmark.timeFirstRun(false);
+			long [] namedRun = StartupBenchmark.timeFirstRun(true);
+			if (lambdaRun == null || namedRun == null)
+			{
+				verify.failF("Startup benchmark run %d failed",i);
+				return;
+			}
+			for (int j = 0; j < 2; j++)
+			{
+				lambdaNanos[j][i] = lambdaRun[j];
+				namedNanos[j][i] = namedRun[j];
+			}
+		}
+		for (int j = 0; j < 2; j++)
+		{
+			Arrays.sort(lambdaNanos[j]);
+			Arrays.sort(namedNanos[j]);
+		}
+		verify.infoF("First getOutputFromVFunction in a new JVM, median of %d: %.2f ms with lambda adapter, %.2f ms with named adapter",
+				runs,lambdaNanos[0][runs / 2] / 1e6,namedNanos[0][runs / 2] / 1e6);
+		verify.infoF("Making its VFunction: %.3f ms with lambda adapter, %.3f ms with named adapter",
+				lambdaNanos[1][runs / 2] / 1e6,namedNanos[1][runs / 2] / 1e6);
+	}
+
 	// =====================================================
 	//
 	//	WrappedException
@@ -0,0 +1,103 @@
+package testHelp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+
+import static testHelp.VFunctionsAndVUnboundMethods.voidA;
+import static testHelp.VFunctionsAndVUnboundMethods.voidR;
+
+import testHelp.VFunctionsAndVUnboundMethods.VFunction;
+import testHelp.VFunctionsAndVUnboundMethods.VoidA;
+import testHelp.VFunctionsAndVUnboundMethods.VoidR;
+
+/**
+ * Times the first getOutputFromVFunction in a new JVM, with its VFunction made by the lambda adapter of
+ * {@link VFunctionsAndVUnboundMethods#makeVFunction(Runnable)} or by an equivalent named class, which links no invokedynamic call
+ * site - run by MiscTests.test_startup_benchmark when the system property testHelp.benchmarks is true, or as:
+ * StartupBenchmark lambda|named
+ *
+ * @author John Armstrong
+ */
+public class StartupBenchmark
+{
+	private static final String RESULT_PREFIX = "FIRST RUN ";
+	private static long adapterNanos;
+
+	/**
+	 * The named class counterpart of the lambda returned by makeVFunction(Runnable).
+	 */
+	private static final class NamedRunnableVFunction implements VFunction<VoidA,VoidR>
+	{
+		private final Runnable runnable;
+
+		NamedRunnableVFunction(Runnable runnable)
+		{
+			this.runnable = runnable;
+		}
+
+		@Override
+		public VoidR apply(VoidA a)
+		{
+			runnable.run();
+			return voidR;
+		}
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		boolean named = args[0].equals("named");
+		long start = System.nanoTime();
+		// through reflection, as JUnit calls a test, since ConsoleTester looks for the reflective call on the stack
+		String output = (String)StartupBenchmark.class.getDeclaredMethod("firstRun",boolean.class).invoke(null,named);
+		long nanos = System.nanoTime() - start;
+		System.out.println(RESULT_PREFIX + (output.equals("hello") ? nanos + " " + adapterNanos : "gave " + output));
+	}
+
+	public static void greet()
+	{
+		System.out.println("hello");
+	}
+
+	private static String firstRun(boolean named)
+	{
+		ConsoleTester.setVerboseLevel(0);
+		Runnable greet = StartupBenchmark::greet;
+		long start = System.nanoTime();
+		VFunction<VoidA,VoidR> vFunction = named ? new NamedRunnableVFunction(greet) : VFunctionsAndVUnboundMethods.makeVFunction(greet);
+		adapterNanos = System.nanoTime() - start;
+		return ConsoleTester.getOutputFromVFunction(vFunction,voidA,"","greet");
+	}
+
+	/**
+	 * Run main in a new JVM with the class path of this one.
+	 *
+	 * @param named true for the named adapter, false for the lambda adapter
+	 * @return the nanoseconds to the end of the first run and the nanoseconds taken to make the VFunction, or null if the run failed
+	 */
+	static long [] timeFirstRun(boolean named) throws IOException, InterruptedException
+	{
+		Process process = new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+				"-cp",System.getProperty("java.class.path"),StartupBenchmark.class.getName(),named ? "named" : "lambda")
+				.redirectError(Redirect.INHERIT).start();
+		long [] nanos = null;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.startsWith(RESULT_PREFIX) && line.substring(RESULT_PREFIX.length()).matches("\\d+ \\d+"))
+				{
+					String [] fields = line.substring(RESULT_PREFIX.length()).split(" ");
+					nanos = new long[] {Long.parseLong(fields[0]),Long.parseLong(fields[1])};
+				}
+			}
+		}
+		process.waitFor();
+		return nanos;
+	}
+
+}
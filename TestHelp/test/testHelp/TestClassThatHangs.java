@@ -0,0 +1,23 @@
+package testHelp;
+
+public class TestClassThatHangs
+{
+
+	// main that never ends, after writing a line, as a submission stuck in a loop
+
+	public static void main(String[] args)
+	{
+		System.out.println("before loop");
+		long count = 0;
+		while (count >= 0)
+		{
+			count++;
+			if (count == Long.MAX_VALUE)
+			{
+				count = 0;
+			}
+		}
+		System.out.println("after loop " + count);
+	}
+
+}
@@ -0,0 +1,31 @@
+package testHelp;
+
+import java.util.function.IntConsumer;
+
+public class TestClassWithExit
+{
+
+	// main that exits in the way given by its first argument, after writing a line
+
+	public static void main(String[] args)
+	{
+		System.out.println("before exit");
+		switch (args[0])
+		{
+		case "exit":
+			System.exit(3);
+			break;
+		case "halt":
+			Runtime.getRuntime().halt(4);
+			break;
+		case "reference":
+			IntConsumer exit = System::exit;
+			exit.accept(5);
+			break;
+		default:
+			break;
+		}
+		System.out.println("after exit");
+	}
+
+}
@@ -0,0 +1,27 @@
+package testHelp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestClassWithStatics
+{
+
+	// main that keeps a count of its runs in a static field, as student and legacy mains often keep state
+
+	private static int runCount = 0;
+	static final List<String> runArgs = new ArrayList<>();
+	static int [][] argLengths = new int[1][1];
+
+	public static void main(String[] args)
+	{
+		runCount++;
+		if (args != null) // getOutput(className, input) passes no arguments
+		{
+			runArgs.addAll(Arrays.asList(args));
+			argLengths[0][0] += args.length;
+		}
+		System.out.println("run " + runCount);
+	}
+
+}